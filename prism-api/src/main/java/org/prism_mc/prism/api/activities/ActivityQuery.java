@@ -314,6 +314,62 @@ public class ActivityQuery {
         return all;
     }
 
+    /**
+     * Get whether this query only limits activities by age, with a "before" bound and no other filters.
+     *
+     * <p>Purges of such queries can drop whole time partitions instead of deleting rows.</p>
+     *
+     * @return True if "before" is the only filter
+     */
+    public boolean ageOnly() {
+        return (
+            before != null &&
+            after == null &&
+            isEmpty(actionTypeKeys) &&
+            isEmpty(actionTypeKeysExcluded) &&
+            isEmpty(actionTypes) &&
+            isEmpty(activityIds) &&
+            isEmpty(affectedBlocks) &&
+            isEmpty(affectedBlocksExcluded) &&
+            isEmpty(causeBlocks) &&
+            isEmpty(causeBlocksExcluded) &&
+            namedCause == null &&
+            namedCauseExcluded == null &&
+            isEmpty(affectedEntityTypes) &&
+            isEmpty(affectedEntityTypesExcluded) &&
+            isEmpty(causeEntityTypes) &&
+            isEmpty(causeEntityTypesExcluded) &&
+            coordinate == null &&
+            isEmpty(affectedMaterials) &&
+            isEmpty(affectedMaterialsExcluded) &&
+            minCoordinate == null &&
+            maxCoordinate == null &&
+            isEmpty(affectedPlayerNames) &&
+            isEmpty(affectedPlayerNamesExcluded) &&
+            isEmpty(causePlayerNames) &&
+            isEmpty(causePlayerNamesExcluded) &&
+            descriptor == null &&
+            airtag == null &&
+            reversed == null &&
+            above == null &&
+            below == null &&
+            worldUuid == null &&
+            worldUuidExcluded == null &&
+            worldId == null &&
+            worldIdExcluded == null
+        );
+    }
+
+    /**
+     * Get whether a filter collection is null or empty.
+     *
+     * @param collection The collection
+     * @return True if null or empty
+     */
+    private static boolean isEmpty(Collection<?> collection) {
+        return collection == null || collection.isEmpty();
+    }
+
     public abstract static class ActivityQueryBuilder<C extends ActivityQuery, B extends ActivityQueryBuilder<C, B>> {
 
         /**
@@ -23,6 +23,7 @@ package org.prism_mc.prism.api.services.modifications;
 import java.util.Collection;
 import java.util.List;
 import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.activities.ActivityQuery;
 
 /**
  * A pull-based source of activities for modification queues.
@@ -62,6 +63,20 @@ public interface ActivityStream extends AutoCloseable {
      */
     int total();
 
+    /**
+     * The primary keys this stream yields, in order, if it's backed by storage keys.
+     *
+     * <p>Modification jobs checkpoint these so an interrupted job can be resumed with
+     * {@link org.prism_mc.prism.api.storage.StorageAdapter#streamActivities(ActivityQuery, List)}.
+     * Streams that return keys must consume exactly {@code limit} keys per call to
+     * {@link #next(int)} until they run out.</p>
+     *
+     * @return The primary keys, or an empty list if the stream can't be resumed
+     */
+    default List<Long> primaryKeys() {
+        return List.of();
+    }
+
     /**
      * Wrap an in-memory collection as a stream that drains in chunks.
      *
@@ -98,6 +98,13 @@ public final class ModificationQueueResult {
     @Builder.Default
     private int skipped = 0;
 
+    /**
+     * The count of activities superseded by a later modification at the same block.
+     * They're marked reversed but not included in {@link #results}.
+     */
+    @Builder.Default
+    private int superseded = 0;
+
     /**
      * Per-applied-block undo snapshots. Captured from the live world at the
      * moment the queue overwrote it; replayed by {@code /pr undo} with a
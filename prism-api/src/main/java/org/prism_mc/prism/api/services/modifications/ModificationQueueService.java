@@ -20,6 +20,7 @@
 
 package org.prism_mc.prism.api.services.modifications;
 
+import java.util.List;
 import java.util.Optional;
 import org.prism_mc.prism.api.activities.ActivityQuery;
 
@@ -31,6 +32,29 @@ public interface ModificationQueueService {
      */
     boolean queueAvailable();
 
+    /**
+     * Check if a queue for the given query could start now. Queues for separate areas
+     * may run at the same time, so this also considers what the active queues modify.
+     *
+     * @param query The query
+     * @return True if a new queue can be made for the query.
+     */
+    default boolean queueAvailable(ActivityQuery query) {
+        return queueAvailable();
+    }
+
+    /**
+     * Check if a queue for the given owner and query could start now. An owner may only
+     * run one rollback or restore at a time.
+     *
+     * @param owner The owner
+     * @param query The query
+     * @return True if a new queue can be made for the owner and query.
+     */
+    default boolean queueAvailable(Object owner, ActivityQuery query) {
+        return queueAvailable(query);
+    }
+
     /**
      * Cancel an active queue for a given owner.
      *
@@ -47,12 +71,22 @@ public interface ModificationQueueService {
     void clearEverythingForOwner(Object owner);
 
     /**
-     * The current modification queue.
+     * The most recently started modification queue.
      *
      * @return The queue
      */
     ModificationQueue currentQueue();
 
+    /**
+     * All active modification queues.
+     *
+     * @return The queues
+     */
+    default List<ModificationQueue> currentQueues() {
+        ModificationQueue queue = currentQueue();
+        return queue != null ? List.of(queue) : List.of();
+    }
+
     /**
      * Get the current queue only if it's owned by a given owner.
      *
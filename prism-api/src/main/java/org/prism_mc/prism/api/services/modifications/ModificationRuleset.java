@@ -56,6 +56,11 @@ public class ModificationRuleset {
      */
     private int maxPerTask;
 
+    /**
+     * The most time, in milliseconds, a task may spend applying modifications. 0 to only limit by count.
+     */
+    private long taskBudgetMillis;
+
     /**
      * Move entities.
      */
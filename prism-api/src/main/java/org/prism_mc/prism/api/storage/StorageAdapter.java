@@ -21,8 +21,10 @@
 package org.prism_mc.prism.api.storage;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.prism_mc.prism.api.activities.AbstractActivity;
 import org.prism_mc.prism.api.activities.Activity;
 import org.prism_mc.prism.api.activities.ActivityQuery;
@@ -62,6 +64,17 @@ public interface StorageAdapter {
      */
     Pair<Integer, Integer> getActivitiesPkBounds(ActivityQuery query);
 
+    /**
+     * Drop whole time partitions of activities a purge query would delete entirely.
+     *
+     * <p>Only applies to age-only queries on time-partitioned storage. Remaining activities
+     * are left for the regular purge cycles.</p>
+     *
+     * @param query The query
+     * @return The number of deleted records
+     */
+    int dropActivityPartitions(ActivityQuery query);
+
     /**
      * Set the reversed bit for activities.
      *
@@ -70,6 +83,24 @@ public interface StorageAdapter {
      */
     void markReversed(List<Long> activityIds, boolean reversed);
 
+    /**
+     * Set the reversed bit for activities read back from this storage.
+     *
+     * <p>Storage that can build its reversal rows from the activities themselves
+     * overrides this. Otherwise, their primary keys are marked.</p>
+     *
+     * @param activities The activities
+     * @param reversed Whether the activity was reversed
+     */
+    default void markActivitiesReversed(List<Activity> activities, boolean reversed) {
+        List<Long> activityIds = new ArrayList<>(activities.size());
+        for (Activity activity : activities) {
+            activityIds.add((long) activity.primaryKey());
+        }
+
+        markReversed(activityIds, reversed);
+    }
+
     /**
      * Count activities matching the query.
      *
@@ -88,6 +119,22 @@ public interface StorageAdapter {
      */
     List<Activity> queryActivities(ActivityQuery query) throws Exception;
 
+    /**
+     * Query activities in a non-paginated format, handing each one to the consumer
+     * as rows are read rather than materializing the whole result first.
+     *
+     * <p>Storage that can't stream rows falls back to the list query.</p>
+     *
+     * @param query The activity query
+     * @param consumer The activity consumer
+     * @throws Exception Storage layer exception
+     */
+    default void queryActivities(ActivityQuery query, Consumer<Activity> consumer) throws Exception {
+        for (Activity activity : queryActivities(query)) {
+            consumer.accept(activity);
+        }
+    }
+
     /**
      * Open a streaming activity source.
      *
@@ -97,6 +144,19 @@ public interface StorageAdapter {
      */
     ActivityStream streamActivities(ActivityQuery query) throws Exception;
 
+    /**
+     * Open a streaming activity source over known primary keys, in the given order.
+     * Used to resume an interrupted modification job.
+     *
+     * @param query The activity query, used for ordering and mapping
+     * @param primaryKeys The primary keys
+     * @return A stream that must be closed by the caller
+     * @throws Exception Storage layer exception
+     */
+    default ActivityStream streamActivities(ActivityQuery query, List<Long> primaryKeys) throws Exception {
+        throw new UnsupportedOperationException("This storage can't stream activities by primary key.");
+    }
+
     /**
      * Query activities in a format intended for information display.
      *
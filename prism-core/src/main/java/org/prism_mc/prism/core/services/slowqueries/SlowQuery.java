@@ -0,0 +1,35 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.services.slowqueries;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A read that exceeded the slow query threshold.
+ *
+ * @param recorded When the query ran
+ * @param durationMs How long the database took to start returning rows
+ * @param sql The SQL, with bind placeholders
+ * @param bindValues The bind values, in order
+ * @param plan The database's query plan, or null if it wasn't captured
+ */
+public record SlowQuery(Instant recorded, long durationMs, String sql, List<String> bindValues, String plan) {}
@@ -0,0 +1,133 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.services.slowqueries;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
+
+/**
+ * Keeps the most recent reads that exceeded the slow query threshold, for reports.
+ *
+ * <p>Query plans are captured on this service's own thread, so the thread that ran a slow
+ * query doesn't also wait for its {@code EXPLAIN}. Plans queue up to a small limit. Beyond
+ * that, slow queries are recorded without one.</p>
+ */
+@Singleton
+public class SlowQueryService {
+
+    /**
+     * How many plans may wait to be captured.
+     */
+    private static final int MAX_PENDING_PLANS = 16;
+
+    /**
+     * The configuration service.
+     */
+    private final ConfigurationService configurationService;
+
+    /**
+     * Recent slow queries, newest first.
+     */
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    /**
+     * The executor capturing query plans.
+     */
+    private final ExecutorService planExecutor = new ThreadPoolExecutor(
+        1,
+        1,
+        0,
+        TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(MAX_PENDING_PLANS),
+        r -> {
+            Thread t = new Thread(r, "prism-slow-query-plans");
+            t.setDaemon(true);
+            return t;
+        }
+    );
+
+    /**
+     * Constructor.
+     *
+     * @param configurationService The configuration service
+     */
+    @Inject
+    public SlowQueryService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    /**
+     * Get the threshold reads must exceed to be recorded.
+     *
+     * @return The threshold in milliseconds, or 0 if disabled
+     */
+    public int thresholdMs() {
+        return configurationService.storageConfig().slowQueries().thresholdMs();
+    }
+
+    /**
+     * Capture a query plan on the plan thread.
+     *
+     * @param task The task capturing and recording the plan
+     * @return False if too many plans are already waiting
+     */
+    public boolean capturePlan(Runnable task) {
+        try {
+            planExecutor.execute(task);
+
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Record a slow query, dropping the oldest once the configured limit is reached.
+     *
+     * @param slowQuery The slow query
+     */
+    public synchronized void record(SlowQuery slowQuery) {
+        slowQueries.addFirst(slowQuery);
+
+        int maxEntries = Math.max(1, configurationService.storageConfig().slowQueries().maxEntries());
+        while (slowQueries.size() > maxEntries) {
+            slowQueries.removeLast();
+        }
+    }
+
+    /**
+     * Get recent slow queries.
+     *
+     * @return The slow queries, newest first
+     */
+    public synchronized List<SlowQuery> slowQueries() {
+        return List.copyOf(slowQueries);
+    }
+}
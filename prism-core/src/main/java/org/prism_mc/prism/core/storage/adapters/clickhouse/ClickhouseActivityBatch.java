@@ -25,9 +25,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 import org.prism_mc.prism.api.actions.BlockAction;
 import org.prism_mc.prism.api.actions.CustomData;
 import org.prism_mc.prism.api.actions.EntityAction;
@@ -46,6 +46,64 @@ import org.prism_mc.prism.loader.services.logging.LoggingService;
 
 public class ClickhouseActivityBatch implements ActivityBatch {
 
+    /**
+     * A rough size of one encoded activity row, used to size the binary row buffer.
+     */
+    private static final int ESTIMATED_ROW_BYTES = 256;
+
+    /**
+     * The ClickHouse type of each activities insert column, in insert order.
+     */
+    private static final ColumnType[] COLUMNS = {
+        ColumnType.UINT64,
+        ColumnType.DATETIME,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.INT32,
+        ColumnType.INT32,
+        ColumnType.INT32,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.NULLABLE_UINT16,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.STRING,
+        ColumnType.NULLABLE_UINT16,
+        ColumnType.STRING,
+        ColumnType.UINT8,
+    };
+
+    /**
+     * The ClickHouse column types written by this batch.
+     */
+    private enum ColumnType {
+        UINT64,
+        DATETIME,
+        INT32,
+        STRING,
+        NULLABLE_UINT16,
+        UINT8,
+    }
+
     /**
      * The parameterized insert statement for the activities table, with the prefix already resolved.
      */
@@ -72,9 +130,29 @@ public class ClickhouseActivityBatch implements ActivityBatch {
     private final String prefix;
 
     /**
-     * The activity id sequence, shared with the adapter.
+     * The activity id allocator, shared with the adapter.
+     */
+    private final ClickhouseActivityIdAllocator activityIdAllocator;
+
+    /**
+     * The binary inserter, or null to insert through batched JDBC statements.
+     */
+    private final ClickhouseBinaryInserter binaryInserter;
+
+    /**
+     * The RowBinary insert statement, used when inserting binary rows.
+     */
+    private final String binaryInsertSql;
+
+    /**
+     * The encoded rows, used when inserting binary rows.
      */
-    private final AtomicLong activityIdSequence;
+    private final ClickhouseRowBinaryBuffer rowBuffer;
+
+    /**
+     * The values of the row being built, indexed by column (one-based, like statement parameters).
+     */
+    private final Object[] row = new Object[COLUMNS.length + 1];
 
     /**
      * The newest airtagged item seen in this batch, keyed by airtag id.
@@ -108,7 +186,9 @@ public class ClickhouseActivityBatch implements ActivityBatch {
      * @param serializerVersion The serializer version
      * @param prefix The schema/table prefix
      * @param insertSql The parameterized activities insert statement, with the prefix already resolved
-     * @param activityIdSequence The activity id sequence
+     * @param activityIdAllocator The activity id allocator
+     * @param binaryInserter The binary inserter, or null to insert through batched JDBC statements
+     * @param batchMax The most activities saved per batch, used to size the binary row buffer
      */
     public ClickhouseActivityBatch(
         LoggingService loggingService,
@@ -116,40 +196,56 @@ public class ClickhouseActivityBatch implements ActivityBatch {
         short serializerVersion,
         String prefix,
         String insertSql,
-        AtomicLong activityIdSequence
+        ClickhouseActivityIdAllocator activityIdAllocator,
+        ClickhouseBinaryInserter binaryInserter,
+        int batchMax
     ) {
         this.loggingService = loggingService;
         this.hikariDataSource = hikariDataSource;
         this.serializerVersion = serializerVersion;
         this.prefix = prefix;
         this.insertSql = insertSql;
-        this.activityIdSequence = activityIdSequence;
+        this.activityIdAllocator = activityIdAllocator;
+        this.binaryInserter = binaryInserter;
+
+        if (binaryInserter != null) {
+            this.binaryInsertSql = insertSql.substring(0, insertSql.lastIndexOf("VALUES")).trim() + " FORMAT RowBinary";
+            this.rowBuffer = new ClickhouseRowBinaryBuffer(batchMax * ESTIMATED_ROW_BYTES);
+        } else {
+            this.binaryInsertSql = null;
+            this.rowBuffer = null;
+        }
     }
 
     @Override
     public void startBatch() throws SQLException {
-        connection = hikariDataSource.getConnection();
-        statement = connection.prepareStatement(insertSql);
+        if (binaryInserter != null) {
+            rowBuffer.reset();
+        } else {
+            connection = hikariDataSource.getConnection();
+            statement = connection.prepareStatement(insertSql);
+        }
+
         pendingAirtagPointers.clear();
     }
 
     @Override
     public void add(Activity activity) throws SQLException {
-        statement.setLong(1, activityIdSequence.incrementAndGet());
-        statement.setLong(2, activity.timestamp() / 1000);
-        statement.setString(3, activity.world().value());
-        statement.setString(4, activity.world().key().toString());
-        statement.setInt(5, activity.coordinate().intX());
-        statement.setInt(6, activity.coordinate().intY());
-        statement.setInt(7, activity.coordinate().intZ());
-        statement.setString(8, activity.action().type().key());
+        setValue(1, activityIdAllocator.nextId());
+        setValue(2, activity.timestamp() / 1000);
+        setValue(3, activity.world().value());
+        setValue(4, activity.world().key().toString());
+        setValue(5, activity.coordinate().intX());
+        setValue(6, activity.coordinate().intY());
+        setValue(7, activity.coordinate().intZ());
+        setValue(8, activity.action().type().key());
 
         // Affected item
         if (activity.action() instanceof ItemAction itemAction) {
             setStringOrEmpty(9, itemAction.serializeMaterial());
             setStringOrEmpty(10, itemAction.serializeItemData());
             setStringOrEmpty(11, itemAction.itemAirtag());
-            statement.setShort(12, (short) itemAction.quantity());
+            setValue(12, itemAction.quantity());
 
             trackAirtagPointer(
                 itemAction.itemAirtag(),
@@ -158,10 +254,10 @@ public class ClickhouseActivityBatch implements ActivityBatch {
                 activity.timestamp() / 1000
             );
         } else {
-            statement.setString(9, "");
-            statement.setString(10, "");
-            statement.setString(11, "");
-            statement.setNull(12, Types.SMALLINT);
+            setValue(9, "");
+            setValue(10, "");
+            setValue(11, "");
+            setValue(12, null);
         }
 
         // Affected block
@@ -171,10 +267,10 @@ public class ClickhouseActivityBatch implements ActivityBatch {
             setStringOrEmpty(15, blockAction.blockContainer().serializeBlockData());
             setStringOrEmpty(16, blockAction.blockContainer().translationKey());
         } else {
-            statement.setString(13, "");
-            statement.setString(14, "");
-            statement.setString(15, "");
-            statement.setString(16, "");
+            setValue(13, "");
+            setValue(14, "");
+            setValue(15, "");
+            setValue(16, "");
         }
 
         // Replaced block
@@ -183,16 +279,16 @@ public class ClickhouseActivityBatch implements ActivityBatch {
             setStringOrEmpty(18, blockAction.replacedBlockContainer().blockName());
             setStringOrEmpty(19, blockAction.replacedBlockContainer().serializeBlockData());
         } else {
-            statement.setString(17, "");
-            statement.setString(18, "");
-            statement.setString(19, "");
+            setValue(17, "");
+            setValue(18, "");
+            setValue(19, "");
         }
 
         // Affected entity
         if (activity.action() instanceof EntityAction entityAction) {
             setStringOrEmpty(20, entityAction.entityContainer().serializeEntityType());
         } else {
-            statement.setString(20, "");
+            setValue(20, "");
         }
 
         // Affected player
@@ -200,13 +296,13 @@ public class ClickhouseActivityBatch implements ActivityBatch {
             setStringOrEmpty(21, playerAction.playerContainer().name());
             setStringOrEmpty(22, playerAction.playerContainer().uuid().toString());
         } else {
-            statement.setString(21, "");
-            statement.setString(22, "");
+            setValue(21, "");
+            setValue(22, "");
         }
 
         // Cause (default all empty, then set the matching container)
         for (int i = 23; i <= 30; i++) {
-            statement.setString(i, "");
+            setValue(i, "");
         }
         if (activity.cause().container() instanceof StringContainer stringContainer) {
             setStringOrEmpty(23, stringContainer.value());
@@ -224,18 +320,18 @@ public class ClickhouseActivityBatch implements ActivityBatch {
 
         // Descriptor
         if (activity.action().descriptor() != null) {
-            statement.setString(31, TextUtils.truncateWithEllipsis(activity.action().descriptor(), 255));
+            setValue(31, TextUtils.truncateWithEllipsis(activity.action().descriptor(), 255));
         } else {
-            statement.setString(31, "");
+            setValue(31, "");
         }
 
         // Metadata
-        statement.setString(32, "");
+        setValue(32, "");
         if (activity.action().metadata() != null) {
             try {
                 String metadata = activity.action().serializeMetadata();
                 if (metadata != null) {
-                    statement.setString(32, metadata);
+                    setValue(32, metadata);
                 }
             } catch (Exception e) {
                 loggingService.handleException(e);
@@ -251,32 +347,43 @@ public class ClickhouseActivityBatch implements ActivityBatch {
             );
 
             if (customData != null) {
-                statement.setInt(33, serializerVersion);
-                statement.setString(34, customData);
+                setValue(33, serializerVersion);
+                setValue(34, customData);
             } else {
-                statement.setNull(33, Types.SMALLINT);
-                statement.setString(34, "");
+                setValue(33, null);
+                setValue(34, "");
             }
         } else {
-            statement.setNull(33, Types.SMALLINT);
-            statement.setString(34, "");
+            setValue(33, null);
+            setValue(34, "");
         }
 
         // Reversed (freshly recorded activities are never reversed)
-        statement.setInt(35, activity.reversed() ? 1 : 0);
+        setValue(35, activity.reversed() ? 1 : 0);
 
-        statement.addBatch();
+        addRow();
     }
 
     @Override
     public void addFromWalRecord(WalRecord walRecord) throws SQLException {
-        statement.setLong(1, activityIdSequence.incrementAndGet());
-        statement.setLong(2, walRecord.getTimestamp() / 1000);
+        addFromWalRecord(walRecord, activityIdAllocator.nextId());
+    }
+
+    /**
+     * Add a WAL record to the batch, keeping an activity id assigned elsewhere.
+     *
+     * @param walRecord The WAL record
+     * @param activityId The activity id
+     * @throws SQLException The database exception
+     */
+    public void addFromWalRecord(WalRecord walRecord, long activityId) throws SQLException {
+        setValue(1, activityId);
+        setValue(2, walRecord.getTimestamp() / 1000);
         setStringOrEmpty(3, walRecord.getWorldName());
         setStringOrEmpty(4, walRecord.getWorldUuid());
-        statement.setInt(5, walRecord.getX());
-        statement.setInt(6, walRecord.getY());
-        statement.setInt(7, walRecord.getZ());
+        setValue(5, walRecord.getX());
+        setValue(6, walRecord.getY());
+        setValue(7, walRecord.getZ());
         setStringOrEmpty(8, walRecord.getActionKey());
 
         // Affected item
@@ -284,9 +391,9 @@ public class ClickhouseActivityBatch implements ActivityBatch {
         setStringOrEmpty(10, walRecord.getItemData());
         setStringOrEmpty(11, walRecord.getItemAirtag());
         if (walRecord.getItemMaterial() != null) {
-            statement.setShort(12, (short) walRecord.getItemQuantity());
+            setValue(12, walRecord.getItemQuantity());
         } else {
-            statement.setNull(12, Types.SMALLINT);
+            setValue(12, null);
         }
 
         trackAirtagPointer(
@@ -316,7 +423,7 @@ public class ClickhouseActivityBatch implements ActivityBatch {
 
         // Cause (default all empty, then set the matching type)
         for (int i = 23; i <= 30; i++) {
-            statement.setString(i, "");
+            setValue(i, "");
         }
         String causeType = walRecord.getCauseType();
         if ("string".equals(causeType)) {
@@ -346,24 +453,38 @@ public class ClickhouseActivityBatch implements ActivityBatch {
             loggingService
         );
         if (customData != null) {
-            statement.setInt(33, walRecord.getSerializerVersion());
-            statement.setString(34, customData);
+            setValue(33, walRecord.getSerializerVersion());
+            setValue(34, customData);
         } else {
-            statement.setNull(33, Types.SMALLINT);
-            statement.setString(34, "");
+            setValue(33, null);
+            setValue(34, "");
         }
 
         // Reversed
-        statement.setInt(35, 0);
+        setValue(35, 0);
 
-        statement.addBatch();
+        addRow();
     }
 
     @Override
     public void commitBatch() throws SQLException {
+        if (binaryInserter != null) {
+            if (rowBuffer.size() > 0) {
+                binaryInserter.insert(binaryInsertSql, rowBuffer);
+            }
+
+            if (!pendingAirtagPointers.isEmpty()) {
+                try (Connection airtagConnection = hikariDataSource.getConnection()) {
+                    flushAirtagPointers(airtagConnection);
+                }
+            }
+
+            return;
+        }
+
         try {
             statement.executeBatch();
-            flushAirtagPointers();
+            flushAirtagPointers(connection);
         } finally {
             try {
                 statement.close();
@@ -406,9 +527,10 @@ public class ClickhouseActivityBatch implements ActivityBatch {
      * so a pointer only advances when the batch's item is newer than the stored one. When no airtag
      * row exists yet the update simply matches nothing.</p>
      *
+     * @param connection The connection
      * @throws SQLException On error
      */
-    private void flushAirtagPointers() throws SQLException {
+    private void flushAirtagPointers(Connection connection) throws SQLException {
         if (pendingAirtagPointers.isEmpty()) {
             return;
         }
@@ -434,14 +556,66 @@ public class ClickhouseActivityBatch implements ActivityBatch {
     }
 
     /**
-     * Set a string parameter, substituting an empty string for null. The flat table's string
+     * Set a value of the row being built.
+     *
+     * @param index The column index
+     * @param value The value, or null for a null nullable column
+     */
+    private void setValue(int index, Object value) {
+        row[index] = value;
+    }
+
+    /**
+     * Set a string value, substituting an empty string for null. The flat table's string
      * columns are non-nullable, so absent values are stored as empty strings.
      *
-     * @param index The parameter index
+     * @param index The column index
      * @param value The value
+     */
+    private void setStringOrEmpty(int index, String value) {
+        row[index] = value != null ? value : "";
+    }
+
+    /**
+     * Emit the row being built, either encoded into the row buffer or bound to the batched statement.
+     *
      * @throws SQLException On error
      */
-    private void setStringOrEmpty(int index, String value) throws SQLException {
-        statement.setString(index, value != null ? value : "");
+    private void addRow() throws SQLException {
+        for (int i = 1; i < row.length; i++) {
+            Object value = row[i];
+
+            if (binaryInserter != null) {
+                switch (COLUMNS[i - 1]) {
+                    case UINT64 -> rowBuffer.writeUInt64(((Number) value).longValue());
+                    case DATETIME -> rowBuffer.writeUInt32(((Number) value).longValue());
+                    case INT32 -> rowBuffer.writeInt32(((Number) value).intValue());
+                    case STRING -> rowBuffer.writeString((String) value);
+                    case NULLABLE_UINT16 -> rowBuffer.writeNullableUInt16(
+                        value != null ? ((Number) value).intValue() : null
+                    );
+                    case UINT8 -> rowBuffer.writeUInt8(((Number) value).intValue());
+                }
+            } else {
+                switch (COLUMNS[i - 1]) {
+                    case UINT64, DATETIME -> statement.setLong(i, ((Number) value).longValue());
+                    case INT32, UINT8 -> statement.setInt(i, ((Number) value).intValue());
+                    case STRING -> statement.setString(i, (String) value);
+                    case NULLABLE_UINT16 -> {
+                        if (value != null) {
+                            statement.setInt(i, ((Number) value).intValue());
+                        } else {
+                            statement.setNull(i, Types.SMALLINT);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (binaryInserter == null) {
+            statement.addBatch();
+        }
+
+        Arrays.fill(row, null);
     }
 }
@@ -0,0 +1,242 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.clickhouse;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+
+/**
+ * Hands out activity ids from blocks leased in a shared ClickHouse table, so several servers can
+ * write to one activities table without colliding ids.
+ *
+ * <p>Leases are rows in a {@code KeeperMap} table inserted with {@code keeper_map_strict_mode}, so
+ * claiming a block that another server already claimed fails instead of overwriting it. Ids must
+ * still fit the integer ids used by purges and id lookups, so blocks are leased sequentially rather
+ * than derived from timestamps.</p>
+ *
+ * <p>KeeperMap requires ClickHouse Keeper (or ZooKeeper) and {@code keeper_map_path_prefix} in the
+ * server config. Without them, ids come from a local sequence seeded from the highest stored id,
+ * which is only safe for a single writer.</p>
+ */
+public class ClickhouseActivityIdAllocator {
+
+    /**
+     * The number of ids in each leased block.
+     */
+    private static final int BLOCK_SIZE = 10000;
+
+    /**
+     * How many times to try claiming a block before giving up.
+     */
+    private static final int MAX_LEASE_ATTEMPTS = 100;
+
+    /**
+     * How many of the newest leases to keep when pruning old ones.
+     */
+    private static final int RETAINED_LEASES = 100;
+
+    /**
+     * The logging service.
+     */
+    private final LoggingService loggingService;
+
+    /**
+     * The hikari data source.
+     */
+    private final HikariDataSource dataSource;
+
+    /**
+     * The schema/table prefix.
+     */
+    private final String prefix;
+
+    /**
+     * Identifies this server's leases.
+     */
+    private final String owner = UUID.randomUUID().toString();
+
+    /**
+     * Whether ids are leased in blocks.
+     */
+    private boolean leasing = false;
+
+    /**
+     * The last id handed out.
+     */
+    private long lastId = 0;
+
+    /**
+     * The last id of the current block. Leasing mode only.
+     */
+    private long blockEnd = 0;
+
+    /**
+     * Construct a new allocator.
+     *
+     * @param loggingService The logging service
+     * @param dataSource The hikari data source
+     * @param prefix The schema/table prefix
+     */
+    public ClickhouseActivityIdAllocator(LoggingService loggingService, HikariDataSource dataSource, String prefix) {
+        this.loggingService = loggingService;
+        this.dataSource = dataSource;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Create the lease table if possible and seed from the highest stored id.
+     *
+     * @throws SQLException The database exception
+     */
+    public synchronized void prepare() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            String database;
+            try (ResultSet resultSet = statement.executeQuery("SELECT currentDatabase()")) {
+                resultSet.next();
+                database = resultSet.getString(1);
+            }
+
+            try {
+                statement.execute(
+                    String.format(
+                        "CREATE TABLE IF NOT EXISTS %sid_leases (block UInt64, owner String, leased_at DateTime) " +
+                        "ENGINE = KeeperMap('/prism/%s/%sid_leases') PRIMARY KEY block",
+                        prefix,
+                        database,
+                        prefix
+                    )
+                );
+
+                leasing = true;
+            } catch (SQLException e) {
+                loggingService.warn(
+                    "ClickHouse KeeperMap is unavailable ({0}). Activity ids are only safe with a single " +
+                    "server writing to this database.",
+                    e.getMessage()
+                );
+            }
+
+            try (
+                ResultSet resultSet = statement.executeQuery(
+                    String.format("SELECT max(activity_id) FROM %sactivities", prefix)
+                )
+            ) {
+                if (resultSet.next()) {
+                    lastId = resultSet.getLong(1);
+                }
+            }
+        }
+
+        blockEnd = lastId;
+    }
+
+    /**
+     * Get the next activity id, leasing a new block when the current one runs out.
+     *
+     * @return The activity id
+     * @throws SQLException If a block can't be leased
+     */
+    public synchronized long nextId() throws SQLException {
+        if (leasing && lastId >= blockEnd) {
+            long block = leaseBlock();
+
+            lastId = block * BLOCK_SIZE;
+            blockEnd = lastId + BLOCK_SIZE;
+        }
+
+        return ++lastId;
+    }
+
+    /**
+     * Claim the next free block after both the newest lease and this server's last id.
+     *
+     * @return The leased block number
+     * @throws SQLException If no block could be claimed
+     */
+    private long leaseBlock() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            long candidate;
+            try (
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(
+                    String.format("SELECT max(block) FROM %sid_leases", prefix)
+                )
+            ) {
+                resultSet.next();
+                candidate = Math.max(resultSet.getLong(1) + 1, lastId / BLOCK_SIZE + 1);
+            }
+
+            String sql = String.format(
+                "INSERT INTO %sid_leases (block, owner, leased_at) SETTINGS keeper_map_strict_mode = 1 " +
+                "VALUES (?, ?, now())",
+                prefix
+            );
+
+            SQLException lastException = null;
+            for (int attempt = 0; attempt < MAX_LEASE_ATTEMPTS; attempt++, candidate++) {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setLong(1, candidate);
+                    statement.setString(2, owner);
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    // Most likely another server claimed this block first
+                    lastException = e;
+                    continue;
+                }
+
+                pruneLeases(connection, candidate);
+
+                return candidate;
+            }
+
+            throw new SQLException("Failed to lease a block of ClickHouse activity ids", lastException);
+        }
+    }
+
+    /**
+     * Remove old leases. New leases always start after the newest one, so older rows are never read.
+     *
+     * @param connection The database connection
+     * @param block The block just leased
+     */
+    private void pruneLeases(Connection connection, long block) {
+        if (block <= RETAINED_LEASES) {
+            return;
+        }
+
+        try (
+            PreparedStatement statement = connection.prepareStatement(
+                String.format("DELETE FROM %sid_leases WHERE block < ?", prefix)
+            )
+        ) {
+            statement.setLong(1, block - RETAINED_LEASES);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            loggingService.handleException(e);
+        }
+    }
+}
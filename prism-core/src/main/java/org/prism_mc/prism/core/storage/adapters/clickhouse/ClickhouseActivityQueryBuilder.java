@@ -25,12 +25,18 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import org.prism_mc.prism.api.actions.ActionData;
 import org.prism_mc.prism.api.actions.types.ActionTypeRegistry;
 import org.prism_mc.prism.api.activities.AbstractActivity;
@@ -54,14 +60,25 @@ public class ClickhouseActivityQueryBuilder {
     /**
      * The non-aggregate columns selected for both grouped and ungrouped queries.
      *
-     * <p>Grouped queries also reuse this exact set as their {@code GROUP BY} key: every non-aggregate
-     * column in the grouped {@code SELECT} appears here, and {@code GROUP BY} is order-insensitive.</p>
+     * <p>Grouped queries also reuse this exact set as their {@code GROUP BY} key, together with the
+     * {@code effective_reversed} alias: every other non-aggregate column in the grouped {@code SELECT}
+     * appears here, and {@code GROUP BY} is order-insensitive.</p>
      */
     private static final String BASE_COLUMNS =
         "world_uuid, world, affected_material, affected_item_data, affected_item_quantity, " +
         "affected_block_ns, affected_block_name, affected_block_translation_key, affected_entity_type, " +
         "action, cause_player_uuid, cause_player, descriptor, metadata, affected_player, affected_player_uuid, " +
-        "cause_entity_type_translation_key, cause_block_translation_key, cause, reversed";
+        "cause_entity_type_translation_key, cause_block_translation_key, cause";
+
+    /**
+     * Maximum number of activity ids per reversal insert.
+     */
+    private static final int MARK_REVERSED_CHUNK_SIZE = 1000;
+
+    /**
+     * A rough size of one encoded reversal row, used to size the RowBinary buffer.
+     */
+    private static final int ESTIMATED_REVERSAL_ROW_BYTES = 48;
 
     /**
      * The full column set selected for modification (rollback/restore/preview) rows.
@@ -71,12 +88,7 @@ public class ClickhouseActivityQueryBuilder {
         "affected_block_ns, affected_block_name, affected_block_data, affected_block_translation_key, " +
         "replaced_block_ns, replaced_block_name, replaced_block_data, affected_entity_type, action, " +
         "cause, cause_player, cause_player_uuid, cause_entity_type_translation_key, cause_block_translation_key, " +
-        "serializer_version, serialized_data, reversed, activity_id, toUnixTimestamp(`timestamp`) AS ts, x, y, z";
-
-    /**
-     * The chunk size for reversed-flag updates, mirroring the normalized backend.
-     */
-    private static final int MARK_REVERSED_CHUNK_SIZE = 1000;
+        "serializer_version, serialized_data, activity_id, toUnixTimestamp(`timestamp`) AS ts, x, y, z";
 
     /**
      * The hikari data source.
@@ -98,6 +110,21 @@ public class ClickhouseActivityQueryBuilder {
      */
     private final LoggingService loggingService;
 
+    /**
+     * Whether descriptor searches should match the lowercased ngram index.
+     */
+    private final boolean descriptorSearch;
+
+    /**
+     * Whether activities are sorted by region, so location lookups should filter by region.
+     */
+    private final boolean regionSortingKey;
+
+    /**
+     * The last reversal version written by this server.
+     */
+    private final AtomicLong lastReversalVersion = new AtomicLong();
+
     /**
      * Construct a new query builder.
      *
@@ -105,17 +132,23 @@ public class ClickhouseActivityQueryBuilder {
      * @param prefix The schema/table prefix
      * @param actionRegistry The action type registry
      * @param loggingService The logging service
+     * @param descriptorSearch Whether descriptor searches should match the ngram index
+     * @param regionSortingKey Whether activities are sorted by region
      */
     public ClickhouseActivityQueryBuilder(
         HikariDataSource dataSource,
         String prefix,
         ActionTypeRegistry actionRegistry,
-        LoggingService loggingService
+        LoggingService loggingService,
+        boolean descriptorSearch,
+        boolean regionSortingKey
     ) {
         this.dataSource = dataSource;
         this.prefix = prefix;
         this.actionRegistry = actionRegistry;
         this.loggingService = loggingService;
+        this.descriptorSearch = descriptorSearch;
+        this.regionSortingKey = regionSortingKey;
     }
 
     /**
@@ -126,7 +159,8 @@ public class ClickhouseActivityQueryBuilder {
      */
     public PartialListPaginationResult<AbstractActivity> queryActivitiesPaginated(ActivityQuery query) {
         long[] totalResults = new long[] { 0 };
-        List<AbstractActivity> activities = execute(query, totalResults);
+        List<AbstractActivity> activities = new ArrayList<>();
+        execute(query, totalResults, activities::add);
 
         int currentPage = query.limit() > 0 ? (query.offset() / query.limit()) + 1 : 1;
 
@@ -171,18 +205,27 @@ public class ClickhouseActivityQueryBuilder {
      * @return The list of activities
      */
     public List<Activity> queryActivities(ActivityQuery query) {
-        List<AbstractActivity> mapped = execute(query, null);
-
         List<Activity> activities = new ArrayList<>();
-        for (AbstractActivity abstractActivity : mapped) {
-            if (abstractActivity instanceof Activity activity) {
-                activities.add(activity);
-            }
-        }
+        queryActivities(query, activities::add);
 
         return activities;
     }
 
+    /**
+     * Query activities as an ungrouped stream, handing each individual (non-grouped) record
+     * to the consumer as its row is read.
+     *
+     * @param query The activity query
+     * @param consumer The activity consumer
+     */
+    public void queryActivities(ActivityQuery query, Consumer<Activity> consumer) {
+        execute(query, null, abstractActivity -> {
+            if (abstractActivity instanceof Activity activity) {
+                consumer.accept(activity);
+            }
+        });
+    }
+
     /**
      * Open a streaming source of fully-reconstructed activities for a modification (rollback,
      * restore, or preview) query.
@@ -585,6 +628,87 @@ public class ClickhouseActivityQueryBuilder {
         return new Pair<>(0, 0);
     }
 
+    /**
+     * Drop the monthly partitions holding only activities older than an age-only purge's cutoff.
+     *
+     * <p>Dropping a partition removes its parts outright, instead of the count and lightweight
+     * delete each purge cycle would run. The partition holding the cutoff is left to the cycles.</p>
+     *
+     * @param query The activity query
+     * @return The number of dropped activities
+     */
+    public int dropActivityPartitions(ActivityQuery query) {
+        if (!query.ageOnly()) {
+            return 0;
+        }
+
+        int deleted = 0;
+
+        try (Connection connection = dataSource.getConnection()) {
+            List<String> partitionIds = new ArrayList<>();
+            try (
+                PreparedStatement statement = connection.prepareStatement(
+                    "SELECT partition_id FROM system.parts " +
+                    "WHERE database = currentDatabase() AND table = ? AND active " +
+                    "GROUP BY partition_id HAVING max(max_time) < fromUnixTimestamp(?) ORDER BY partition_id"
+                )
+            ) {
+                statement.setString(1, tableName());
+                statement.setLong(2, query.before());
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        partitionIds.add(resultSet.getString(1));
+                    }
+                }
+            }
+
+            for (String partitionId : partitionIds) {
+                // Partition ids are interpolated into the ALTER, so only accept the toYYYYMM ids we create
+                if (!partitionId.matches("\\d+")) {
+                    continue;
+                }
+
+                try (
+                    PreparedStatement countStatement = connection.prepareStatement(
+                        String.format("SELECT count() FROM %s WHERE _partition_id = ?", tableName())
+                    )
+                ) {
+                    countStatement.setString(1, partitionId);
+
+                    try (ResultSet resultSet = countStatement.executeQuery()) {
+                        if (resultSet.next()) {
+                            deleted += (int) resultSet.getLong(1);
+                        }
+                    }
+                }
+
+                try (
+                    PreparedStatement dropStatement = connection.prepareStatement(
+                        String.format("ALTER TABLE %s DROP PARTITION ID '%s'", tableName(), partitionId)
+                    )
+                ) {
+                    dropStatement.executeUpdate();
+                }
+
+                // Reversals are partitioned by their activity's month, so the same partition holds theirs
+                try (
+                    PreparedStatement dropStatement = connection.prepareStatement(
+                        String.format("ALTER TABLE %s DROP PARTITION ID '%s'", reversalsTableName(), partitionId)
+                    )
+                ) {
+                    dropStatement.executeUpdate();
+                }
+
+                loggingService.info("Dropped activities partition {0}", partitionId);
+            }
+        } catch (SQLException e) {
+            loggingService.handleException(e);
+        }
+
+        return deleted;
+    }
+
     /**
      * Delete activities matching a query within an activity id window using a ClickHouse lightweight
      * delete.
@@ -631,6 +755,10 @@ public class ClickhouseActivityQueryBuilder {
                 deleteStatement.executeUpdate();
             }
 
+            if (deleted > 0) {
+                deleteOrphanedReversals(connection, minPrimaryKey, maxPrimaryKey);
+            }
+
             return deleted;
         } catch (SQLException e) {
             loggingService.handleException(e);
@@ -640,7 +768,75 @@ public class ClickhouseActivityQueryBuilder {
     }
 
     /**
-     * Set the reversed flag for a list of activities using ClickHouse lightweight updates.
+     * Delete reversal rows whose activities no longer exist within an activity id window.
+     *
+     * @param connection The database connection
+     * @param minPrimaryKey The minimum activity id
+     * @param maxPrimaryKey The maximum activity id
+     * @throws SQLException The database exception
+     */
+    private void deleteOrphanedReversals(
+        Connection connection,
+        int minPrimaryKey,
+        int maxPrimaryKey
+    ) throws SQLException {
+        try (
+            PreparedStatement statement = connection.prepareStatement(
+                String.format(
+                    "DELETE FROM %s WHERE activity_id BETWEEN ? AND ? " +
+                    "AND activity_id NOT IN (SELECT activity_id FROM %s WHERE activity_id BETWEEN ? AND ?)",
+                    reversalsTableName(),
+                    tableName()
+                )
+            )
+        ) {
+            statement.setLong(1, minPrimaryKey);
+            statement.setLong(2, maxPrimaryKey);
+            statement.setLong(3, minPrimaryKey);
+            statement.setLong(4, maxPrimaryKey);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Query which activity ids within a range are stored.
+     *
+     * @param minActivityId The minimum activity id
+     * @param maxActivityId The maximum activity id
+     * @return The stored activity ids
+     * @throws SQLException On error
+     */
+    public Set<Long> queryActivityIds(long minActivityId, long maxActivityId) throws SQLException {
+        Set<Long> activityIds = new HashSet<>();
+
+        try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement statement = connection.prepareStatement(
+                String.format("SELECT activity_id FROM %s WHERE activity_id BETWEEN ? AND ?", tableName())
+            )
+        ) {
+            statement.setLong(1, minActivityId);
+            statement.setLong(2, maxActivityId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    activityIds.add(resultSet.getLong(1));
+                }
+            }
+        }
+
+        return activityIds;
+    }
+
+    /**
+     * Set the reversed flag for a list of activities.
+     *
+     * <p>Reversal state lives in a ReplacingMergeTree side table rather than on the activities
+     * themselves, so flagging activities is an insert per chunk instead of a mutation. Every row
+     * shares one version, newer than any this server wrote before, so the latest rollback or
+     * restore of an activity wins. Each row copies its activity's timestamp and action, so
+     * partition drops and retention TTLs remove it together with the activity. Ids that aren't
+     * stored here are skipped.</p>
      *
      * @param activityIds The activity ids to flag
      * @param reversed Whether the activities are reversed
@@ -650,31 +846,91 @@ public class ClickhouseActivityQueryBuilder {
             return;
         }
 
-        for (int start = 0; start < activityIds.size(); start += MARK_REVERSED_CHUNK_SIZE) {
-            List<Long> chunk = activityIds.subList(
-                start,
-                Math.min(start + MARK_REVERSED_CHUNK_SIZE, activityIds.size())
-            );
+        long version = lastReversalVersion.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
 
-            String sql = String.format(
-                "UPDATE %s SET reversed = ? WHERE activity_id IN (%s)",
-                tableName(),
-                placeholders(chunk.size())
-            );
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (int start = 0; start < activityIds.size(); start += MARK_REVERSED_CHUNK_SIZE) {
+                List<Long> chunk = activityIds.subList(
+                    start,
+                    Math.min(start + MARK_REVERSED_CHUNK_SIZE, activityIds.size())
+                );
+
+                statement.execute(
+                    String.format(
+                        "INSERT INTO %s (activity_id, `timestamp`, action, reversed, version) " +
+                        "SELECT activity_id, `timestamp`, action, %d, %d FROM %s WHERE activity_id IN (%s)",
+                        reversalsTableName(),
+                        reversed ? 1 : 0,
+                        version,
+                        tableName(),
+                        chunk.stream().map(String::valueOf).collect(Collectors.joining(", "))
+                    )
+                );
+            }
+        } catch (SQLException e) {
+            loggingService.handleException(e);
+        }
+    }
+
+    /**
+     * Set the reversed flag for activities read back from the activities table.
+     *
+     * <p>Unlike {@link #markReversed(List, boolean)}, the reversal rows are built here from each
+     * activity's timestamp and action, so every row goes out in one insert without reading the
+     * activities again. Activities read back from this table carry their timestamp in seconds.</p>
+     *
+     * @param activities The activities to flag
+     * @param reversed Whether the activities are reversed
+     * @param insertSql The parameterized reversals insert statement
+     * @param binaryInserter The binary inserter, or null to insert through a batched JDBC statement
+     */
+    public void markActivitiesReversed(
+        List<Activity> activities,
+        boolean reversed,
+        String insertSql,
+        ClickhouseBinaryInserter binaryInserter
+    ) {
+        if (activities == null || activities.isEmpty()) {
+            return;
+        }
+
+        long version = lastReversalVersion.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+
+        try {
+            if (binaryInserter != null) {
+                var rows = new ClickhouseRowBinaryBuffer(activities.size() * ESTIMATED_REVERSAL_ROW_BYTES);
+                for (Activity activity : activities) {
+                    rows.writeUInt64((long) activity.primaryKey());
+                    rows.writeUInt32(activity.timestamp());
+                    rows.writeString(activity.action().type().key());
+                    rows.writeUInt8(reversed ? 1 : 0);
+                    rows.writeUInt64(version);
+                }
+
+                String binaryInsertSql =
+                    insertSql.substring(0, insertSql.lastIndexOf("VALUES")).trim() + " FORMAT RowBinary";
+                binaryInserter.insert(binaryInsertSql, rows);
+
+                return;
+            }
 
             try (
                 Connection connection = dataSource.getConnection();
-                PreparedStatement statement = connection.prepareStatement(sql)
+                PreparedStatement statement = connection.prepareStatement(insertSql)
             ) {
-                statement.setInt(1, reversed ? 1 : 0);
-                for (int i = 0; i < chunk.size(); i++) {
-                    statement.setObject(i + 2, chunk.get(i));
+                for (Activity activity : activities) {
+                    statement.setLong(1, (long) activity.primaryKey());
+                    statement.setLong(2, activity.timestamp());
+                    statement.setString(3, activity.action().type().key());
+                    statement.setInt(4, reversed ? 1 : 0);
+                    statement.setLong(5, version);
+                    statement.addBatch();
                 }
 
-                statement.executeUpdate();
-            } catch (SQLException e) {
-                loggingService.handleException(e);
+                statement.executeBatch();
             }
+        } catch (SQLException e) {
+            loggingService.handleException(e);
         }
     }
 
@@ -877,14 +1133,12 @@ public class ClickhouseActivityQueryBuilder {
      *
      * @param query The activity query
      * @param totalResultsOut A single-element array populated with the {@code totalrows} value, or null
-     * @return The mapped activities
+     * @param consumer The consumer receiving each mapped activity
      */
-    private List<AbstractActivity> execute(ActivityQuery query, long[] totalResultsOut) {
+    private void execute(ActivityQuery query, long[] totalResultsOut, Consumer<AbstractActivity> consumer) {
         List<Object> parameters = new ArrayList<>();
         String sql = query.grouped() ? buildGroupedSql(query, parameters) : buildUngroupedSql(query, parameters);
 
-        List<AbstractActivity> activities = new ArrayList<>();
-
         try (
             Connection connection = dataSource.getConnection();
             PreparedStatement statement = connection.prepareStatement(sql)
@@ -904,15 +1158,13 @@ public class ClickhouseActivityQueryBuilder {
 
                     AbstractActivity activity = mapRow(resultSet, query);
                     if (activity != null) {
-                        activities.add(activity);
+                        consumer.accept(activity);
                     }
                 }
             }
         } catch (SQLException e) {
             loggingService.handleException(e);
         }
-
-        return activities;
     }
 
     /**
@@ -925,12 +1177,13 @@ public class ClickhouseActivityQueryBuilder {
     private String buildGroupedSql(ActivityQuery query, List<Object> parameters) {
         StringBuilder sql = new StringBuilder("SELECT ");
         sql.append(BASE_COLUMNS);
+        sql.append(", ").append(effectiveReversedColumn(query));
         sql.append(", count() OVER () AS totalrows");
         sql.append(", avg(toUnixTimestamp(`timestamp`)) AS avgtime");
         sql.append(", count() AS groupcount");
         sql.append(" FROM ").append(tableName());
         appendWhere(query, sql, parameters);
-        sql.append(" GROUP BY ").append(BASE_COLUMNS);
+        sql.append(" GROUP BY ").append(BASE_COLUMNS).append(", effective_reversed");
         sql.append(" ORDER BY avgtime ").append(direction(query));
         appendLimitOffset(query, sql);
 
@@ -947,6 +1200,7 @@ public class ClickhouseActivityQueryBuilder {
     private String buildUngroupedSql(ActivityQuery query, List<Object> parameters) {
         StringBuilder sql = new StringBuilder("SELECT ");
         sql.append(BASE_COLUMNS);
+        sql.append(", ").append(effectiveReversedColumn(query));
         sql.append(", count() OVER () AS totalrows");
         sql.append(", activity_id, toUnixTimestamp(`timestamp`) AS ts, x, y, z");
         sql.append(" FROM ").append(tableName());
@@ -1043,15 +1297,44 @@ public class ClickhouseActivityQueryBuilder {
         // match literally rather than acting as wildcards (e.g. "oak_log" must not match "oakXlog").
         // The normalized SqlActivityQueryBuilder still binds the raw value here and has the same
         // unescaped-wildcard issue; that is a separate cross-backend fix.
+        // Skip indexes can't serve ILIKE, so the ngram index covers lower(descriptor) and is
+        // searched with a lowercased LIKE instead.
         if (query.descriptor() != null) {
-            clauses.add("descriptor ILIKE concat('%', ?, '%')");
+            clauses.add(
+                descriptorSearch
+                    ? "lower(descriptor) LIKE concat('%', lower(?), '%')"
+                    : "descriptor ILIKE concat('%', ?, '%')"
+            );
             parameters.add(escapeLikePattern(query.descriptor()));
         }
 
         // Reversed
         if (query.reversed() != null) {
-            clauses.add("reversed = ?");
-            parameters.add(query.reversed() ? 1 : 0);
+            clauses.add(
+                String.format(
+                    "activity_id %sIN (%s)",
+                    query.reversed() ? "" : "NOT ",
+                    reversedActivityIdsSql(query)
+                )
+            );
+        }
+
+        // Regions. Redundant with the coordinates below, but they let the region sorting key skip
+        // every granule outside the searched regions.
+        if (regionSortingKey) {
+            if (query.coordinate() != null) {
+                clauses.add("region_x = ?");
+                parameters.add(Math.floorDiv(query.coordinate().intX(), ClickhouseSchemaUpdater.REGION_SIZE));
+                clauses.add("region_z = ?");
+                parameters.add(Math.floorDiv(query.coordinate().intZ(), ClickhouseSchemaUpdater.REGION_SIZE));
+            } else if (query.minCoordinate() != null && query.maxCoordinate() != null) {
+                clauses.add("region_x BETWEEN ? AND ?");
+                parameters.add(Math.floorDiv(query.minCoordinate().intX(), ClickhouseSchemaUpdater.REGION_SIZE));
+                parameters.add(Math.floorDiv(query.maxCoordinate().intX(), ClickhouseSchemaUpdater.REGION_SIZE));
+                clauses.add("region_z BETWEEN ? AND ?");
+                parameters.add(Math.floorDiv(query.minCoordinate().intZ(), ClickhouseSchemaUpdater.REGION_SIZE));
+                parameters.add(Math.floorDiv(query.maxCoordinate().intZ(), ClickhouseSchemaUpdater.REGION_SIZE));
+            }
         }
 
         // Locations
@@ -1267,7 +1550,7 @@ public class ClickhouseActivityQueryBuilder {
 
         String descriptor = query.lookup() ? emptyToNull(resultSet.getString("descriptor")) : null;
         String metadata = query.lookup() ? emptyToNull(resultSet.getString("metadata")) : null;
-        boolean reversed = query.lookup() && resultSet.getInt("reversed") == 1;
+        boolean reversed = query.lookup() && resultSet.getInt("effective_reversed") == 1;
 
         String blockNamespace = emptyToNull(resultSet.getString("affected_block_ns"));
         String blockName = emptyToNull(resultSet.getString("affected_block_name"));
@@ -1380,6 +1663,65 @@ public class ClickhouseActivityQueryBuilder {
         return prefix + "activities";
     }
 
+    /**
+     * Get the fully-qualified activity reversals table name.
+     *
+     * @return The activity reversals table name
+     */
+    private String reversalsTableName() {
+        return prefix + "activity_reversals";
+    }
+
+    /**
+     * Get the subquery selecting the ids of activities whose latest reversal state is reversed.
+     *
+     * <p>Reads the newest version per activity explicitly rather than relying on {@code FINAL},
+     * so rows the ReplacingMergeTree hasn't merged yet are still resolved correctly. Only the
+     * query's time range and activity ids are read, since no other reversals can match it, and
+     * the time range skips every partition outside it. The bounds are numbers, so they're inlined
+     * instead of bound, which keeps the parameter order of the enclosing query intact.</p>
+     *
+     * @param query The activity query
+     * @return The subquery SQL
+     */
+    private String reversedActivityIdsSql(ActivityQuery query) {
+        List<String> clauses = new ArrayList<>();
+
+        if (query.after() != null && query.before() != null) {
+            clauses.add(String.format("`timestamp` >= fromUnixTimestamp(%d)", query.after()));
+            clauses.add(String.format("`timestamp` <= fromUnixTimestamp(%d)", query.before()));
+        } else if (query.after() != null) {
+            clauses.add(String.format("`timestamp` > fromUnixTimestamp(%d)", query.after()));
+        } else if (query.before() != null) {
+            clauses.add(String.format("`timestamp` < fromUnixTimestamp(%d)", query.before()));
+        }
+
+        if (query.activityIds() != null && !query.activityIds().isEmpty()) {
+            clauses.add(
+                String.format(
+                    "activity_id IN (%s)",
+                    query.activityIds().stream().map(String::valueOf).collect(Collectors.joining(", "))
+                )
+            );
+        }
+
+        return String.format(
+            "SELECT activity_id FROM %s%s GROUP BY activity_id HAVING argMax(reversed, version) = 1",
+            reversalsTableName(),
+            clauses.isEmpty() ? "" : " WHERE " + String.join(" AND ", clauses)
+        );
+    }
+
+    /**
+     * Get the select column resolving each activity's reversed state from the reversals table.
+     *
+     * @param query The activity query
+     * @return The column SQL, aliased as {@code effective_reversed}
+     */
+    private String effectiveReversedColumn(ActivityQuery query) {
+        return String.format("activity_id IN (%s) AS effective_reversed", reversedActivityIdsSql(query));
+    }
+
     /**
      * Get the fully-qualified airtags table name.
      *
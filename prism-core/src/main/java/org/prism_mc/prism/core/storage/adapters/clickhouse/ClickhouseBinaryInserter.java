@@ -0,0 +1,125 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.clickhouse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Sends RowBinary encoded inserts straight to ClickHouse's HTTP interface.
+ *
+ * <p>The JDBC driver renders batched prepared statements as text VALUES, which both sides
+ * then have to format and parse. Posting the binary rows as the request body skips that.</p>
+ */
+public class ClickhouseBinaryInserter {
+
+    /**
+     * How long to wait for an insert to finish.
+     */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    /**
+     * The http client.
+     */
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    /**
+     * The base http endpoint, including the database.
+     */
+    private final String endpoint;
+
+    /**
+     * The username.
+     */
+    private final String username;
+
+    /**
+     * The password.
+     */
+    private final String password;
+
+    /**
+     * Construct a new inserter.
+     *
+     * @param host The host
+     * @param port The http port
+     * @param database The database
+     * @param username The username, or null for the server default
+     * @param password The password, or null
+     */
+    public ClickhouseBinaryInserter(String host, String port, String database, String username, String password) {
+        this.endpoint = String.format(
+            "http://%s:%s/?database=%s",
+            host,
+            port,
+            URLEncoder.encode(database, StandardCharsets.UTF_8)
+        );
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Insert the rows in a buffer.
+     *
+     * @param insertSql The insert statement, ending in {@code FORMAT RowBinary}
+     * @param rows The encoded rows
+     * @throws SQLException If ClickHouse rejects the insert or can't be reached
+     */
+    public void insert(String insertSql, ClickhouseRowBinaryBuffer rows) throws SQLException {
+        var builder = HttpRequest.newBuilder(
+            URI.create(endpoint + "&query=" + URLEncoder.encode(insertSql, StandardCharsets.UTF_8))
+        )
+            .timeout(REQUEST_TIMEOUT)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(rows.bytes(), 0, rows.size()));
+
+        if (username != null && !username.isEmpty()) {
+            builder.header("X-ClickHouse-User", username);
+        }
+
+        if (password != null && !password.isEmpty()) {
+            builder.header("X-ClickHouse-Key", password);
+        }
+
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new SQLException("Failed to send binary insert to ClickHouse", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new SQLException("Interrupted while sending binary insert to ClickHouse", e);
+        }
+
+        if (response.statusCode() != 200) {
+            throw new SQLException(
+                String.format("ClickHouse rejected binary insert (%d): %s", response.statusCode(), response.body())
+            );
+        }
+    }
+}
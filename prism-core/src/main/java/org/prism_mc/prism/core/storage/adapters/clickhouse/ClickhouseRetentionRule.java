@@ -0,0 +1,31 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.clickhouse;
+
+import java.util.Set;
+
+/**
+ * A retention rule enforced by the activities table's TTL.
+ *
+ * @param ageSeconds How old activities must be before they're removed
+ * @param actionKeys The action keys the rule applies to, or empty for every action
+ */
+public record ClickhouseRetentionRule(long ageSeconds, Set<String> actionKeys) {}
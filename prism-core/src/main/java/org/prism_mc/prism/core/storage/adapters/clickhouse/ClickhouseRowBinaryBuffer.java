@@ -0,0 +1,193 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.clickhouse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A growable buffer of rows encoded in ClickHouse's RowBinary format.
+ *
+ * <p>Numbers are little-endian and fixed width, strings are a LEB128 length followed by
+ * UTF-8 bytes, and nullable values are prefixed with a null flag. LowCardinality strings
+ * are written like plain strings.</p>
+ */
+public class ClickhouseRowBinaryBuffer {
+
+    /**
+     * The encoded bytes.
+     */
+    private byte[] bytes;
+
+    /**
+     * The number of bytes written.
+     */
+    private int size;
+
+    /**
+     * Construct a new buffer.
+     *
+     * @param initialCapacity The initial capacity in bytes
+     */
+    public ClickhouseRowBinaryBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(initialCapacity, 64)];
+    }
+
+    /**
+     * Get the encoded bytes. Only the first {@link #size()} bytes are valid.
+     *
+     * @return The backing array
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the number of bytes written.
+     *
+     * @return The size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discard everything written, keeping the allocated capacity.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Write a UInt8.
+     *
+     * @param value The value
+     */
+    public void writeUInt8(int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Write a UInt16.
+     *
+     * @param value The value
+     */
+    public void writeUInt16(int value) {
+        ensureCapacity(2);
+        bytes[size++] = (byte) value;
+        bytes[size++] = (byte) (value >>> 8);
+    }
+
+    /**
+     * Write a Nullable(UInt16).
+     *
+     * @param value The value, or null
+     */
+    public void writeNullableUInt16(Integer value) {
+        if (value == null) {
+            writeUInt8(1);
+
+            return;
+        }
+
+        writeUInt8(0);
+        writeUInt16(value);
+    }
+
+    /**
+     * Write an Int32.
+     *
+     * @param value The value
+     */
+    public void writeInt32(int value) {
+        ensureCapacity(4);
+        for (int shift = 0; shift < 32; shift += 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Write a UInt32, which is also how DateTime is encoded (epoch seconds).
+     *
+     * @param value The value
+     */
+    public void writeUInt32(long value) {
+        writeInt32((int) value);
+    }
+
+    /**
+     * Write a UInt64.
+     *
+     * @param value The value
+     */
+    public void writeUInt64(long value) {
+        ensureCapacity(8);
+        for (int shift = 0; shift < 64; shift += 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Write a String.
+     *
+     * @param value The value, null is written as an empty string
+     */
+    public void writeString(String value) {
+        if (value == null || value.isEmpty()) {
+            writeUInt8(0);
+
+            return;
+        }
+
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeVarUInt(encoded.length);
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+    }
+
+    /**
+     * Write an unsigned LEB128 length.
+     *
+     * @param value The value
+     */
+    private void writeVarUInt(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Grow the buffer so it can hold the given number of additional bytes.
+     *
+     * @param additional The number of bytes about to be written
+     */
+    private void ensureCapacity(int additional) {
+        int required = size + additional;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+}
@@ -25,6 +25,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
 
 public class ClickhouseSchemaUpdater {
@@ -33,7 +37,40 @@ public class ClickhouseSchemaUpdater {
      * The current/latest ClickHouse schema version for fresh installations. Uses the same 4xx numbering
      * as the normalized {@code SqlSchemaUpdater} so schema versions read consistently across backends.
      */
-    public static final String CURRENT_SCHEMA_VERSION = "400";
+    public static final String CURRENT_SCHEMA_VERSION = "402";
+
+    /**
+     * The width, in blocks, of the regions stored in {@code region_x} and {@code region_z}.
+     */
+    public static final int REGION_SIZE = 512;
+
+    /**
+     * The default activities sorting key.
+     */
+    private static final String DEFAULT_SORTING_KEY = "ORDER BY (world, `timestamp`)";
+
+    /**
+     * The activities sorting key used when sorting by region.
+     */
+    private static final String REGION_SORTING_KEY = "ORDER BY (world_uuid, region_x, region_z, `timestamp`)";
+
+    /**
+     * The optional projections, by name, with their sort order.
+     */
+    private static final List<String[]> PROJECTIONS = List.of(
+        new String[] { "proj_cause_player", "cause_player, `timestamp`" },
+        new String[] { "proj_action", "action, `timestamp`" }
+    );
+
+    /**
+     * The name of the optional descriptor search index.
+     */
+    private static final String DESCRIPTOR_INDEX = "idx_descriptor_ngram";
+
+    /**
+     * The meta key holding the applied TTL expression.
+     */
+    private static final String TTL_META_KEY = "ttl";
 
     /**
      * The logging service.
@@ -95,6 +132,311 @@ public class ClickhouseSchemaUpdater {
         }
     }
 
+    /**
+     * Get the activities table definition with the configured sorting key.
+     *
+     * @param activitiesDdl The activities table definition, as stored in the resource file
+     * @param regionSortingKey Whether to sort by region
+     * @return The activities table definition
+     */
+    public static String activitiesDdl(String activitiesDdl, boolean regionSortingKey) {
+        return regionSortingKey ? activitiesDdl.replace(DEFAULT_SORTING_KEY, REGION_SORTING_KEY) : activitiesDdl;
+    }
+
+    /**
+     * Rebuild the activities table when its sorting key doesn't match the configured one.
+     *
+     * <p>ClickHouse can't change a sorting key in place, so the rows are copied into a new table
+     * which then replaces the old one.</p>
+     *
+     * @param connection The database connection
+     * @param prefix The schema/table prefix
+     * @param activitiesDdl The activities table definition, from {@link #activitiesDdl(String, boolean)}
+     * @param regionSortingKey Whether to sort by region
+     * @throws SQLException The database exception
+     */
+    public void prepareSortingKey(
+        Connection connection,
+        String prefix,
+        String activitiesDdl,
+        boolean regionSortingKey
+    ) throws SQLException {
+        String table = prefix + "activities";
+        String rebuildTable = table + "_rebuild";
+
+        String sortingKey = "";
+        try (
+            PreparedStatement statement = connection.prepareStatement(
+                "SELECT sorting_key FROM system.tables WHERE database = currentDatabase() AND name = ?"
+            )
+        ) {
+            statement.setString(1, table);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    sortingKey = resultSet.getString(1);
+                }
+            }
+        }
+
+        if (sortingKey.contains("region_x") == regionSortingKey) {
+            return;
+        }
+
+        loggingService.info("Rebuilding {0} with a new sorting key. This may take a while...", table);
+
+        List<String> columns = new ArrayList<>();
+        try (
+            PreparedStatement statement = connection.prepareStatement(
+                "SELECT name FROM system.columns WHERE database = currentDatabase() AND table = ? " +
+                "AND default_kind NOT IN ('MATERIALIZED', 'ALIAS') ORDER BY position"
+            )
+        ) {
+            statement.setString(1, table);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    columns.add("`" + resultSet.getString(1) + "`");
+                }
+            }
+        }
+
+        String columnList = String.join(", ", columns);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format("DROP TABLE IF EXISTS %s", rebuildTable));
+            statement.execute(activitiesDdl.replaceFirst(Pattern.quote(table), rebuildTable));
+            statement.execute(
+                String.format(
+                    "INSERT INTO %s (%s) SELECT %s FROM %s",
+                    rebuildTable,
+                    columnList,
+                    columnList,
+                    table
+                )
+            );
+            statement.execute(String.format("EXCHANGE TABLES %s AND %s", table, rebuildTable));
+            statement.execute(String.format("DROP TABLE %s", rebuildTable));
+        }
+
+        // The rebuilt table has no TTL, so let the retention rules be applied again
+        writeMeta(connection, prefix, TTL_META_KEY, "");
+
+        loggingService.info("Rebuilt {0}", table);
+    }
+
+    /**
+     * Add or drop the projections sorted by cause player and by action.
+     *
+     * <p>Lightweight deletes are refused on tables with projections unless told what to do with them,
+     * so the table is set to rebuild affected projections. Existing parts are projected by a background
+     * mutation.</p>
+     *
+     * @param connection The database connection
+     * @param prefix The schema/table prefix
+     * @param enabled Whether projections are enabled
+     * @throws SQLException The database exception
+     */
+    public void prepareProjections(Connection connection, String prefix, boolean enabled) throws SQLException {
+        String table = prefix + "activities";
+
+        String createQuery = "";
+        try (
+            PreparedStatement statement = connection.prepareStatement(
+                "SELECT create_table_query FROM system.tables WHERE database = currentDatabase() AND name = ?"
+            )
+        ) {
+            statement.setString(1, table);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    createQuery = resultSet.getString(1);
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String[] projection : PROJECTIONS) {
+                boolean exists = createQuery.contains("PROJECTION " + projection[0]);
+                if (exists == enabled) {
+                    continue;
+                }
+
+                if (!enabled) {
+                    statement.execute(
+                        String.format("ALTER TABLE %s DROP PROJECTION IF EXISTS %s", table, projection[0])
+                    );
+
+                    continue;
+                }
+
+                loggingService.info(
+                    "Adding projection {0}; existing data is projected in the background...",
+                    projection[0]
+                );
+
+                statement.execute(
+                    String.format(
+                        "ALTER TABLE %s MODIFY SETTING lightweight_mutation_projection_mode = 'rebuild'",
+                        table
+                    )
+                );
+                statement.execute(
+                    String.format(
+                        "ALTER TABLE %s ADD PROJECTION IF NOT EXISTS %s (SELECT * ORDER BY %s)",
+                        table,
+                        projection[0],
+                        projection[1]
+                    )
+                );
+                statement.execute(String.format("ALTER TABLE %s MATERIALIZE PROJECTION %s", table, projection[0]));
+            }
+        }
+    }
+
+    /**
+     * Set the activities table TTL to enforce retention rules, or remove it when there are none.
+     *
+     * <p>ClickHouse deletes expired rows while merging parts, so no delete cycles run for these
+     * rules. Changing the TTL also applies it to existing parts through a background mutation,
+     * so the applied expression is kept in the meta table and only changed when the rules do.</p>
+     *
+     * @param connection The database connection
+     * @param prefix The schema/table prefix
+     * @param rules The retention rules
+     * @throws SQLException The database exception
+     */
+    public void prepareRetention(
+        Connection connection,
+        String prefix,
+        List<ClickhouseRetentionRule> rules
+    ) throws SQLException {
+        String ttl = ttlExpression(rules);
+        String applied = readMeta(connection, prefix, TTL_META_KEY);
+
+        if (ttl.equals(applied != null ? applied : "")) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            if (ttl.isEmpty()) {
+                loggingService.info("Removing activities TTL");
+
+                statement.execute(String.format("ALTER TABLE %sactivities REMOVE TTL", prefix));
+                statement.execute(String.format("ALTER TABLE %sactivity_reversals REMOVE TTL", prefix));
+            } else {
+                loggingService.info("Setting activities TTL: {0}", ttl);
+
+                // Reversal rows carry their activity's timestamp and action, so the same rules expire them together
+                statement.execute(String.format("ALTER TABLE %sactivities MODIFY TTL %s", prefix, ttl));
+                statement.execute(String.format("ALTER TABLE %sactivity_reversals MODIFY TTL %s", prefix, ttl));
+            }
+        }
+
+        writeMeta(connection, prefix, TTL_META_KEY, ttl);
+    }
+
+    /**
+     * Build the TTL expression for retention rules.
+     *
+     * <p>A rule for every action makes longer rules for specific actions redundant, so those
+     * are left out.</p>
+     *
+     * @param rules The retention rules
+     * @return The TTL expression, or an empty string for no TTL
+     */
+    private static String ttlExpression(List<ClickhouseRetentionRule> rules) {
+        long allActionsAge = Long.MAX_VALUE;
+        for (var rule : rules) {
+            if (rule.actionKeys().isEmpty()) {
+                allActionsAge = Math.min(allActionsAge, rule.ageSeconds());
+            }
+        }
+
+        List<String> clauses = new ArrayList<>();
+        if (allActionsAge != Long.MAX_VALUE) {
+            clauses.add(String.format("`timestamp` + INTERVAL %d SECOND DELETE", allActionsAge));
+        }
+
+        for (var rule : rules) {
+            if (rule.actionKeys().isEmpty() || rule.ageSeconds() >= allActionsAge) {
+                continue;
+            }
+
+            List<String> actions = new ArrayList<>();
+            for (String actionKey : new TreeSet<>(rule.actionKeys())) {
+                actions.add("'" + actionKey.replace("\\", "\\\\").replace("'", "\\'") + "'");
+            }
+
+            clauses.add(
+                String.format(
+                    "`timestamp` + INTERVAL %d SECOND DELETE WHERE action IN (%s)",
+                    rule.ageSeconds(),
+                    String.join(", ", actions)
+                )
+            );
+        }
+
+        return String.join(", ", clauses);
+    }
+
+    /**
+     * Add or drop the ngram bloom filter index used by descriptor searches.
+     *
+     * <p>The index covers {@code lower(descriptor)} because skip indexes can't serve ILIKE. A newly
+     * added index only applies to new parts, so existing parts are materialized by a background
+     * mutation.</p>
+     *
+     * @param connection The database connection
+     * @param prefix The schema/table prefix
+     * @param enabled Whether descriptor search is enabled
+     * @throws SQLException The database exception
+     */
+    public void prepareDescriptorSearch(Connection connection, String prefix, boolean enabled) throws SQLException {
+        boolean exists;
+        try (
+            PreparedStatement statement = connection.prepareStatement(
+                "SELECT count() FROM system.data_skipping_indices " +
+                "WHERE database = currentDatabase() AND table = ? AND name = ?"
+            )
+        ) {
+            statement.setString(1, prefix + "activities");
+            statement.setString(2, DESCRIPTOR_INDEX);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                exists = resultSet.next() && resultSet.getLong(1) > 0;
+            }
+        }
+
+        if (exists == enabled) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            if (!enabled) {
+                statement.execute(
+                    String.format("ALTER TABLE %sactivities DROP INDEX IF EXISTS %s", prefix, DESCRIPTOR_INDEX)
+                );
+
+                return;
+            }
+
+            loggingService.info("Adding descriptor search index; existing data is indexed in the background...");
+
+            statement.execute(
+                String.format(
+                    "ALTER TABLE %sactivities ADD INDEX IF NOT EXISTS %s lower(descriptor) " +
+                    "TYPE ngrambf_v1(3, 8192, 3, 0) GRANULARITY 4",
+                    prefix,
+                    DESCRIPTOR_INDEX
+                )
+            );
+            statement.execute(
+                String.format("ALTER TABLE %sactivities MATERIALIZE INDEX %s", prefix, DESCRIPTOR_INDEX)
+            );
+        }
+    }
+
     /**
      * Read the stored schema version from the meta table.
      *
@@ -104,14 +446,42 @@ public class ClickhouseSchemaUpdater {
      * @throws SQLException The database exception
      */
     private String readVersion(Connection connection, String prefix) throws SQLException {
+        return readMeta(connection, prefix, "schema_ver");
+    }
+
+    /**
+     * Record the schema version in the meta table.
+     *
+     * @param connection The database connection
+     * @param prefix The schema/table prefix
+     * @param version The version to store
+     * @throws SQLException The database exception
+     */
+    private void writeVersion(Connection connection, String prefix, String version) throws SQLException {
+        writeMeta(connection, prefix, "schema_ver", version);
+    }
+
+    /**
+     * Read a value from the meta table.
+     *
+     * @param connection The database connection
+     * @param prefix The schema/table prefix
+     * @param key The key
+     * @return The stored value, or null if none has been recorded
+     * @throws SQLException The database exception
+     */
+    private String readMeta(Connection connection, String prefix, String key) throws SQLException {
         try (
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(
-                String.format("SELECT v FROM %smeta FINAL WHERE k = 'schema_ver'", prefix)
+            PreparedStatement statement = connection.prepareStatement(
+                String.format("SELECT v FROM %smeta FINAL WHERE k = ?", prefix)
             )
         ) {
-            if (resultSet.next()) {
-                return resultSet.getString(1);
+            statement.setString(1, key);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getString(1);
+                }
             }
         }
 
@@ -119,21 +489,23 @@ public class ClickhouseSchemaUpdater {
     }
 
     /**
-     * Record the schema version in the meta table.
+     * Record a value in the meta table.
      *
      * @param connection The database connection
      * @param prefix The schema/table prefix
-     * @param version The version to store
+     * @param key The key
+     * @param value The value to store
      * @throws SQLException The database exception
      */
-    private void writeVersion(Connection connection, String prefix, String version) throws SQLException {
+    private void writeMeta(Connection connection, String prefix, String key, String value) throws SQLException {
         try (
             PreparedStatement statement = connection.prepareStatement(
-                String.format("INSERT INTO %smeta (k, v, updated) VALUES ('schema_ver', ?, ?)", prefix)
+                String.format("INSERT INTO %smeta (k, v, updated) VALUES (?, ?, ?)", prefix)
             )
         ) {
-            statement.setString(1, version);
-            statement.setLong(2, System.currentTimeMillis());
+            statement.setString(1, key);
+            statement.setString(2, value);
+            statement.setLong(3, System.currentTimeMillis());
             statement.executeUpdate();
         }
     }
@@ -150,6 +522,35 @@ public class ClickhouseSchemaUpdater {
     private void migrate(Connection connection, String prefix, int fromVersion, int toVersion) throws SQLException {
         for (int version = fromVersion + 1; version <= toVersion; version++) {
             loggingService.info("Applying schema migration for version {0}", version);
+
+            if (version == 401) {
+                // Regions, for the optional region sorting key
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(
+                        String.format(
+                            "ALTER TABLE %sactivities " +
+                            "ADD COLUMN IF NOT EXISTS region_x Int32 MATERIALIZED toInt32(floor(x / %d)) AFTER z, " +
+                            "ADD COLUMN IF NOT EXISTS region_z Int32 MATERIALIZED toInt32(floor(z / %d)) " +
+                            "AFTER region_x",
+                            prefix,
+                            REGION_SIZE,
+                            REGION_SIZE
+                        )
+                    );
+                }
+            } else if (version == 402) {
+                // Reversal state moved to the activity reversals side table
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(
+                        String.format(
+                            "INSERT INTO %sactivity_reversals (activity_id, `timestamp`, action, reversed, version) " +
+                            "SELECT activity_id, `timestamp`, action, 1, 0 FROM %sactivities WHERE reversed = 1",
+                            prefix,
+                            prefix
+                        )
+                    );
+                }
+            }
         }
     }
 }
@@ -29,9 +29,11 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import org.jooq.SQLDialect;
 import org.prism_mc.prism.api.actions.types.ActionTypeRegistry;
 import org.prism_mc.prism.api.activities.AbstractActivity;
@@ -45,19 +47,22 @@ import org.prism_mc.prism.api.storage.World;
 import org.prism_mc.prism.api.util.Pair;
 import org.prism_mc.prism.core.injection.factories.SqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.core.storage.HikariConfigFactories;
 import org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter;
+import org.prism_mc.prism.core.storage.adapters.sql.SqlExportedActivity;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlSchemaUpdater;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
+import org.prism_mc.prism.loader.storage.StorageType;
 
 @Singleton
 public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
 
     /**
-     * The activity id sequence.
+     * The activity id allocator.
      */
-    private final AtomicLong activityIdSequence = new AtomicLong(0);
+    private ClickhouseActivityIdAllocator activityIdAllocator;
 
     /**
      * The denormalized read/lookup query builder for the flat ClickHouse fact table.
@@ -69,6 +74,16 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
      */
     private String activityInsertSql;
 
+    /**
+     * The parameterized activity reversals insert statement.
+     */
+    private String reversalInsertSql;
+
+    /**
+     * The binary inserter, or null when activities are inserted through JDBC.
+     */
+    private ClickhouseBinaryInserter binaryInserter;
+
     /**
      * Constructor.
      *
@@ -78,6 +93,7 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
      * @param schemaUpdater The schema updater
      * @param queryBuilderFactory The query builder factory
      * @param cacheService The cache service
+     * @param slowQueryService The slow query service
      * @param serializerVersion The serializer version
      * @param dataPath The plugin file path
      */
@@ -89,6 +105,7 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
         SqlSchemaUpdater schemaUpdater,
         SqlActivityQueryBuilderFactory queryBuilderFactory,
         CacheService cacheService,
+        SlowQueryService slowQueryService,
         @Named("serializerVersion") short serializerVersion,
         Path dataPath
     ) {
@@ -99,14 +116,22 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
             schemaUpdater,
             queryBuilderFactory,
             cacheService,
+            slowQueryService,
             serializerVersion,
             dataPath
         );
+
+        // As the cold tier of tiered storage, ClickHouse is configured apart from the primary storage
+        var coldTier = configurationService.storageConfig().primaryStorageType() != StorageType.CLICKHOUSE;
+        if (coldTier) {
+            prefix = configurationService.storageConfig().clickhouse().prefix();
+        }
+
         try {
             var hikariConfig = HikariConfigFactories.clickhouse(configurationService.storageConfig());
             var usingHikariProperties = false;
 
-            if (hikariPropertiesFile.exists()) {
+            if (!coldTier && hikariPropertiesFile.exists()) {
                 loggingService.info("Using hikari.properties");
 
                 hikariConfig = new HikariConfig(hikariPropertiesFile.getPath());
@@ -119,11 +144,28 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
 
                 warnIfLightweightUpdateUnsupported();
 
+                var clickhouseConfig = configurationService.storageConfig().clickhouse();
+                if (clickhouseConfig.binaryInserts()) {
+                    if (usingHikariProperties) {
+                        loggingService.info("Binary inserts are disabled because hikari.properties is used");
+                    } else {
+                        binaryInserter = new ClickhouseBinaryInserter(
+                            clickhouseConfig.host(),
+                            clickhouseConfig.port(),
+                            clickhouseConfig.database(),
+                            clickhouseConfig.username(),
+                            clickhouseConfig.password()
+                        );
+                    }
+                }
+
                 clickhouseQueryBuilder = new ClickhouseActivityQueryBuilder(
                     dataSource,
                     prefix,
                     actionRegistry,
-                    loggingService
+                    loggingService,
+                    configurationService.storageConfig().descriptorSearch(),
+                    clickhouseConfig.regionSortingKey()
                 );
 
                 ready = true;
@@ -135,40 +177,129 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
 
     @Override
     protected void prepareSchema() throws Exception {
+        var clickhouseConfig = configurationService.storageConfig().clickhouse();
+
         try (Connection connection = dataSource.getConnection()) {
+            String activitiesDdl = ClickhouseSchemaUpdater.activitiesDdl(
+                loadSqlFromResourceFile("clickhouse", "prism_activities", prefix),
+                clickhouseConfig.regionSortingKey()
+            );
+
             try (Statement stmt = connection.createStatement()) {
-                stmt.execute(loadSqlFromResourceFile("clickhouse", "prism_activities", prefix));
+                stmt.execute(activitiesDdl);
                 stmt.execute(loadSqlFromResourceFile("clickhouse", "prism_airtags", prefix));
+                stmt.execute(loadSqlFromResourceFile("clickhouse", "prism_activity_reversals", prefix));
             }
 
-            new ClickhouseSchemaUpdater(loggingService).update(connection, prefix);
+            var clickhouseSchemaUpdater = new ClickhouseSchemaUpdater(loggingService);
+            clickhouseSchemaUpdater.update(connection, prefix);
+            clickhouseSchemaUpdater.prepareSortingKey(
+                connection,
+                prefix,
+                activitiesDdl,
+                clickhouseConfig.regionSortingKey()
+            );
+            clickhouseSchemaUpdater.prepareProjections(connection, prefix, clickhouseConfig.projections());
+            clickhouseSchemaUpdater.prepareDescriptorSearch(
+                connection,
+                prefix,
+                configurationService.storageConfig().descriptorSearch()
+            );
         }
 
         activityInsertSql = loadSqlFromResourceFile("clickhouse", "prism_activities_insert", prefix);
 
-        seedActivityIdSequence();
+        reversalInsertSql = String.format(
+            "INSERT INTO %sactivity_reversals (activity_id, `timestamp`, action, reversed, version) " +
+            "VALUES (?, ?, ?, ?, ?)",
+            prefix
+        );
+
+        if (clickhouseConfig.asyncInserts()) {
+            activityInsertSql = withAsyncInsertSettings(activityInsertSql, clickhouseConfig.waitForAsyncInserts());
+            reversalInsertSql = withAsyncInsertSettings(reversalInsertSql, clickhouseConfig.waitForAsyncInserts());
+        }
+
+        activityIdAllocator = new ClickhouseActivityIdAllocator(loggingService, dataSource, prefix);
+        activityIdAllocator.prepare();
+    }
+
+    /**
+     * Add the async insert settings to an insert statement, so the server buffers the rows and
+     * writes them to the table alongside other inserts instead of creating a part per batch.
+     *
+     * <p>The settings go before {@code VALUES}, so they're kept when the statement is cut down
+     * to a {@code FORMAT RowBinary} insert.</p>
+     *
+     * @param insertSql The insert statement
+     * @param wait Whether inserts wait for their rows to be written
+     * @return The insert statement with the async insert settings
+     */
+    private static String withAsyncInsertSettings(String insertSql, boolean wait) {
+        int valuesIndex = insertSql.lastIndexOf("VALUES");
+
+        return (
+            insertSql.substring(0, valuesIndex).trim() +
+            String.format(" SETTINGS async_insert = 1, wait_for_async_insert = %d ", wait ? 1 : 0) +
+            insertSql.substring(valuesIndex)
+        );
     }
 
     /**
-     * Seed the activity id sequence from the highest id already stored so ids stay monotonic across restarts.
+     * Copy activities from other storage, keeping their activity ids and reversed state.
      *
+     * <p>Activities already stored are skipped, so a copy that was interrupted before the source
+     * deleted its side can be repeated without duplicating activity ids.</p>
+     *
+     * @param activities The activities
      * @throws SQLException The database exception
      */
-    private void seedActivityIdSequence() throws SQLException {
-        try (
-            Connection connection = dataSource.getConnection();
-            Statement stmt = connection.createStatement();
-            ResultSet rs = stmt.executeQuery(String.format("SELECT max(activity_id) FROM %sactivities", prefix))
-        ) {
-            if (rs.next()) {
-                activityIdSequence.set(rs.getLong(1));
+    public void importActivities(List<SqlExportedActivity> activities) throws SQLException {
+        if (activities.isEmpty()) {
+            return;
+        }
+
+        long minActivityId = activities.stream().mapToLong(SqlExportedActivity::activityId).min().orElseThrow();
+        long maxActivityId = activities.stream().mapToLong(SqlExportedActivity::activityId).max().orElseThrow();
+        Set<Long> stored = clickhouseQueryBuilder.queryActivityIds(minActivityId, maxActivityId);
+
+        var batch = (ClickhouseActivityBatch) createActivityBatch();
+        batch.startBatch();
+
+        List<Long> reversedIds = new ArrayList<>();
+        for (var activity : activities) {
+            if (stored.contains(activity.activityId())) {
+                continue;
+            }
+
+            batch.addFromWalRecord(activity.record(), activity.activityId());
+
+            if (activity.reversed()) {
+                reversedIds.add(activity.activityId());
             }
         }
+
+        batch.commitBatch();
+
+        markReversed(reversedIds, true);
+    }
+
+    /**
+     * Enforce retention rules through the activities table TTL, replacing any previous rules.
+     *
+     * @param rules The retention rules, or an empty list to remove the TTL
+     */
+    public void applyRetentionRules(List<ClickhouseRetentionRule> rules) {
+        try (Connection connection = dataSource.getConnection()) {
+            new ClickhouseSchemaUpdater(loggingService).prepareRetention(connection, prefix, rules);
+        } catch (SQLException e) {
+            loggingService.handleException(e);
+        }
     }
 
     /**
      * Warn if the connected ClickHouse server is older than 25.8, where the lightweight
-     * {@code UPDATE} required for rollback/restore first became available.
+     * {@code UPDATE} required for deleting airtags first became available.
      */
     private void warnIfLightweightUpdateUnsupported() {
         try (
@@ -180,7 +311,7 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
                 String version = resultSet.getString(1);
                 if (!supportsLightweightUpdate(version)) {
                     loggingService.warn(
-                        "ClickHouse {0} detected. Rollback and restore require ClickHouse 25.8+ " +
+                        "ClickHouse {0} detected. Deleting airtags requires ClickHouse 25.8+ " +
                         "(lightweight UPDATE) and will fail on this server.",
                         version
                     );
@@ -228,6 +359,11 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
         return clickhouseQueryBuilder.queryActivities(query);
     }
 
+    @Override
+    public void queryActivities(ActivityQuery query, Consumer<Activity> consumer) {
+        clickhouseQueryBuilder.queryActivities(query, consumer);
+    }
+
     @Override
     public List<World> worlds() {
         return clickhouseQueryBuilder.worlds();
@@ -250,11 +386,21 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
         return clickhouseQueryBuilder.deleteActivities(query, cycleMinPrimaryKey, cycleMaxPrimaryKey);
     }
 
+    @Override
+    public int dropActivityPartitions(ActivityQuery query) {
+        return clickhouseQueryBuilder.dropActivityPartitions(query);
+    }
+
     @Override
     public void markReversed(List<Long> activityIds, boolean reversed) {
         clickhouseQueryBuilder.markReversed(activityIds, reversed);
     }
 
+    @Override
+    public void markActivitiesReversed(List<Activity> activities, boolean reversed) {
+        clickhouseQueryBuilder.markActivitiesReversed(activities, reversed, reversalInsertSql, binaryInserter);
+    }
+
     @Override
     public boolean airtagExists(String airtag) {
         return clickhouseQueryBuilder.airtagExists(airtag);
@@ -288,7 +434,9 @@ public class ClickhouseStorageAdapter extends AbstractSqlStorageAdapter {
             serializerVersion,
             prefix,
             activityInsertSql,
-            activityIdSequence
+            activityIdAllocator,
+            binaryInserter,
+            configurationService.storageConfig().clickhouse().batchMax()
         );
     }
 }
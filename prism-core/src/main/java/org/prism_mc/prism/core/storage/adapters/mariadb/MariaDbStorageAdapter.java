@@ -30,6 +30,7 @@ import org.jooq.SQLDialect;
 import org.prism_mc.prism.api.actions.types.ActionTypeRegistry;
 import org.prism_mc.prism.core.injection.factories.SqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.core.storage.HikariConfigFactories;
 import org.prism_mc.prism.core.storage.adapters.mysql.MysqlStorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlSchemaUpdater;
@@ -47,6 +48,7 @@ public class MariaDbStorageAdapter extends MysqlStorageAdapter {
      * @param actionRegistry The action type registry
      * @param schemaUpdater The schema updater
      * @param cacheService The cache service
+     * @param slowQueryService The slow query service
      * @param queryBuilderFactory The query builder factory
      * @param serializerVersion The serializer version
      * @param dataPath The plugin file path
@@ -59,6 +61,7 @@ public class MariaDbStorageAdapter extends MysqlStorageAdapter {
         SqlSchemaUpdater schemaUpdater,
         SqlActivityQueryBuilderFactory queryBuilderFactory,
         CacheService cacheService,
+        SlowQueryService slowQueryService,
         @Named("serializerVersion") short serializerVersion,
         Path dataPath
     ) {
@@ -69,6 +72,7 @@ public class MariaDbStorageAdapter extends MysqlStorageAdapter {
             schemaUpdater,
             queryBuilderFactory,
             cacheService,
+            slowQueryService,
             serializerVersion,
             dataPath,
             configurationService.storageConfig().mariadb(),
@@ -20,15 +20,51 @@
 
 package org.prism_mc.prism.core.storage.adapters.mysql;
 
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITIES;
+
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.JoinType;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.prism_mc.prism.api.activities.ActivityQuery;
+import org.prism_mc.prism.core.storage.adapters.sql.DescriptorTokenizer;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlActivityQueryBuilder;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
+import org.prism_mc.prism.loader.services.configuration.storage.MysqlDataSourceConfiguration;
 
 public class MysqlActivityQueryBuilder extends SqlActivityQueryBuilder {
 
+    /**
+     * InnoDB's default full-text stopwords that survive the minimum word length. These are never
+     * indexed, so requiring them would match nothing.
+     */
+    private static final Set<String> FULLTEXT_STOPWORDS = Set.of(
+        "about",
+        "are",
+        "com",
+        "for",
+        "from",
+        "how",
+        "that",
+        "the",
+        "this",
+        "und",
+        "was",
+        "what",
+        "when",
+        "where",
+        "who",
+        "will",
+        "with",
+        "www"
+    );
+
     /**
      * Construct a new query builder.
      *
@@ -47,4 +83,48 @@ public class MysqlActivityQueryBuilder extends SqlActivityQueryBuilder {
            over the drastically better composite index. */
         return JoinType.LEFT_OUTER_JOIN;
     }
+
+    @Override
+    protected Table<?> activitiesTable(ActivityQuery query) {
+        if (
+            query.lookup() &&
+            storageConfiguration.primaryDataSource() instanceof MysqlDataSourceConfiguration dataSource &&
+            !dataSource.lookupIndexHint().isBlank()
+        ) {
+            return PRISM_ACTIVITIES.forceIndex(dataSource.lookupIndexHint());
+        }
+
+        return super.activitiesTable(query);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>When descriptor search is enabled, every indexed word in the search must start a word
+     * in the descriptor, which the FULLTEXT index answers in boolean mode.</p>
+     */
+    @Override
+    protected List<Condition> descriptorConditions(String descriptor) {
+        List<Condition> conditions = super.descriptorConditions(descriptor);
+
+        if (storageConfiguration.descriptorSearch()) {
+            String terms = DescriptorTokenizer.tokenize(descriptor)
+                .stream()
+                .filter(token -> !FULLTEXT_STOPWORDS.contains(token))
+                .map(token -> "+" + token + "*")
+                .collect(Collectors.joining(" "));
+
+            if (!terms.isEmpty()) {
+                conditions.add(
+                    DSL.condition(
+                        "match({0}) against({1} in boolean mode)",
+                        PRISM_ACTIVITIES.DESCRIPTOR,
+                        DSL.val(terms)
+                    )
+                );
+            }
+        }
+
+        return conditions;
+    }
 }
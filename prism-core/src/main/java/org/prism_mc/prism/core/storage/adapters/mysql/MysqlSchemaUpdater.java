@@ -32,11 +32,19 @@ import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAda
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import org.jooq.Constraint;
 import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Result;
 import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.prism_mc.prism.core.storage.adapters.sql.SqlActivityPartition;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlSchemaUpdater;
 import org.prism_mc.prism.core.storage.dbo.Indexes;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
@@ -44,6 +52,16 @@ import org.prism_mc.prism.loader.services.logging.LoggingService;
 @Singleton
 public class MysqlSchemaUpdater extends SqlSchemaUpdater {
 
+    /**
+     * The name of the catch-all partition for activities newer than every monthly partition.
+     */
+    private static final String FUTURE_PARTITION = "pmax";
+
+    /**
+     * How many months past the current one get partitions ahead of time.
+     */
+    private static final int MONTHS_AHEAD = 3;
+
     /**
      * Construct the updater.
      *
@@ -157,4 +175,277 @@ public class MysqlSchemaUpdater extends SqlSchemaUpdater {
 
         update401To402Shared(dslContext);
     }
+
+    @Override
+    public void prepareDescriptorSearch(DSLContext dslContext, boolean enabled, List<String> activitiesIndexes) {
+        String indexName = Indexes.PRISM_ACTIVITIES_DESCRIPTOR.getName();
+
+        if (!enabled) {
+            if (activitiesIndexes.contains(indexName)) {
+                dslContext.dropIndex(Indexes.PRISM_ACTIVITIES_DESCRIPTOR).on(PRISM_ACTIVITIES).execute();
+            }
+
+            return;
+        }
+
+        if (activitiesIndexes.contains(indexName)) {
+            return;
+        }
+
+        // Partitioned tables can't have FULLTEXT indexes
+        if (queryActivityPartitions(dslContext).isNotEmpty()) {
+            loggingService.warn(
+                "descriptorSearch can't be enabled while activities are partitioned. Skipping. " +
+                "Disable partitionActivities and restart first to use it."
+            );
+
+            return;
+        }
+
+        loggingService.info("Creating descriptor search index; this may take a while on large databases...");
+
+        dslContext.execute(
+            String.format(
+                "ALTER TABLE `%s` ADD FULLTEXT INDEX `%s` (`%s`)",
+                PRISM_ACTIVITIES.getName(),
+                indexName,
+                PRISM_ACTIVITIES.DESCRIPTOR.getName()
+            )
+        );
+    }
+
+    @Override
+    public void prepareActivityPartitions(DSLContext dslContext, boolean enabled, List<Constraint> foreignKeys) {
+        List<Long> upperBounds = new ArrayList<>();
+        boolean partitioned = false;
+
+        for (var partition : queryActivityPartitions(dslContext)) {
+            partitioned = true;
+
+            String description = partition.get(1, String.class);
+            if (description != null && !"MAXVALUE".equals(description)) {
+                upperBounds.add(Long.parseLong(description));
+            }
+        }
+
+        if (!enabled) {
+            if (partitioned) {
+                loggingService.info("Removing activities partitioning; this may take a while on large databases...");
+
+                dslContext.execute(String.format("ALTER TABLE `%s` REMOVE PARTITIONING", PRISM_ACTIVITIES.getName()));
+            }
+
+            restoreActivityKeys(dslContext, foreignKeys);
+
+            return;
+        }
+
+        YearMonth lastMonth = YearMonth.now(ZoneOffset.UTC).plusMonths(MONTHS_AHEAD);
+
+        if (partitioned) {
+            // Split months off the catch-all partition so they can be dropped on their own later
+            YearMonth firstMonth = upperBounds.isEmpty()
+                ? YearMonth.now(ZoneOffset.UTC)
+                : YearMonth.from(Instant.ofEpochSecond(upperBounds.getLast()).atOffset(ZoneOffset.UTC));
+
+            if (firstMonth.isAfter(lastMonth)) {
+                return;
+            }
+
+            dslContext.execute(
+                String.format(
+                    "ALTER TABLE `%s` REORGANIZE PARTITION `%s` INTO (%s)",
+                    PRISM_ACTIVITIES.getName(),
+                    FUTURE_PARTITION,
+                    partitionDefinitions(firstMonth, lastMonth)
+                )
+            );
+
+            return;
+        }
+
+        loggingService.info("Partitioning activities by month; this may take a while on large databases...");
+
+        Long oldest = dslContext
+            .select(PRISM_ACTIVITIES.TIMESTAMP.min())
+            .from(PRISM_ACTIVITIES)
+            .fetchOne(0, Long.class);
+        YearMonth firstMonth = oldest != null
+            ? YearMonth.from(Instant.ofEpochSecond(oldest).atOffset(ZoneOffset.UTC))
+            : YearMonth.now(ZoneOffset.UTC);
+
+        // Partitioned tables can't have foreign keys, and their primary key must include the partition column.
+        // Both are restored if partitioning is turned off again.
+        List<String> existingForeignKeys = queryActivityForeignKeys(dslContext);
+
+        if (!existingForeignKeys.isEmpty()) {
+            List<String> clauses = new ArrayList<>();
+            for (String foreignKey : existingForeignKeys) {
+                clauses.add(String.format("DROP FOREIGN KEY `%s`", foreignKey));
+            }
+
+            dslContext.execute(
+                String.format("ALTER TABLE `%s` %s", PRISM_ACTIVITIES.getName(), String.join(", ", clauses))
+            );
+        }
+
+        dslContext.execute(
+            String.format(
+                "ALTER TABLE `%s` DROP PRIMARY KEY, ADD PRIMARY KEY (`%s`, `%s`)",
+                PRISM_ACTIVITIES.getName(),
+                PRISM_ACTIVITIES.ACTIVITY_ID.getName(),
+                PRISM_ACTIVITIES.TIMESTAMP.getName()
+            )
+        );
+
+        dslContext.execute(
+            String.format(
+                "ALTER TABLE `%s` PARTITION BY RANGE (`%s`) (%s)",
+                PRISM_ACTIVITIES.getName(),
+                PRISM_ACTIVITIES.TIMESTAMP.getName(),
+                partitionDefinitions(firstMonth, lastMonth)
+            )
+        );
+    }
+
+    @Override
+    public List<SqlActivityPartition> queryExpiredActivityPartitions(DSLContext dslContext, long before) {
+        List<SqlActivityPartition> partitions = new ArrayList<>();
+
+        for (var partition : queryActivityPartitions(dslContext)) {
+            String description = partition.get(1, String.class);
+            if (description == null || "MAXVALUE".equals(description)) {
+                continue;
+            }
+
+            long upperBound = Long.parseLong(description);
+            if (upperBound <= before) {
+                partitions.add(new SqlActivityPartition(partition.get(0, String.class), upperBound));
+            }
+        }
+
+        return partitions;
+    }
+
+    @Override
+    public void dropActivityPartition(DSLContext dslContext, SqlActivityPartition partition) {
+        dslContext.execute(
+            String.format("ALTER TABLE `%s` DROP PARTITION `%s`", PRISM_ACTIVITIES.getName(), partition.name())
+        );
+    }
+
+    /**
+     * Restore the primary key and foreign keys that partitioning the activities table removed.
+     *
+     * <p>Does nothing when they're already in place. Lookup rows are never deleted, so the
+     * foreign keys are added with checks off, letting MySQL add them in place rather than
+     * copying the whole table to validate every row.</p>
+     *
+     * @param dslContext The DSL context
+     * @param foreignKeys The activities table's foreign keys
+     */
+    private void restoreActivityKeys(DSLContext dslContext, List<Constraint> foreignKeys) {
+        List<String> primaryKeyColumns = dslContext
+            .fetch(
+                "SELECT COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_NAME = 'PRIMARY'",
+                PRISM_ACTIVITIES.getName()
+            )
+            .getValues(0, String.class);
+
+        if (primaryKeyColumns.size() > 1) {
+            loggingService.info("Restoring the activities primary key; this may take a while on large databases...");
+
+            dslContext.execute(
+                String.format(
+                    "ALTER TABLE `%s` DROP PRIMARY KEY, ADD PRIMARY KEY (`%s`)",
+                    PRISM_ACTIVITIES.getName(),
+                    PRISM_ACTIVITIES.ACTIVITY_ID.getName()
+                )
+            );
+        }
+
+        List<String> existingForeignKeys = queryActivityForeignKeys(dslContext);
+        List<Constraint> missingForeignKeys = foreignKeys
+            .stream()
+            .filter(foreignKey -> !existingForeignKeys.contains(foreignKey.getName()))
+            .toList();
+
+        if (missingForeignKeys.isEmpty()) {
+            return;
+        }
+
+        loggingService.info("Restoring the activities foreign keys...");
+
+        // foreign_key_checks is per session, so keep every statement on one connection
+        dslContext.connection(connection -> {
+            DSLContext session = DSL.using(connection, dslContext.dialect());
+
+            session.execute("SET foreign_key_checks = 0");
+            try {
+                session.alterTable(PRISM_ACTIVITIES).add(missingForeignKeys).execute();
+            } finally {
+                session.execute("SET foreign_key_checks = 1");
+            }
+        });
+    }
+
+    /**
+     * Get the names of the activities table's foreign keys.
+     *
+     * @param dslContext The DSL context
+     * @return The foreign key names
+     */
+    private List<String> queryActivityForeignKeys(DSLContext dslContext) {
+        return dslContext
+            .fetch(
+                "SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+                "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                PRISM_ACTIVITIES.getName()
+            )
+            .getValues(0, String.class);
+    }
+
+    /**
+     * Get the name and upper bound of each range partition on timestamp of the activities table, in order.
+     *
+     * @param dslContext The DSL context
+     * @return The partition names and upper bounds
+     */
+    private Result<Record> queryActivityPartitions(DSLContext dslContext) {
+        return dslContext.fetch(
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_METHOD = 'RANGE' " +
+            "AND PARTITION_EXPRESSION LIKE '%timestamp%' ORDER BY PARTITION_ORDINAL_POSITION",
+            PRISM_ACTIVITIES.getName()
+        );
+    }
+
+    /**
+     * Build monthly partition definitions followed by the catch-all partition.
+     *
+     * @param firstMonth The first month to partition
+     * @param lastMonth The last month to partition
+     * @return The partition definitions
+     */
+    private String partitionDefinitions(YearMonth firstMonth, YearMonth lastMonth) {
+        List<String> definitions = new ArrayList<>();
+
+        for (YearMonth month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            long upperBound = month.plusMonths(1).atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+
+            definitions.add(
+                String.format(
+                    "PARTITION `p%d%02d` VALUES LESS THAN (%d)",
+                    month.getYear(),
+                    month.getMonthValue(),
+                    upperBound
+                )
+            );
+        }
+
+        definitions.add(String.format("PARTITION `%s` VALUES LESS THAN MAXVALUE", FUTURE_PARTITION));
+
+        return String.join(", ", definitions);
+    }
 }
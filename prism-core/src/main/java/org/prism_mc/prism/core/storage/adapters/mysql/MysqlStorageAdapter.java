@@ -35,10 +35,12 @@ import org.prism_mc.prism.api.actions.types.ActionTypeRegistry;
 import org.prism_mc.prism.api.storage.ActivityBatch;
 import org.prism_mc.prism.core.injection.factories.SqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.core.storage.HikariConfigFactories;
 import org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlActivityProcedureBatch;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlSchemaUpdater;
+import org.prism_mc.prism.core.storage.dbo.Indexes;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
 import org.prism_mc.prism.loader.services.configuration.storage.MysqlDataSourceConfiguration;
 import org.prism_mc.prism.loader.services.configuration.storage.StorageConfiguration;
@@ -61,6 +63,7 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
      * @param actionRegistry The action type registry
      * @param schemaUpdater The schema updater
      * @param cacheService The cache service
+     * @param slowQueryService The slow query service
      * @param queryBuilderFactory The query builder factory
      * @param serializerVersion The serializer version
      * @param dataPath The plugin file path
@@ -73,6 +76,7 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
         SqlSchemaUpdater schemaUpdater,
         SqlActivityQueryBuilderFactory queryBuilderFactory,
         CacheService cacheService,
+        SlowQueryService slowQueryService,
         @Named("serializerVersion") short serializerVersion,
         Path dataPath
     ) {
@@ -83,6 +87,7 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
             schemaUpdater,
             queryBuilderFactory,
             cacheService,
+            slowQueryService,
             serializerVersion,
             dataPath,
             configurationService.storageConfig().mysql(),
@@ -99,6 +104,7 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
      * @param actionRegistry The action type registry
      * @param schemaUpdater The schema updater
      * @param cacheService The cache service
+     * @param slowQueryService The slow query service
      * @param queryBuilderFactory The query builder factory
      * @param serializerVersion The serializer version
      * @param dataPath The plugin file path
@@ -113,6 +119,7 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
         SqlSchemaUpdater schemaUpdater,
         SqlActivityQueryBuilderFactory queryBuilderFactory,
         CacheService cacheService,
+        SlowQueryService slowQueryService,
         short serializerVersion,
         Path dataPath,
         MysqlDataSourceConfiguration dataSourceConfiguration,
@@ -126,6 +133,7 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
             schemaUpdater,
             queryBuilderFactory,
             cacheService,
+            slowQueryService,
             serializerVersion,
             dataPath
         );
@@ -145,6 +153,8 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
             if (connect(hikariConfig, dialect)) {
                 describeDatabase(hikariConfig, usingHikariProperties);
                 prepareSchema();
+                connectReadReplicas();
+                preparePartitions();
 
                 if (!dataSourceConfiguration.useStoredProcedures()) {
                     prepareCache();
@@ -157,6 +167,34 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
         }
     }
 
+    @Override
+    protected void prepareDescriptorSearch() throws SQLException {
+        super.prepareDescriptorSearch();
+
+        // The index is skipped on partitioned tables, and searches can't match against a missing index
+        if (
+            configurationService.storageConfig().descriptorSearch() &&
+            !queryIndexNames(PRISM_ACTIVITIES.getName()).contains(Indexes.PRISM_ACTIVITIES_DESCRIPTOR.getName())
+        ) {
+            configurationService.storageConfig().disallowDescriptorSearch();
+        }
+    }
+
+    /**
+     * Partition or unpartition the activities table.
+     */
+    private void preparePartitions() {
+        boolean enabled = dataSourceConfiguration.partitionActivities();
+
+        if (enabled && configurationService.storageConfig().descriptorSearch()) {
+            loggingService.warn("Activities can't be partitioned while descriptorSearch is enabled. Skipping.");
+
+            return;
+        }
+
+        schemaUpdater.prepareActivityPartitions(dslContext, enabled, activityForeignKeys());
+    }
+
     @Override
     protected void describeDatabase(HikariConfig hikariConfig, boolean usingHikariProperties) throws SQLException {
         try (Connection connection = dataSource.getConnection()) {
@@ -293,7 +331,10 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
                 stmt.execute(loadSqlFromResourceFile("mysql", "prism_get_or_create_cause", prefix));
                 stmt.execute(loadSqlFromResourceFile("mysql", "prism_get_or_create_entity_type", prefix));
                 stmt.execute(loadSqlFromResourceFile("mysql", "prism_get_or_create_item", prefix));
-                stmt.execute(loadSqlFromResourceFile("mysql", "prism_get_or_create_player", prefix));
+                String playerProcedure = configurationService.storageConfig().lookupProjection()
+                    ? "prism_get_or_create_player_projected"
+                    : "prism_get_or_create_player";
+                stmt.execute(loadSqlFromResourceFile("mysql", playerProcedure, prefix));
                 String worldProcedure = configurationService.storageConfig().identifyWorldsByName()
                     ? "prism_get_or_create_world_by_name"
                     : "prism_get_or_create_world";
@@ -332,11 +373,11 @@ public class MysqlStorageAdapter extends AbstractSqlStorageAdapter {
     }
 
     @Override
-    public ActivityBatch createActivityBatch() {
+    protected ActivityBatch createRecordingBatch() {
         if (dataSourceConfiguration.useStoredProcedures()) {
             return new SqlActivityProcedureBatch(loggingService, dataSource, serializerVersion, prefix);
         }
 
-        return super.createActivityBatch();
+        return super.createRecordingBatch();
     }
 }
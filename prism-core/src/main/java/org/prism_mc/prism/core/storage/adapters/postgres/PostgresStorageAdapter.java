@@ -34,6 +34,7 @@ import org.prism_mc.prism.api.actions.types.ActionTypeRegistry;
 import org.prism_mc.prism.api.storage.ActivityBatch;
 import org.prism_mc.prism.core.injection.factories.SqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.core.storage.HikariConfigFactories;
 import org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlActivityProcedureBatch;
@@ -57,6 +58,7 @@ public class PostgresStorageAdapter extends AbstractSqlStorageAdapter {
      * @param actionRegistry The action type registry
      * @param schemaUpdater The schema updater
      * @param cacheService The cache service
+     * @param slowQueryService The slow query service
      * @param queryBuilderFactory The query builder factory
      * @param serializerVersion The serializer version
      * @param dataPath The plugin file path
@@ -69,6 +71,7 @@ public class PostgresStorageAdapter extends AbstractSqlStorageAdapter {
         SqlSchemaUpdater schemaUpdater,
         SqlActivityQueryBuilderFactory queryBuilderFactory,
         CacheService cacheService,
+        SlowQueryService slowQueryService,
         @Named("serializerVersion") short serializerVersion,
         Path dataPath
     ) {
@@ -79,6 +82,7 @@ public class PostgresStorageAdapter extends AbstractSqlStorageAdapter {
             schemaUpdater,
             queryBuilderFactory,
             cacheService,
+            slowQueryService,
             serializerVersion,
             dataPath
         );
@@ -98,6 +102,7 @@ public class PostgresStorageAdapter extends AbstractSqlStorageAdapter {
             if (connect(hikariConfig, SQLDialect.POSTGRES)) {
                 describeDatabase(hikariConfig, usingHikariProperties);
                 prepareSchema();
+                connectReadReplicas();
 
                 if (!configurationService.storageConfig().postgres().useStoredProcedures()) {
                     prepareCache();
@@ -186,11 +191,11 @@ public class PostgresStorageAdapter extends AbstractSqlStorageAdapter {
     }
 
     @Override
-    public ActivityBatch createActivityBatch() {
+    protected ActivityBatch createRecordingBatch() {
         if (configurationService.storageConfig().postgres().useStoredProcedures()) {
             return new SqlActivityProcedureBatch(loggingService, dataSource, serializerVersion, prefix);
         }
 
-        return super.createActivityBatch();
+        return super.createRecordingBatch();
     }
 }
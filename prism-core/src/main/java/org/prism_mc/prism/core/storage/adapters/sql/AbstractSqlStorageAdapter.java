@@ -31,6 +31,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.sql.Connection;
@@ -49,11 +50,19 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import org.jooq.Condition;
+import org.jooq.Constraint;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.Fields;
 import org.jooq.Result;
 import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListenerProvider;
 import org.jooq.types.UInteger;
 import org.jooq.types.UShort;
 import org.prism_mc.prism.api.actions.ActionData;
@@ -75,17 +84,23 @@ import org.prism_mc.prism.api.storage.StorageConnectionStatus;
 import org.prism_mc.prism.api.storage.World;
 import org.prism_mc.prism.api.util.Coordinate;
 import org.prism_mc.prism.api.util.Pair;
+import org.prism_mc.prism.core.injection.factories.FileSqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.injection.factories.SqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.core.storage.HikariConfigFactories;
 import org.prism_mc.prism.core.storage.dbo.DefaultCatalog;
 import org.prism_mc.prism.core.storage.dbo.Indexes;
+import org.prism_mc.prism.core.storage.dbo.Keys;
 import org.prism_mc.prism.core.storage.dbo.PrismDatabase;
 import org.prism_mc.prism.core.storage.dbo.records.PrismActionsRecord;
 import org.prism_mc.prism.core.storage.dbo.records.PrismEntityTypesRecord;
 import org.prism_mc.prism.core.storage.dbo.records.PrismWorldsRecord;
 import org.prism_mc.prism.core.storage.dbo.tables.PrismActions;
 import org.prism_mc.prism.core.storage.dbo.tables.PrismActivities;
+import org.prism_mc.prism.core.storage.dbo.tables.PrismActivityDescriptorTokens;
+import org.prism_mc.prism.core.storage.dbo.tables.PrismActivityDisplay;
+import org.prism_mc.prism.core.storage.dbo.tables.PrismActivityRollups;
 import org.prism_mc.prism.core.storage.dbo.tables.PrismAirtags;
 import org.prism_mc.prism.core.storage.dbo.tables.PrismBlocks;
 import org.prism_mc.prism.core.storage.dbo.tables.PrismCauses;
@@ -95,10 +110,31 @@ import org.prism_mc.prism.core.storage.dbo.tables.PrismMeta;
 import org.prism_mc.prism.core.storage.dbo.tables.PrismPlayers;
 import org.prism_mc.prism.core.storage.dbo.tables.PrismWorlds;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
+import org.prism_mc.prism.loader.services.configuration.storage.FileDataSourceConfiguration;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
 
 public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
 
+    /**
+     * The meta key holding the highest activity id copied into the lookup projection.
+     */
+    protected static final String LOOKUP_PROJECTION_META_KEY = "lookup_projection_id";
+
+    /**
+     * The number of activity ids copied into the lookup projection per statement when catching up.
+     */
+    protected static final int LOOKUP_PROJECTION_BACKFILL_WINDOW = 50000;
+
+    /**
+     * The meta key holding the highest activity id counted in the rollups.
+     */
+    protected static final String ROLLUPS_META_KEY = "rollup_activity_id";
+
+    /**
+     * The meta key holding the highest activity id whose descriptor has been tokenized.
+     */
+    protected static final String DESCRIPTOR_TOKENS_META_KEY = "descriptor_tokens_activity_id";
+
     /**
      * The prism database object model.
      */
@@ -114,6 +150,21 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
      */
     public static PrismActivities PRISM_ACTIVITIES;
 
+    /**
+     * The activity descriptor tokens dbo.
+     */
+    public static PrismActivityDescriptorTokens PRISM_ACTIVITY_DESCRIPTOR_TOKENS;
+
+    /**
+     * The activity display (lookup projection) dbo.
+     */
+    public static PrismActivityDisplay PRISM_ACTIVITY_DISPLAY;
+
+    /**
+     * The activity rollups dbo.
+     */
+    public static PrismActivityRollups PRISM_ACTIVITY_ROLLUPS;
+
     /**
      * The airtags dbo.
      */
@@ -234,11 +285,41 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
      */
     protected SqlActivityQueryBuilder queryBuilder;
 
+    /**
+     * The dsl context writes go through, or null to use the shared pool.
+     */
+    protected DSLContext writeContext;
+
+    /**
+     * The query builder writes go through, or null to use the shared pool's.
+     */
+    protected SqlActivityQueryBuilder writeQueryBuilder;
+
+    /**
+     * The lookup projection tracker, or null if the projection is disabled.
+     */
+    protected SqlActivityDisplayTracker displayTracker;
+
+    /**
+     * The rollup tracker, or null if rollups are disabled.
+     */
+    protected SqlActivityRollupTracker rollupTracker;
+
+    /**
+     * Whether descriptors are tokenized into the descriptor token table as activities are recorded.
+     */
+    protected boolean descriptorTokens = false;
+
     /**
      * The cache service.
      */
     protected final CacheService cacheService;
 
+    /**
+     * The slow query service.
+     */
+    protected final SlowQueryService slowQueryService;
+
     /**
      * The hikari data source.
      */
@@ -249,6 +330,16 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
      */
     protected DSLContext dslContext;
 
+    /**
+     * The single writer for file-based databases, or null when writes run on the calling thread.
+     */
+    protected SqlWriteExecutor writeExecutor;
+
+    /**
+     * The read replicas, or null when reads use the primary.
+     */
+    protected SqlReadReplicas readReplicas;
+
     /**
      * The schema/table prefix.
      */
@@ -267,6 +358,7 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
      * @param actionRegistry The action type registry
      * @param schemaUpdater The schema updater
      * @param cacheService The cache service
+     * @param slowQueryService The slow query service
      * @param queryBuilderFactory The query builder
      * @param serializerVersion The serializer version
      * @param dataPath The data path
@@ -279,6 +371,7 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
         SqlSchemaUpdater schemaUpdater,
         SqlActivityQueryBuilderFactory queryBuilderFactory,
         CacheService cacheService,
+        SlowQueryService slowQueryService,
         @Named("serializerVersion") short serializerVersion,
         Path dataPath
     ) {
@@ -287,6 +380,7 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
         this.actionRegistry = actionRegistry;
         this.schemaUpdater = schemaUpdater;
         this.cacheService = cacheService;
+        this.slowQueryService = slowQueryService;
         this.queryBuilderFactory = queryBuilderFactory;
         this.serializerVersion = serializerVersion;
 
@@ -331,6 +425,9 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
         // Initialize all of our DBOs
         PRISM_ACTIONS = new PrismActions(prefix);
         PRISM_ACTIVITIES = new PrismActivities(prefix);
+        PRISM_ACTIVITY_DESCRIPTOR_TOKENS = new PrismActivityDescriptorTokens(prefix);
+        PRISM_ACTIVITY_DISPLAY = new PrismActivityDisplay(prefix);
+        PRISM_ACTIVITY_ROLLUPS = new PrismActivityRollups(prefix);
         PRISM_AIRTAGS = new PrismAirtags(prefix);
         PRISM_BLOCKS = new PrismBlocks(prefix);
         PRISM_CAUSES = new PrismCauses(prefix);
@@ -345,6 +442,9 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
             Arrays.asList(
                 PRISM_ACTIONS,
                 PRISM_ACTIVITIES,
+                PRISM_ACTIVITY_DESCRIPTOR_TOKENS,
+                PRISM_ACTIVITY_DISPLAY,
+                PRISM_ACTIVITY_ROLLUPS,
                 PRISM_AIRTAGS,
                 PRISM_BLOCKS,
                 PRISM_CAUSES,
@@ -386,6 +486,17 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
             dataSource = new HikariDataSource(hikariConfig);
             dslContext = DSL.using(dataSource, sqlDialect);
 
+            var slowQueryConfiguration = configurationService.storageConfig().slowQueries();
+            if (slowQueryConfiguration.thresholdMs() > 0) {
+                var listener = new SqlSlowQueryListener(
+                    loggingService,
+                    slowQueryService,
+                    DSL.using(dataSource, sqlDialect),
+                    slowQueryConfiguration.explain()
+                );
+                dslContext = DSL.using(dslContext.configuration().derive(new DefaultExecuteListenerProvider(listener)));
+            }
+
             if (queryBuilderFactory != null) {
                 this.queryBuilder = queryBuilderFactory.create(dslContext);
             }
@@ -598,52 +709,7 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
             .column(PRISM_ACTIVITIES.SERIALIZED_DATA)
             .column(PRISM_ACTIVITIES.REVERSED)
             .primaryKey(PRISM_ACTIVITIES.ACTIVITY_ID)
-            .constraints(
-                constraint(String.format("%s_actionId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.ACTION_ID)
-                    .references(PRISM_ACTIONS, PRISM_ACTIONS.ACTION_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_affectedEntityTypeId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.AFFECTED_ENTITY_TYPE_ID)
-                    .references(PRISM_ENTITY_TYPES, PRISM_ENTITY_TYPES.ENTITY_TYPE_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_affectedItemId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.AFFECTED_ITEM_ID)
-                    .references(PRISM_ITEMS, PRISM_ITEMS.ITEM_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_affectedBlockId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.AFFECTED_BLOCK_ID)
-                    .references(PRISM_BLOCKS, PRISM_BLOCKS.BLOCK_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_replacedBlockId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.REPLACED_BLOCK_ID)
-                    .references(PRISM_BLOCKS, PRISM_BLOCKS.BLOCK_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_affectedPlayerId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.AFFECTED_PLAYER_ID)
-                    .references(PRISM_PLAYERS, PRISM_PLAYERS.PLAYER_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_causeId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.CAUSE_ID)
-                    .references(PRISM_CAUSES, PRISM_CAUSES.CAUSE_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_causePlayerId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.CAUSE_PLAYER_ID)
-                    .references(PRISM_PLAYERS, PRISM_PLAYERS.PLAYER_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_causeEntityTypeId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.CAUSE_ENTITY_TYPE_ID)
-                    .references(PRISM_ENTITY_TYPES, PRISM_ENTITY_TYPES.ENTITY_TYPE_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_causeBlockId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.CAUSE_BLOCK_ID)
-                    .references(PRISM_BLOCKS, PRISM_BLOCKS.BLOCK_ID)
-                    .onDeleteCascade(),
-                constraint(String.format("%s_worldId", prefix))
-                    .foreignKey(PRISM_ACTIVITIES.WORLD_ID)
-                    .references(PRISM_WORLDS, PRISM_WORLDS.WORLD_ID)
-                    .onDeleteCascade()
-            )
+            .constraints(activityForeignKeys())
             .execute();
 
         // Sqlite doesn't support creating indexes inline with create table and
@@ -772,6 +838,288 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
                 .on(PRISM_AIRTAGS, PRISM_AIRTAGS.PLAYER_ID)
                 .execute();
         }
+
+        prepareLookupProjection();
+        prepareRollups();
+        prepareDescriptorSearch();
+    }
+
+    /**
+     * The foreign keys of the activities table.
+     *
+     * @return The foreign key constraints
+     */
+    protected List<Constraint> activityForeignKeys() {
+        return List.of(
+            constraint(String.format("%s_actionId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.ACTION_ID)
+                .references(PRISM_ACTIONS, PRISM_ACTIONS.ACTION_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_affectedEntityTypeId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.AFFECTED_ENTITY_TYPE_ID)
+                .references(PRISM_ENTITY_TYPES, PRISM_ENTITY_TYPES.ENTITY_TYPE_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_affectedItemId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.AFFECTED_ITEM_ID)
+                .references(PRISM_ITEMS, PRISM_ITEMS.ITEM_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_affectedBlockId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.AFFECTED_BLOCK_ID)
+                .references(PRISM_BLOCKS, PRISM_BLOCKS.BLOCK_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_replacedBlockId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.REPLACED_BLOCK_ID)
+                .references(PRISM_BLOCKS, PRISM_BLOCKS.BLOCK_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_affectedPlayerId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.AFFECTED_PLAYER_ID)
+                .references(PRISM_PLAYERS, PRISM_PLAYERS.PLAYER_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_causeId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.CAUSE_ID)
+                .references(PRISM_CAUSES, PRISM_CAUSES.CAUSE_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_causePlayerId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.CAUSE_PLAYER_ID)
+                .references(PRISM_PLAYERS, PRISM_PLAYERS.PLAYER_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_causeEntityTypeId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.CAUSE_ENTITY_TYPE_ID)
+                .references(PRISM_ENTITY_TYPES, PRISM_ENTITY_TYPES.ENTITY_TYPE_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_causeBlockId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.CAUSE_BLOCK_ID)
+                .references(PRISM_BLOCKS, PRISM_BLOCKS.BLOCK_ID)
+                .onDeleteCascade(),
+            constraint(String.format("%s_worldId", prefix))
+                .foreignKey(PRISM_ACTIVITIES.WORLD_ID)
+                .references(PRISM_WORLDS, PRISM_WORLDS.WORLD_ID)
+                .onDeleteCascade()
+        );
+    }
+
+    /**
+     * Create and catch up the lookup projection, or drop it if it's been disabled.
+     *
+     * <p>The highest activity id copied into the projection is kept in the meta table. On startup
+     * everything above it is copied over, which covers activities recorded before the projection
+     * was enabled and any whose refresh failed at commit time.</p>
+     */
+    protected void prepareLookupProjection() {
+        String syncedActivityId = dslContext
+            .select(PRISM_META.V)
+            .from(PRISM_META)
+            .where(PRISM_META.K.eq(LOOKUP_PROJECTION_META_KEY))
+            .fetchOne(PRISM_META.V);
+
+        if (!configurationService.storageConfig().lookupProjection()) {
+            // Anything recorded while disabled was never projected, so a leftover table can't be trusted
+            if (syncedActivityId != null) {
+                loggingService.info("Lookup projection disabled, dropping {0}...", PRISM_ACTIVITY_DISPLAY.getName());
+
+                dslContext.dropTableIfExists(PRISM_ACTIVITY_DISPLAY).execute();
+                dslContext.deleteFrom(PRISM_META).where(PRISM_META.K.eq(LOOKUP_PROJECTION_META_KEY)).execute();
+            }
+
+            return;
+        }
+
+        dslContext
+            .createTableIfNotExists(PRISM_ACTIVITY_DISPLAY)
+            .column(PRISM_ACTIVITY_DISPLAY.ACTIVITY_ID)
+            .column(PRISM_ACTIVITY_DISPLAY.ACTION)
+            .column(PRISM_ACTIVITY_DISPLAY.WORLD_UUID)
+            .column(PRISM_ACTIVITY_DISPLAY.WORLD)
+            .column(PRISM_ACTIVITY_DISPLAY.BLOCK_NS)
+            .column(PRISM_ACTIVITY_DISPLAY.BLOCK_NAME)
+            .column(PRISM_ACTIVITY_DISPLAY.BLOCK_TRANSLATION_KEY)
+            .column(PRISM_ACTIVITY_DISPLAY.ENTITY_TYPE)
+            .column(PRISM_ACTIVITY_DISPLAY.CAUSE)
+            .column(PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER)
+            .column(PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER_UUID)
+            .column(PRISM_ACTIVITY_DISPLAY.CAUSE_ENTITY_TYPE_TRANSLATION_KEY)
+            .column(PRISM_ACTIVITY_DISPLAY.CAUSE_BLOCK_TRANSLATION_KEY)
+            .column(PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER)
+            .column(PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER_UUID)
+            .primaryKey(PRISM_ACTIVITY_DISPLAY.ACTIVITY_ID)
+            .execute();
+
+        // Renames are copied into every projected activity of the player
+        var indexNames = queryIndexNames(PRISM_ACTIVITY_DISPLAY.getName());
+
+        if (!indexNames.contains(Indexes.PRISM_ACTIVITY_DISPLAY_CAUSE_PLAYER_UUID.getName())) {
+            dslContext
+                .createIndex(Indexes.PRISM_ACTIVITY_DISPLAY_CAUSE_PLAYER_UUID)
+                .on(PRISM_ACTIVITY_DISPLAY, PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER_UUID)
+                .execute();
+        }
+
+        if (!indexNames.contains(Indexes.PRISM_ACTIVITY_DISPLAY_AFFECTED_PLAYER_UUID.getName())) {
+            dslContext
+                .createIndex(Indexes.PRISM_ACTIVITY_DISPLAY_AFFECTED_PLAYER_UUID)
+                .on(PRISM_ACTIVITY_DISPLAY, PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER_UUID)
+                .execute();
+        }
+
+        if (syncedActivityId == null) {
+            syncedActivityId = "0";
+            dslContext
+                .insertInto(PRISM_META, PRISM_META.K, PRISM_META.V)
+                .values(LOOKUP_PROJECTION_META_KEY, syncedActivityId)
+                .execute();
+        }
+
+        displayTracker = new SqlActivityDisplayTracker(
+            loggingService,
+            dslContext,
+            queryBuilder,
+            Long.parseLong(syncedActivityId)
+        );
+
+        if (queryBuilder.queryMaxActivityId() > Long.parseLong(syncedActivityId)) {
+            loggingService.info(
+                "Copying activities after {0} into the lookup projection; this may take a while...",
+                syncedActivityId
+            );
+        }
+
+        displayTracker.requestRefresh();
+    }
+
+    /**
+     * Create and catch up the hourly rollups, or drop them if they've been disabled.
+     *
+     * <p>The highest activity id counted in the rollups is kept in the meta table. On startup
+     * everything above it is rolled up, which covers activities recorded before rollups were
+     * enabled and any whose refresh failed at commit time.</p>
+     */
+    protected void prepareRollups() {
+        String rolledUpActivityId = dslContext
+            .select(PRISM_META.V)
+            .from(PRISM_META)
+            .where(PRISM_META.K.eq(ROLLUPS_META_KEY))
+            .fetchOne(PRISM_META.V);
+
+        if (!configurationService.storageConfig().rollups()) {
+            // Anything recorded or purged while disabled was never counted, so leftover rollups can't be trusted
+            if (rolledUpActivityId != null) {
+                loggingService.info("Rollups disabled, dropping {0}...", PRISM_ACTIVITY_ROLLUPS.getName());
+
+                dslContext.dropTableIfExists(PRISM_ACTIVITY_ROLLUPS).execute();
+                dslContext.deleteFrom(PRISM_META).where(PRISM_META.K.eq(ROLLUPS_META_KEY)).execute();
+            }
+
+            return;
+        }
+
+        dslContext
+            .createTableIfNotExists(PRISM_ACTIVITY_ROLLUPS)
+            .column(PRISM_ACTIVITY_ROLLUPS.BUCKET)
+            .column(PRISM_ACTIVITY_ROLLUPS.WORLD_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.ACTION_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.CAUSE_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.CAUSE_PLAYER_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.CAUSE_ENTITY_TYPE_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.CAUSE_BLOCK_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_QUANTITY)
+            .column(PRISM_ACTIVITY_ROLLUPS.AFFECTED_BLOCK_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.AFFECTED_ENTITY_TYPE_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.AFFECTED_PLAYER_ID)
+            .column(PRISM_ACTIVITY_ROLLUPS.DESCRIPTOR)
+            .column(PRISM_ACTIVITY_ROLLUPS.METADATA)
+            .column(PRISM_ACTIVITY_ROLLUPS.REVERSED)
+            .column(PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT)
+            .column(PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM)
+            .primaryKey(Keys.KEY_PRISM_ACTIVITY_ROLLUPS_PRIMARY.getFields())
+            .execute();
+
+        if (rolledUpActivityId == null) {
+            rolledUpActivityId = "0";
+            dslContext
+                .insertInto(PRISM_META, PRISM_META.K, PRISM_META.V)
+                .values(ROLLUPS_META_KEY, rolledUpActivityId)
+                .execute();
+        }
+
+        rollupTracker = new SqlActivityRollupTracker(
+            loggingService,
+            dslContext,
+            queryBuilder,
+            Long.parseLong(rolledUpActivityId)
+        );
+
+        if (queryBuilder.queryMaxActivityId() > Long.parseLong(rolledUpActivityId)) {
+            loggingService.info("Rolling up activities after {0}; this may take a while...", rolledUpActivityId);
+        }
+
+        rollupTracker.requestRefresh();
+    }
+
+    /**
+     * Create or drop the descriptor search index and catch up the descriptor token table.
+     *
+     * <p>The schema updater creates whichever index the database supports. H2 and sqlite use a
+     * token table instead, which is filled here in primary key windows starting after the highest
+     * activity id known to be tokenized.</p>
+     *
+     * @throws SQLException The database exception
+     */
+    protected void prepareDescriptorSearch() throws SQLException {
+        boolean enabled = configurationService.storageConfig().descriptorSearch();
+        schemaUpdater.prepareDescriptorSearch(dslContext, enabled, queryIndexNames(PRISM_ACTIVITIES.getName()));
+
+        if (dslContext.family() != SQLDialect.H2 && dslContext.family() != SQLDialect.SQLITE) {
+            return;
+        }
+
+        String tokenizedActivityId = dslContext
+            .select(PRISM_META.V)
+            .from(PRISM_META)
+            .where(PRISM_META.K.eq(DESCRIPTOR_TOKENS_META_KEY))
+            .fetchOne(PRISM_META.V);
+
+        if (!enabled) {
+            // The schema updater dropped the token table, start over if it's enabled again
+            if (tokenizedActivityId != null) {
+                dslContext.deleteFrom(PRISM_META).where(PRISM_META.K.eq(DESCRIPTOR_TOKENS_META_KEY)).execute();
+            }
+
+            return;
+        }
+
+        long fromActivityId = tokenizedActivityId != null ? Long.parseLong(tokenizedActivityId) : 0;
+        long maxActivityId = queryBuilder.queryMaxActivityId();
+
+        if (maxActivityId > fromActivityId) {
+            loggingService.info(
+                "Indexing descriptors of activities {0} through {1}; this may take a while...",
+                fromActivityId + 1,
+                maxActivityId
+            );
+
+            for (long after = fromActivityId; after < maxActivityId; after += LOOKUP_PROJECTION_BACKFILL_WINDOW) {
+                queryBuilder.tokenizeDescriptors(
+                    after,
+                    Math.min(after + LOOKUP_PROJECTION_BACKFILL_WINDOW, maxActivityId)
+                );
+            }
+        }
+
+        int updated = dslContext
+            .update(PRISM_META)
+            .set(PRISM_META.V, String.valueOf(maxActivityId))
+            .where(PRISM_META.K.eq(DESCRIPTOR_TOKENS_META_KEY))
+            .execute();
+
+        if (updated == 0) {
+            dslContext
+                .insertInto(PRISM_META, PRISM_META.K, PRISM_META.V)
+                .values(DESCRIPTOR_TOKENS_META_KEY, String.valueOf(maxActivityId))
+                .execute();
+        }
+
+        descriptorTokens = true;
     }
 
     /**
@@ -858,23 +1206,30 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
 
     @Override
     public int countActivities(ActivityQuery query) throws Exception {
-        return queryBuilder.countActivities(query);
+        return readQueryBuilder().countActivities(query);
     }
 
     @Override
     public List<Activity> queryActivities(ActivityQuery query) throws Exception {
-        var results = activityMapper(queryBuilder.queryActivities(query), query);
-
         List<Activity> activities = new ArrayList<>();
-        for (var result : results) {
-            if (result instanceof Activity activity) {
-                activities.add(activity);
-            }
-        }
+        queryActivities(query, activities::add);
 
         return activities;
     }
 
+    @Override
+    public void queryActivities(ActivityQuery query, Consumer<Activity> consumer) throws Exception {
+        try (Cursor<org.jooq.Record> cursor = readQueryBuilder().cursorActivities(query)) {
+            ActivityRowMapper mapper = new ActivityRowMapper(cursor, query);
+
+            for (org.jooq.Record r : cursor) {
+                if (mapper.map(r) instanceof Activity activity) {
+                    consumer.accept(activity);
+                }
+            }
+        }
+    }
+
     @Override
     public ActivityStream streamActivities(ActivityQuery query) throws Exception {
         // Enforce the modifications.max-per-operation cap as a hard ceiling on the PK fetch.
@@ -884,8 +1239,16 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
             effectiveQuery = query.toBuilder().limit(maxPerOperation).build();
         }
 
+        // Modifications read from the primary, so a lagging replica can't hand back activities
+        // that were just reversed or miss ones just recorded
         List<Long> pks = queryBuilder.queryActivityPks(effectiveQuery);
-        return new SqlBatchedActivityStream(pks, query);
+        return new SqlBatchedActivityStream(queryBuilder, pks, query);
+    }
+
+    @Override
+    public ActivityStream streamActivities(ActivityQuery query, List<Long> primaryKeys) {
+        // Resumed jobs read from the primary so activities reversed just before a restart are current
+        return new SqlBatchedActivityStream(queryBuilder, new ArrayList<>(primaryKeys), query);
     }
 
     /**
@@ -893,13 +1256,15 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
      */
     private final class SqlBatchedActivityStream implements ActivityStream {
 
+        private final SqlActivityQueryBuilder queryBuilder;
         private final List<Long> pks;
         private final ActivityQuery query;
         private final int total;
         private int cursor;
         private boolean closed;
 
-        SqlBatchedActivityStream(List<Long> pks, ActivityQuery query) {
+        SqlBatchedActivityStream(SqlActivityQueryBuilder queryBuilder, List<Long> pks, ActivityQuery query) {
+            this.queryBuilder = queryBuilder;
             this.pks = pks;
             this.query = query;
             this.total = pks.size();
@@ -919,11 +1284,11 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
             }
 
             var result = queryBuilder.queryActivitiesByPks(batchPks, query);
-            var mapped = activityMapper(result, query);
+            ActivityRowMapper mapper = new ActivityRowMapper(result, query);
 
-            List<Activity> activities = new ArrayList<>(mapped.size());
-            for (var abstractActivity : mapped) {
-                if (abstractActivity instanceof Activity activity) {
+            List<Activity> activities = new ArrayList<>(result.size());
+            for (org.jooq.Record r : result) {
+                if (mapper.map(r) instanceof Activity activity) {
                     activities.add(activity);
                 }
             }
@@ -948,25 +1313,36 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
         public int total() {
             return total;
         }
+
+        @Override
+        public synchronized List<Long> primaryKeys() {
+            return List.copyOf(pks);
+        }
     }
 
     @Override
     public PartialListPaginationResult<AbstractActivity> queryActivitiesPaginated(ActivityQuery query) {
-        Result<org.jooq.Record> result = queryBuilder.queryActivities(query);
+        List<AbstractActivity> activities = new ArrayList<>();
+        int totalResults = 0;
+
+        try (Cursor<org.jooq.Record> cursor = readQueryBuilder().cursorActivities(query)) {
+            ActivityRowMapper mapper = new ActivityRowMapper(cursor, query);
 
-        int totalResults = result.size();
-        if (!result.isEmpty()) {
-            totalResults = result.get(0).getValue("totalrows", Integer.class);
+            for (org.jooq.Record r : cursor) {
+                if (totalResults == 0) {
+                    totalResults = mapper.totalRows(r);
+                }
+
+                var activity = mapper.map(r);
+                if (activity != null) {
+                    activities.add(activity);
+                }
+            }
         }
 
         int currentPage = (query.offset() / query.limit()) + 1;
 
-        return new PartialListPaginationResult<>(
-            activityMapper(result, query),
-            totalResults,
-            query.limit(),
-            currentPage
-        );
+        return new PartialListPaginationResult<>(activities, totalResults, query.limit(), currentPage);
     }
 
     /**
@@ -977,100 +1353,281 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
      * @return The activity list
      */
     protected List<AbstractActivity> activityMapper(Result<org.jooq.Record> result, ActivityQuery query) {
-        List<AbstractActivity> activities = new ArrayList<>();
+        ActivityRowMapper mapper = new ActivityRowMapper(result, query);
 
+        List<AbstractActivity> activities = new ArrayList<>(result.size());
         for (org.jooq.Record r : result) {
-            String actionKey = r.getValue(PRISM_ACTIONS.ACTION);
+            var activity = mapper.map(r);
+            if (activity != null) {
+                activities.add(activity);
+            }
+        }
+
+        return activities;
+    }
+
+    /**
+     * Maps activity rows to an action and activity record.
+     *
+     * <p>Column positions are resolved once from the row type when the mapper is created, so
+     * mapping each row is plain index access instead of a by-reference field lookup per column.
+     * Columns absent from the row type (e.g. lookup-only columns in a modification query)
+     * resolve to {@code -1} and read as null.</p>
+     */
+    protected final class ActivityRowMapper {
+
+        private final ActivityQuery query;
+        private final int actionIdx;
+        private final int worldUuidIdx;
+        private final int worldIdx;
+        private final int xIdx;
+        private final int yIdx;
+        private final int zIdx;
+        private final int entityTypeIdx;
+        private final int materialIdx;
+        private final int itemDataIdx;
+        private final int itemQuantityIdx;
+        private final int affectedPlayerIdx;
+        private final int affectedPlayerUuidIdx;
+        private final int causeIdx;
+        private final int causePlayerIdx;
+        private final int causePlayerUuidIdx;
+        private final int causeEntityTypeTranslationKeyIdx;
+        private final int causeBlockTranslationKeyIdx;
+        private final int descriptorIdx;
+        private final int metadataIdx;
+        private final int reversedIdx;
+        private final int blockNamespaceIdx;
+        private final int blockNameIdx;
+        private final int blockDataIdx;
+        private final int translationKeyIdx;
+        private final int timestampIdx;
+        private final int avgTimestampIdx;
+        private final int activityIdIdx;
+        private final int serializedDataIdx;
+        private final int serializerVersionIdx;
+        private final int replacedBlockNamespaceIdx;
+        private final int replacedBlockNameIdx;
+        private final int replacedBlockDataIdx;
+        private final int replacedBlockTranslationKeyIdx;
+        private final int groupCountIdx;
+        private final int totalRowsIdx;
+
+        /**
+         * Construct a mapper for the given row type.
+         *
+         * @param fields The row type (a result or cursor)
+         * @param query The original query
+         */
+        public ActivityRowMapper(Fields fields, ActivityQuery query) {
+            this.query = query;
+            actionIdx = indexOf(fields, PRISM_ACTIONS.ACTION, PRISM_ACTIVITY_DISPLAY.ACTION);
+            worldUuidIdx = indexOf(fields, PRISM_WORLDS.WORLD_UUID, PRISM_ACTIVITY_DISPLAY.WORLD_UUID);
+            worldIdx = indexOf(fields, PRISM_WORLDS.WORLD, PRISM_ACTIVITY_DISPLAY.WORLD);
+            xIdx = fields.indexOf(PRISM_ACTIVITIES.X);
+            yIdx = fields.indexOf(PRISM_ACTIVITIES.Y);
+            zIdx = fields.indexOf(PRISM_ACTIVITIES.Z);
+            entityTypeIdx = indexOf(fields, PRISM_ENTITY_TYPES.ENTITY_TYPE, PRISM_ACTIVITY_DISPLAY.ENTITY_TYPE);
+            materialIdx = fields.indexOf(PRISM_ITEMS.MATERIAL);
+            itemDataIdx = fields.indexOf(PRISM_ITEMS.DATA);
+            itemQuantityIdx = indexOf(
+                fields,
+                PRISM_ACTIVITIES.AFFECTED_ITEM_QUANTITY,
+                DSL.field(DSL.name(SqlActivityQueryBuilder.ROLLUP_ITEM_QUANTITY))
+            );
+            affectedPlayerIdx = indexOf(fields, AFFECTED_PLAYERS.PLAYER, PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER);
+            affectedPlayerUuidIdx = indexOf(
+                fields,
+                AFFECTED_PLAYERS.PLAYER_UUID,
+                PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER_UUID
+            );
+            causeIdx = indexOf(fields, PRISM_CAUSES.CAUSE, PRISM_ACTIVITY_DISPLAY.CAUSE);
+            causePlayerIdx = indexOf(fields, PRISM_PLAYERS.PLAYER, PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER);
+            causePlayerUuidIdx = indexOf(fields, PRISM_PLAYERS.PLAYER_UUID, PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER_UUID);
+            causeEntityTypeTranslationKeyIdx = indexOf(
+                fields,
+                CAUSE_ENTITY_TYPES_TRANSLATION_KEY,
+                PRISM_ACTIVITY_DISPLAY.CAUSE_ENTITY_TYPE_TRANSLATION_KEY
+            );
+            causeBlockTranslationKeyIdx = indexOf(
+                fields,
+                CAUSE_BLOCKS_TRANSLATION_KEY,
+                PRISM_ACTIVITY_DISPLAY.CAUSE_BLOCK_TRANSLATION_KEY
+            );
+            descriptorIdx = indexOf(
+                fields,
+                PRISM_ACTIVITIES.DESCRIPTOR,
+                DSL.field(DSL.name(SqlActivityQueryBuilder.ROLLUP_DESCRIPTOR))
+            );
+            metadataIdx = indexOf(
+                fields,
+                PRISM_ACTIVITIES.METADATA,
+                DSL.field(DSL.name(SqlActivityQueryBuilder.ROLLUP_METADATA))
+            );
+            reversedIdx = indexOf(
+                fields,
+                PRISM_ACTIVITIES.REVERSED,
+                DSL.field(DSL.name(SqlActivityQueryBuilder.ROLLUP_REVERSED))
+            );
+            blockNamespaceIdx = indexOf(fields, PRISM_BLOCKS.NS, PRISM_ACTIVITY_DISPLAY.BLOCK_NS);
+            blockNameIdx = indexOf(fields, PRISM_BLOCKS.NAME, PRISM_ACTIVITY_DISPLAY.BLOCK_NAME);
+            blockDataIdx = fields.indexOf(PRISM_BLOCKS.DATA);
+            translationKeyIdx = indexOf(
+                fields,
+                PRISM_BLOCKS.TRANSLATION_KEY,
+                PRISM_ACTIVITY_DISPLAY.BLOCK_TRANSLATION_KEY
+            );
+            timestampIdx = fields.indexOf(PRISM_ACTIVITIES.TIMESTAMP);
+            avgTimestampIdx = indexOf(
+                fields,
+                avg(PRISM_ACTIVITIES.TIMESTAMP),
+                DSL.field(DSL.name(SqlActivityQueryBuilder.ROLLUP_AVG_TIMESTAMP))
+            );
+            activityIdIdx = fields.indexOf(PRISM_ACTIVITIES.ACTIVITY_ID);
+            serializedDataIdx = fields.indexOf(PRISM_ACTIVITIES.SERIALIZED_DATA);
+            serializerVersionIdx = fields.indexOf(PRISM_ACTIVITIES.SERIALIZER_VERSION);
+            replacedBlockNamespaceIdx = fields.indexOf(REPLACED_BLOCKS.NS);
+            replacedBlockNameIdx = fields.indexOf(REPLACED_BLOCKS.NAME);
+            replacedBlockDataIdx = fields.indexOf(REPLACED_BLOCKS.DATA);
+            replacedBlockTranslationKeyIdx = fields.indexOf(REPLACED_BLOCKS_TRANSLATION_KEY);
+            groupCountIdx = fields.indexOf("groupcount");
+            totalRowsIdx = fields.indexOf("totalrows");
+        }
+
+        /**
+         * Resolve the index of the first candidate column present in the row type.
+         *
+         * <p>Display columns may come from the lookup tables, the lookup projection, or the
+         * aliased columns of a rollup query, depending on how the query was built.</p>
+         *
+         * @param fields The row type
+         * @param candidates The candidate columns, in order of preference
+         * @return The column index, or -1 if none are present
+         */
+        private static int indexOf(Fields fields, Field<?>... candidates) {
+            for (Field<?> candidate : candidates) {
+                int index = fields.indexOf(candidate);
+                if (index >= 0) {
+                    return index;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Read the windowed total row count from a row.
+         *
+         * @param r The record
+         * @return The total row count, or 0 if the query didn't select it
+         */
+        public int totalRows(org.jooq.Record r) {
+            Integer total = value(r, totalRowsIdx, Integer.class);
+            return total != null ? total : 0;
+        }
+
+        /**
+         * Map a single row to an activity.
+         *
+         * @param r The record
+         * @return The activity, or null if the row couldn't be mapped
+         */
+        public AbstractActivity map(org.jooq.Record r) {
+            String actionKey = value(r, actionIdx, String.class);
             var optionalActionType = actionRegistry.actionType(actionKey);
             if (optionalActionType.isEmpty()) {
                 loggingService.warn("Failed to find action type: {0}", actionKey);
-                continue;
+                return null;
             }
 
             var actionType = optionalActionType.get();
 
             // World
-            UUID worldUuid = UUID.fromString(r.getValue(PRISM_WORLDS.WORLD_UUID));
-            var world = new Pair<>(worldUuid, r.getValue(PRISM_WORLDS.WORLD));
+            UUID worldUuid = UUID.fromString(value(r, worldUuidIdx, String.class));
+            var world = new Pair<>(worldUuid, value(r, worldIdx, String.class));
 
             // Location
             Coordinate coordinate = null;
             if (!query.grouped()) {
                 coordinate = new Coordinate(
-                    r.getValue(PRISM_ACTIVITIES.X),
-                    r.getValue(PRISM_ACTIVITIES.Y),
-                    r.getValue(PRISM_ACTIVITIES.Z)
+                    value(r, xIdx, Integer.class),
+                    value(r, yIdx, Integer.class),
+                    value(r, zIdx, Integer.class)
                 );
             }
 
             // Entity type
             String entityType = null;
-            String entityTypeName = r.getValue(PRISM_ENTITY_TYPES.ENTITY_TYPE);
+            String entityTypeName = value(r, entityTypeIdx, String.class);
             if (entityTypeName != null) {
                 entityType = entityTypeName.toUpperCase(Locale.ENGLISH);
             }
 
             // Material
             String material = null;
-            String materialName = r.getValue(PRISM_ITEMS.MATERIAL);
+            String materialName = value(r, materialIdx, String.class);
             if (materialName != null) {
                 material = materialName.toUpperCase(Locale.ENGLISH);
             }
 
-            String itemData = r.getValue(PRISM_ITEMS.DATA);
+            String itemData = value(r, itemDataIdx, String.class);
 
             // Item quantity
-            UShort affectedItemQuantity = r.getValue(PRISM_ACTIVITIES.AFFECTED_ITEM_QUANTITY);
+            UShort affectedItemQuantity = value(r, itemQuantityIdx, UShort.class);
             short itemQuantity = affectedItemQuantity != null ? affectedItemQuantity.shortValue() : 0;
 
             // Affected player
-            String affectedPlayerName = r.getValue(AFFECTED_PLAYERS.PLAYER);
+            String affectedPlayerName = value(r, affectedPlayerIdx, String.class);
             UUID affectedPlayerUuid = null;
-            if (r.getValue(AFFECTED_PLAYERS.PLAYER_UUID) != null) {
-                affectedPlayerUuid = UUID.fromString(r.getValue(AFFECTED_PLAYERS.PLAYER_UUID));
+            String affectedPlayerUuidValue = value(r, affectedPlayerUuidIdx, String.class);
+            if (affectedPlayerUuidValue != null) {
+                affectedPlayerUuid = UUID.fromString(affectedPlayerUuidValue);
             }
 
             // Cause
             Cause cause = null;
-            if (query.lookup() && r.getValue(PRISM_CAUSES.CAUSE) != null) {
-                cause = new Cause(new StringContainer(r.getValue(PRISM_CAUSES.CAUSE)));
-            } else if (r.getValue(PRISM_PLAYERS.PLAYER_UUID) != null) {
-                String playerName = r.getValue(PRISM_PLAYERS.PLAYER);
-                UUID playerUuid = UUID.fromString(r.getValue(PRISM_PLAYERS.PLAYER_UUID));
-
-                cause = new Cause(new PlayerContainer(playerName, playerUuid));
-            } else if (query.lookup() && r.getValue(CAUSE_ENTITY_TYPES_TRANSLATION_KEY) != null) {
-                cause = new Cause(new TranslatableContainer(r.getValue(CAUSE_ENTITY_TYPES_TRANSLATION_KEY)));
-            } else if (query.lookup() && r.getValue(CAUSE_BLOCKS_TRANSLATION_KEY) != null) {
-                cause = new Cause(new TranslatableContainer(r.getValue(CAUSE_BLOCKS_TRANSLATION_KEY)));
+            String namedCause = value(r, causeIdx, String.class);
+            String causePlayerUuid = value(r, causePlayerUuidIdx, String.class);
+            String causeEntityTypeTranslationKey = value(r, causeEntityTypeTranslationKeyIdx, String.class);
+            String causeBlockTranslationKey = value(r, causeBlockTranslationKeyIdx, String.class);
+            if (query.lookup() && namedCause != null) {
+                cause = new Cause(new StringContainer(namedCause));
+            } else if (causePlayerUuid != null) {
+                String playerName = value(r, causePlayerIdx, String.class);
+
+                cause = new Cause(new PlayerContainer(playerName, UUID.fromString(causePlayerUuid)));
+            } else if (query.lookup() && causeEntityTypeTranslationKey != null) {
+                cause = new Cause(new TranslatableContainer(causeEntityTypeTranslationKey));
+            } else if (query.lookup() && causeBlockTranslationKey != null) {
+                cause = new Cause(new TranslatableContainer(causeBlockTranslationKey));
             }
 
-            String descriptor = query.lookup() ? r.getValue(PRISM_ACTIVITIES.DESCRIPTOR) : null;
-            String metadata = query.lookup() ? r.getValue(PRISM_ACTIVITIES.METADATA) : null;
-            boolean reversed = query.lookup() && Boolean.TRUE.equals(r.getValue(PRISM_ACTIVITIES.REVERSED));
+            String descriptor = query.lookup() ? value(r, descriptorIdx, String.class) : null;
+            String metadata = query.lookup() ? value(r, metadataIdx, String.class) : null;
+            boolean reversed = query.lookup() && Boolean.TRUE.equals(value(r, reversedIdx, Boolean.class));
 
-            String blockNamespace = r.getValue(PRISM_BLOCKS.NS);
-            String blockName = r.getValue(PRISM_BLOCKS.NAME);
+            String blockNamespace = value(r, blockNamespaceIdx, String.class);
+            String blockName = value(r, blockNameIdx, String.class);
 
             long timestamp;
             if (query.grouped()) {
-                timestamp = r.getValue(avg(PRISM_ACTIVITIES.TIMESTAMP)).longValue();
+                timestamp = value(r, avgTimestampIdx, BigDecimal.class).longValue();
             } else {
-                timestamp = r.getValue(PRISM_ACTIVITIES.TIMESTAMP).longValue();
+                timestamp = value(r, timestampIdx, UInteger.class).longValue();
             }
 
-            String translationKey = r.getValue(PRISM_BLOCKS.TRANSLATION_KEY);
+            String translationKey = value(r, translationKeyIdx, String.class);
 
             if (!query.grouped() && query.modification()) {
-                long activityId = r.getValue(PRISM_ACTIVITIES.ACTIVITY_ID).longValue();
+                long activityId = value(r, activityIdIdx, UInteger.class).longValue();
 
-                String customData = r.getValue(PRISM_ACTIVITIES.SERIALIZED_DATA);
-                UShort customDataVersion = r.getValue(PRISM_ACTIVITIES.SERIALIZER_VERSION);
-                String blockData = r.getValue(PRISM_BLOCKS.DATA);
-                String replacedBlockNamespace = r.getValue(REPLACED_BLOCKS.NS);
-                String replacedBlockName = r.getValue(REPLACED_BLOCKS.NAME);
-                String replacedBlockData = r.getValue(REPLACED_BLOCKS.DATA);
-                String replacedBlockTranslationKey = r.getValue(REPLACED_BLOCKS_TRANSLATION_KEY);
+                String customData = value(r, serializedDataIdx, String.class);
+                UShort customDataVersion = value(r, serializerVersionIdx, UShort.class);
+                String blockData = value(r, blockDataIdx, String.class);
+                String replacedBlockNamespace = value(r, replacedBlockNamespaceIdx, String.class);
+                String replacedBlockName = value(r, replacedBlockNameIdx, String.class);
+                String replacedBlockData = value(r, replacedBlockDataIdx, String.class);
+                String replacedBlockTranslationKey = value(r, replacedBlockTranslationKeyIdx, String.class);
 
                 // Build the action data
                 ActionData actionData = new ActionData(
@@ -1096,7 +1653,7 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
 
                 // Build the activity
                 try {
-                    var activity = new Activity(
+                    return new Activity(
                         activityId,
                         actionType.createAction(actionData),
                         world,
@@ -1105,14 +1662,11 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
                         timestamp,
                         reversed
                     );
-
-                    // Add to result list
-                    activities.add(activity);
                 } catch (Exception e) {
                     loggingService.handleException(e);
                 }
             } else if (!query.grouped()) {
-                long activityId = r.getValue(PRISM_ACTIVITIES.ACTIVITY_ID).longValue();
+                long activityId = value(r, activityIdIdx, UInteger.class).longValue();
 
                 // Build the action data
                 ActionData actionData = new ActionData(
@@ -1138,7 +1692,7 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
 
                 // Build the activity
                 try {
-                    var activity = new Activity(
+                    return new Activity(
                         activityId,
                         actionType.createAction(actionData),
                         world,
@@ -1147,9 +1701,6 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
                         timestamp,
                         reversed
                     );
-
-                    // Add to result list
-                    activities.add(activity);
                 } catch (Exception e) {
                     loggingService.handleException(e);
                 }
@@ -1177,11 +1728,11 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
                 );
 
                 // Count
-                int count = r.getValue("groupcount", Integer.class);
+                int count = value(r, groupCountIdx, Integer.class);
 
                 // Build the grouped activity
                 try {
-                    var activity = new GroupedActivity(
+                    return new GroupedActivity(
                         actionType.createAction(actionData),
                         world,
                         cause,
@@ -1189,32 +1740,282 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
                         count,
                         reversed
                     );
-
-                    // Add to result list
-                    activities.add(activity);
                 } catch (Exception e) {
                     loggingService.handleException(e);
                 }
             }
+
+            return null;
         }
 
-        return activities;
+        /**
+         * Read a column by its resolved index.
+         *
+         * @param r The record
+         * @param index The column index, or -1 if not selected
+         * @param type The value type
+         * @return The value, or null if the column wasn't selected
+         */
+        private <T> T value(org.jooq.Record r, int index, Class<T> type) {
+            return index < 0 ? null : r.get(index, type);
+        }
+    }
+
+    /**
+     * Start the single writer, if enabled for this file-based database.
+     *
+     * @param dataSourceConfiguration The file data source configuration
+     * @param fileQueryBuilderFactory The file query builder factory
+     */
+    protected void startWriteExecutor(
+        FileDataSourceConfiguration dataSourceConfiguration,
+        FileSqlActivityQueryBuilderFactory fileQueryBuilderFactory
+    ) {
+        if (!dataSourceConfiguration.singleWriter()) {
+            return;
+        }
+
+        writeExecutor = new SqlWriteExecutor(hikariConfig);
+
+        // Writes queued on the writer thread use its connection, so they never wait on the shared pool
+        writeContext = DSL.using(dslContext.configuration().derive(writeExecutor.dataSource()));
+        writeQueryBuilder = fileQueryBuilderFactory.create(writeContext);
+
+        loggingService.info("Writes are serialized through a single writer connection.");
+    }
+
+    /**
+     * Connect to any configured read replicas.
+     */
+    protected void connectReadReplicas() {
+        var configuration = configurationService.storageConfig().readReplicas();
+        if (configuration.jdbcUrls().isEmpty() || queryBuilderFactory == null) {
+            return;
+        }
+
+        var replicas = new SqlReadReplicas(
+            loggingService,
+            configuration,
+            hikariConfig,
+            dslContext,
+            queryBuilderFactory
+        );
+        if (replicas.available()) {
+            readReplicas = replicas;
+        }
+    }
+
+    /**
+     * Get the query builder for a read, which may be a replica's.
+     *
+     * @return The query builder
+     */
+    protected SqlActivityQueryBuilder readQueryBuilder() {
+        return readReplicas != null ? readReplicas.queryBuilder(queryBuilder) : queryBuilder;
+    }
+
+    /**
+     * Get the dsl context for a read, which may be a replica's.
+     *
+     * @return The dsl context
+     */
+    protected DSLContext readContext() {
+        return readReplicas != null ? readReplicas.dslContext(dslContext) : dslContext;
+    }
+
+    /**
+     * Get the dsl context for a write, which may be the single writer's.
+     *
+     * @return The dsl context
+     */
+    protected DSLContext writeContext() {
+        return writeContext != null ? writeContext : dslContext;
+    }
+
+    /**
+     * Get the query builder for a write, which may be the single writer's.
+     *
+     * @return The query builder
+     */
+    protected SqlActivityQueryBuilder writeQueryBuilder() {
+        return writeQueryBuilder != null ? writeQueryBuilder : queryBuilder;
+    }
+
+    /**
+     * Run a write on the single writer, or on this thread when there isn't one.
+     *
+     * <p>Reads go to the primary for a while afterward, so they see the write.</p>
+     *
+     * @param task The write
+     * @return The write's result
+     */
+    protected <T> T write(Callable<T> task) {
+        try {
+            if (writeExecutor != null) {
+                return writeExecutor.execute(task);
+            }
+
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DataAccessException(e.getMessage(), e);
+        } finally {
+            if (readReplicas != null) {
+                readReplicas.markWrite();
+            }
+        }
     }
 
     @Override
     public ActivityBatch createActivityBatch() {
+        if (writeExecutor != null) {
+            return new SqlSerializedActivityBatch(
+                writeExecutor,
+                cacheService,
+                dslContext.configuration(),
+                this::createRecordingBatch,
+                this::wrapRecordingBatch
+            );
+        }
+
+        return wrapRecordingBatch(createRecordingBatch());
+    }
+
+    /**
+     * Wrap a recording batch with the batches that keep side tables current.
+     *
+     * @param recordingBatch The recording batch
+     * @return The activity batch
+     */
+    protected ActivityBatch wrapRecordingBatch(ActivityBatch recordingBatch) {
+        ActivityBatch batch = recordingBatch;
+
+        if (displayTracker != null) {
+            batch = new SqlActivityDisplayBatch(displayTracker, batch);
+        }
+
+        if (descriptorTokens) {
+            batch = new SqlActivityDescriptorTokenBatch(loggingService, queryBuilder, batch);
+        }
+
+        if (rollupTracker != null) {
+            batch = new SqlActivityRollupBatch(rollupTracker, batch);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Create the batch that writes activity records.
+     *
+     * @return The activity batch
+     */
+    protected ActivityBatch createRecordingBatch() {
+        return createRecordingBatch(dslContext);
+    }
+
+    /**
+     * Create the batch that writes activity records through a dsl context.
+     *
+     * @param dslContext The dsl context
+     * @return The activity batch
+     */
+    protected ActivityBatch createRecordingBatch(DSLContext dslContext) {
         return new SqlActivityBatch(
             loggingService,
             dslContext,
             serializerVersion,
             cacheService,
-            configurationService.storageConfig().identifyWorldsByName()
+            configurationService.storageConfig().identifyWorldsByName(),
+            displayTracker != null
         );
     }
 
     @Override
     public int deleteActivities(ActivityQuery query, int cycleMinPrimaryKey, int cycleMaxPrimaryKey) {
-        return queryBuilder.deleteActivities(query, cycleMinPrimaryKey, cycleMaxPrimaryKey);
+        return write(() -> deleteActivitiesNow(query, cycleMinPrimaryKey, cycleMaxPrimaryKey));
+    }
+
+    /**
+     * Delete activities on this thread.
+     *
+     * @param query The activity query
+     * @param cycleMinPrimaryKey The cycle's lower primary key bound
+     * @param cycleMaxPrimaryKey The cycle's upper primary key bound
+     * @return The number of deleted activities
+     */
+    private int deleteActivitiesNow(ActivityQuery query, int cycleMinPrimaryKey, int cycleMaxPrimaryKey) {
+        int deleted = rollupTracker != null
+            ? rollupTracker.deleteActivities(writeQueryBuilder(), query, cycleMinPrimaryKey, cycleMaxPrimaryKey)
+            : writeQueryBuilder().deleteActivities(query, cycleMinPrimaryKey, cycleMaxPrimaryKey);
+
+        if (deleted > 0 && configurationService.storageConfig().lookupProjection()) {
+            writeQueryBuilder().deleteOrphanedActivityDisplay(cycleMinPrimaryKey, cycleMaxPrimaryKey);
+        }
+
+        if (deleted > 0 && descriptorTokens) {
+            writeQueryBuilder().deleteOrphanedDescriptorTokens(cycleMinPrimaryKey, cycleMaxPrimaryKey);
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public int dropActivityPartitions(ActivityQuery query) {
+        // Rollups are adjusted per deleted activity, so leave those purges to the cycles
+        if (!query.ageOnly() || rollupTracker != null) {
+            return 0;
+        }
+
+        return write(() -> dropActivityPartitionsNow(query));
+    }
+
+    /**
+     * Drop expired activity partitions on this thread.
+     *
+     * @param query The age-only activity query
+     * @return The number of dropped activities
+     */
+    private int dropActivityPartitionsNow(ActivityQuery query) {
+        DSLContext writeContext = writeContext();
+        int deleted = 0;
+
+        try {
+            for (var partition : schemaUpdater.queryExpiredActivityPartitions(writeContext, query.before())) {
+                // Older partitions are already gone, so everything before this bound is in this partition
+                var stats = writeContext
+                    .select(DSL.count(), PRISM_ACTIVITIES.ACTIVITY_ID.min(), PRISM_ACTIVITIES.ACTIVITY_ID.max())
+                    .from(PRISM_ACTIVITIES)
+                    .where(PRISM_ACTIVITIES.TIMESTAMP.lt(UInteger.valueOf(partition.upperBound())))
+                    .fetchOne();
+
+                schemaUpdater.dropActivityPartition(writeContext, partition);
+
+                loggingService.info("Dropped activities partition {0}", partition.name());
+
+                if (stats == null || stats.value1() == 0) {
+                    continue;
+                }
+
+                deleted += stats.value1();
+
+                int minPrimaryKey = stats.value2().intValue();
+                int maxPrimaryKey = stats.value3().intValue();
+
+                if (configurationService.storageConfig().lookupProjection()) {
+                    writeQueryBuilder().deleteOrphanedActivityDisplay(minPrimaryKey, maxPrimaryKey);
+                }
+
+                if (descriptorTokens) {
+                    writeQueryBuilder().deleteOrphanedDescriptorTokens(minPrimaryKey, maxPrimaryKey);
+                }
+            }
+        } catch (Exception e) {
+            loggingService.handleException(e);
+        }
+
+        return deleted;
     }
 
     @Override
@@ -1222,9 +2023,21 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
         return queryBuilder.queryActivitiesPkBounds(query);
     }
 
+    /**
+     * Read activities recorded before a time as flat records, in primary key order.
+     *
+     * @param afterActivityId The exclusive lower primary key bound
+     * @param before The exclusive upper timestamp bound, in epoch seconds
+     * @param limit The maximum number of activities to read
+     * @return The activities
+     */
+    public List<SqlExportedActivity> exportActivities(long afterActivityId, long before, int limit) {
+        return queryBuilder.exportActivities(afterActivityId, before, limit);
+    }
+
     @Override
     public List<World> worlds() {
-        return dslContext
+        return readContext()
             .select(PRISM_WORLDS.WORLD_ID, PRISM_WORLDS.WORLD, PRISM_WORLDS.WORLD_UUID)
             .from(PRISM_WORLDS)
             .orderBy(PRISM_WORLDS.WORLD_ID.asc())
@@ -1286,11 +2099,31 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
 
     @Override
     public int createAirtag(String airtag, UUID playerUuid, String playerName) throws SQLException {
+        return write(() -> createAirtagNow(airtag, playerUuid, playerName));
+    }
+
+    /**
+     * Create an airtag on this thread.
+     *
+     * @param airtag The airtag
+     * @param playerUuid The owner's uuid
+     * @param playerName The owner's name
+     * @return The number of created airtags
+     * @throws SQLException Database exception
+     */
+    private int createAirtagNow(String airtag, UUID playerUuid, String playerName) throws SQLException {
+        DSLContext writeContext = writeContext();
         UInteger playerId = UInteger.valueOf(
-            SqlActivityBatch.getOrCreatePlayerId(dslContext, cacheService, playerUuid, playerName)
+            SqlActivityBatch.getOrCreatePlayerId(
+                writeContext,
+                cacheService,
+                displayTracker != null,
+                playerUuid,
+                playerName
+            )
         );
 
-        return dslContext
+        return writeContext
             .insertInto(PRISM_AIRTAGS)
             .columns(PRISM_AIRTAGS.AIRTAG, PRISM_AIRTAGS.PLAYER_ID, PRISM_AIRTAGS.CREATED_AT)
             .values(airtag, playerId, UInteger.valueOf(Instant.now().getEpochSecond()))
@@ -1301,12 +2134,24 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
 
     @Override
     public int deleteAirtag(String airtag, UUID playerUuid) {
+        return write(() -> deleteAirtagNow(airtag, playerUuid));
+    }
+
+    /**
+     * Delete an airtag on this thread.
+     *
+     * @param airtag The airtag
+     * @param playerUuid The owner's uuid, or null for any owner
+     * @return The number of deleted airtags
+     */
+    private int deleteAirtagNow(String airtag, UUID playerUuid) {
+        DSLContext writeContext = writeContext();
         var condition = PRISM_AIRTAGS.AIRTAG.eq(airtag);
 
         if (playerUuid != null) {
             condition = condition.and(
                 PRISM_AIRTAGS.PLAYER_ID.in(
-                    dslContext
+                    writeContext
                         .select(PRISM_PLAYERS.PLAYER_ID)
                         .from(PRISM_PLAYERS)
                         .where(PRISM_PLAYERS.PLAYER_UUID.eq(playerUuid.toString()))
@@ -1314,17 +2159,17 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
             );
         }
 
-        dslContext
+        writeContext
             .update(PRISM_ITEMS)
             .set(PRISM_ITEMS.AIRTAG_ID, (UInteger) null)
             .where(
                 PRISM_ITEMS.AIRTAG_ID.in(
-                    dslContext.select(PRISM_AIRTAGS.AIRTAG_ID).from(PRISM_AIRTAGS).where(condition)
+                    writeContext.select(PRISM_AIRTAGS.AIRTAG_ID).from(PRISM_AIRTAGS).where(condition)
                 )
             )
             .execute();
 
-        return dslContext.deleteFrom(PRISM_AIRTAGS).where(condition).execute();
+        return writeContext.deleteFrom(PRISM_AIRTAGS).where(condition).execute();
     }
 
     @Override
@@ -1338,20 +2183,70 @@ public abstract class AbstractSqlStorageAdapter implements StorageAdapter {
             return;
         }
 
-        for (int start = 0; start < activityIds.size(); start += MARK_REVERSED_CHUNK_SIZE) {
-            int end = Math.min(start + MARK_REVERSED_CHUNK_SIZE, activityIds.size());
-            List<Long> chunk = activityIds.subList(start, end);
+        write(() -> {
+            if (rollupTracker != null) {
+                rollupTracker.updateCounted(rolledUpActivityId ->
+                    updateReversed(activityIds, reversed, rolledUpActivityId)
+                );
+            } else {
+                updateReversed(activityIds, reversed, -1);
+            }
 
-            dslContext
-                .update(PRISM_ACTIVITIES)
-                .set(PRISM_ACTIVITIES.REVERSED, reversed)
-                .where(PRISM_ACTIVITIES.ACTIVITY_ID.in(chunk.stream().map(DSL::inline).toList()))
-                .execute();
-        }
+            return null;
+        });
+    }
+
+    /**
+     * Set the reversed state of activities.
+     *
+     * <p>Activities already counted in the rollups are taken out of their groups before the
+     * update and added back after it, in the same transaction.</p>
+     *
+     * @param activityIds The activity ids
+     * @param reversed The reversed state
+     * @param rolledUpActivityId The highest activity id counted in the rollups, or -1 without rollups
+     */
+    protected void updateReversed(List<Long> activityIds, boolean reversed, long rolledUpActivityId) {
+        // One transaction for every chunk, so file-based databases sync to disk once
+        writeContext().transaction(configuration -> {
+            DSLContext context = DSL.using(configuration);
+
+            for (int start = 0; start < activityIds.size(); start += MARK_REVERSED_CHUNK_SIZE) {
+                int end = Math.min(start + MARK_REVERSED_CHUNK_SIZE, activityIds.size());
+                List<Long> chunk = activityIds.subList(start, end);
+                Condition condition = PRISM_ACTIVITIES.ACTIVITY_ID.in(chunk.stream().map(DSL::inline).toList());
+                List<Condition> rolledUp = List.of(
+                    condition,
+                    PRISM_ACTIVITIES.ACTIVITY_ID.lessOrEqual(UInteger.valueOf(Math.max(0, rolledUpActivityId)))
+                );
+
+                if (rolledUpActivityId > 0) {
+                    queryBuilder.adjustRollups(context, rolledUp, true);
+                }
+
+                context.update(PRISM_ACTIVITIES).set(PRISM_ACTIVITIES.REVERSED, reversed).where(condition).execute();
+
+                if (rolledUpActivityId > 0) {
+                    queryBuilder.adjustRollups(context, rolledUp, false);
+                }
+            }
+
+            if (rolledUpActivityId > 0) {
+                queryBuilder.deleteEmptyRollups(context);
+            }
+        });
     }
 
     @Override
     public void close() {
+        if (readReplicas != null) {
+            readReplicas.close();
+        }
+
+        if (writeExecutor != null) {
+            writeExecutor.close();
+        }
+
         if (dataSource != null) {
             dataSource.close();
         }
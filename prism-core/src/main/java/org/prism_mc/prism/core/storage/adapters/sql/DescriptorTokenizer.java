@@ -0,0 +1,92 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Splits descriptors into the words used by the descriptor search indexes.
+ *
+ * <p>Words are lowercased runs of letters, digits, and underscores. Words shorter than
+ * {@link #MIN_TOKEN_LENGTH} aren't indexed (matching InnoDB's default full-text minimum)
+ * and long words are cut to {@link #MAX_TOKEN_LENGTH}, which still works for prefix matching.</p>
+ */
+@UtilityClass
+public class DescriptorTokenizer {
+
+    /**
+     * The shortest word that is indexed.
+     */
+    public static final int MIN_TOKEN_LENGTH = 3;
+
+    /**
+     * The longest stored word. Longer words are truncated.
+     */
+    public static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * Everything that separates words.
+     */
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}_]+");
+
+    /**
+     * Split text into distinct indexable words, in the order they first appear.
+     *
+     * @param text The text
+     * @return The words
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.length() < MIN_TOKEN_LENGTH) {
+                continue;
+            }
+
+            tokens.add(word.length() > MAX_TOKEN_LENGTH ? word.substring(0, MAX_TOKEN_LENGTH) : word);
+        }
+
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Get the smallest string that sorts after every string starting with the given prefix.
+     *
+     * <p>Used to turn a prefix match into an index-friendly range.</p>
+     *
+     * @param prefix The prefix
+     * @return The exclusive upper bound
+     */
+    public static String prefixUpperBound(String prefix) {
+        int last = prefix.codePointBefore(prefix.length());
+
+        return prefix.substring(0, prefix.length() - Character.charCount(last)) + Character.toString(last + 1);
+    }
+}
@@ -25,6 +25,7 @@ import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAda
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.CAUSE_ENTITY_TYPES;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIONS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITIES;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DESCRIPTOR_TOKENS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_BLOCKS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_CAUSES;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ENTITY_TYPES;
@@ -35,12 +36,15 @@ import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAda
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import java.util.List;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.DeleteQuery;
+import org.jooq.Table;
 import org.jooq.types.UInteger;
 import org.prism_mc.prism.api.activities.ActivityQuery;
 import org.prism_mc.prism.core.storage.dbo.records.PrismActivitiesRecord;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
+import org.prism_mc.prism.loader.services.configuration.storage.SqliteDataSourceConfiguration;
 
 public class FileSqlActivityQueryBuilder extends SqlActivityQueryBuilder {
 
@@ -221,4 +225,49 @@ public class FileSqlActivityQueryBuilder extends SqlActivityQueryBuilder {
 
         return queryBuilder.execute();
     }
+
+    @Override
+    protected Table<?> activitiesTable(ActivityQuery query) {
+        // INDEXED BY is sqlite-only, h2 shares this builder
+        if (
+            query.lookup() &&
+            storageConfiguration.primaryDataSource() instanceof SqliteDataSourceConfiguration dataSource &&
+            !dataSource.lookupIndexHint().isBlank()
+        ) {
+            return PRISM_ACTIVITIES.indexedBy(dataSource.lookupIndexHint());
+        }
+
+        return super.activitiesTable(query);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>When descriptor search is enabled, every indexed word in the search must start a word
+     * in the descriptor. Each word becomes a range over the token table's primary key.</p>
+     */
+    @Override
+    protected List<Condition> descriptorConditions(String descriptor) {
+        List<Condition> conditions = super.descriptorConditions(descriptor);
+
+        if (storageConfiguration.descriptorSearch()) {
+            for (String token : DescriptorTokenizer.tokenize(descriptor)) {
+                conditions.add(
+                    PRISM_ACTIVITIES.ACTIVITY_ID.in(
+                        dslContext
+                            .select(PRISM_ACTIVITY_DESCRIPTOR_TOKENS.ACTIVITY_ID)
+                            .from(PRISM_ACTIVITY_DESCRIPTOR_TOKENS)
+                            .where(PRISM_ACTIVITY_DESCRIPTOR_TOKENS.TOKEN.greaterOrEqual(token))
+                            .and(
+                                PRISM_ACTIVITY_DESCRIPTOR_TOKENS.TOKEN.lessThan(
+                                    DescriptorTokenizer.prefixUpperBound(token)
+                                )
+                            )
+                    )
+                );
+            }
+        }
+
+        return conditions;
+    }
 }
@@ -22,6 +22,7 @@ package org.prism_mc.prism.core.storage.adapters.sql;
 
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIONS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITIES;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DISPLAY;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_AIRTAGS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_BLOCKS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_CAUSES;
@@ -130,6 +131,11 @@ public class SqlActivityBatch implements ActivityBatch {
      */
     private final boolean identifyWorldsByName;
 
+    /**
+     * Whether player renames are copied into the lookup projection.
+     */
+    private final boolean lookupProjection;
+
     /**
      * An array of records to batch insert.
      */
@@ -156,19 +162,22 @@ public class SqlActivityBatch implements ActivityBatch {
      * @param serializerVersion The serializer version
      * @param cacheService The cache service
      * @param identifyWorldsByName Whether to identify worlds by name
+     * @param lookupProjection Whether player renames are copied into the lookup projection
      */
     public SqlActivityBatch(
         LoggingService loggingService,
         DSLContext dslContext,
         short serializerVersion,
         CacheService cacheService,
-        boolean identifyWorldsByName
+        boolean identifyWorldsByName,
+        boolean lookupProjection
     ) {
         this.loggingService = loggingService;
         this.dslContext = dslContext;
         this.serializerVersion = serializerVersion;
         this.cacheService = cacheService;
         this.identifyWorldsByName = identifyWorldsByName;
+        this.lookupProjection = lookupProjection;
     }
 
     @Override
@@ -757,7 +766,7 @@ public class SqlActivityBatch implements ActivityBatch {
      * @throws SQLException The database exception
      */
     private long getOrCreatePlayerId(UUID playerUuid, String playerName) throws SQLException {
-        return getOrCreatePlayerId(dslContext, cacheService, playerUuid, playerName);
+        return getOrCreatePlayerId(dslContext, cacheService, lookupProjection, playerUuid, playerName);
     }
 
     /**
@@ -765,6 +774,7 @@ public class SqlActivityBatch implements ActivityBatch {
      *
      * @param dslContext The DSL context
      * @param cacheService The cache service
+     * @param lookupProjection Whether player renames are copied into the lookup projection
      * @param playerUuid The player uuid
      * @param playerName The player name
      * @return The primary key
@@ -773,10 +783,19 @@ public class SqlActivityBatch implements ActivityBatch {
     static long getOrCreatePlayerId(
         DSLContext dslContext,
         CacheService cacheService,
+        boolean lookupProjection,
         UUID playerUuid,
         String playerName
     ) throws SQLException {
         return cachedGetOrCreate(cacheService.playerUuidPkMap(), playerUuid, () -> {
+            String previousName = lookupProjection
+                ? dslContext
+                    .select(PRISM_PLAYERS.PLAYER)
+                    .from(PRISM_PLAYERS)
+                    .where(PRISM_PLAYERS.PLAYER_UUID.eq(playerUuid.toString()))
+                    .fetchOne(PRISM_PLAYERS.PLAYER)
+                : null;
+
             // Create the player or update the name
             dslContext
                 .insertInto(PRISM_PLAYERS, PRISM_PLAYERS.PLAYER_UUID, PRISM_PLAYERS.PLAYER)
@@ -786,6 +805,21 @@ public class SqlActivityBatch implements ActivityBatch {
                 .set(PRISM_PLAYERS.PLAYER, playerName)
                 .execute();
 
+            // The lookup projection stores names per activity, so carry renames over
+            if (previousName != null && !previousName.equals(playerName)) {
+                dslContext
+                    .update(PRISM_ACTIVITY_DISPLAY)
+                    .set(PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER, playerName)
+                    .where(PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER_UUID.eq(playerUuid.toString()))
+                    .execute();
+
+                dslContext
+                    .update(PRISM_ACTIVITY_DISPLAY)
+                    .set(PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER, playerName)
+                    .where(PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER_UUID.eq(playerUuid.toString()))
+                    .execute();
+            }
+
             // Get the primary key
             var result = dslContext
                 .select(PRISM_PLAYERS.PLAYER_ID)
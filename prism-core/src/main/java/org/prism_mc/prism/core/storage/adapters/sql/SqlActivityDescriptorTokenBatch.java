@@ -0,0 +1,102 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.storage.ActivityBatch;
+import org.prism_mc.prism.api.storage.wal.WalRecord;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+
+/**
+ * Wraps a recording batch and splits the descriptors of every activity it wrote into the
+ * descriptor token table once the batch commits.
+ *
+ * <p>Like {@link SqlActivityDisplayBatch}, the highest activity id is captured when the batch
+ * starts and everything above it that hasn't been tokenized yet is picked up on commit.</p>
+ */
+public class SqlActivityDescriptorTokenBatch implements ActivityBatch {
+
+    /**
+     * The logging service.
+     */
+    private final LoggingService loggingService;
+
+    /**
+     * The query builder.
+     */
+    private final SqlActivityQueryBuilder queryBuilder;
+
+    /**
+     * The batch being wrapped.
+     */
+    private final ActivityBatch delegate;
+
+    /**
+     * The highest activity id that existed when this batch started.
+     */
+    private long startingActivityId;
+
+    /**
+     * Construct a new batch handler.
+     *
+     * @param loggingService The logging service
+     * @param queryBuilder The query builder
+     * @param delegate The batch being wrapped
+     */
+    public SqlActivityDescriptorTokenBatch(
+        LoggingService loggingService,
+        SqlActivityQueryBuilder queryBuilder,
+        ActivityBatch delegate
+    ) {
+        this.loggingService = loggingService;
+        this.queryBuilder = queryBuilder;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startBatch() throws Exception {
+        startingActivityId = queryBuilder.queryMaxActivityId();
+        delegate.startBatch();
+    }
+
+    @Override
+    public void add(Activity activity) throws Exception {
+        delegate.add(activity);
+    }
+
+    @Override
+    public void addFromWalRecord(WalRecord record) throws Exception {
+        delegate.addFromWalRecord(record);
+    }
+
+    @Override
+    public void commitBatch() throws Exception {
+        delegate.commitBatch();
+
+        // The activities are saved at this point. A failed refresh only leaves them out of
+        // descriptor searches until the next startup backfill, so don't fail the whole batch.
+        try {
+            queryBuilder.tokenizeDescriptors(startingActivityId, Long.MAX_VALUE);
+        } catch (Exception e) {
+            loggingService.handleException(e);
+        }
+    }
+}
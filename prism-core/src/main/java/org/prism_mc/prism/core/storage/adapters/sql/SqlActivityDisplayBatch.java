@@ -0,0 +1,80 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.storage.ActivityBatch;
+import org.prism_mc.prism.api.storage.wal.WalRecord;
+
+/**
+ * Wraps a recording batch and copies what it wrote into the lookup projection once it commits.
+ *
+ * <p>The batch registers with the tracker just before it writes, so the tracker won't project
+ * past anything this batch might still be inserting.</p>
+ */
+public class SqlActivityDisplayBatch implements ActivityBatch {
+
+    /**
+     * The lookup projection tracker.
+     */
+    private final SqlActivityDisplayTracker displayTracker;
+
+    /**
+     * The batch being wrapped.
+     */
+    private final ActivityBatch delegate;
+
+    /**
+     * Construct a new batch handler.
+     *
+     * @param displayTracker The lookup projection tracker
+     * @param delegate The batch being wrapped
+     */
+    public SqlActivityDisplayBatch(SqlActivityDisplayTracker displayTracker, ActivityBatch delegate) {
+        this.displayTracker = displayTracker;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startBatch() throws Exception {
+        delegate.startBatch();
+    }
+
+    @Override
+    public void add(Activity activity) throws Exception {
+        delegate.add(activity);
+    }
+
+    @Override
+    public void addFromWalRecord(WalRecord record) throws Exception {
+        delegate.addFromWalRecord(record);
+    }
+
+    @Override
+    public void commitBatch() throws Exception {
+        long mark = displayTracker.beginWrite();
+
+        try {
+            delegate.commitBatch();
+        } finally {
+            displayTracker.endWrite(mark);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.LOOKUP_PROJECTION_BACKFILL_WINDOW;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.LOOKUP_PROJECTION_META_KEY;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_META;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataChangedException;
+import org.jooq.impl.DSL;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+
+/**
+ * Keeps the lookup projection in step with the activities table.
+ *
+ * <p>Activities are copied over by primary key range, and the highest projected activity id
+ * is stored in the meta table in the same transaction as the copy. Every range is copied once,
+ * in bounded windows, so lookups can read the projection alone without falling back to the
+ * lookup tables.</p>
+ *
+ * <p>Batches don't hand back generated keys and several can write at once, so each registers
+ * the highest activity id that existed before it wrote. Refreshes never go past the lowest
+ * registered id, because anything above it may belong to a batch that hasn't finished. Only
+ * batches from this server are seen, so when several servers write to the same tables an
+ * activity committed late by another server can be passed over.</p>
+ *
+ * <p>Refreshes are coalesced. A batch finishing while another thread is refreshing leaves its
+ * range to that thread instead of waiting for it.</p>
+ */
+public class SqlActivityDisplayTracker {
+
+    /**
+     * The logging service.
+     */
+    private final LoggingService loggingService;
+
+    /**
+     * The dsl context.
+     */
+    private final DSLContext dslContext;
+
+    /**
+     * The query builder.
+     */
+    private final SqlActivityQueryBuilder queryBuilder;
+
+    /**
+     * The starting marks of batches currently writing, with how many share each mark.
+     */
+    private final NavigableMap<Long, Integer> writing = new TreeMap<>();
+
+    /**
+     * Whether a thread is refreshing the projection.
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * Whether a refresh was requested since the running one started.
+     */
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    /**
+     * The highest activity id copied into the projection.
+     */
+    private volatile long projectedActivityId;
+
+    /**
+     * Construct a new lookup projection tracker.
+     *
+     * @param loggingService The logging service
+     * @param dslContext The DSL context
+     * @param queryBuilder The query builder
+     * @param projectedActivityId The highest activity id already copied into the projection
+     */
+    public SqlActivityDisplayTracker(
+        LoggingService loggingService,
+        DSLContext dslContext,
+        SqlActivityQueryBuilder queryBuilder,
+        long projectedActivityId
+    ) {
+        this.loggingService = loggingService;
+        this.dslContext = dslContext;
+        this.queryBuilder = queryBuilder;
+        this.projectedActivityId = projectedActivityId;
+    }
+
+    /**
+     * Register a batch that's about to write.
+     *
+     * @return The mark to hand back to {@link #endWrite(long)}
+     */
+    public synchronized long beginWrite() {
+        long mark = queryBuilder.queryMaxActivityId();
+        writing.merge(mark, 1, Integer::sum);
+
+        return mark;
+    }
+
+    /**
+     * Unregister a batch that's finished writing, successfully or not, and project whatever
+     * is now safe to copy.
+     *
+     * @param mark The mark returned by {@link #beginWrite()}
+     */
+    public void endWrite(long mark) {
+        synchronized (this) {
+            writing.computeIfPresent(mark, (key, count) -> count > 1 ? count - 1 : null);
+        }
+
+        // The activities are saved at this point. A failed refresh is retried after the next batch
+        try {
+            requestRefresh();
+        } catch (Exception e) {
+            loggingService.handleException(e);
+        }
+    }
+
+    /**
+     * Project everything that's safe to copy, or leave it to the thread already doing so.
+     */
+    public void requestRefresh() {
+        refreshRequested.set(true);
+
+        while (refreshRequested.get() && refreshing.compareAndSet(false, true)) {
+            try {
+                refreshRequested.set(false);
+                refresh();
+            } finally {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Copy every activity that no in-flight batch could still be writing below.
+     */
+    private void refresh() {
+        long safeActivityId;
+        synchronized (this) {
+            safeActivityId = writing.isEmpty() ? queryBuilder.queryMaxActivityId() : writing.firstKey();
+        }
+
+        while (projectedActivityId < safeActivityId) {
+            long after = projectedActivityId;
+            long through = Math.min(after + LOOKUP_PROJECTION_BACKFILL_WINDOW, safeActivityId);
+
+            try {
+                dslContext.transaction(configuration -> {
+                    DSLContext context = DSL.using(configuration);
+                    queryBuilder.projectActivityDisplay(context, after, through);
+
+                    int updated = context
+                        .update(PRISM_META)
+                        .set(PRISM_META.V, String.valueOf(through))
+                        .where(PRISM_META.K.eq(LOOKUP_PROJECTION_META_KEY))
+                        .and(PRISM_META.V.eq(String.valueOf(after)))
+                        .execute();
+
+                    if (updated == 0) {
+                        throw new DataChangedException("Lookup projection watermark moved past " + after);
+                    }
+                });
+
+                projectedActivityId = through;
+            } catch (DataChangedException e) {
+                // Another server projected this range first, so continue from where it stopped
+                String stored = dslContext
+                    .select(PRISM_META.V)
+                    .from(PRISM_META)
+                    .where(PRISM_META.K.eq(LOOKUP_PROJECTION_META_KEY))
+                    .fetchOne(PRISM_META.V);
+
+                if (stored == null) {
+                    throw e;
+                }
+
+                projectedActivityId = Long.parseLong(stored);
+            }
+        }
+    }
+}
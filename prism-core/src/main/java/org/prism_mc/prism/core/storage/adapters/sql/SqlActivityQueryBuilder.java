@@ -25,6 +25,7 @@ import static org.jooq.impl.DSL.coalesce;
 import static org.jooq.impl.DSL.count;
 import static org.jooq.impl.DSL.max;
 import static org.jooq.impl.DSL.min;
+import static org.jooq.impl.DSL.sum;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.AFFECTED_PLAYERS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.CAUSE_BLOCKS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.CAUSE_BLOCKS_TRANSLATION_KEY;
@@ -32,40 +33,90 @@ import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAda
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.CAUSE_ENTITY_TYPES_TRANSLATION_KEY;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIONS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITIES;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DESCRIPTOR_TOKENS;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DISPLAY;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_ROLLUPS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_AIRTAGS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_BLOCKS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_CAUSES;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ENTITY_TYPES;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ITEMS;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_META;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_PLAYERS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_WORLDS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.REPLACED_BLOCKS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.REPLACED_BLOCKS_TRANSLATION_KEY;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.ROLLUPS_META_KEY;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.DeleteQuery;
 import org.jooq.Field;
+import org.jooq.InsertOnDuplicateStep;
 import org.jooq.JoinType;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.Result;
+import org.jooq.Select;
 import org.jooq.SelectQuery;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.jooq.types.UInteger;
+import org.jooq.types.UShort;
 import org.prism_mc.prism.api.activities.ActivityQuery;
+import org.prism_mc.prism.api.storage.wal.WalRecord;
 import org.prism_mc.prism.api.util.Pair;
 import org.prism_mc.prism.core.storage.dbo.records.PrismActivitiesRecord;
+import org.prism_mc.prism.core.storage.dbo.records.PrismActivityRollupsRecord;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
 import org.prism_mc.prism.loader.services.configuration.storage.StorageConfiguration;
 
 public class SqlActivityQueryBuilder {
 
+    /**
+     * The JDBC fetch size hint used for lazy cursors. Drivers that support server-side
+     * cursors stream rows in chunks of this size instead of buffering the whole result.
+     */
+    protected static final int CURSOR_FETCH_SIZE = 1000;
+
+    /**
+     * The width of a rollup bucket, in seconds.
+     */
+    public static final int ROLLUP_BUCKET_SECONDS = 3600;
+
+    /**
+     * The alias of the average timestamp column in queries answered from the rollups.
+     */
+    public static final String ROLLUP_AVG_TIMESTAMP = "rollup_avg_timestamp";
+
+    /**
+     * The alias of the item quantity column in queries answered from the rollups.
+     */
+    public static final String ROLLUP_ITEM_QUANTITY = "rollup_item_quantity";
+
+    /**
+     * The alias of the descriptor column in queries answered from the rollups.
+     */
+    public static final String ROLLUP_DESCRIPTOR = "rollup_descriptor";
+
+    /**
+     * The alias of the metadata column in queries answered from the rollups.
+     */
+    public static final String ROLLUP_METADATA = "rollup_metadata";
+
+    /**
+     * The alias of the reversed column in queries answered from the rollups.
+     */
+    public static final String ROLLUP_REVERSED = "rollup_reversed";
+
     /**
      * The configuration service.
      */
@@ -81,6 +132,11 @@ public class SqlActivityQueryBuilder {
      */
     protected final DSLContext dslContext;
 
+    /**
+     * The highest activity id counted in the rollups, or -1 while rollups aren't available.
+     */
+    protected volatile long rolledUpActivityId = -1;
+
     /**
      * Construct a new query builder.
      *
@@ -126,33 +182,89 @@ public class SqlActivityQueryBuilder {
      * @return A list of DbRow results
      */
     public Result<Record> queryActivities(ActivityQuery query) {
+        return buildActivitiesQuery(query).fetch();
+    }
+
+    /**
+     * Open a lazy cursor over the activities table with a given activity query.
+     *
+     * <p>Rows are pulled from the driver as the cursor is iterated rather than being
+     * materialized into a {@link Result} up front, so callers can map and emit very large
+     * lookups in constant memory. The cursor holds an open connection and must be closed.</p>
+     *
+     * @param query The activity query
+     * @return A cursor over the matching rows
+     */
+    public Cursor<Record> cursorActivities(ActivityQuery query) {
+        return buildActivitiesQuery(query).fetchSize(CURSOR_FETCH_SIZE).fetchLazy();
+    }
+
+    /**
+     * Build the select query for a given activity query.
+     *
+     * @param query The activity query
+     * @return The select query
+     */
+    protected SelectQuery<Record> buildActivitiesQuery(ActivityQuery query) {
+        if (useRollups(query)) {
+            return buildRollupQuery(query);
+        }
+
         SelectQuery<Record> queryBuilder = dslContext.selectQuery();
 
+        // Display columns come from the lookup projection when it's available,
+        // otherwise from the individual lookup tables
+        boolean projected = useLookupProjection(query);
+        Field<String> worldUuid = projected ? PRISM_ACTIVITY_DISPLAY.WORLD_UUID : PRISM_WORLDS.WORLD_UUID;
+        Field<String> world = projected ? PRISM_ACTIVITY_DISPLAY.WORLD : PRISM_WORLDS.WORLD;
+        Field<String> blockNs = projected ? PRISM_ACTIVITY_DISPLAY.BLOCK_NS : PRISM_BLOCKS.NS;
+        Field<String> blockName = projected ? PRISM_ACTIVITY_DISPLAY.BLOCK_NAME : PRISM_BLOCKS.NAME;
+        Field<String> blockTranslationKey = projected
+            ? PRISM_ACTIVITY_DISPLAY.BLOCK_TRANSLATION_KEY
+            : PRISM_BLOCKS.TRANSLATION_KEY;
+        Field<String> entityType = projected ? PRISM_ACTIVITY_DISPLAY.ENTITY_TYPE : PRISM_ENTITY_TYPES.ENTITY_TYPE;
+        Field<String> action = projected ? PRISM_ACTIVITY_DISPLAY.ACTION : PRISM_ACTIONS.ACTION;
+        Field<String> causePlayerUuid = projected
+            ? PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER_UUID
+            : PRISM_PLAYERS.PLAYER_UUID;
+        Field<String> causePlayer = projected ? PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER : PRISM_PLAYERS.PLAYER;
+        Field<String> affectedPlayer = projected ? PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER : AFFECTED_PLAYERS.PLAYER;
+        Field<String> affectedPlayerUuid = projected
+            ? PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER_UUID
+            : AFFECTED_PLAYERS.PLAYER_UUID;
+        Field<String> causeEntityTypeTranslationKey = projected
+            ? PRISM_ACTIVITY_DISPLAY.CAUSE_ENTITY_TYPE_TRANSLATION_KEY
+            : CAUSE_ENTITY_TYPES_TRANSLATION_KEY;
+        Field<String> causeBlockTranslationKey = projected
+            ? PRISM_ACTIVITY_DISPLAY.CAUSE_BLOCK_TRANSLATION_KEY
+            : CAUSE_BLOCKS_TRANSLATION_KEY;
+        Field<String> cause = projected ? PRISM_ACTIVITY_DISPLAY.CAUSE : PRISM_CAUSES.CAUSE;
+
         // Add fields useful for all query types
         queryBuilder.addSelect(
-            PRISM_WORLDS.WORLD_UUID,
-            PRISM_WORLDS.WORLD,
+            worldUuid,
+            world,
             PRISM_ITEMS.MATERIAL,
             PRISM_ITEMS.DATA,
             PRISM_ACTIVITIES.AFFECTED_ITEM_QUANTITY,
-            PRISM_BLOCKS.NS,
-            PRISM_BLOCKS.NAME,
-            PRISM_BLOCKS.TRANSLATION_KEY,
-            PRISM_ENTITY_TYPES.ENTITY_TYPE,
-            PRISM_ACTIONS.ACTION,
-            PRISM_PLAYERS.PLAYER_UUID,
-            PRISM_PLAYERS.PLAYER,
+            blockNs,
+            blockName,
+            blockTranslationKey,
+            entityType,
+            action,
+            causePlayerUuid,
+            causePlayer,
             PRISM_ACTIVITIES.DESCRIPTOR
         );
 
         // Add fields useful only for lookups
         if (query.lookup()) {
             queryBuilder.addSelect(PRISM_ACTIVITIES.METADATA);
-            queryBuilder.addSelect(AFFECTED_PLAYERS.PLAYER);
-            queryBuilder.addSelect(AFFECTED_PLAYERS.PLAYER_UUID);
-            queryBuilder.addSelect(CAUSE_ENTITY_TYPES_TRANSLATION_KEY);
-            queryBuilder.addSelect(CAUSE_BLOCKS_TRANSLATION_KEY);
-            queryBuilder.addSelect(PRISM_CAUSES.CAUSE);
+            queryBuilder.addSelect(affectedPlayer);
+            queryBuilder.addSelect(affectedPlayerUuid);
+            queryBuilder.addSelect(causeEntityTypeTranslationKey);
+            queryBuilder.addSelect(causeBlockTranslationKey);
+            queryBuilder.addSelect(cause);
             queryBuilder.addSelect(PRISM_ACTIVITIES.REVERSED);
             queryBuilder.addSelect(count().over().as("totalrows"));
         }
@@ -184,9 +296,13 @@ public class SqlActivityQueryBuilder {
             );
         }
 
-        queryBuilder.addFrom(PRISM_ACTIVITIES);
+        queryBuilder.addFrom(activitiesTable(query));
 
-        joins(queryBuilder, query);
+        if (projected) {
+            projectionJoins(queryBuilder);
+        } else {
+            joins(queryBuilder, query);
+        }
 
         if (query.modification()) {
             queryBuilder.addJoin(
@@ -200,27 +316,27 @@ public class SqlActivityQueryBuilder {
 
         if (query.grouped()) {
             queryBuilder.addGroupBy(
-                PRISM_ACTIONS.ACTION,
-                PRISM_WORLDS.WORLD_UUID,
-                PRISM_WORLDS.WORLD,
+                action,
+                worldUuid,
+                world,
                 PRISM_ACTIVITIES.ACTION_ID,
                 PRISM_ITEMS.MATERIAL,
                 PRISM_ITEMS.DATA,
                 PRISM_ACTIVITIES.AFFECTED_ITEM_QUANTITY,
-                PRISM_BLOCKS.NS,
-                PRISM_BLOCKS.NAME,
-                PRISM_BLOCKS.TRANSLATION_KEY,
-                PRISM_ENTITY_TYPES.ENTITY_TYPE,
-                AFFECTED_PLAYERS.PLAYER,
-                AFFECTED_PLAYERS.PLAYER_UUID,
-                PRISM_CAUSES.CAUSE,
-                PRISM_PLAYERS.PLAYER,
-                PRISM_PLAYERS.PLAYER_UUID,
+                blockNs,
+                blockName,
+                blockTranslationKey,
+                entityType,
+                affectedPlayer,
+                affectedPlayerUuid,
+                cause,
+                causePlayer,
+                causePlayerUuid,
                 PRISM_ACTIVITIES.DESCRIPTOR,
                 PRISM_ACTIVITIES.METADATA,
                 PRISM_ACTIVITIES.REVERSED,
-                CAUSE_ENTITY_TYPES_TRANSLATION_KEY,
-                CAUSE_BLOCKS_TRANSLATION_KEY
+                causeEntityTypeTranslationKey,
+                causeBlockTranslationKey
             );
         }
 
@@ -250,7 +366,7 @@ public class SqlActivityQueryBuilder {
             queryBuilder.addLimit(query.offset(), query.limit());
         }
 
-        return queryBuilder.fetch();
+        return queryBuilder;
     }
 
     /**
@@ -454,6 +570,672 @@ public class SqlActivityQueryBuilder {
         return new Pair<>(minPk, maxPk);
     }
 
+    /**
+     * Whether a query can read its display columns from the lookup projection.
+     *
+     * <p>Only plain lookups qualify. Modifications need block data and serialized
+     * data that the projection doesn't carry.</p>
+     *
+     * @param query The activity query
+     * @return True if the projection should be used
+     */
+    protected boolean useLookupProjection(ActivityQuery query) {
+        return storageConfiguration.lookupProjection() && query.lookup() && !query.modification();
+    }
+
+    /**
+     * Add the joins needed when reading display columns from the lookup projection.
+     *
+     * <p>Items stay a real join because item data can be large and is shared by many
+     * activities, so copying it per activity isn't worth the space.</p>
+     *
+     * <p>Activities are copied over right after their batch commits, so the newest few may
+     * be missing from a lookup for a moment.</p>
+     *
+     * @param queryBuilder Query builder
+     */
+    protected void projectionJoins(SelectQuery<Record> queryBuilder) {
+        queryBuilder.addJoin(
+            PRISM_ACTIVITY_DISPLAY,
+            actionJoinType(),
+            PRISM_ACTIVITY_DISPLAY.ACTIVITY_ID.equal(PRISM_ACTIVITIES.ACTIVITY_ID)
+        );
+
+        queryBuilder.addJoin(
+            PRISM_ITEMS,
+            JoinType.LEFT_OUTER_JOIN,
+            PRISM_ITEMS.ITEM_ID.equal(PRISM_ACTIVITIES.AFFECTED_ITEM_ID)
+        );
+    }
+
+    /**
+     * Query the highest activity primary key.
+     *
+     * @return The max primary key, or 0 if there are no activities
+     */
+    public long queryMaxActivityId() {
+        UInteger maxPk = dslContext
+            .select(coalesce(max(PRISM_ACTIVITIES.ACTIVITY_ID), DSL.val(UInteger.valueOf(0))))
+            .from(PRISM_ACTIVITIES)
+            .fetchOne(0, UInteger.class);
+
+        return maxPk != null ? maxPk.longValue() : 0;
+    }
+
+    /**
+     * Copy the display values of activities in a primary key range into the lookup projection.
+     *
+     * <p>Activities that are already projected are skipped, so a range copied by another
+     * server sharing the database is safe to copy again.</p>
+     *
+     * @param context The DSL context, so the copy can share a transaction
+     * @param afterActivityId The exclusive lower primary key bound
+     * @param throughActivityId The inclusive upper primary key bound
+     * @return The number of projected activities
+     */
+    public int projectActivityDisplay(DSLContext context, long afterActivityId, long throughActivityId) {
+        var select = context
+            .select(
+                PRISM_ACTIVITIES.ACTIVITY_ID,
+                PRISM_ACTIONS.ACTION,
+                PRISM_WORLDS.WORLD_UUID,
+                PRISM_WORLDS.WORLD,
+                PRISM_BLOCKS.NS,
+                PRISM_BLOCKS.NAME,
+                PRISM_BLOCKS.TRANSLATION_KEY,
+                PRISM_ENTITY_TYPES.ENTITY_TYPE,
+                PRISM_CAUSES.CAUSE,
+                PRISM_PLAYERS.PLAYER,
+                PRISM_PLAYERS.PLAYER_UUID,
+                CAUSE_ENTITY_TYPES_TRANSLATION_KEY,
+                CAUSE_BLOCKS_TRANSLATION_KEY,
+                AFFECTED_PLAYERS.PLAYER.as("affected_player"),
+                AFFECTED_PLAYERS.PLAYER_UUID.as("affected_player_uuid")
+            )
+            .from(PRISM_ACTIVITIES)
+            .join(PRISM_ACTIONS)
+            .on(PRISM_ACTIONS.ACTION_ID.equal(PRISM_ACTIVITIES.ACTION_ID))
+            .join(PRISM_WORLDS)
+            .on(PRISM_WORLDS.WORLD_ID.equal(PRISM_ACTIVITIES.WORLD_ID))
+            .leftJoin(PRISM_BLOCKS)
+            .on(PRISM_BLOCKS.BLOCK_ID.equal(PRISM_ACTIVITIES.AFFECTED_BLOCK_ID))
+            .leftJoin(PRISM_ENTITY_TYPES)
+            .on(PRISM_ENTITY_TYPES.ENTITY_TYPE_ID.equal(PRISM_ACTIVITIES.AFFECTED_ENTITY_TYPE_ID))
+            .leftJoin(PRISM_CAUSES)
+            .on(PRISM_CAUSES.CAUSE_ID.equal(PRISM_ACTIVITIES.CAUSE_ID))
+            .leftJoin(PRISM_PLAYERS)
+            .on(PRISM_PLAYERS.PLAYER_ID.equal(PRISM_ACTIVITIES.CAUSE_PLAYER_ID))
+            .leftJoin(CAUSE_ENTITY_TYPES)
+            .on(CAUSE_ENTITY_TYPES.ENTITY_TYPE_ID.equal(PRISM_ACTIVITIES.CAUSE_ENTITY_TYPE_ID))
+            .leftJoin(CAUSE_BLOCKS)
+            .on(CAUSE_BLOCKS.BLOCK_ID.equal(PRISM_ACTIVITIES.CAUSE_BLOCK_ID))
+            .leftJoin(AFFECTED_PLAYERS)
+            .on(AFFECTED_PLAYERS.PLAYER_ID.equal(PRISM_ACTIVITIES.AFFECTED_PLAYER_ID))
+            .where(
+                PRISM_ACTIVITIES.ACTIVITY_ID.between(
+                    UInteger.valueOf(afterActivityId + 1),
+                    UInteger.valueOf(Math.min(throughActivityId, UInteger.MAX_VALUE))
+                )
+            );
+
+        return context
+            .insertInto(
+                PRISM_ACTIVITY_DISPLAY,
+                PRISM_ACTIVITY_DISPLAY.ACTIVITY_ID,
+                PRISM_ACTIVITY_DISPLAY.ACTION,
+                PRISM_ACTIVITY_DISPLAY.WORLD_UUID,
+                PRISM_ACTIVITY_DISPLAY.WORLD,
+                PRISM_ACTIVITY_DISPLAY.BLOCK_NS,
+                PRISM_ACTIVITY_DISPLAY.BLOCK_NAME,
+                PRISM_ACTIVITY_DISPLAY.BLOCK_TRANSLATION_KEY,
+                PRISM_ACTIVITY_DISPLAY.ENTITY_TYPE,
+                PRISM_ACTIVITY_DISPLAY.CAUSE,
+                PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER,
+                PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER_UUID,
+                PRISM_ACTIVITY_DISPLAY.CAUSE_ENTITY_TYPE_TRANSLATION_KEY,
+                PRISM_ACTIVITY_DISPLAY.CAUSE_BLOCK_TRANSLATION_KEY,
+                PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER,
+                PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER_UUID
+            )
+            .select(select)
+            .onDuplicateKeyIgnore()
+            .execute();
+    }
+
+    /**
+     * Delete lookup projection rows whose activity no longer exists.
+     *
+     * @param cycleMinPrimaryKey The min primary key
+     * @param cycleMaxPrimaryKey The max primary key
+     * @return The number of rows deleted
+     */
+    public int deleteOrphanedActivityDisplay(int cycleMinPrimaryKey, int cycleMaxPrimaryKey) {
+        return dslContext
+            .deleteFrom(PRISM_ACTIVITY_DISPLAY)
+            .where(
+                PRISM_ACTIVITY_DISPLAY.ACTIVITY_ID.between(
+                    UInteger.valueOf(cycleMinPrimaryKey),
+                    UInteger.valueOf(cycleMaxPrimaryKey)
+                )
+            )
+            .andNotExists(
+                dslContext
+                    .selectOne()
+                    .from(PRISM_ACTIVITIES)
+                    .where(PRISM_ACTIVITIES.ACTIVITY_ID.equal(PRISM_ACTIVITY_DISPLAY.ACTIVITY_ID))
+            )
+            .execute();
+    }
+
+    /**
+     * Split the descriptors of activities in a primary key range into the descriptor token table.
+     *
+     * <p>Activities that already have tokens are skipped, so overlapping ranges are safe.</p>
+     *
+     * @param afterActivityId The exclusive lower primary key bound
+     * @param throughActivityId The inclusive upper primary key bound
+     * @return The number of tokenized activities
+     */
+    public int tokenizeDescriptors(long afterActivityId, long throughActivityId) {
+        var descriptors = dslContext
+            .select(PRISM_ACTIVITIES.ACTIVITY_ID, PRISM_ACTIVITIES.DESCRIPTOR)
+            .from(PRISM_ACTIVITIES)
+            .where(
+                PRISM_ACTIVITIES.ACTIVITY_ID.between(
+                    UInteger.valueOf(afterActivityId + 1),
+                    UInteger.valueOf(Math.min(throughActivityId, UInteger.MAX_VALUE))
+                )
+            )
+            .and(PRISM_ACTIVITIES.DESCRIPTOR.isNotNull())
+            .andNotExists(
+                dslContext
+                    .selectOne()
+                    .from(PRISM_ACTIVITY_DESCRIPTOR_TOKENS)
+                    .where(PRISM_ACTIVITY_DESCRIPTOR_TOKENS.ACTIVITY_ID.equal(PRISM_ACTIVITIES.ACTIVITY_ID))
+            )
+            .fetch();
+
+        if (descriptors.isEmpty()) {
+            return 0;
+        }
+
+        var batch = dslContext.batch(
+            dslContext
+                .insertInto(
+                    PRISM_ACTIVITY_DESCRIPTOR_TOKENS,
+                    PRISM_ACTIVITY_DESCRIPTOR_TOKENS.TOKEN,
+                    PRISM_ACTIVITY_DESCRIPTOR_TOKENS.ACTIVITY_ID
+                )
+                .values((String) null, (UInteger) null)
+                .onDuplicateKeyIgnore()
+        );
+
+        int tokenized = 0;
+        for (var descriptor : descriptors) {
+            var tokens = DescriptorTokenizer.tokenize(descriptor.value2());
+            for (String token : tokens) {
+                batch.bind(token, descriptor.value1());
+            }
+
+            if (!tokens.isEmpty()) {
+                tokenized++;
+            }
+        }
+
+        if (tokenized > 0) {
+            batch.execute();
+        }
+
+        return tokenized;
+    }
+
+    /**
+     * Delete descriptor tokens whose activity no longer exists.
+     *
+     * @param cycleMinPrimaryKey The min primary key
+     * @param cycleMaxPrimaryKey The max primary key
+     * @return The number of rows deleted
+     */
+    public int deleteOrphanedDescriptorTokens(int cycleMinPrimaryKey, int cycleMaxPrimaryKey) {
+        return dslContext
+            .deleteFrom(PRISM_ACTIVITY_DESCRIPTOR_TOKENS)
+            .where(
+                PRISM_ACTIVITY_DESCRIPTOR_TOKENS.ACTIVITY_ID.between(
+                    UInteger.valueOf(cycleMinPrimaryKey),
+                    UInteger.valueOf(cycleMaxPrimaryKey)
+                )
+            )
+            .andNotExists(
+                dslContext
+                    .selectOne()
+                    .from(PRISM_ACTIVITIES)
+                    .where(PRISM_ACTIVITIES.ACTIVITY_ID.equal(PRISM_ACTIVITY_DESCRIPTOR_TOKENS.ACTIVITY_ID))
+            )
+            .execute();
+    }
+
+    /**
+     * Set the highest activity id counted in the rollups.
+     *
+     * @param activityId The activity id, or -1 to stop answering queries from the rollups
+     */
+    public void rolledUpActivityId(long activityId) {
+        this.rolledUpActivityId = activityId;
+    }
+
+    /**
+     * Whether a query can be answered from the hourly rollups.
+     *
+     * <p>Only grouped lookups qualify, and only when every filter maps onto a rollup column.
+     * Rollups group by descriptor, metadata, and reversal state like grouped lookups do, but
+     * don't carry coordinates, so queries filtering on those or searching descriptors always
+     * read the activities table.</p>
+     *
+     * @param query The activity query
+     * @return True if the rollups should be used
+     */
+    protected boolean useRollups(ActivityQuery query) {
+        return (
+            rolledUpActivityId >= 0 &&
+            storageConfiguration.rollups() &&
+            query.lookup() &&
+            query.grouped() &&
+            !query.modification() &&
+            (query.activityIds() == null || query.activityIds().isEmpty()) &&
+            query.coordinate() == null &&
+            query.minCoordinate() == null &&
+            query.maxCoordinate() == null &&
+            query.above() == null &&
+            query.below() == null &&
+            query.airtag() == null &&
+            query.descriptor() == null &&
+            query.reversed() == null
+        );
+    }
+
+    /**
+     * Build a grouped lookup answered from the hourly rollups.
+     *
+     * <p>Hours that fall entirely inside the requested time range are read from the rollups.
+     * The partial hours at either edge, and anything recorded since the rollups were last
+     * refreshed, are aggregated from the activities table in the same shape. Both halves are
+     * summed together so the counts match a grouped lookup against the activities table.</p>
+     *
+     * @param query The activity query
+     * @return The select query
+     */
+    protected SelectQuery<Record> buildRollupQuery(ActivityQuery query) {
+        // Read the rollup watermark in the same statement as the rollups, so a refresh
+        // committing mid-lookup can't count the same activities twice
+        Field<UInteger> rolledUpThrough = DSL.field(
+            dslContext.select(PRISM_META.V).from(PRISM_META).where(PRISM_META.K.eq(ROLLUPS_META_KEY))
+        ).cast(SQLDataType.INTEGERUNSIGNED);
+
+        // The first bucket wholly after the lower bound, and the first not wholly before the upper bound
+        long firstBucket = query.after() != null
+            ? (query.after() / ROLLUP_BUCKET_SECONDS + 1) * ROLLUP_BUCKET_SECONDS
+            : 0;
+        Long lastBucket = query.before() != null
+            ? (query.before() / ROLLUP_BUCKET_SECONDS) * ROLLUP_BUCKET_SECONDS
+            : null;
+
+        List<Condition> rollupConditions = joinConditions(query, PRISM_ACTIVITY_ROLLUPS);
+        rollupConditions.add(PRISM_ACTIVITY_ROLLUPS.BUCKET.greaterOrEqual(bucketValue(firstBucket)));
+
+        Condition unrolled = PRISM_ACTIVITIES.ACTIVITY_ID.greaterThan(rolledUpThrough).or(
+            PRISM_ACTIVITIES.TIMESTAMP.lessThan(bucketValue(firstBucket))
+        );
+
+        if (lastBucket != null) {
+            rollupConditions.add(PRISM_ACTIVITY_ROLLUPS.BUCKET.lessThan(bucketValue(lastBucket)));
+            unrolled = unrolled.or(PRISM_ACTIVITIES.TIMESTAMP.greaterOrEqual(bucketValue(lastBucket)));
+        }
+
+        List<Condition> activityConditions = conditions(query);
+        activityConditions.add(unrolled);
+
+        Table<Record> activities = dslContext
+            .select(rollupColumns())
+            .from(PRISM_ACTIVITY_ROLLUPS)
+            .where(rollupConditions)
+            .unionAll(rollupSelect(activityConditions, false))
+            .asTable("rolled_up_activities");
+
+        // Everything except the bucket identifies a group
+        List<Field<?>> keys = new ArrayList<>();
+        List<Field<?>> rollupColumns = rollupColumns();
+        for (Field<?> column : rollupColumns.subList(1, rollupColumns.size() - 2)) {
+            keys.add(activities.field(column));
+        }
+
+        List<Field<?>> totals = new ArrayList<>(keys);
+        totals.add(
+            sum(activities.field(PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT)).as(PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT)
+        );
+        totals.add(
+            sum(activities.field(PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM)).as(PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM)
+        );
+
+        Table<Record> groups = dslContext.select(totals).from(activities).groupBy(keys).asTable("activity_groups");
+
+        Field<BigDecimal> activityCount = groups.field(
+            PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT.getName(),
+            BigDecimal.class
+        );
+        Field<BigDecimal> avgTimestamp = groups
+            .field(PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM.getName(), BigDecimal.class)
+            .div(activityCount);
+
+        SelectQuery<Record> queryBuilder = dslContext.selectQuery();
+        queryBuilder.addSelect(
+            PRISM_WORLDS.WORLD_UUID,
+            PRISM_WORLDS.WORLD,
+            PRISM_ITEMS.MATERIAL,
+            PRISM_ITEMS.DATA,
+            groups.field(PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_QUANTITY).as(ROLLUP_ITEM_QUANTITY),
+            PRISM_BLOCKS.NS,
+            PRISM_BLOCKS.NAME,
+            PRISM_BLOCKS.TRANSLATION_KEY,
+            PRISM_ENTITY_TYPES.ENTITY_TYPE,
+            PRISM_ACTIONS.ACTION,
+            PRISM_PLAYERS.PLAYER_UUID,
+            PRISM_PLAYERS.PLAYER,
+            AFFECTED_PLAYERS.PLAYER,
+            AFFECTED_PLAYERS.PLAYER_UUID,
+            CAUSE_ENTITY_TYPES_TRANSLATION_KEY,
+            CAUSE_BLOCKS_TRANSLATION_KEY,
+            PRISM_CAUSES.CAUSE,
+            // Missing descriptors and metadata are stored as empty strings to fit the key
+            DSL.nullif(groups.field(PRISM_ACTIVITY_ROLLUPS.DESCRIPTOR), "").as(ROLLUP_DESCRIPTOR),
+            DSL.nullif(groups.field(PRISM_ACTIVITY_ROLLUPS.METADATA), "").as(ROLLUP_METADATA),
+            groups.field(PRISM_ACTIVITY_ROLLUPS.REVERSED).as(ROLLUP_REVERSED),
+            count().over().as("totalrows"),
+            avgTimestamp.as(ROLLUP_AVG_TIMESTAMP),
+            activityCount.as("groupcount")
+        );
+
+        queryBuilder.addFrom(groups);
+
+        // Unset keys are stored as 0, which never matches a lookup row
+        queryBuilder.addJoin(
+            PRISM_ACTIONS,
+            actionJoinType(),
+            PRISM_ACTIONS.ACTION_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.ACTION_ID))
+        );
+        queryBuilder.addJoin(PRISM_WORLDS, PRISM_WORLDS.WORLD_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.WORLD_ID)));
+        queryBuilder.addJoin(
+            PRISM_ITEMS,
+            JoinType.LEFT_OUTER_JOIN,
+            PRISM_ITEMS.ITEM_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_ID))
+        );
+        queryBuilder.addJoin(
+            PRISM_ENTITY_TYPES,
+            JoinType.LEFT_OUTER_JOIN,
+            PRISM_ENTITY_TYPES.ENTITY_TYPE_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.AFFECTED_ENTITY_TYPE_ID))
+        );
+        queryBuilder.addJoin(
+            CAUSE_ENTITY_TYPES,
+            JoinType.LEFT_OUTER_JOIN,
+            CAUSE_ENTITY_TYPES.ENTITY_TYPE_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.CAUSE_ENTITY_TYPE_ID))
+        );
+        queryBuilder.addJoin(
+            PRISM_BLOCKS,
+            JoinType.LEFT_OUTER_JOIN,
+            PRISM_BLOCKS.BLOCK_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.AFFECTED_BLOCK_ID))
+        );
+        queryBuilder.addJoin(
+            CAUSE_BLOCKS,
+            JoinType.LEFT_OUTER_JOIN,
+            CAUSE_BLOCKS.BLOCK_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.CAUSE_BLOCK_ID))
+        );
+        queryBuilder.addJoin(
+            AFFECTED_PLAYERS,
+            JoinType.LEFT_OUTER_JOIN,
+            AFFECTED_PLAYERS.PLAYER_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.AFFECTED_PLAYER_ID))
+        );
+        queryBuilder.addJoin(
+            PRISM_PLAYERS,
+            JoinType.LEFT_OUTER_JOIN,
+            PRISM_PLAYERS.PLAYER_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.CAUSE_PLAYER_ID))
+        );
+        queryBuilder.addJoin(
+            PRISM_CAUSES,
+            JoinType.LEFT_OUTER_JOIN,
+            PRISM_CAUSES.CAUSE_ID.equal(groups.field(PRISM_ACTIVITY_ROLLUPS.CAUSE_ID))
+        );
+
+        if (query.sort().equals(ActivityQuery.Sort.ASCENDING)) {
+            queryBuilder.addOrderBy(avgTimestamp.asc());
+        } else {
+            queryBuilder.addOrderBy(avgTimestamp.desc());
+        }
+
+        if (query.limit() > 0) {
+            queryBuilder.addLimit(query.offset(), query.limit());
+        }
+
+        return queryBuilder;
+    }
+
+    /**
+     * Add the activities in a primary key range to the rollups.
+     *
+     * @param context The DSL context to run in, so callers can pair this with a watermark update
+     * @param afterActivityId The exclusive lower primary key bound
+     * @param throughActivityId The inclusive upper primary key bound
+     * @return The number of rollup rows written
+     */
+    public int rollUpActivities(DSLContext context, long afterActivityId, long throughActivityId) {
+        List<Condition> conditions = List.of(
+            PRISM_ACTIVITIES.ACTIVITY_ID.between(
+                activityIdValue(afterActivityId + 1),
+                activityIdValue(throughActivityId)
+            )
+        );
+
+        return adjustRollups(context, conditions, false);
+    }
+
+    /**
+     * Add activities to the rollups, or take them out.
+     *
+     * <p>Activities must already be counted in the rollups to be taken out. Updates that change
+     * a grouped column take activities out before the update and add them back after it, which
+     * moves their counts to the groups they now belong to.</p>
+     *
+     * @param context The DSL context to run in
+     * @param conditions The activity conditions
+     * @param negate Whether to take the activities out
+     * @return The number of rollup rows written
+     */
+    public int adjustRollups(DSLContext context, Collection<Condition> conditions, boolean negate) {
+        return accumulateRollups(
+            context.insertInto(PRISM_ACTIVITY_ROLLUPS).columns(rollupColumns()).select(rollupSelect(conditions, negate))
+        ).execute();
+    }
+    /**
+     * Query how much the rollups must be reduced by to account for purging activities.
+     *
+     * <p>Only activities already counted in the rollups are considered. The reductions are
+     * returned as negative counts and sums, ready for {@link #applyRollupDeltas(Result)}.</p>
+     *
+     * @param query The purge query
+     * @param cycleMinPrimaryKey The min primary key
+     * @param cycleMaxPrimaryKey The max primary key
+     * @return The rollup deltas
+     */
+    public Result<Record> queryRollupDeltas(ActivityQuery query, int cycleMinPrimaryKey, int cycleMaxPrimaryKey) {
+        long throughActivityId = Math.min(cycleMaxPrimaryKey, rolledUpActivityId);
+
+        List<Condition> conditions = conditions(query);
+        conditions.add(
+            PRISM_ACTIVITIES.ACTIVITY_ID.between(
+                activityIdValue(cycleMinPrimaryKey),
+                activityIdValue(throughActivityId)
+            )
+        );
+
+        return rollupSelect(conditions, true).fetch();
+    }
+
+    /**
+     * Add rollup deltas to the rollups.
+     *
+     * @param deltas The deltas
+     */
+    public void applyRollupDeltas(Result<Record> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Query> queries = new ArrayList<>();
+        for (Record delta : deltas) {
+            queries.add(
+                accumulateRollups(
+                    dslContext.insertInto(PRISM_ACTIVITY_ROLLUPS).columns(rollupColumns()).values(delta.intoArray())
+                )
+            );
+        }
+
+        dslContext.batch(queries).execute();
+    }
+
+    /**
+     * Delete rollups that no longer count any activities.
+     *
+     * @return The number of rows deleted
+     */
+    public int deleteEmptyRollups() {
+        return deleteEmptyRollups(dslContext);
+    }
+
+    /**
+     * Delete rollups that no longer count any activities.
+     *
+     * @param context The DSL context to run in
+     * @return The number of rows deleted
+     */
+    public int deleteEmptyRollups(DSLContext context) {
+        return context
+            .deleteFrom(PRISM_ACTIVITY_ROLLUPS)
+            .where(PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT.lessOrEqual(0L))
+            .execute();
+    }
+
+    /**
+     * Get the rollup columns, keys first.
+     *
+     * @return The rollup columns
+     */
+    protected List<Field<?>> rollupColumns() {
+        return List.of(
+            PRISM_ACTIVITY_ROLLUPS.BUCKET,
+            PRISM_ACTIVITY_ROLLUPS.WORLD_ID,
+            PRISM_ACTIVITY_ROLLUPS.ACTION_ID,
+            PRISM_ACTIVITY_ROLLUPS.CAUSE_ID,
+            PRISM_ACTIVITY_ROLLUPS.CAUSE_PLAYER_ID,
+            PRISM_ACTIVITY_ROLLUPS.CAUSE_ENTITY_TYPE_ID,
+            PRISM_ACTIVITY_ROLLUPS.CAUSE_BLOCK_ID,
+            PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_ID,
+            PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_QUANTITY,
+            PRISM_ACTIVITY_ROLLUPS.AFFECTED_BLOCK_ID,
+            PRISM_ACTIVITY_ROLLUPS.AFFECTED_ENTITY_TYPE_ID,
+            PRISM_ACTIVITY_ROLLUPS.AFFECTED_PLAYER_ID,
+            PRISM_ACTIVITY_ROLLUPS.DESCRIPTOR,
+            PRISM_ACTIVITY_ROLLUPS.METADATA,
+            PRISM_ACTIVITY_ROLLUPS.REVERSED,
+            PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT,
+            PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM
+        );
+    }
+
+    /**
+     * Aggregate activities into the shape of the rollup columns.
+     *
+     * @param conditions The activity conditions
+     * @param negate Whether to negate the counts and sums
+     * @return The select query
+     */
+    protected Select<Record> rollupSelect(Collection<Condition> conditions, boolean negate) {
+        UInteger none = UInteger.valueOf(0);
+
+        List<Field<?>> keys = List.of(
+            PRISM_ACTIVITIES.TIMESTAMP.minus(PRISM_ACTIVITIES.TIMESTAMP.mod(ROLLUP_BUCKET_SECONDS)),
+            PRISM_ACTIVITIES.WORLD_ID,
+            PRISM_ACTIVITIES.ACTION_ID,
+            coalesce(PRISM_ACTIVITIES.CAUSE_ID, none),
+            coalesce(PRISM_ACTIVITIES.CAUSE_PLAYER_ID, none),
+            coalesce(PRISM_ACTIVITIES.CAUSE_ENTITY_TYPE_ID, none),
+            coalesce(PRISM_ACTIVITIES.CAUSE_BLOCK_ID, none),
+            coalesce(PRISM_ACTIVITIES.AFFECTED_ITEM_ID, none),
+            coalesce(PRISM_ACTIVITIES.AFFECTED_ITEM_QUANTITY, UShort.valueOf(0)),
+            coalesce(PRISM_ACTIVITIES.AFFECTED_BLOCK_ID, none),
+            coalesce(PRISM_ACTIVITIES.AFFECTED_ENTITY_TYPE_ID, none),
+            coalesce(PRISM_ACTIVITIES.AFFECTED_PLAYER_ID, none),
+            coalesce(PRISM_ACTIVITIES.DESCRIPTOR, ""),
+            coalesce(PRISM_ACTIVITIES.METADATA, ""),
+            PRISM_ACTIVITIES.REVERSED
+        );
+
+        Field<Long> activityCount = count().cast(SQLDataType.BIGINT);
+        Field<Long> timestampSum = sum(PRISM_ACTIVITIES.TIMESTAMP).cast(SQLDataType.BIGINT);
+
+        List<Field<?>> fields = new ArrayList<>(keys);
+        fields.add(negate ? activityCount.neg() : activityCount);
+        fields.add(negate ? timestampSum.neg() : timestampSum);
+
+        return dslContext.select(fields).from(PRISM_ACTIVITIES).where(conditions).groupBy(keys);
+    }
+
+    /**
+     * Add incoming counts and sums to any rollup rows that already exist.
+     *
+     * @param insert The rollup insert
+     * @return The upsert query
+     */
+    protected Query accumulateRollups(InsertOnDuplicateStep<PrismActivityRollupsRecord> insert) {
+        return insert
+            .onDuplicateKeyUpdate()
+            .set(
+                PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT,
+                PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT.plus(DSL.excluded(PRISM_ACTIVITY_ROLLUPS.ACTIVITY_COUNT))
+            )
+            .set(
+                PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM,
+                PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM.plus(DSL.excluded(PRISM_ACTIVITY_ROLLUPS.TIMESTAMP_SUM))
+            );
+    }
+
+    /**
+     * Convert a bucket start to a timestamp value.
+     *
+     * @param bucket The bucket start, in seconds
+     * @return The timestamp value
+     */
+    private static UInteger bucketValue(long bucket) {
+        return UInteger.valueOf(Math.min(bucket, UInteger.MAX_VALUE));
+    }
+
+    /**
+     * Convert an activity id to a primary key value.
+     *
+     * @param activityId The activity id
+     * @return The primary key value
+     */
+    private static UInteger activityIdValue(long activityId) {
+        return UInteger.valueOf(Math.max(0, Math.min(activityId, UInteger.MAX_VALUE)));
+    }
+
+    /**
+     * Get the activities table to select from, with any configured index hint applied.
+     *
+     * @param query The activity query
+     * @return The activities table
+     */
+    protected Table<?> activitiesTable(ActivityQuery query) {
+        return PRISM_ACTIVITIES;
+    }
+
     /**
      * Get the join type for the action table.
      *
@@ -463,6 +1245,169 @@ public class SqlActivityQueryBuilder {
         return JoinType.JOIN;
     }
 
+    /**
+     * Read activities recorded before a time as flat records, in primary key order.
+     *
+     * @param afterActivityId The exclusive lower primary key bound
+     * @param before The exclusive upper timestamp bound, in epoch seconds
+     * @param limit The maximum number of activities to read
+     * @return The activities
+     */
+    public List<SqlExportedActivity> exportActivities(long afterActivityId, long before, int limit) {
+        Field<String> blockNamespace = PRISM_BLOCKS.NS.as("affected_block_ns");
+        Field<String> blockName = PRISM_BLOCKS.NAME.as("affected_block_name");
+        Field<String> blockData = PRISM_BLOCKS.DATA.as("affected_block_data");
+        Field<String> blockTranslationKey = PRISM_BLOCKS.TRANSLATION_KEY.as("affected_block_translation_key");
+        Field<String> replacedBlockNamespace = REPLACED_BLOCKS.NS.as("replaced_block_ns");
+        Field<String> replacedBlockName = REPLACED_BLOCKS.NAME.as("replaced_block_name");
+        Field<String> replacedBlockData = REPLACED_BLOCKS.DATA.as("replaced_block_data");
+        Field<String> causeBlockNamespace = CAUSE_BLOCKS.NS.as("cause_block_ns");
+        Field<String> causeBlockName = CAUSE_BLOCKS.NAME.as("cause_block_name");
+        Field<String> entityType = PRISM_ENTITY_TYPES.ENTITY_TYPE.as("affected_entity_type");
+        Field<String> causeEntityType = CAUSE_ENTITY_TYPES.ENTITY_TYPE.as("cause_entity_type");
+        Field<String> causePlayer = PRISM_PLAYERS.PLAYER.as("cause_player");
+        Field<String> causePlayerUuid = PRISM_PLAYERS.PLAYER_UUID.as("cause_player_uuid");
+        Field<String> affectedPlayer = AFFECTED_PLAYERS.PLAYER.as("affected_player");
+        Field<String> affectedPlayerUuid = AFFECTED_PLAYERS.PLAYER_UUID.as("affected_player_uuid");
+
+        Result<Record> result = dslContext
+            .select(
+                PRISM_ACTIVITIES.ACTIVITY_ID,
+                PRISM_ACTIVITIES.TIMESTAMP,
+                PRISM_ACTIVITIES.X,
+                PRISM_ACTIVITIES.Y,
+                PRISM_ACTIVITIES.Z,
+                PRISM_ACTIVITIES.AFFECTED_ITEM_QUANTITY,
+                PRISM_ACTIVITIES.DESCRIPTOR,
+                PRISM_ACTIVITIES.METADATA,
+                PRISM_ACTIVITIES.SERIALIZER_VERSION,
+                PRISM_ACTIVITIES.SERIALIZED_DATA,
+                PRISM_ACTIVITIES.REVERSED,
+                PRISM_ACTIONS.ACTION,
+                PRISM_WORLDS.WORLD_UUID,
+                PRISM_WORLDS.WORLD,
+                PRISM_ITEMS.MATERIAL,
+                PRISM_ITEMS.DATA,
+                PRISM_AIRTAGS.AIRTAG,
+                blockNamespace,
+                blockName,
+                blockData,
+                blockTranslationKey,
+                replacedBlockNamespace,
+                replacedBlockName,
+                replacedBlockData,
+                REPLACED_BLOCKS_TRANSLATION_KEY,
+                entityType,
+                PRISM_CAUSES.CAUSE,
+                causePlayer,
+                causePlayerUuid,
+                causeEntityType,
+                CAUSE_ENTITY_TYPES_TRANSLATION_KEY,
+                causeBlockNamespace,
+                causeBlockName,
+                CAUSE_BLOCKS_TRANSLATION_KEY,
+                affectedPlayer,
+                affectedPlayerUuid
+            )
+            .from(PRISM_ACTIVITIES)
+            .join(PRISM_ACTIONS)
+            .on(PRISM_ACTIONS.ACTION_ID.equal(PRISM_ACTIVITIES.ACTION_ID))
+            .join(PRISM_WORLDS)
+            .on(PRISM_WORLDS.WORLD_ID.equal(PRISM_ACTIVITIES.WORLD_ID))
+            .leftJoin(PRISM_ITEMS)
+            .on(PRISM_ITEMS.ITEM_ID.equal(PRISM_ACTIVITIES.AFFECTED_ITEM_ID))
+            .leftJoin(PRISM_AIRTAGS)
+            .on(PRISM_AIRTAGS.AIRTAG_ID.equal(PRISM_ITEMS.AIRTAG_ID))
+            .leftJoin(PRISM_BLOCKS)
+            .on(PRISM_BLOCKS.BLOCK_ID.equal(PRISM_ACTIVITIES.AFFECTED_BLOCK_ID))
+            .leftJoin(REPLACED_BLOCKS)
+            .on(REPLACED_BLOCKS.BLOCK_ID.equal(PRISM_ACTIVITIES.REPLACED_BLOCK_ID))
+            .leftJoin(PRISM_ENTITY_TYPES)
+            .on(PRISM_ENTITY_TYPES.ENTITY_TYPE_ID.equal(PRISM_ACTIVITIES.AFFECTED_ENTITY_TYPE_ID))
+            .leftJoin(PRISM_CAUSES)
+            .on(PRISM_CAUSES.CAUSE_ID.equal(PRISM_ACTIVITIES.CAUSE_ID))
+            .leftJoin(PRISM_PLAYERS)
+            .on(PRISM_PLAYERS.PLAYER_ID.equal(PRISM_ACTIVITIES.CAUSE_PLAYER_ID))
+            .leftJoin(CAUSE_ENTITY_TYPES)
+            .on(CAUSE_ENTITY_TYPES.ENTITY_TYPE_ID.equal(PRISM_ACTIVITIES.CAUSE_ENTITY_TYPE_ID))
+            .leftJoin(CAUSE_BLOCKS)
+            .on(CAUSE_BLOCKS.BLOCK_ID.equal(PRISM_ACTIVITIES.CAUSE_BLOCK_ID))
+            .leftJoin(AFFECTED_PLAYERS)
+            .on(AFFECTED_PLAYERS.PLAYER_ID.equal(PRISM_ACTIVITIES.AFFECTED_PLAYER_ID))
+            .where(PRISM_ACTIVITIES.ACTIVITY_ID.greaterThan(UInteger.valueOf(afterActivityId)))
+            .and(PRISM_ACTIVITIES.TIMESTAMP.lessThan(UInteger.valueOf(before)))
+            .orderBy(PRISM_ACTIVITIES.ACTIVITY_ID)
+            .limit(limit)
+            .fetch();
+
+        List<SqlExportedActivity> activities = new ArrayList<>();
+        for (Record r : result) {
+            var builder = WalRecord.builder()
+                .timestamp(r.get(PRISM_ACTIVITIES.TIMESTAMP).longValue() * 1000)
+                .x(r.get(PRISM_ACTIVITIES.X))
+                .y(r.get(PRISM_ACTIVITIES.Y))
+                .z(r.get(PRISM_ACTIVITIES.Z))
+                .worldUuid(r.get(PRISM_WORLDS.WORLD_UUID))
+                .worldName(r.get(PRISM_WORLDS.WORLD))
+                .actionKey(r.get(PRISM_ACTIONS.ACTION))
+                .descriptor(r.get(PRISM_ACTIVITIES.DESCRIPTOR))
+                .entityType(r.get(entityType))
+                .itemMaterial(r.get(PRISM_ITEMS.MATERIAL))
+                .itemData(r.get(PRISM_ITEMS.DATA))
+                .itemAirtag(r.get(PRISM_AIRTAGS.AIRTAG))
+                .blockNamespace(r.get(blockNamespace))
+                .blockName(r.get(blockName))
+                .blockData(r.get(blockData))
+                .blockTranslationKey(r.get(blockTranslationKey))
+                .replacedBlockNamespace(r.get(replacedBlockNamespace))
+                .replacedBlockName(r.get(replacedBlockName))
+                .replacedBlockData(r.get(replacedBlockData))
+                .replacedBlockTranslationKey(r.get(REPLACED_BLOCKS_TRANSLATION_KEY))
+                .affectedPlayerName(r.get(affectedPlayer))
+                .affectedPlayerUuid(r.get(affectedPlayerUuid))
+                .metadata(r.get(PRISM_ACTIVITIES.METADATA))
+                .serializedData(r.get(PRISM_ACTIVITIES.SERIALIZED_DATA));
+
+            UShort itemQuantity = r.get(PRISM_ACTIVITIES.AFFECTED_ITEM_QUANTITY);
+            if (itemQuantity != null) {
+                builder.itemQuantity(itemQuantity.intValue());
+            }
+
+            UShort serializerVersion = r.get(PRISM_ACTIVITIES.SERIALIZER_VERSION);
+            if (serializerVersion != null) {
+                builder.serializerVersion(serializerVersion.shortValue());
+            }
+
+            // Cause, in the same precedence the lookups use
+            if (r.get(PRISM_CAUSES.CAUSE) != null) {
+                builder.causeType("string").causeString(r.get(PRISM_CAUSES.CAUSE));
+            } else if (r.get(causePlayerUuid) != null) {
+                builder.causeType("player").causePlayerName(r.get(causePlayer)).causePlayerUuid(r.get(causePlayerUuid));
+            } else if (r.get(causeEntityType) != null) {
+                builder
+                    .causeType("entity")
+                    .causeEntityType(r.get(causeEntityType))
+                    .causeEntityTranslationKey(r.get(CAUSE_ENTITY_TYPES_TRANSLATION_KEY));
+            } else if (r.get(causeBlockName) != null) {
+                builder
+                    .causeType("block")
+                    .causeBlockNamespace(r.get(causeBlockNamespace))
+                    .causeBlockName(r.get(causeBlockName))
+                    .causeBlockTranslationKey(r.get(CAUSE_BLOCKS_TRANSLATION_KEY));
+            }
+
+            activities.add(
+                new SqlExportedActivity(
+                    r.get(PRISM_ACTIVITIES.ACTIVITY_ID).longValue(),
+                    builder.build(),
+                    Boolean.TRUE.equals(r.get(PRISM_ACTIVITIES.REVERSED))
+                )
+            );
+        }
+
+        return activities;
+    }
+
     /**
      * A convenience method to add all joins needed for a lookup.
      *
@@ -551,6 +1496,18 @@ public class SqlActivityQueryBuilder {
      * @return Conditions with pre-resolved ID lists
      */
     protected List<Condition> joinConditions(ActivityQuery query) {
+        return joinConditions(query, PRISM_ACTIVITIES);
+    }
+
+    /**
+     * Pre-resolve foreign key IDs from lookup tables and apply them to the
+     * matching foreign key columns of a given table.
+     *
+     * @param query The activity query
+     * @param source The table holding the foreign key columns
+     * @return Conditions with pre-resolved ID lists
+     */
+    protected List<Condition> joinConditions(ActivityQuery query, Table<?> source) {
         List<Condition> conditions = new ArrayList<>();
 
         // Action Types
@@ -562,7 +1519,7 @@ public class SqlActivityQueryBuilder {
 
             addLookupConditions(
                 conditions,
-                PRISM_ACTIVITIES.ACTION_ID,
+                source.field(PRISM_ACTIVITIES.ACTION_ID),
                 PRISM_ACTIONS.ACTION_ID,
                 PRISM_ACTIONS.ACTION,
                 PRISM_ACTIONS,
@@ -574,7 +1531,7 @@ public class SqlActivityQueryBuilder {
         // Action Type Keys
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.ACTION_ID,
+            source.field(PRISM_ACTIVITIES.ACTION_ID),
             PRISM_ACTIONS.ACTION_ID,
             PRISM_ACTIONS.ACTION,
             PRISM_ACTIONS,
@@ -585,7 +1542,7 @@ public class SqlActivityQueryBuilder {
         // Affected Blocks
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.AFFECTED_BLOCK_ID,
+            source.field(PRISM_ACTIVITIES.AFFECTED_BLOCK_ID),
             PRISM_BLOCKS.BLOCK_ID,
             PRISM_BLOCKS.NAME,
             PRISM_BLOCKS,
@@ -596,7 +1553,7 @@ public class SqlActivityQueryBuilder {
         // Cause Blocks
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.CAUSE_BLOCK_ID,
+            source.field(PRISM_ACTIVITIES.CAUSE_BLOCK_ID),
             PRISM_BLOCKS.BLOCK_ID,
             PRISM_BLOCKS.NAME,
             PRISM_BLOCKS,
@@ -607,7 +1564,7 @@ public class SqlActivityQueryBuilder {
         // Affected Entity Types
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.AFFECTED_ENTITY_TYPE_ID,
+            source.field(PRISM_ACTIVITIES.AFFECTED_ENTITY_TYPE_ID),
             PRISM_ENTITY_TYPES.ENTITY_TYPE_ID,
             PRISM_ENTITY_TYPES.ENTITY_TYPE,
             PRISM_ENTITY_TYPES,
@@ -618,7 +1575,7 @@ public class SqlActivityQueryBuilder {
         // Cause Entity Types
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.CAUSE_ENTITY_TYPE_ID,
+            source.field(PRISM_ACTIVITIES.CAUSE_ENTITY_TYPE_ID),
             PRISM_ENTITY_TYPES.ENTITY_TYPE_ID,
             PRISM_ENTITY_TYPES.ENTITY_TYPE,
             PRISM_ENTITY_TYPES,
@@ -629,7 +1586,7 @@ public class SqlActivityQueryBuilder {
         // Named Causes
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.CAUSE_ID,
+            source.field(PRISM_ACTIVITIES.CAUSE_ID),
             PRISM_CAUSES.CAUSE_ID,
             PRISM_CAUSES.CAUSE,
             PRISM_CAUSES,
@@ -640,7 +1597,7 @@ public class SqlActivityQueryBuilder {
         // Materials
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.AFFECTED_ITEM_ID,
+            source.field(PRISM_ACTIVITIES.AFFECTED_ITEM_ID),
             PRISM_ITEMS.ITEM_ID,
             PRISM_ITEMS.MATERIAL,
             PRISM_ITEMS,
@@ -651,7 +1608,7 @@ public class SqlActivityQueryBuilder {
         // Affected Players
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.AFFECTED_PLAYER_ID,
+            source.field(PRISM_ACTIVITIES.AFFECTED_PLAYER_ID),
             PRISM_PLAYERS.PLAYER_ID,
             PRISM_PLAYERS.PLAYER,
             PRISM_PLAYERS,
@@ -662,7 +1619,7 @@ public class SqlActivityQueryBuilder {
         // Cause Players
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.CAUSE_PLAYER_ID,
+            source.field(PRISM_ACTIVITIES.CAUSE_PLAYER_ID),
             PRISM_PLAYERS.PLAYER_ID,
             PRISM_PLAYERS.PLAYER,
             PRISM_PLAYERS,
@@ -673,7 +1630,7 @@ public class SqlActivityQueryBuilder {
         // World
         addLookupConditions(
             conditions,
-            PRISM_ACTIVITIES.WORLD_ID,
+            source.field(PRISM_ACTIVITIES.WORLD_ID),
             PRISM_WORLDS.WORLD_ID,
             PRISM_WORLDS.WORLD_UUID,
             PRISM_WORLDS,
@@ -682,11 +1639,11 @@ public class SqlActivityQueryBuilder {
         );
 
         if (query.worldId() != null) {
-            conditions.add(PRISM_ACTIVITIES.WORLD_ID.eq(UInteger.valueOf(query.worldId())));
+            conditions.add(source.field(PRISM_ACTIVITIES.WORLD_ID).eq(UInteger.valueOf(query.worldId())));
         }
 
         if (query.worldIdExcluded() != null) {
-            conditions.add(PRISM_ACTIVITIES.WORLD_ID.ne(UInteger.valueOf(query.worldIdExcluded())));
+            conditions.add(source.field(PRISM_ACTIVITIES.WORLD_ID).ne(UInteger.valueOf(query.worldIdExcluded())));
         }
 
         return conditions;
@@ -769,6 +1726,22 @@ public class SqlActivityQueryBuilder {
         }
     }
 
+    /**
+     * Get the conditions matching activities whose descriptor contains the given text.
+     *
+     * <p>Postgres and ClickHouse match this against their text indexes as is. Builders
+     * for databases that can only search indexed words add those conditions alongside.</p>
+     *
+     * @param descriptor The descriptor text
+     * @return The conditions
+     */
+    protected List<Condition> descriptorConditions(String descriptor) {
+        List<Condition> conditions = new ArrayList<>();
+        conditions.add(PRISM_ACTIVITIES.DESCRIPTOR.likeIgnoreCase(String.format("%%%s%%", descriptor)));
+
+        return conditions;
+    }
+
     /**
      * Get all conditions for the query.
      *
@@ -825,7 +1798,7 @@ public class SqlActivityQueryBuilder {
 
         // Query
         if (query.descriptor() != null) {
-            conditions.add(PRISM_ACTIVITIES.DESCRIPTOR.likeIgnoreCase(String.format("%%%s%%", query.descriptor())));
+            conditions.addAll(descriptorConditions(query.descriptor()));
         }
 
         // Reversed
@@ -0,0 +1,264 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_META;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.ROLLUPS_META_KEY;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.exception.DataChangedException;
+import org.jooq.impl.DSL;
+import org.prism_mc.prism.api.activities.ActivityQuery;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+
+/**
+ * Keeps the hourly rollups in step with the activities table.
+ *
+ * <p>Activities are rolled up by primary key range, and the highest rolled up activity id
+ * is stored in the meta table in the same transaction as the rollups, so every activity is
+ * counted exactly once even across restarts.</p>
+ *
+ * <p>Batches don't hand back generated keys and several can write at once, so each registers
+ * the highest activity id that existed before it wrote. Refreshes never go past the lowest
+ * registered id, because anything above it may belong to a batch that hasn't finished. Only
+ * batches from this server are seen, so when several servers write to the same tables an
+ * activity committed late by another server can be left out of the rollups.</p>
+ *
+ * <p>The watermark only moves forward from the value this tracker last saw. If another server
+ * sharing the database moved it first, the refresh is rolled back and resumes from the stored
+ * watermark, so no range is ever counted twice.</p>
+ *
+ * <p>Refreshes are coalesced. A batch finishing while another thread is refreshing leaves its
+ * range to that thread instead of waiting for it.</p>
+ */
+public class SqlActivityRollupTracker {
+
+    /**
+     * The number of activity ids rolled up per transaction.
+     */
+    protected static final int ROLLUP_WINDOW = 50000;
+
+    /**
+     * The logging service.
+     */
+    private final LoggingService loggingService;
+
+    /**
+     * The dsl context.
+     */
+    private final DSLContext dslContext;
+
+    /**
+     * The query builder.
+     */
+    private final SqlActivityQueryBuilder queryBuilder;
+
+    /**
+     * The starting marks of batches currently writing, with how many share each mark.
+     */
+    private final NavigableMap<Long, Integer> writing = new TreeMap<>();
+
+    /**
+     * Whether a thread is refreshing the rollups.
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * Whether a refresh was requested since the running one started.
+     */
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    /**
+     * The highest activity id counted in the rollups.
+     */
+    private volatile long rolledUpActivityId;
+
+    /**
+     * Construct a new rollup tracker.
+     *
+     * @param loggingService The logging service
+     * @param dslContext The DSL context
+     * @param queryBuilder The query builder
+     * @param rolledUpActivityId The highest activity id already counted in the rollups
+     */
+    public SqlActivityRollupTracker(
+        LoggingService loggingService,
+        DSLContext dslContext,
+        SqlActivityQueryBuilder queryBuilder,
+        long rolledUpActivityId
+    ) {
+        this.loggingService = loggingService;
+        this.dslContext = dslContext;
+        this.queryBuilder = queryBuilder;
+        this.rolledUpActivityId = rolledUpActivityId;
+        queryBuilder.rolledUpActivityId(rolledUpActivityId);
+    }
+
+    /**
+     * Register a batch that's about to write.
+     *
+     * @return The mark to hand back to {@link #endWrite(long)}
+     */
+    public long beginWrite() {
+        synchronized (writing) {
+            long mark = queryBuilder.queryMaxActivityId();
+            writing.merge(mark, 1, Integer::sum);
+
+            return mark;
+        }
+    }
+
+    /**
+     * Unregister a batch that's finished writing, successfully or not, and roll up whatever
+     * is now safe to count.
+     *
+     * @param mark The mark returned by {@link #beginWrite()}
+     */
+    public void endWrite(long mark) {
+        synchronized (writing) {
+            writing.computeIfPresent(mark, (key, count) -> count > 1 ? count - 1 : null);
+        }
+
+        // The activities are saved at this point. A failed refresh is retried after the next batch
+        try {
+            requestRefresh();
+        } catch (Exception e) {
+            loggingService.handleException(e);
+        }
+    }
+
+    /**
+     * Roll up everything that's safe to count, or leave it to the thread already doing so.
+     */
+    public void requestRefresh() {
+        refreshRequested.set(true);
+
+        while (refreshRequested.get() && refreshing.compareAndSet(false, true)) {
+            try {
+                refreshRequested.set(false);
+                refresh();
+            } finally {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Roll up every activity that no in-flight batch could still be writing below.
+     */
+    private void refresh() {
+        long safeActivityId;
+        synchronized (writing) {
+            safeActivityId = writing.isEmpty() ? queryBuilder.queryMaxActivityId() : writing.firstKey();
+        }
+
+        while (rolledUpActivityId < safeActivityId) {
+            // Each window shuts out updates and purges, which also change the rollups
+            synchronized (this) {
+                long after = rolledUpActivityId;
+                long through = Math.min(after + ROLLUP_WINDOW, safeActivityId);
+
+                try {
+                    dslContext.transaction(configuration -> {
+                        DSLContext context = DSL.using(configuration);
+                        queryBuilder.rollUpActivities(context, after, through);
+
+                        int updated = context
+                            .update(PRISM_META)
+                            .set(PRISM_META.V, String.valueOf(through))
+                            .where(PRISM_META.K.eq(ROLLUPS_META_KEY))
+                            .and(PRISM_META.V.eq(String.valueOf(after)))
+                            .execute();
+
+                        if (updated == 0) {
+                            throw new DataChangedException("Rollup watermark moved past " + after);
+                        }
+                    });
+
+                    rolledUpActivityId = through;
+                } catch (DataChangedException e) {
+                    // Another server rolled up this range first, so continue from where it stopped
+                    String stored = dslContext
+                        .select(PRISM_META.V)
+                        .from(PRISM_META)
+                        .where(PRISM_META.K.eq(ROLLUPS_META_KEY))
+                        .fetchOne(PRISM_META.V);
+
+                    if (stored == null) {
+                        throw e;
+                    }
+
+                    rolledUpActivityId = Long.parseLong(stored);
+                }
+
+                queryBuilder.rolledUpActivityId(rolledUpActivityId);
+            }
+        }
+    }
+
+    /**
+     * Run an update that changes grouped columns of activities.
+     *
+     * <p>Refreshes wait until the update finishes, so they can't count activities between the
+     * update taking them out of the rollups and adding them back.</p>
+     *
+     * @param update The update, receiving the highest activity id counted in the rollups
+     */
+    public synchronized void updateCounted(LongConsumer update) {
+        update.accept(rolledUpActivityId);
+    }
+
+    /**
+     * Delete activities and remove them from the rollups.
+     *
+     * <p>The rollup reductions are read before the delete but only applied after it succeeds,
+     * so a failed delete leaves the rollups untouched.</p>
+     *
+     * @param writer The query builder writes go through
+     * @param query The purge query
+     * @param cycleMinPrimaryKey The min primary key
+     * @param cycleMaxPrimaryKey The max primary key
+     * @return The number of rows deleted
+     */
+    public synchronized int deleteActivities(
+        SqlActivityQueryBuilder writer,
+        ActivityQuery query,
+        int cycleMinPrimaryKey,
+        int cycleMaxPrimaryKey
+    ) {
+        Result<Record> deltas = writer.queryRollupDeltas(query, cycleMinPrimaryKey, cycleMaxPrimaryKey);
+
+        int deleted = writer.deleteActivities(query, cycleMinPrimaryKey, cycleMaxPrimaryKey);
+
+        if (deleted > 0 && deltas.isNotEmpty()) {
+            writer.applyRollupDeltas(deltas);
+            writer.deleteEmptyRollups();
+        }
+
+        return deleted;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import org.prism_mc.prism.api.storage.wal.WalRecord;
+
+/**
+ * An activity read from the activities table as a flat record, for copying it to other storage.
+ *
+ * @param activityId The activity id
+ * @param record The activity values, with every lookup resolved
+ * @param reversed Whether the activity is reversed
+ */
+public record SqlExportedActivity(long activityId, WalRecord record, boolean reversed) {}
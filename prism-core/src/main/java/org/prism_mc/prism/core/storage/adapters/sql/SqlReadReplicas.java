@@ -0,0 +1,199 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DataSourceConnectionProvider;
+import org.prism_mc.prism.core.injection.factories.SqlActivityQueryBuilderFactory;
+import org.prism_mc.prism.loader.services.configuration.storage.ReadReplicaConfiguration;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+
+/**
+ * Routes reads to read-only replicas of the primary database.
+ *
+ * <p>Replicas are used in turn. After a write that players expect to see right away (a rollback
+ * marking activities reversed, a purge, an airtag change) reads go to the primary for a while so
+ * they don't show replica lag. Recording batches don't count, or reads would never leave the
+ * primary. Rollbacks and restores never read from a replica.</p>
+ *
+ * <p>Replicas reuse the primary's hikari settings with their own jdbc url, so they're skipped
+ * when the primary connects through a data source class instead.</p>
+ */
+public class SqlReadReplicas {
+
+    /**
+     * The replica data sources.
+     */
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+
+    /**
+     * The dsl contexts, one per replica.
+     */
+    private final List<DSLContext> dslContexts = new ArrayList<>();
+
+    /**
+     * The query builders, one per replica.
+     */
+    private final List<SqlActivityQueryBuilder> queryBuilders = new ArrayList<>();
+
+    /**
+     * The replica the next read goes to.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * How long reads stay on the primary after a write, in nanoseconds.
+     */
+    private final long readYourWritesNanos;
+
+    /**
+     * When the last write finished, or zero if there hasn't been one.
+     */
+    private volatile long lastWriteNanos = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param loggingService The logging service
+     * @param configuration The read replica configuration
+     * @param primaryHikariConfig The hikari config of the primary
+     * @param primaryContext The dsl context of the primary
+     * @param queryBuilderFactory The query builder factory
+     */
+    public SqlReadReplicas(
+        LoggingService loggingService,
+        ReadReplicaConfiguration configuration,
+        HikariConfig primaryHikariConfig,
+        DSLContext primaryContext,
+        SqlActivityQueryBuilderFactory queryBuilderFactory
+    ) {
+        this.readYourWritesNanos = TimeUnit.SECONDS.toNanos(Math.max(0, configuration.readYourWritesSeconds()));
+
+        // Hikari ignores the jdbc url once a data source is named, so replicas would connect to the primary
+        if (
+            primaryHikariConfig.getDataSourceClassName() != null ||
+            primaryHikariConfig.getDataSource() != null ||
+            primaryHikariConfig.getDataSourceJNDI() != null
+        ) {
+            loggingService.warn(
+                "Read replicas need a jdbc url, but the primary connects through a data source. Skipping them."
+            );
+
+            return;
+        }
+
+        for (String jdbcUrl : configuration.jdbcUrls()) {
+            var hikariConfig = new HikariConfig();
+            primaryHikariConfig.copyStateTo(hikariConfig);
+            hikariConfig.setJdbcUrl(jdbcUrl);
+            hikariConfig.setPoolName("prism-replica-" + (dataSources.size() + 1));
+            hikariConfig.setReadOnly(true);
+
+            try {
+                var dataSource = new HikariDataSource(hikariConfig);
+                var dslContext = DSL.using(
+                    primaryContext.configuration().derive(new DataSourceConnectionProvider(dataSource))
+                );
+
+                dataSources.add(dataSource);
+                dslContexts.add(dslContext);
+                queryBuilders.add(queryBuilderFactory.create(dslContext));
+
+                loggingService.info("Connected to read replica {0}", jdbcUrl);
+            } catch (Exception e) {
+                loggingService.warn("Failed to connect to read replica {0}. Skipping it.", jdbcUrl);
+                loggingService.handleException(e);
+            }
+        }
+    }
+
+    /**
+     * Whether any replica is connected.
+     *
+     * @return True if reads can be routed to a replica
+     */
+    public boolean available() {
+        return !dataSources.isEmpty();
+    }
+
+    /**
+     * Record a write that reads should see right away.
+     */
+    public void markWrite() {
+        if (readYourWritesNanos > 0) {
+            lastWriteNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Pick the replica the next read goes to.
+     *
+     * @return The replica index, or -1 to read from the primary
+     */
+    private int nextReplica() {
+        long lastWrite = lastWriteNanos;
+        if (lastWrite != 0 && System.nanoTime() - lastWrite < readYourWritesNanos) {
+            return -1;
+        }
+
+        return Math.floorMod(next.getAndIncrement(), dataSources.size());
+    }
+
+    /**
+     * Get the query builder the next read should use.
+     *
+     * @param primary The primary's query builder
+     * @return The query builder
+     */
+    public SqlActivityQueryBuilder queryBuilder(SqlActivityQueryBuilder primary) {
+        int replica = nextReplica();
+
+        return replica < 0 ? primary : queryBuilders.get(replica);
+    }
+
+    /**
+     * Get the dsl context the next read should use.
+     *
+     * @param primary The primary's dsl context
+     * @return The dsl context
+     */
+    public DSLContext dslContext(DSLContext primary) {
+        int replica = nextReplica();
+
+        return replica < 0 ? primary : dslContexts.get(replica);
+    }
+
+    /**
+     * Close the replica connections.
+     */
+    public void close() {
+        for (var dataSource : dataSources) {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConnectionProvider;
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.storage.ActivityBatch;
+import org.prism_mc.prism.api.storage.wal.WalRecord;
+import org.prism_mc.prism.core.services.cache.CacheService;
+
+/**
+ * Collects a recording batch and saves it on the single writer thread.
+ *
+ * <p>Activities are only held in memory until the batch commits. The writer then replays them
+ * through the usual recording batch inside one transaction on its own connection, and any
+ * wrapping batches (display projection, descriptor tokens, rollups) run once that transaction
+ * is committed.</p>
+ */
+public class SqlSerializedActivityBatch implements ActivityBatch {
+
+    /**
+     * The write executor.
+     */
+    private final SqlWriteExecutor writeExecutor;
+
+    /**
+     * The cache service.
+     */
+    private final CacheService cacheService;
+
+    /**
+     * The jooq configuration of the shared pool.
+     */
+    private final Configuration configuration;
+
+    /**
+     * Creates the recording batch for a transaction.
+     */
+    private final Function<DSLContext, ActivityBatch> recordingBatchFactory;
+
+    /**
+     * Wraps the recording batch with any side table batches.
+     */
+    private final Function<ActivityBatch, ActivityBatch> batchWrapper;
+
+    /**
+     * The activities and wal records to save, in the order they were added.
+     */
+    private List<Object> entries = new ArrayList<>();
+
+    /**
+     * Construct a new batch handler.
+     *
+     * @param writeExecutor The write executor
+     * @param cacheService The cache service
+     * @param configuration The jooq configuration of the shared pool
+     * @param recordingBatchFactory Creates the recording batch for a transaction
+     * @param batchWrapper Wraps the recording batch with any side table batches
+     */
+    public SqlSerializedActivityBatch(
+        SqlWriteExecutor writeExecutor,
+        CacheService cacheService,
+        Configuration configuration,
+        Function<DSLContext, ActivityBatch> recordingBatchFactory,
+        Function<ActivityBatch, ActivityBatch> batchWrapper
+    ) {
+        this.writeExecutor = writeExecutor;
+        this.cacheService = cacheService;
+        this.configuration = configuration;
+        this.recordingBatchFactory = recordingBatchFactory;
+        this.batchWrapper = batchWrapper;
+    }
+
+    @Override
+    public void startBatch() {
+        entries = new ArrayList<>();
+    }
+
+    @Override
+    public void add(Activity activity) {
+        entries.add(activity);
+    }
+
+    @Override
+    public void addFromWalRecord(WalRecord record) {
+        entries.add(record);
+    }
+
+    @Override
+    public void commitBatch() {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        List<Object> pending = entries;
+        entries = new ArrayList<>();
+
+        writeExecutor.execute(() -> {
+            save(pending);
+
+            return null;
+        });
+    }
+
+    /**
+     * Save the entries in one transaction. Runs on the writer thread.
+     *
+     * @param pending The entries
+     * @throws Exception Database exception
+     */
+    private void save(List<Object> pending) throws Exception {
+        try (Connection connection = writeExecutor.dataSource().getConnection()) {
+            connection.setAutoCommit(false);
+
+            try {
+                var transactionContext = DSL.using(configuration.derive(new DefaultConnectionProvider(connection)));
+                var batch = batchWrapper.apply(
+                    new TransactionCommittingBatch(recordingBatchFactory.apply(transactionContext), connection)
+                );
+
+                batch.startBatch();
+
+                for (Object entry : pending) {
+                    if (entry instanceof Activity activity) {
+                        batch.add(activity);
+                    } else {
+                        batch.addFromWalRecord((WalRecord) entry);
+                    }
+                }
+
+                batch.commitBatch();
+            } catch (Exception e) {
+                connection.rollback();
+
+                // Lookup rows created in the rolled back transaction are gone, but their keys were cached
+                cacheService.primaryKeyCaches().values().forEach(Cache::invalidateAll);
+
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Commits the transaction as soon as the recording batch is written, so wrapping batches
+     * see the new activities.
+     */
+    private static class TransactionCommittingBatch implements ActivityBatch {
+
+        /**
+         * The recording batch.
+         */
+        private final ActivityBatch delegate;
+
+        /**
+         * The transaction's connection.
+         */
+        private final Connection connection;
+
+        /**
+         * Construct a new batch handler.
+         *
+         * @param delegate The recording batch
+         * @param connection The transaction's connection
+         */
+        TransactionCommittingBatch(ActivityBatch delegate, Connection connection) {
+            this.delegate = delegate;
+            this.connection = connection;
+        }
+
+        @Override
+        public void startBatch() throws Exception {
+            delegate.startBatch();
+        }
+
+        @Override
+        public void add(Activity activity) throws Exception {
+            delegate.add(activity);
+        }
+
+        @Override
+        public void addFromWalRecord(WalRecord record) throws Exception {
+            delegate.addFromWalRecord(record);
+        }
+
+        @Override
+        public void commitBatch() throws Exception {
+            delegate.commitBatch();
+            connection.commit();
+        }
+    }
+}
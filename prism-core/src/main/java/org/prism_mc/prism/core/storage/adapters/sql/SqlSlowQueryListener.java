@@ -0,0 +1,168 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.ExecuteType;
+import org.jooq.Query;
+import org.prism_mc.prism.core.services.slowqueries.SlowQuery;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+
+/**
+ * Times reads and records any that exceed the slow query threshold.
+ *
+ * <p>Only the time until the database starts returning rows is measured, so lazy cursors
+ * aren't penalized for how slowly their caller consumes them. That's also the part the query
+ * plan decides. Plans are captured once the statement has finished, on the slow query service's
+ * thread, using a separate context without this listener.</p>
+ */
+public class SqlSlowQueryListener implements ExecuteListener {
+
+    /**
+     * The execute context key holding the statement start time.
+     */
+    private static final String STARTED_AT = "prism.slow-query.started-at";
+
+    /**
+     * The execute context key holding the duration of a slow statement.
+     */
+    private static final String DURATION = "prism.slow-query.duration";
+
+    /**
+     * The logging service.
+     */
+    private final LoggingService loggingService;
+
+    /**
+     * The slow query service.
+     */
+    private final SlowQueryService slowQueryService;
+
+    /**
+     * The DSL context used to explain slow queries.
+     */
+    private final DSLContext explainContext;
+
+    /**
+     * Whether to capture query plans.
+     */
+    private final boolean explain;
+
+    /**
+     * Construct a new slow query listener.
+     *
+     * @param loggingService The logging service
+     * @param slowQueryService The slow query service
+     * @param explainContext The DSL context used to explain slow queries
+     * @param explain Whether to capture query plans
+     */
+    public SqlSlowQueryListener(
+        LoggingService loggingService,
+        SlowQueryService slowQueryService,
+        DSLContext explainContext,
+        boolean explain
+    ) {
+        this.loggingService = loggingService;
+        this.slowQueryService = slowQueryService;
+        this.explainContext = explainContext;
+        this.explain = explain;
+    }
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        if (ctx.type() == ExecuteType.READ) {
+            ctx.data(STARTED_AT, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        if (!(ctx.data(STARTED_AT) instanceof Long startedAt)) {
+            return;
+        }
+
+        long durationMs = (System.nanoTime() - startedAt) / 1_000_000;
+        int thresholdMs = slowQueryService.thresholdMs();
+        if (thresholdMs > 0 && durationMs >= thresholdMs) {
+            ctx.data(DURATION, durationMs);
+        }
+    }
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        if (!(ctx.data(DURATION) instanceof Long durationMs)) {
+            return;
+        }
+
+        Query query = ctx.query();
+        String sql = ctx.sql();
+        Object[] bindValues = query != null ? query.getBindValues().toArray() : new Object[0];
+
+        if (!explain || query == null) {
+            record(durationMs, sql, bindValues, null);
+
+            return;
+        }
+
+        // Explain a copy of the statement, so the original query object isn't shared across threads
+        boolean queued = slowQueryService.capturePlan(() -> {
+            String plan;
+            try {
+                plan = explainContext.explain(explainContext.query(sql, bindValues)).plan();
+            } catch (Exception e) {
+                plan = "Unavailable: " + e.getMessage();
+            }
+
+            record(durationMs, sql, bindValues, plan);
+        });
+
+        if (!queued) {
+            record(durationMs, sql, bindValues, "Unavailable: too many plans are waiting to be captured");
+        }
+    }
+
+    /**
+     * Record and log a slow query.
+     *
+     * @param durationMs The duration in milliseconds
+     * @param sql The SQL
+     * @param bindValues The bind values
+     * @param plan The query plan, or null
+     */
+    private void record(long durationMs, String sql, Object[] bindValues, String plan) {
+        List<String> bindValueStrings = Arrays.stream(bindValues).map(Objects::toString).toList();
+
+        slowQueryService.record(new SlowQuery(Instant.now(), durationMs, sql, bindValueStrings, plan));
+
+        loggingService.warn("Slow query ({0} ms): {1}", durationMs, sql);
+        loggingService.warn("Bind values: {0}", bindValueStrings);
+        if (plan != null) {
+            loggingService.warn("Query plan:\n{0}", plan);
+        }
+    }
+}
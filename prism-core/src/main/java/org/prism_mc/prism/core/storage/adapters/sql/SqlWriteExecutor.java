@@ -0,0 +1,137 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.jooq.exception.DataAccessException;
+
+/**
+ * Runs every write to a file-based database on one thread.
+ *
+ * <p>SQLite (and to a lesser degree H2) only allow one writer at a time, so recording workers,
+ * purge cycles, and rollbacks writing concurrently just wait on each other's locks and fail with
+ * busy errors. Queuing the writes here means they never contend, while lookups keep reading
+ * through the shared pool.</p>
+ *
+ * <p>Recording batches use a connection from a dedicated single-connection pool so the writer
+ * never waits on lookups for a connection, and each batch is saved in one transaction.</p>
+ */
+public class SqlWriteExecutor {
+
+    /**
+     * The writer thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The pool holding the writer's connection.
+     */
+    private final HikariDataSource dataSource;
+
+    /**
+     * The thread writes run on.
+     */
+    private volatile Thread writerThread;
+
+    /**
+     * Constructor.
+     *
+     * @param hikariConfig The hikari config of the shared pool
+     */
+    public SqlWriteExecutor(HikariConfig hikariConfig) {
+        var writerConfig = new HikariConfig();
+        hikariConfig.copyStateTo(writerConfig);
+        writerConfig.setPoolName("prism-writer");
+        writerConfig.setMinimumIdle(1);
+        writerConfig.setMaximumPoolSize(1);
+        writerConfig.setAutoCommit(true);
+
+        this.dataSource = new HikariDataSource(writerConfig);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "prism-sql-writer");
+            t.setDaemon(true);
+            writerThread = t;
+            return t;
+        });
+    }
+
+    /**
+     * Get the data source recording batches write through.
+     *
+     * @return The data source
+     */
+    public HikariDataSource dataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Run a write on the writer thread and wait for it to finish.
+     *
+     * <p>Writes made from the writer thread itself run immediately.</p>
+     *
+     * @param task The write
+     * @return The write's result
+     */
+    public <T> T execute(Callable<T> task) {
+        try {
+            if (Thread.currentThread() == writerThread) {
+                return task.call();
+            }
+
+            return executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new DataAccessException("Interrupted while waiting for a write", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw new DataAccessException(e.getCause().getMessage(), e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DataAccessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finish queued writes and close the writer's connection.
+     */
+    public void close() {
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        dataSource.close();
+    }
+}
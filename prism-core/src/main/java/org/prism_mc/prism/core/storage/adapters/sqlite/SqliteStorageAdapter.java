@@ -29,6 +29,7 @@ import org.jooq.SQLDialect;
 import org.prism_mc.prism.api.actions.types.ActionTypeRegistry;
 import org.prism_mc.prism.core.injection.factories.FileSqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.core.storage.HikariConfigFactories;
 import org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlSchemaUpdater;
@@ -56,6 +57,7 @@ public class SqliteStorageAdapter extends AbstractSqlStorageAdapter {
         SqlSchemaUpdater schemaUpdater,
         FileSqlActivityQueryBuilderFactory queryBuilderFactory,
         CacheService cacheService,
+        SlowQueryService slowQueryService,
         @Named("serializerVersion") short serializerVersion,
         Path dataPath
     ) {
@@ -66,6 +68,7 @@ public class SqliteStorageAdapter extends AbstractSqlStorageAdapter {
             schemaUpdater,
             null,
             cacheService,
+            slowQueryService,
             serializerVersion,
             dataPath
         );
@@ -89,6 +92,8 @@ public class SqliteStorageAdapter extends AbstractSqlStorageAdapter {
 
                 prepareSchema();
 
+                startWriteExecutor(configurationService.storageConfig().sqlite(), queryBuilderFactory);
+
                 ready = true;
             }
         } catch (Exception e) {
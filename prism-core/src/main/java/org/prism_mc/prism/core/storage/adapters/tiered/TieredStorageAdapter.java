@@ -0,0 +1,502 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.tiered;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.prism_mc.prism.api.activities.AbstractActivity;
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.activities.ActivityQuery;
+import org.prism_mc.prism.api.services.airtags.AirtagSummary;
+import org.prism_mc.prism.api.services.modifications.ActivityStream;
+import org.prism_mc.prism.api.services.pagination.PartialListPaginationResult;
+import org.prism_mc.prism.api.storage.ActivityBatch;
+import org.prism_mc.prism.api.storage.StorageAdapter;
+import org.prism_mc.prism.api.storage.StorageConnectionStatus;
+import org.prism_mc.prism.api.storage.World;
+import org.prism_mc.prism.api.util.Pair;
+import org.prism_mc.prism.core.storage.adapters.clickhouse.ClickhouseStorageAdapter;
+import org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter;
+import org.prism_mc.prism.core.storage.adapters.sql.SqlExportedActivity;
+import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
+import org.prism_mc.prism.loader.services.configuration.storage.TieredStorageConfiguration;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+
+/**
+ * Keeps recent activities in the primary (hot) storage and moves older ones to ClickHouse (cold).
+ *
+ * <p>Activities are always recorded to the hot storage. A background task periodically copies
+ * activities older than the configured age to the cold storage, keeping their activity ids, and
+ * deletes them from the hot storage. Reads go to whichever tiers the query's time range can
+ * reach and the results are merged, newest first unless the query sorts ascending.</p>
+ */
+@Singleton
+public class TieredStorageAdapter implements StorageAdapter {
+
+    /**
+     * The logging service.
+     */
+    private final LoggingService loggingService;
+
+    /**
+     * The tiered storage configuration.
+     */
+    private final TieredStorageConfiguration tieredConfig;
+
+    /**
+     * The hot storage, which records every activity.
+     */
+    private final AbstractSqlStorageAdapter hot;
+
+    /**
+     * The cold storage, or null if it isn't available.
+     */
+    private final ClickhouseStorageAdapter cold;
+
+    /**
+     * Held while a batch moves between tiers or reversals are marked, so an activity never
+     * changes tiers while its reversed state is being written.
+     */
+    private final Object migrationLock = new Object();
+
+    /**
+     * The scheduler moving activities to the cold storage.
+     */
+    private ScheduledExecutorService migrationScheduler;
+
+    /**
+     * The timestamp (epoch seconds) before which every activity has been moved to the cold storage.
+     */
+    private volatile long coldThrough = 0;
+
+    /**
+     * The timestamp (epoch seconds) at and after which the cold storage holds no activities,
+     * or {@link Long#MAX_VALUE} while that isn't known.
+     */
+    private volatile long coldBefore = Long.MAX_VALUE;
+
+    /**
+     * Constructor.
+     *
+     * @param loggingService The logging service
+     * @param configurationService The configuration service
+     * @param hot The hot storage
+     * @param cold The cold storage
+     */
+    @Inject
+    public TieredStorageAdapter(
+        LoggingService loggingService,
+        ConfigurationService configurationService,
+        @Named("hotStorage") AbstractSqlStorageAdapter hot,
+        ClickhouseStorageAdapter cold
+    ) {
+        this.loggingService = loggingService;
+        this.tieredConfig = configurationService.storageConfig().tiered();
+        this.hot = hot;
+
+        if (cold.ready()) {
+            this.cold = cold;
+        } else {
+            this.cold = null;
+
+            loggingService.warn("ClickHouse is unavailable, so older activities will stay in the primary storage");
+        }
+
+        if (hot.ready() && this.cold != null) {
+            migrationScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "prism-tier-migration");
+                t.setDaemon(true);
+                return t;
+            });
+            migrationScheduler.scheduleWithFixedDelay(
+                this::migrate,
+                0,
+                Math.max(1, tieredConfig.migrationIntervalMinutes()),
+                TimeUnit.MINUTES
+            );
+        }
+    }
+
+    /**
+     * Move activities older than the configured age from the hot storage to the cold storage.
+     *
+     * <p>Activities are copied in primary key order, a batch at a time, and each batch is only
+     * deleted from the hot storage once the cold storage has them. The cold storage skips ids it
+     * already holds, so a batch left behind by a crash or a failed delete is only deleted the
+     * next time round.</p>
+     */
+    private void migrate() {
+        long cutoff = Instant.now().getEpochSecond() - TimeUnit.DAYS.toSeconds(tieredConfig.hotDays());
+        int batchSize = Math.max(1, tieredConfig.migrationBatchSize());
+
+        if (coldBefore != Long.MAX_VALUE) {
+            coldBefore = Math.max(coldBefore, cutoff);
+        }
+
+        try {
+            long afterActivityId = 0;
+            int moved = 0;
+
+            while (true) {
+                List<SqlExportedActivity> activities;
+
+                synchronized (migrationLock) {
+                    activities = hot.exportActivities(afterActivityId, cutoff, batchSize);
+                    if (activities.isEmpty()) {
+                        break;
+                    }
+
+                    cold.importActivities(activities);
+                    hot.deleteActivities(
+                        ActivityQuery.builder().before(cutoff).build(),
+                        (int) activities.getFirst().activityId(),
+                        (int) activities.getLast().activityId()
+                    );
+                }
+
+                long last = activities.getLast().activityId();
+
+                moved += activities.size();
+                afterActivityId = last;
+
+                if (activities.size() < batchSize) {
+                    break;
+                }
+            }
+
+            coldThrough = cutoff;
+
+            // Older settings may have moved newer activities, so check before skipping the cold storage
+            if (
+                coldBefore == Long.MAX_VALUE &&
+                cold.countActivities(ActivityQuery.builder().after(cutoff).build()) == 0
+            ) {
+                coldBefore = cutoff;
+            }
+
+            if (moved > 0) {
+                loggingService.info("Moved {0} activities to ClickHouse", moved);
+            }
+        } catch (Exception e) {
+            loggingService.handleException(e);
+        }
+    }
+
+    /**
+     * Get the storage tiers a query's time range can reach, oldest tier first.
+     *
+     * @param query The activity query
+     * @return The storage tiers
+     */
+    private List<StorageAdapter> tiers(ActivityQuery query) {
+        List<StorageAdapter> tiers = new ArrayList<>();
+
+        if (cold != null && (query.after() == null || query.after() < coldBefore)) {
+            tiers.add(cold);
+        }
+
+        if (tiers.isEmpty() || query.before() == null || query.before() >= coldThrough) {
+            tiers.add(hot);
+        }
+
+        return tiers;
+    }
+
+    /**
+     * Get the storage tiers a query's time range can reach, in the query's sort order.
+     *
+     * @param query The activity query
+     * @return The storage tiers
+     */
+    private List<StorageAdapter> sortedTiers(ActivityQuery query) {
+        List<StorageAdapter> tiers = tiers(query);
+
+        return query.sort() == ActivityQuery.Sort.ASCENDING ? tiers : tiers.reversed();
+    }
+
+    @Override
+    public void close() {
+        if (migrationScheduler != null) {
+            migrationScheduler.shutdownNow();
+        }
+
+        hot.close();
+
+        if (cold != null) {
+            cold.close();
+        }
+    }
+
+    @Override
+    public ActivityBatch createActivityBatch() {
+        return hot.createActivityBatch();
+    }
+
+    @Override
+    public int deleteActivities(ActivityQuery query, int cycleMinPrimaryKey, int cycleMaxPrimaryKey) {
+        int deleted = 0;
+        for (var tier : tiers(query)) {
+            deleted += tier.deleteActivities(query, cycleMinPrimaryKey, cycleMaxPrimaryKey);
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public Pair<Integer, Integer> getActivitiesPkBounds(ActivityQuery query) {
+        int minPk = 0;
+        int maxPk = 0;
+        for (var tier : tiers(query)) {
+            var bounds = tier.getActivitiesPkBounds(query);
+            if (bounds.value() > 0) {
+                minPk = minPk > 0 ? Math.min(minPk, bounds.key()) : bounds.key();
+                maxPk = Math.max(maxPk, bounds.value());
+            }
+        }
+
+        return new Pair<>(minPk, maxPk);
+    }
+
+    @Override
+    public int dropActivityPartitions(ActivityQuery query) {
+        int deleted = 0;
+        for (var tier : tiers(query)) {
+            deleted += tier.dropActivityPartitions(query);
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public void markReversed(List<Long> activityIds, boolean reversed) {
+        // Activity ids are kept when moved, so each id is in one tier, and each tier only
+        // writes the ids it holds. The lock keeps ids from moving between the two writes.
+        synchronized (migrationLock) {
+            hot.markReversed(activityIds, reversed);
+
+            if (cold != null) {
+                cold.markReversed(activityIds, reversed);
+            }
+        }
+    }
+
+    @Override
+    public int countActivities(ActivityQuery query) throws Exception {
+        int count = 0;
+        for (var tier : tiers(query)) {
+            count += tier.countActivities(query);
+        }
+
+        return count;
+    }
+
+    @Override
+    public List<Activity> queryActivities(ActivityQuery query) throws Exception {
+        List<Activity> activities = new ArrayList<>();
+        queryActivities(query, activities::add);
+
+        return activities;
+    }
+
+    @Override
+    public void queryActivities(ActivityQuery query, Consumer<Activity> consumer) throws Exception {
+        int remaining = query.limit();
+        for (var tier : sortedTiers(query)) {
+            int[] read = new int[] { 0 };
+            tier.queryActivities(query.toBuilder().limit(remaining).build(), activity -> {
+                read[0]++;
+                consumer.accept(activity);
+            });
+
+            if (query.limit() > 0) {
+                remaining -= read[0];
+                if (remaining <= 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public ActivityStream streamActivities(ActivityQuery query) throws Exception {
+        // Oldest tier first, so activities at the same location are still applied in id order
+        List<ActivityStream> streams = new ArrayList<>();
+        for (var tier : tiers(query)) {
+            streams.add(tier.streamActivities(query));
+        }
+
+        return streams.size() == 1 ? streams.getFirst() : new TieredActivityStream(streams);
+    }
+
+    /**
+     * Query activities for display, merging the tiers' pages.
+     *
+     * <p>Each tier is read from the start through the end of the requested page, so the merged
+     * page is exact. Grouped activities are grouped within each tier, so a group spanning both
+     * tiers is listed once for each.</p>
+     *
+     * @param query The activity query
+     * @return Paginated list of activities
+     * @throws Exception Storage layer exception
+     */
+    @Override
+    public PartialListPaginationResult<AbstractActivity> queryActivitiesPaginated(ActivityQuery query)
+        throws Exception {
+        List<StorageAdapter> tiers = tiers(query);
+        if (tiers.size() == 1) {
+            return tiers.getFirst().queryActivitiesPaginated(query);
+        }
+
+        ActivityQuery tierQuery = query.limit() > 0
+            ? query.toBuilder().offset(0).limit(query.offset() + query.limit()).build()
+            : query;
+
+        List<AbstractActivity> activities = new ArrayList<>();
+        int totalResults = 0;
+        for (var tier : tiers) {
+            var result = tier.queryActivitiesPaginated(tierQuery);
+            activities.addAll(result.results());
+            totalResults += result.totalResults();
+        }
+
+        Comparator<AbstractActivity> comparator = Comparator.comparingLong(AbstractActivity::timestamp);
+        activities.sort(query.sort() == ActivityQuery.Sort.ASCENDING ? comparator : comparator.reversed());
+
+        if (query.limit() > 0) {
+            int fromIndex = Math.min(query.offset(), activities.size());
+            int toIndex = Math.min(query.offset() + query.limit(), activities.size());
+            activities = new ArrayList<>(activities.subList(fromIndex, toIndex));
+        }
+
+        int currentPage = query.limit() > 0 ? (query.offset() / query.limit()) + 1 : 1;
+
+        return new PartialListPaginationResult<>(activities, totalResults, query.limit(), currentPage);
+    }
+
+    @Override
+    public List<World> worlds() {
+        return hot.worlds();
+    }
+
+    @Override
+    public List<AirtagSummary> queryAirtagsForPlayer(UUID playerUuid, int limit) throws Exception {
+        return hot.queryAirtagsForPlayer(playerUuid, limit);
+    }
+
+    @Override
+    public int countAirtagsForPlayer(UUID playerUuid) throws Exception {
+        return hot.countAirtagsForPlayer(playerUuid);
+    }
+
+    @Override
+    public int createAirtag(String airtag, UUID playerUuid, String playerName) throws Exception {
+        return hot.createAirtag(airtag, playerUuid, playerName);
+    }
+
+    @Override
+    public int deleteAirtag(String airtag, UUID playerUuid) throws Exception {
+        return hot.deleteAirtag(airtag, playerUuid);
+    }
+
+    @Override
+    public boolean airtagExists(String airtag) throws Exception {
+        return hot.airtagExists(airtag);
+    }
+
+    @Override
+    public StorageConnectionStatus connectionStatus() {
+        return hot.connectionStatus();
+    }
+
+    @Override
+    public boolean ready() {
+        return hot.ready();
+    }
+
+    @Override
+    public void writeHikariPropertiesFile() throws IOException {
+        hot.writeHikariPropertiesFile();
+    }
+
+    /**
+     * Streams activities from each tier in turn.
+     */
+    private static final class TieredActivityStream implements ActivityStream {
+
+        private final List<ActivityStream> streams;
+        private int current;
+
+        TieredActivityStream(List<ActivityStream> streams) {
+            this.streams = streams;
+        }
+
+        @Override
+        public synchronized List<Activity> next(int limit) throws Exception {
+            while (current < streams.size()) {
+                List<Activity> activities = streams.get(current).next(limit);
+                if (!activities.isEmpty()) {
+                    return activities;
+                }
+
+                current++;
+            }
+
+            return List.of();
+        }
+
+        @Override
+        public synchronized void close() {
+            for (var stream : streams) {
+                stream.close();
+            }
+        }
+
+        @Override
+        public synchronized void reopen() {
+            for (var stream : streams) {
+                stream.reopen();
+            }
+
+            current = 0;
+        }
+
+        @Override
+        public int total() {
+            int total = 0;
+            for (var stream : streams) {
+                total += stream.total();
+            }
+
+            return total;
+        }
+    }
+}
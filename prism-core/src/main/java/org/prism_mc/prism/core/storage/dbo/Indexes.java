@@ -21,6 +21,8 @@
 package org.prism_mc.prism.core.storage.dbo;
 
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITIES;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DESCRIPTOR_TOKENS;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DISPLAY;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_AIRTAGS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ITEMS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_PLAYERS;
@@ -144,6 +146,13 @@ public class Indexes {
         false
     );
 
+    public static final Index PRISM_ACTIVITIES_DESCRIPTOR = Internal.createIndex(
+        DSL.name("idx_prism_descriptor"),
+        PRISM_ACTIVITIES,
+        new OrderField[] { PRISM_ACTIVITIES.DESCRIPTOR },
+        false
+    );
+
     @Deprecated
     public static final Index PRISM_ACTIVITIES_WORLDID = Internal.createIndex(
         DSL.name("idx_prism_worldId"),
@@ -152,6 +161,27 @@ public class Indexes {
         false
     );
 
+    public static final Index PRISM_ACTIVITY_DESCRIPTOR_TOKENS_ACTIVITY_ID = Internal.createIndex(
+        DSL.name("idx_prism_descriptorTokens_activityId"),
+        PRISM_ACTIVITY_DESCRIPTOR_TOKENS,
+        new OrderField[] { PRISM_ACTIVITY_DESCRIPTOR_TOKENS.ACTIVITY_ID },
+        false
+    );
+
+    public static final Index PRISM_ACTIVITY_DISPLAY_CAUSE_PLAYER_UUID = Internal.createIndex(
+        DSL.name("idx_prism_activityDisplay_causePlayerUuid"),
+        PRISM_ACTIVITY_DISPLAY,
+        new OrderField[] { PRISM_ACTIVITY_DISPLAY.CAUSE_PLAYER_UUID },
+        false
+    );
+
+    public static final Index PRISM_ACTIVITY_DISPLAY_AFFECTED_PLAYER_UUID = Internal.createIndex(
+        DSL.name("idx_prism_activityDisplay_affectedPlayerUuid"),
+        PRISM_ACTIVITY_DISPLAY,
+        new OrderField[] { PRISM_ACTIVITY_DISPLAY.AFFECTED_PLAYER_UUID },
+        false
+    );
+
     public static final Index PRISM_ITEMS_MATERIAL = Internal.createIndex(
         DSL.name("idx_prism_material"),
         PRISM_ITEMS,
@@ -22,6 +22,9 @@ package org.prism_mc.prism.core.storage.dbo;
 
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIONS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITIES;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DESCRIPTOR_TOKENS;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DISPLAY;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_ROLLUPS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_AIRTAGS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_BLOCKS;
 import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_CAUSES;
@@ -38,6 +41,9 @@ import org.jooq.impl.DSL;
 import org.jooq.impl.Internal;
 import org.prism_mc.prism.core.storage.dbo.records.PrismActionsRecord;
 import org.prism_mc.prism.core.storage.dbo.records.PrismActivitiesRecord;
+import org.prism_mc.prism.core.storage.dbo.records.PrismActivityDescriptorTokensRecord;
+import org.prism_mc.prism.core.storage.dbo.records.PrismActivityDisplayRecord;
+import org.prism_mc.prism.core.storage.dbo.records.PrismActivityRollupsRecord;
 import org.prism_mc.prism.core.storage.dbo.records.PrismAirtagsRecord;
 import org.prism_mc.prism.core.storage.dbo.records.PrismBlocksRecord;
 import org.prism_mc.prism.core.storage.dbo.records.PrismCausesRecord;
@@ -68,6 +74,43 @@ public class Keys {
         new TableField[] { PRISM_ACTIVITIES.ACTIVITY_ID },
         true
     );
+    public static final UniqueKey<PrismActivityDescriptorTokensRecord> KEY_PRISM_ACTIVITY_DESCRIPTOR_TOKENS_PRIMARY =
+        Internal.createUniqueKey(
+            PRISM_ACTIVITY_DESCRIPTOR_TOKENS,
+            DSL.name("KEY_prism_activity_descriptor_tokens_PRIMARY"),
+            new TableField[] { PRISM_ACTIVITY_DESCRIPTOR_TOKENS.TOKEN, PRISM_ACTIVITY_DESCRIPTOR_TOKENS.ACTIVITY_ID },
+            true
+        );
+    public static final UniqueKey<PrismActivityDisplayRecord> KEY_PRISM_ACTIVITY_DISPLAY_PRIMARY =
+        Internal.createUniqueKey(
+            PRISM_ACTIVITY_DISPLAY,
+            DSL.name("KEY_prism_activity_display_PRIMARY"),
+            new TableField[] { PRISM_ACTIVITY_DISPLAY.ACTIVITY_ID },
+            true
+        );
+    public static final UniqueKey<PrismActivityRollupsRecord> KEY_PRISM_ACTIVITY_ROLLUPS_PRIMARY =
+        Internal.createUniqueKey(
+            PRISM_ACTIVITY_ROLLUPS,
+            DSL.name("KEY_prism_activity_rollups_PRIMARY"),
+            new TableField[] {
+                PRISM_ACTIVITY_ROLLUPS.BUCKET,
+                PRISM_ACTIVITY_ROLLUPS.WORLD_ID,
+                PRISM_ACTIVITY_ROLLUPS.ACTION_ID,
+                PRISM_ACTIVITY_ROLLUPS.CAUSE_ID,
+                PRISM_ACTIVITY_ROLLUPS.CAUSE_PLAYER_ID,
+                PRISM_ACTIVITY_ROLLUPS.CAUSE_ENTITY_TYPE_ID,
+                PRISM_ACTIVITY_ROLLUPS.CAUSE_BLOCK_ID,
+                PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_ID,
+                PRISM_ACTIVITY_ROLLUPS.AFFECTED_ITEM_QUANTITY,
+                PRISM_ACTIVITY_ROLLUPS.AFFECTED_BLOCK_ID,
+                PRISM_ACTIVITY_ROLLUPS.AFFECTED_ENTITY_TYPE_ID,
+                PRISM_ACTIVITY_ROLLUPS.AFFECTED_PLAYER_ID,
+                PRISM_ACTIVITY_ROLLUPS.DESCRIPTOR,
+                PRISM_ACTIVITY_ROLLUPS.METADATA,
+                PRISM_ACTIVITY_ROLLUPS.REVERSED
+            },
+            true
+        );
     public static final UniqueKey<PrismAirtagsRecord> KEY_PRISM_AIRTAGS_PRIMARY = Internal.createUniqueKey(
         PRISM_AIRTAGS,
         DSL.name("KEY_prism_airtags_PRIMARY"),
@@ -0,0 +1,73 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.dbo.records;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DESCRIPTOR_TOKENS;
+
+import org.jooq.impl.UpdatableRecordImpl;
+import org.jooq.types.UInteger;
+
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class PrismActivityDescriptorTokensRecord extends UpdatableRecordImpl<PrismActivityDescriptorTokensRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>prism_activity_descriptor_tokens.token</code>.
+     */
+    public PrismActivityDescriptorTokensRecord setToken(String value) {
+        set(0, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_descriptor_tokens.token</code>.
+     */
+    public String getToken() {
+        return (String) get(0);
+    }
+
+    /**
+     * Setter for <code>prism_activity_descriptor_tokens.activity_id</code>.
+     */
+    public PrismActivityDescriptorTokensRecord setActivityId(UInteger value) {
+        set(1, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_descriptor_tokens.activity_id</code>.
+     */
+    public UInteger getActivityId() {
+        return (UInteger) get(1);
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached PrismActivityDescriptorTokensRecord.
+     */
+    public PrismActivityDescriptorTokensRecord() {
+        super(PRISM_ACTIVITY_DESCRIPTOR_TOKENS);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.dbo.records;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DISPLAY;
+
+import org.jooq.Record1;
+import org.jooq.impl.UpdatableRecordImpl;
+import org.jooq.types.UInteger;
+
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class PrismActivityDisplayRecord extends UpdatableRecordImpl<PrismActivityDisplayRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>prism_activity_display.activity_id</code>.
+     */
+    public PrismActivityDisplayRecord setActivityId(UInteger value) {
+        set(0, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.activity_id</code>.
+     */
+    public UInteger getActivityId() {
+        return (UInteger) get(0);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.action</code>.
+     */
+    public PrismActivityDisplayRecord setAction(String value) {
+        set(1, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.action</code>.
+     */
+    public String getAction() {
+        return (String) get(1);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.world_uuid</code>.
+     */
+    public PrismActivityDisplayRecord setWorldUuid(String value) {
+        set(2, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.world_uuid</code>.
+     */
+    public String getWorldUuid() {
+        return (String) get(2);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.world</code>.
+     */
+    public PrismActivityDisplayRecord setWorld(String value) {
+        set(3, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.world</code>.
+     */
+    public String getWorld() {
+        return (String) get(3);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.block_ns</code>.
+     */
+    public PrismActivityDisplayRecord setBlockNs(String value) {
+        set(4, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.block_ns</code>.
+     */
+    public String getBlockNs() {
+        return (String) get(4);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.block_name</code>.
+     */
+    public PrismActivityDisplayRecord setBlockName(String value) {
+        set(5, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.block_name</code>.
+     */
+    public String getBlockName() {
+        return (String) get(5);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.block_translation_key</code>.
+     */
+    public PrismActivityDisplayRecord setBlockTranslationKey(String value) {
+        set(6, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.block_translation_key</code>.
+     */
+    public String getBlockTranslationKey() {
+        return (String) get(6);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.entity_type</code>.
+     */
+    public PrismActivityDisplayRecord setEntityType(String value) {
+        set(7, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.entity_type</code>.
+     */
+    public String getEntityType() {
+        return (String) get(7);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.cause</code>.
+     */
+    public PrismActivityDisplayRecord setCause(String value) {
+        set(8, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.cause</code>.
+     */
+    public String getCause() {
+        return (String) get(8);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.cause_player</code>.
+     */
+    public PrismActivityDisplayRecord setCausePlayer(String value) {
+        set(9, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.cause_player</code>.
+     */
+    public String getCausePlayer() {
+        return (String) get(9);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.cause_player_uuid</code>.
+     */
+    public PrismActivityDisplayRecord setCausePlayerUuid(String value) {
+        set(10, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.cause_player_uuid</code>.
+     */
+    public String getCausePlayerUuid() {
+        return (String) get(10);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.cause_entity_type_translation_key</code>.
+     */
+    public PrismActivityDisplayRecord setCauseEntityTypeTranslationKey(String value) {
+        set(11, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.cause_entity_type_translation_key</code>.
+     */
+    public String getCauseEntityTypeTranslationKey() {
+        return (String) get(11);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.cause_block_translation_key</code>.
+     */
+    public PrismActivityDisplayRecord setCauseBlockTranslationKey(String value) {
+        set(12, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.cause_block_translation_key</code>.
+     */
+    public String getCauseBlockTranslationKey() {
+        return (String) get(12);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.affected_player</code>.
+     */
+    public PrismActivityDisplayRecord setAffectedPlayer(String value) {
+        set(13, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.affected_player</code>.
+     */
+    public String getAffectedPlayer() {
+        return (String) get(13);
+    }
+
+    /**
+     * Setter for <code>prism_activity_display.affected_player_uuid</code>.
+     */
+    public PrismActivityDisplayRecord setAffectedPlayerUuid(String value) {
+        set(14, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_display.affected_player_uuid</code>.
+     */
+    public String getAffectedPlayerUuid() {
+        return (String) get(14);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primary key information
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Record1<UInteger> key() {
+        return (Record1) super.key();
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached PrismActivityDisplayRecord.
+     */
+    public PrismActivityDisplayRecord() {
+        super(PRISM_ACTIVITY_DISPLAY);
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.dbo.records;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_ROLLUPS;
+
+import org.jooq.impl.UpdatableRecordImpl;
+import org.jooq.types.UInteger;
+import org.jooq.types.UShort;
+
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class PrismActivityRollupsRecord extends UpdatableRecordImpl<PrismActivityRollupsRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>prism_activity_rollups.bucket</code>.
+     */
+    public PrismActivityRollupsRecord setBucket(UInteger value) {
+        set(0, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.bucket</code>.
+     */
+    public UInteger getBucket() {
+        return (UInteger) get(0);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.world_id</code>.
+     */
+    public PrismActivityRollupsRecord setWorldId(UInteger value) {
+        set(1, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.world_id</code>.
+     */
+    public UInteger getWorldId() {
+        return (UInteger) get(1);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.action_id</code>.
+     */
+    public PrismActivityRollupsRecord setActionId(UInteger value) {
+        set(2, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.action_id</code>.
+     */
+    public UInteger getActionId() {
+        return (UInteger) get(2);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.cause_id</code>.
+     */
+    public PrismActivityRollupsRecord setCauseId(UInteger value) {
+        set(3, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.cause_id</code>.
+     */
+    public UInteger getCauseId() {
+        return (UInteger) get(3);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.cause_player_id</code>.
+     */
+    public PrismActivityRollupsRecord setCausePlayerId(UInteger value) {
+        set(4, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.cause_player_id</code>.
+     */
+    public UInteger getCausePlayerId() {
+        return (UInteger) get(4);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.cause_entity_type_id</code>.
+     */
+    public PrismActivityRollupsRecord setCauseEntityTypeId(UInteger value) {
+        set(5, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.cause_entity_type_id</code>.
+     */
+    public UInteger getCauseEntityTypeId() {
+        return (UInteger) get(5);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.cause_block_id</code>.
+     */
+    public PrismActivityRollupsRecord setCauseBlockId(UInteger value) {
+        set(6, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.cause_block_id</code>.
+     */
+    public UInteger getCauseBlockId() {
+        return (UInteger) get(6);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.affected_item_id</code>.
+     */
+    public PrismActivityRollupsRecord setAffectedItemId(UInteger value) {
+        set(7, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.affected_item_id</code>.
+     */
+    public UInteger getAffectedItemId() {
+        return (UInteger) get(7);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.affected_item_quantity</code>.
+     */
+    public PrismActivityRollupsRecord setAffectedItemQuantity(UShort value) {
+        set(8, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.affected_item_quantity</code>.
+     */
+    public UShort getAffectedItemQuantity() {
+        return (UShort) get(8);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.affected_block_id</code>.
+     */
+    public PrismActivityRollupsRecord setAffectedBlockId(UInteger value) {
+        set(9, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.affected_block_id</code>.
+     */
+    public UInteger getAffectedBlockId() {
+        return (UInteger) get(9);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.affected_entity_type_id</code>.
+     */
+    public PrismActivityRollupsRecord setAffectedEntityTypeId(UInteger value) {
+        set(10, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.affected_entity_type_id</code>.
+     */
+    public UInteger getAffectedEntityTypeId() {
+        return (UInteger) get(10);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.affected_player_id</code>.
+     */
+    public PrismActivityRollupsRecord setAffectedPlayerId(UInteger value) {
+        set(11, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.affected_player_id</code>.
+     */
+    public UInteger getAffectedPlayerId() {
+        return (UInteger) get(11);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.descriptor</code>.
+     */
+    public PrismActivityRollupsRecord setDescriptor(String value) {
+        set(12, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.descriptor</code>.
+     */
+    public String getDescriptor() {
+        return (String) get(12);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.metadata</code>.
+     */
+    public PrismActivityRollupsRecord setMetadata(String value) {
+        set(13, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.metadata</code>.
+     */
+    public String getMetadata() {
+        return (String) get(13);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.reversed</code>.
+     */
+    public PrismActivityRollupsRecord setReversed(Boolean value) {
+        set(14, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.reversed</code>.
+     */
+    public Boolean getReversed() {
+        return (Boolean) get(14);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.activity_count</code>.
+     */
+    public PrismActivityRollupsRecord setActivityCount(Long value) {
+        set(15, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.activity_count</code>.
+     */
+    public Long getActivityCount() {
+        return (Long) get(15);
+    }
+
+    /**
+     * Setter for <code>prism_activity_rollups.timestamp_sum</code>.
+     */
+    public PrismActivityRollupsRecord setTimestampSum(Long value) {
+        set(16, value);
+        return this;
+    }
+
+    /**
+     * Getter for <code>prism_activity_rollups.timestamp_sum</code>.
+     */
+    public Long getTimestampSum() {
+        return (Long) get(16);
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached PrismActivityRollupsRecord.
+     */
+    public PrismActivityRollupsRecord() {
+        super(PRISM_ACTIVITY_ROLLUPS);
+    }
+}
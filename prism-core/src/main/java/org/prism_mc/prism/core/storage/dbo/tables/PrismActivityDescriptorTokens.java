@@ -0,0 +1,153 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.dbo.tables;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DESCRIPTOR_TOKENS;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_DATABASE;
+
+import org.jooq.Field;
+import org.jooq.ForeignKey;
+import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.Schema;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+import org.jooq.types.UInteger;
+import org.prism_mc.prism.core.storage.dbo.Keys;
+import org.prism_mc.prism.core.storage.dbo.records.PrismActivityDescriptorTokensRecord;
+
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class PrismActivityDescriptorTokens extends TableImpl<PrismActivityDescriptorTokensRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The table prefix.
+     */
+    private final String prefix;
+
+    /**
+     * The class holding records for this type.
+     */
+    @Override
+    public Class<PrismActivityDescriptorTokensRecord> getRecordType() {
+        return PrismActivityDescriptorTokensRecord.class;
+    }
+
+    /**
+     * The column <code>prism_activity_descriptor_tokens.token</code>.
+     */
+    public final TableField<PrismActivityDescriptorTokensRecord, String> TOKEN = createField(
+        DSL.name("token"),
+        SQLDataType.VARCHAR(64).nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_descriptor_tokens.activity_id</code>.
+     */
+    public final TableField<PrismActivityDescriptorTokensRecord, UInteger> ACTIVITY_ID = createField(
+        DSL.name("activity_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    private PrismActivityDescriptorTokens(
+        String prefix,
+        Name alias,
+        Table<PrismActivityDescriptorTokensRecord> aliased
+    ) {
+        this(prefix, alias, aliased, null);
+    }
+
+    private PrismActivityDescriptorTokens(
+        String prefix,
+        Name alias,
+        Table<PrismActivityDescriptorTokensRecord> aliased,
+        Field<?>[] parameters
+    ) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table());
+        this.prefix = prefix;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefix The prefix
+     */
+    public PrismActivityDescriptorTokens(String prefix) {
+        this(prefix, DSL.name(prefix + "activity_descriptor_tokens"), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefix The prefix
+     * @param child The child table
+     * @param key The key
+     * @param <O> The record type
+     */
+    public <O extends Record> PrismActivityDescriptorTokens(
+        String prefix,
+        Table<O> child,
+        ForeignKey<O, PrismActivityDescriptorTokensRecord> key
+    ) {
+        super(child, key, PRISM_ACTIVITY_DESCRIPTOR_TOKENS);
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : PRISM_DATABASE;
+    }
+
+    @Override
+    public UniqueKey<PrismActivityDescriptorTokensRecord> getPrimaryKey() {
+        return Keys.KEY_PRISM_ACTIVITY_DESCRIPTOR_TOKENS_PRIMARY;
+    }
+
+    @Override
+    public PrismActivityDescriptorTokens as(String alias) {
+        return new PrismActivityDescriptorTokens(prefix, DSL.name(alias), this);
+    }
+
+    @Override
+    public PrismActivityDescriptorTokens as(Name alias) {
+        return new PrismActivityDescriptorTokens(prefix, alias, this);
+    }
+
+    @Override
+    public PrismActivityDescriptorTokens rename(String name) {
+        return new PrismActivityDescriptorTokens(prefix, DSL.name(name), null);
+    }
+
+    @Override
+    public PrismActivityDescriptorTokens rename(Name name) {
+        return new PrismActivityDescriptorTokens(prefix, name, null);
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.dbo.tables;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_DISPLAY;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_DATABASE;
+
+import org.jooq.Field;
+import org.jooq.ForeignKey;
+import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.Schema;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+import org.jooq.types.UInteger;
+import org.prism_mc.prism.core.storage.dbo.Keys;
+import org.prism_mc.prism.core.storage.dbo.records.PrismActivityDisplayRecord;
+
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class PrismActivityDisplay extends TableImpl<PrismActivityDisplayRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The table prefix.
+     */
+    private final String prefix;
+
+    /**
+     * The class holding records for this type.
+     */
+    @Override
+    public Class<PrismActivityDisplayRecord> getRecordType() {
+        return PrismActivityDisplayRecord.class;
+    }
+
+    /**
+     * The column <code>prism_activity_display.activity_id</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, UInteger> ACTIVITY_ID = createField(
+        DSL.name("activity_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.action</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> ACTION = createField(
+        DSL.name("action"),
+        SQLDataType.VARCHAR(25).nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.world_uuid</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> WORLD_UUID = createField(
+        DSL.name("world_uuid"),
+        SQLDataType.CHAR(36).nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.world</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> WORLD = createField(
+        DSL.name("world"),
+        SQLDataType.VARCHAR(255).nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.block_ns</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> BLOCK_NS = createField(
+        DSL.name("block_ns"),
+        SQLDataType.VARCHAR(55),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.block_name</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> BLOCK_NAME = createField(
+        DSL.name("block_name"),
+        SQLDataType.VARCHAR(55),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.block_translation_key</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> BLOCK_TRANSLATION_KEY = createField(
+        DSL.name("block_translation_key"),
+        SQLDataType.VARCHAR(155),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.entity_type</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> ENTITY_TYPE = createField(
+        DSL.name("entity_type"),
+        SQLDataType.VARCHAR(45),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.cause</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> CAUSE = createField(
+        DSL.name("cause"),
+        SQLDataType.VARCHAR(155),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.cause_player</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> CAUSE_PLAYER = createField(
+        DSL.name("cause_player"),
+        SQLDataType.VARCHAR(32),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.cause_player_uuid</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> CAUSE_PLAYER_UUID = createField(
+        DSL.name("cause_player_uuid"),
+        SQLDataType.CHAR(36),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.cause_entity_type_translation_key</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> CAUSE_ENTITY_TYPE_TRANSLATION_KEY = createField(
+        DSL.name("cause_entity_type_translation_key"),
+        SQLDataType.VARCHAR(155),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.cause_block_translation_key</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> CAUSE_BLOCK_TRANSLATION_KEY = createField(
+        DSL.name("cause_block_translation_key"),
+        SQLDataType.VARCHAR(155),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.affected_player</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> AFFECTED_PLAYER = createField(
+        DSL.name("affected_player"),
+        SQLDataType.VARCHAR(32),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_display.affected_player_uuid</code>.
+     */
+    public final TableField<PrismActivityDisplayRecord, String> AFFECTED_PLAYER_UUID = createField(
+        DSL.name("affected_player_uuid"),
+        SQLDataType.CHAR(36),
+        this,
+        ""
+    );
+
+    private PrismActivityDisplay(String prefix, Name alias, Table<PrismActivityDisplayRecord> aliased) {
+        this(prefix, alias, aliased, null);
+    }
+
+    private PrismActivityDisplay(
+        String prefix,
+        Name alias,
+        Table<PrismActivityDisplayRecord> aliased,
+        Field<?>[] parameters
+    ) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table());
+        this.prefix = prefix;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefix The prefix
+     */
+    public PrismActivityDisplay(String prefix) {
+        this(prefix, DSL.name(prefix + "activity_display"), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefix The prefix
+     * @param child The child table
+     * @param key The key
+     * @param <O> The record type
+     */
+    public <O extends Record> PrismActivityDisplay(
+        String prefix,
+        Table<O> child,
+        ForeignKey<O, PrismActivityDisplayRecord> key
+    ) {
+        super(child, key, PRISM_ACTIVITY_DISPLAY);
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : PRISM_DATABASE;
+    }
+
+    @Override
+    public UniqueKey<PrismActivityDisplayRecord> getPrimaryKey() {
+        return Keys.KEY_PRISM_ACTIVITY_DISPLAY_PRIMARY;
+    }
+
+    @Override
+    public PrismActivityDisplay as(String alias) {
+        return new PrismActivityDisplay(prefix, DSL.name(alias), this);
+    }
+
+    @Override
+    public PrismActivityDisplay as(Name alias) {
+        return new PrismActivityDisplay(prefix, alias, this);
+    }
+
+    @Override
+    public PrismActivityDisplay rename(String name) {
+        return new PrismActivityDisplay(prefix, DSL.name(name), null);
+    }
+
+    @Override
+    public PrismActivityDisplay rename(Name name) {
+        return new PrismActivityDisplay(prefix, name, null);
+    }
+}
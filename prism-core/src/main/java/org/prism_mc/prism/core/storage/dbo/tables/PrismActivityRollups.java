@@ -0,0 +1,300 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.dbo.tables;
+
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_ACTIVITY_ROLLUPS;
+import static org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter.PRISM_DATABASE;
+
+import org.jooq.Field;
+import org.jooq.ForeignKey;
+import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.Schema;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+import org.jooq.types.UInteger;
+import org.jooq.types.UShort;
+import org.prism_mc.prism.core.storage.dbo.Keys;
+import org.prism_mc.prism.core.storage.dbo.records.PrismActivityRollupsRecord;
+
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class PrismActivityRollups extends TableImpl<PrismActivityRollupsRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The table prefix.
+     */
+    private final String prefix;
+
+    /**
+     * The class holding records for this type.
+     */
+    @Override
+    public Class<PrismActivityRollupsRecord> getRecordType() {
+        return PrismActivityRollupsRecord.class;
+    }
+
+    /**
+     * The column <code>prism_activity_rollups.bucket</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> BUCKET = createField(
+        DSL.name("bucket"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.world_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> WORLD_ID = createField(
+        DSL.name("world_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.action_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> ACTION_ID = createField(
+        DSL.name("action_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.cause_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> CAUSE_ID = createField(
+        DSL.name("cause_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.cause_player_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> CAUSE_PLAYER_ID = createField(
+        DSL.name("cause_player_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.cause_entity_type_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> CAUSE_ENTITY_TYPE_ID = createField(
+        DSL.name("cause_entity_type_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.cause_block_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> CAUSE_BLOCK_ID = createField(
+        DSL.name("cause_block_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.affected_item_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> AFFECTED_ITEM_ID = createField(
+        DSL.name("affected_item_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.affected_item_quantity</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UShort> AFFECTED_ITEM_QUANTITY = createField(
+        DSL.name("affected_item_quantity"),
+        SQLDataType.SMALLINTUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.affected_block_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> AFFECTED_BLOCK_ID = createField(
+        DSL.name("affected_block_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.affected_entity_type_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> AFFECTED_ENTITY_TYPE_ID = createField(
+        DSL.name("affected_entity_type_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.affected_player_id</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, UInteger> AFFECTED_PLAYER_ID = createField(
+        DSL.name("affected_player_id"),
+        SQLDataType.INTEGERUNSIGNED.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.descriptor</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, String> DESCRIPTOR = createField(
+        DSL.name("descriptor"),
+        SQLDataType.VARCHAR(255).nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.metadata</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, String> METADATA = createField(
+        DSL.name("metadata"),
+        SQLDataType.VARCHAR(255).nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.reversed</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, Boolean> REVERSED = createField(
+        DSL.name("reversed"),
+        SQLDataType.BIT.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.activity_count</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, Long> ACTIVITY_COUNT = createField(
+        DSL.name("activity_count"),
+        SQLDataType.BIGINT.nullable(false),
+        this,
+        ""
+    );
+
+    /**
+     * The column <code>prism_activity_rollups.timestamp_sum</code>.
+     */
+    public final TableField<PrismActivityRollupsRecord, Long> TIMESTAMP_SUM = createField(
+        DSL.name("timestamp_sum"),
+        SQLDataType.BIGINT.nullable(false),
+        this,
+        ""
+    );
+
+    private PrismActivityRollups(String prefix, Name alias, Table<PrismActivityRollupsRecord> aliased) {
+        this(prefix, alias, aliased, null);
+    }
+
+    private PrismActivityRollups(
+        String prefix,
+        Name alias,
+        Table<PrismActivityRollupsRecord> aliased,
+        Field<?>[] parameters
+    ) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table());
+        this.prefix = prefix;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefix The prefix
+     */
+    public PrismActivityRollups(String prefix) {
+        this(prefix, DSL.name(prefix + "activity_rollups"), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefix The prefix
+     * @param child The child table
+     * @param key The key
+     * @param <O> The record type
+     */
+    public <O extends Record> PrismActivityRollups(
+        String prefix,
+        Table<O> child,
+        ForeignKey<O, PrismActivityRollupsRecord> key
+    ) {
+        super(child, key, PRISM_ACTIVITY_ROLLUPS);
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : PRISM_DATABASE;
+    }
+
+    @Override
+    public UniqueKey<PrismActivityRollupsRecord> getPrimaryKey() {
+        return Keys.KEY_PRISM_ACTIVITY_ROLLUPS_PRIMARY;
+    }
+
+    @Override
+    public PrismActivityRollups as(String alias) {
+        return new PrismActivityRollups(prefix, DSL.name(alias), this);
+    }
+
+    @Override
+    public PrismActivityRollups as(Name alias) {
+        return new PrismActivityRollups(prefix, alias, this);
+    }
+
+    @Override
+    public PrismActivityRollups rename(String name) {
+        return new PrismActivityRollups(prefix, DSL.name(name), null);
+    }
+
+    @Override
+    public PrismActivityRollups rename(Name name) {
+        return new PrismActivityRollups(prefix, name, null);
+    }
+}
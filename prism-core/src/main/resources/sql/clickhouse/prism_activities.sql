@@ -7,6 +7,8 @@ CREATE TABLE IF NOT EXISTS %prefix%activities
     x                                 Int32 CODEC(T64, ZSTD),
     y                                 Int32 CODEC(T64, ZSTD),
     z                                 Int32 CODEC(T64, ZSTD),
+    region_x                          Int32 MATERIALIZED toInt32(floor(x / 512)),
+    region_z                          Int32 MATERIALIZED toInt32(floor(z / 512)),
     action                            LowCardinality(String),
     affected_material                 LowCardinality(String),
     affected_item_data                String CODEC(ZSTD),
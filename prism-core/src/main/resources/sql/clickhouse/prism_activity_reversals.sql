@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS %prefix%activity_reversals
+(
+    activity_id UInt64,
+    `timestamp` DateTime,
+    action LowCardinality(String),
+    reversed UInt8,
+    version UInt64
+)
+ENGINE = ReplacingMergeTree(version)
+PARTITION BY toYYYYMM(`timestamp`)
+ORDER BY activity_id
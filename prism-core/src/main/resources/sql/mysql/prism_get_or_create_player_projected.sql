@@ -0,0 +1,23 @@
+CREATE PROCEDURE %prefix%get_or_create_player (
+    IN playerName VARCHAR(32),
+    IN uuid CHAR(36),
+    OUT playerId INT
+)
+BEGIN
+    SELECT player_id INTO playerId FROM %prefix%players WHERE player_uuid = uuid;
+
+    IF playerId IS NULL THEN
+        INSERT INTO %prefix%players (player, player_uuid) VALUES (playerName, uuid);
+        SELECT LAST_INSERT_ID() INTO playerId;
+    ELSE
+        UPDATE %prefix%players
+        SET player = playerName
+        WHERE player_uuid = uuid AND player <> playerName;
+
+        -- The lookup projection stores names per activity, so carry renames over
+        IF ROW_COUNT() > 0 THEN
+            UPDATE %prefix%activity_display SET cause_player = playerName WHERE cause_player_uuid = uuid;
+            UPDATE %prefix%activity_display SET affected_player = playerName WHERE affected_player_uuid = uuid;
+        END IF;
+    END IF;
+END;
@@ -0,0 +1,89 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.core.storage.adapters.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DescriptorTokenizerTest {
+
+    @Test
+    void nullAndBlankTextHaveNoWords() {
+        assertEquals(List.of(), DescriptorTokenizer.tokenize(null));
+        assertEquals(List.of(), DescriptorTokenizer.tokenize(""));
+        assertEquals(List.of(), DescriptorTokenizer.tokenize(" \t\n"));
+    }
+
+    @Test
+    void wordsAreLowercasedAndSplitOnEverythingButLettersDigitsAndUnderscores() {
+        assertEquals(
+            List.of("oak_log", "diamond", "sword", "x64"),
+            DescriptorTokenizer.tokenize("  Oak_Log, DIAMOND-sword;x64!")
+        );
+    }
+
+    @Test
+    void shortWordsAreDropped() {
+        assertEquals(List.of("the", "axe"), DescriptorTokenizer.tokenize("a an the axe of 12"));
+    }
+
+    @Test
+    void repeatedWordsAreKeptOnceInFirstSeenOrder() {
+        assertEquals(List.of("stone", "dirt"), DescriptorTokenizer.tokenize("stone dirt STONE Dirt stone"));
+    }
+
+    @Test
+    void lettersAndDigitsOutsideAsciiAreWordCharacters() {
+        assertEquals(List.of("épée", "ünï", "١٢٣"), DescriptorTokenizer.tokenize("Épée/ünï ١٢٣"));
+    }
+
+    @Test
+    void longWordsAreTruncated() {
+        String longWord = "a".repeat(DescriptorTokenizer.MAX_TOKEN_LENGTH + 10);
+        String otherLongWord = "a".repeat(DescriptorTokenizer.MAX_TOKEN_LENGTH) + "bcd";
+
+        assertEquals(
+            List.of("a".repeat(DescriptorTokenizer.MAX_TOKEN_LENGTH)),
+            DescriptorTokenizer.tokenize(longWord + " " + otherLongWord)
+        );
+    }
+
+    @Test
+    void wordsAtTheLengthLimitsAreKeptWhole() {
+        String shortest = "abc";
+        String longest = "b".repeat(DescriptorTokenizer.MAX_TOKEN_LENGTH);
+
+        assertEquals(List.of(shortest, longest), DescriptorTokenizer.tokenize(shortest + " " + longest));
+    }
+
+    @Test
+    void prefixUpperBoundIncrementsTheLastCharacter() {
+        assertEquals("abd", DescriptorTokenizer.prefixUpperBound("abc"));
+        assertEquals("a{", DescriptorTokenizer.prefixUpperBound("az"));
+    }
+
+    @Test
+    void prefixUpperBoundKeepsSurrogatePairsWhole() {
+        assertEquals("a😁", DescriptorTokenizer.prefixUpperBound("a😀"));
+    }
+}
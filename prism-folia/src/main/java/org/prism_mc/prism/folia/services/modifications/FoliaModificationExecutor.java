@@ -26,8 +26,11 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -42,17 +45,26 @@ import org.prism_mc.prism.api.services.modifications.ModificationResult;
 import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
 import org.prism_mc.prism.paper.services.modifications.ModificationExecutor;
+import org.prism_mc.prism.paper.services.modifications.ModificationTickBudget;
 import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
 
 /**
  * Folia implementation of {@link ModificationExecutor}. Groups modifications
- * by chunk region and schedules each group on its owning region thread. Each
- * region processes its batch independently, and a completion barrier aggregates
- * results when all regions finish.
+ * by chunk region and hands each group to a worker that runs on the owning
+ * region thread.
+ *
+ * <p>Workers live for the whole queue rather than a single batch. Each one has
+ * its own inbox and result accumulator, so regions never contend on a shared
+ * lock while applying changes. After each tick slice a worker hands its
+ * results over to be merged, so a region that keeps receiving work still has
+ * its progress recorded. The next batch is requested as modifications are
+ * processed and split across the workers as soon as it arrives — busy regions
+ * keep going instead of every region waiting on the slowest one.</p>
  *
  * <p>Pre-processing (drain lava, remove drops/blocks) is executed per-region
  * with bounding boxes clipped to each region's boundaries, ensuring all world
- * operations run on the correct region thread.</p>
+ * operations run on the correct region thread. Post-processing runs the same
+ * way each time a region runs out of work.</p>
  *
  * <p>This executor is not a singleton — a new instance is created per queue
  * to avoid shared mutable state between concurrent operations.</p>
@@ -82,15 +94,46 @@ public class FoliaModificationExecutor implements ModificationExecutor {
     private final PrismScheduler prismScheduler;
 
     /**
-     * Active scheduled tasks for cancellation. Uses CopyOnWriteArrayList
-     * since tasks may self-remove from different region threads.
+     * The region workers, by region.
+     */
+    private final Map<RegionKey, RegionWorker> workers = new ConcurrentHashMap<>();
+
+    /**
+     * Results handed over by workers at the end of a tick slice, waiting to be merged.
      */
-    private final CopyOnWriteArrayList<ScheduledTask> activeTasks = new CopyOnWriteArrayList<>();
+    private final Queue<List<ModificationResult>> finishedResults = new ConcurrentLinkedQueue<>();
 
     /**
-     * Dedicated lock for the onResult callback, shared across region threads.
+     * The number of modifications handed to workers that haven't been processed yet.
      */
-    private final Object resultLock = new Object();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * Guards merging results and firing the queue's callbacks. Taken once per
+     * worker tick slice, never per modification.
+     */
+    private final Object mergeLock = new Object();
+
+    /**
+     * The settings of the current batch, shared with the workers.
+     */
+    private volatile BatchSettings settings;
+
+    /**
+     * The callback asking for the next batch, until it fires.
+     */
+    private Runnable onReady;
+
+    /**
+     * The callback waiting for every worker to finish, until it fires.
+     */
+    private Runnable onDrained;
+
+    /**
+     * The size of the latest batch. The next batch is only requested once fewer
+     * modifications than this are outstanding, so at most two batches are held.
+     */
+    private int batchSize;
 
     /**
      * Construct a new Folia modification executor.
@@ -116,35 +159,26 @@ public class FoliaModificationExecutor implements ModificationExecutor {
         BiConsumer<World, BoundingBox> postProcessor,
         Runnable onComplete
     ) {
-        activeTasks.clear();
-
         // Snapshot the queue to avoid concurrent modification during grouping
         List<Activity> snapshot = new ArrayList<>(queue);
 
         // Group activities by region key (world + chunk region coordinates)
         Map<RegionKey, List<Activity>> regionBatches = groupByRegion(snapshot);
 
-        if (regionBatches.isEmpty()) {
-            onComplete.run();
-
-            return;
-        }
-
         loggingService.debug(
             "Folia executor: {0} activities across {1} regions",
             snapshot.size(),
             regionBatches.size()
         );
 
-        // Track how many regions still need to finish
-        AtomicInteger remainingRegions = new AtomicInteger(regionBatches.size());
+        settings = new BatchSettings(mode, ruleset, applyFn, onResult, postProcessor);
 
-        // Track remaining regions for post-processing
-        int totalRegions = regionBatches.size();
-        AtomicInteger postProcessRemaining = new AtomicInteger(totalRegions);
-        List<Location> regionLocations = new ArrayList<>();
+        synchronized (mergeLock) {
+            onReady = onComplete;
+            batchSize = snapshot.size();
+        }
 
-        // Schedule each region's batch on its owning region thread
+        List<RegionWorker> started = new ArrayList<>();
         for (Map.Entry<RegionKey, List<Activity>> entry : regionBatches.entrySet()) {
             RegionKey regionKey = entry.getKey();
             List<Activity> regionQueue = entry.getValue();
@@ -152,183 +186,109 @@ public class FoliaModificationExecutor implements ModificationExecutor {
             World world = Bukkit.getWorld(regionKey.worldUuid);
             if (world == null) {
                 // Skip activities in unloaded worlds
-                postProcessRemaining.decrementAndGet();
-                if (remainingRegions.decrementAndGet() == 0) {
-                    onComplete.run();
-                }
-
                 continue;
             }
 
-            // Use the first activity's coordinate as the scheduling location
-            Activity first = regionQueue.getFirst();
-            Location regionLocation = new Location(
-                world,
-                first.coordinate().x(),
-                first.coordinate().y(),
-                first.coordinate().z()
-            );
-            regionLocations.add(regionLocation);
-
-            // Clip the overall bounding box to this region's boundaries
-            BoundingBox regionBounds = regionBoundingBox(regionKey);
-            boolean[] regionPreProcessed = { false };
-            // Persisted read pointer for PLANNING mode (see processRegionBatch).
-            int[] regionReadIndex = { 0 };
-
-            ScheduledTask task = prismScheduler.runAtLocationFixedRate(
-                regionLocation,
-                scheduledTask ->
-                    processRegionBatch(
-                        scheduledTask,
-                        regionQueue,
-                        mode,
-                        ruleset,
-                        queue,
-                        world,
-                        regionBounds,
-                        preProcessor,
-                        regionPreProcessed,
-                        regionReadIndex,
-                        applyFn,
-                        onResult,
-                        remainingRegions,
-                        postProcessor,
-                        postProcessRemaining,
-                        regionLocations,
-                        onComplete
-                    ),
-                1,
-                ruleset.taskDelay()
-            );
-
-            activeTasks.add(task);
+            RegionWorker worker = workers.computeIfAbsent(regionKey, key -> {
+                // Use the first activity's coordinate as the scheduling location
+                Activity first = regionQueue.getFirst();
+                Location regionLocation = new Location(
+                    world,
+                    first.coordinate().x(),
+                    first.coordinate().y(),
+                    first.coordinate().z()
+                );
+
+                return new RegionWorker(world, regionLocation, regionBoundingBox(key));
+            });
+
+            if (preProcessor != null) {
+                worker.preProcessor = preProcessor;
+            }
+
+            outstanding.addAndGet(regionQueue.size());
+            worker.inbox.addAll(regionQueue);
+            started.add(worker);
         }
-    }
 
-    @Override
-    public void cancel() {
-        for (ScheduledTask task : activeTasks) {
-            task.cancel();
+        for (RegionWorker worker : started) {
+            worker.wake();
         }
 
-        activeTasks.clear();
+        // Nothing was handed out (empty batch, or only unloaded worlds)
+        if (started.isEmpty()) {
+            mergeResults();
+        }
     }
 
-    /**
-     * Process a batch of modifications for a single region.
-     */
-    private void processRegionBatch(
-        ScheduledTask scheduledTask,
-        List<Activity> regionQueue,
-        ModificationQueueMode mode,
-        ModificationRuleset ruleset,
-        List<Activity> globalQueue,
-        World world,
-        BoundingBox regionBounds,
-        BiConsumer<World, BoundingBox> preProcessor,
-        boolean[] regionPreProcessed,
-        int[] regionReadIndex,
-        Function<Activity, ModificationResult> applyFn,
-        Consumer<ModificationResult> onResult,
-        AtomicInteger remainingRegions,
-        BiConsumer<World, BoundingBox> postProcessor,
-        AtomicInteger postProcessRemaining,
-        List<Location> regionLocations,
-        Runnable onComplete
-    ) {
-        // Run pre-processing once on the first tick for this region
-        if (!regionPreProcessed[0] && preProcessor != null) {
-            preProcessor.accept(world, regionBounds);
-            regionPreProcessed[0] = true;
+    @Override
+    public void drain(Runnable onDrained) {
+        synchronized (mergeLock) {
+            this.onDrained = onDrained;
         }
 
-        int iterationCount = 0;
-        int index = regionReadIndex[0];
-
-        while (index < regionQueue.size() && iterationCount < ruleset.maxPerTask()) {
-            Activity activity = regionQueue.get(index);
-            iterationCount++;
-
-            ModificationResult result = ModificationResult.builder().activity(activity).build();
-
-            if (activity.action().type().reversible()) {
-                try {
-                    result = applyFn.apply(activity);
-                } catch (Throwable t) {
-                    result = ModificationResult.builder().activity(activity).errored().build();
-
-                    loggingService.handleThrowable(String.format("A modification error occurred. %s", activity), t);
-                }
-            }
+        mergeResults();
+    }
 
-            // Thread-safe result tracking via dedicated lock
-            synchronized (resultLock) {
-                onResult.accept(result);
-            }
+    @Override
+    public void cancel() {
+        for (RegionWorker worker : workers.values()) {
+            worker.inbox.clear();
 
-            // Remove from both queues if completing, advance index if planning
-            if (mode.equals(ModificationQueueMode.COMPLETING)) {
-                regionQueue.remove(index);
-                globalQueue.remove(activity);
-            } else {
-                index++;
+            ScheduledTask task = worker.task;
+            if (task != null) {
+                task.cancel();
             }
         }
 
-        // Persist the read pointer so the next tick resumes where this one left
-        // off. In PLANNING mode items are not removed, so without this the index
-        // would reset to 0 each tick and a region with more than maxPerTask
-        // activities would reprocess the same prefix forever and never complete.
-        regionReadIndex[0] = index;
-
-        // If this region's batch is done, cancel its task and check completion
-        boolean regionDone =
-            regionQueue.isEmpty() || (mode.equals(ModificationQueueMode.PLANNING) && index >= regionQueue.size());
-        if (regionDone) {
-            scheduledTask.cancel();
-
-            if (remainingRegions.decrementAndGet() == 0) {
-                loggingService.debug("Folia executor: all regions completed, running post-processing.");
+        workers.clear();
+        finishedResults.clear();
+        outstanding.set(0);
 
-                // Run post-processing per-region on each region's thread
-                runPostProcessing(postProcessor, postProcessRemaining, regionLocations, onComplete);
-            }
+        synchronized (mergeLock) {
+            onReady = null;
+            onDrained = null;
         }
     }
 
     /**
-     * Run post-processing (entity moves) on each region's thread with clipped bounding boxes.
+     * Merge the results workers have handed over and fire whichever of the queue's
+     * callbacks are due. Runs on the thread of the worker that handed results over.
      */
-    private void runPostProcessing(
-        BiConsumer<World, BoundingBox> postProcessor,
-        AtomicInteger postProcessRemaining,
-        List<Location> regionLocations,
-        Runnable onComplete
-    ) {
-        if (postProcessor == null || regionLocations.isEmpty()) {
-            onComplete.run();
+    private void mergeResults() {
+        Runnable ready = null;
+        Runnable drained = null;
+
+        synchronized (mergeLock) {
+            List<ModificationResult> regionResults;
+            while ((regionResults = finishedResults.poll()) != null) {
+                for (ModificationResult result : regionResults) {
+                    settings.onResult().accept(result);
+                }
+            }
+
+            int remaining = outstanding.get();
+            if (onReady != null && remaining < Math.max(1, batchSize)) {
+                ready = onReady;
+                onReady = null;
+            }
 
-            return;
+            if (onDrained != null && remaining == 0 && workers.values().stream().allMatch(RegionWorker::idle)) {
+                loggingService.debug("Folia executor: all regions completed.");
+
+                drained = onDrained;
+                onDrained = null;
+                workers.clear();
+            }
+
+            // Run inside the lock so the queue's reversal key flush can't interleave with a merge
+            if (ready != null) {
+                ready.run();
+            }
         }
 
-        for (Location regionLocation : regionLocations) {
-            prismScheduler.runAtLocation(regionLocation, () -> {
-                // Use each region's own world — a batch may span multiple worlds,
-                // so the world captured from the last-finishing region is not
-                // necessarily this region's world.
-                World regionWorld = regionLocation.getWorld();
-                int regionX = (int) Math.floor(regionLocation.getX()) >> REGION_BLOCK_SHIFT;
-                int regionZ = (int) Math.floor(regionLocation.getZ()) >> REGION_BLOCK_SHIFT;
-                BoundingBox regionBounds = regionBoundingBox(new RegionKey(regionWorld.getUID(), regionX, regionZ));
-
-                postProcessor.accept(regionWorld, regionBounds);
-
-                if (postProcessRemaining.decrementAndGet() == 0) {
-                    // All regions post-processed, fire final completion
-                    onComplete.run();
-                }
-            });
+        if (drained != null) {
+            drained.run();
         }
     }
 
@@ -373,4 +333,182 @@ public class FoliaModificationExecutor implements ModificationExecutor {
      * A key identifying a Folia region by world and region coordinates.
      */
     private record RegionKey(UUID worldUuid, int regionX, int regionZ) {}
+
+    /**
+     * The settings shared by every worker for the current batch.
+     */
+    private record BatchSettings(
+        ModificationQueueMode mode,
+        ModificationRuleset ruleset,
+        Function<Activity, ModificationResult> applyFn,
+        Consumer<ModificationResult> onResult,
+        BiConsumer<World, BoundingBox> postProcessor
+    ) {}
+
+    /**
+     * Applies the modifications for a single region on that region's thread.
+     */
+    private class RegionWorker {
+
+        /**
+         * The world.
+         */
+        private final World world;
+
+        /**
+         * The location used to schedule on the region's thread.
+         */
+        private final Location location;
+
+        /**
+         * The region's bounds, used to clip pre/post-processing.
+         */
+        private final BoundingBox bounds;
+
+        /**
+         * Modifications waiting to be applied, in order.
+         */
+        private final Queue<Activity> inbox = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Whether the worker has a task scheduled.
+         */
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        /**
+         * Results of the current tick slice. Only touched by the worker's task.
+         */
+        private List<ModificationResult> results = new ArrayList<>();
+
+        /**
+         * The pre-processor to run before the next modification, if any.
+         */
+        private volatile BiConsumer<World, BoundingBox> preProcessor;
+
+        /**
+         * The scheduled task, if running.
+         */
+        private volatile ScheduledTask task;
+
+        /**
+         * Construct a region worker.
+         *
+         * @param world The world
+         * @param location The scheduling location
+         * @param bounds The region bounds
+         */
+        RegionWorker(World world, Location location, BoundingBox bounds) {
+            this.world = world;
+            this.location = location;
+            this.bounds = bounds;
+        }
+
+        /**
+         * Whether the worker has nothing scheduled.
+         *
+         * @return True if idle
+         */
+        boolean idle() {
+            return !running.get();
+        }
+
+        /**
+         * Start the worker's task if it isn't already running.
+         */
+        void wake() {
+            if (running.compareAndSet(false, true)) {
+                task = prismScheduler.runAtLocationFixedRate(
+                    location,
+                    this::tick,
+                    1,
+                    ModificationTickBudget.period(settings.ruleset())
+                );
+            }
+        }
+
+        /**
+         * Apply the next slice of the inbox, within the tick budget.
+         *
+         * @param scheduledTask The worker's task
+         */
+        private void tick(ScheduledTask scheduledTask) {
+            BatchSettings batch = settings;
+
+            // Run pre-processing once, before this region's first modification
+            BiConsumer<World, BoundingBox> pre = preProcessor;
+            if (pre != null) {
+                preProcessor = null;
+                pre.accept(world, bounds);
+            }
+
+            int iterationCount = 0;
+            long budgetNanos = ModificationTickBudget.nanos(batch.ruleset());
+            long startNanos = System.nanoTime();
+
+            // The budget decides how much runs per tick, max per task is only a safety cap
+            Activity activity;
+            while (iterationCount < batch.ruleset().maxPerTask() && (activity = inbox.poll()) != null) {
+                iterationCount++;
+
+                ModificationResult result = ModificationResult.builder().activity(activity).build();
+
+                if (activity.action().type().reversible()) {
+                    try {
+                        result = batch.applyFn().apply(activity);
+                    } catch (Throwable t) {
+                        result = ModificationResult.builder().activity(activity).errored().build();
+
+                        loggingService.handleThrowable(
+                            String.format("A modification error occurred. %s", activity),
+                            t
+                        );
+                    }
+                }
+
+                results.add(result);
+                outstanding.decrementAndGet();
+
+                // Leave the rest of the region's tick to the server once this run's time is spent
+                if (budgetNanos > 0 && System.nanoTime() - startNanos >= budgetNanos) {
+                    break;
+                }
+            }
+
+            if (!inbox.isEmpty()) {
+                // Still busy: hand this slice over anyway so it's merged and checkpointed now
+                handOverResults();
+                mergeResults();
+                return;
+            }
+
+            // Out of work: move entities out of the way, then hand results over
+            if (batch.postProcessor() != null) {
+                batch.postProcessor().accept(world, bounds);
+            }
+
+            handOverResults();
+
+            scheduledTask.cancel();
+            running.set(false);
+
+            // Work may have arrived after the inbox was checked but before the worker stopped
+            if (!inbox.isEmpty()) {
+                wake();
+            }
+
+            mergeResults();
+        }
+
+        /**
+         * Hand the results gathered so far over to be merged.
+         */
+        private void handOverResults() {
+            if (results.isEmpty()) {
+                return;
+            }
+
+            finishedResults.add(results);
+            results = new ArrayList<>();
+        }
+    }
 }
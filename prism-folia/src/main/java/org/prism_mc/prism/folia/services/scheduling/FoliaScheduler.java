@@ -23,6 +23,7 @@ package org.prism_mc.prism.folia.services.scheduling;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.bukkit.Bukkit;
@@ -39,6 +40,12 @@ import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
 @Singleton
 public class FoliaScheduler implements PrismScheduler {
 
+    /**
+     * Folia regions are 32x32 chunks = 512x512 blocks, so the region of a location
+     * is its block coordinates shifted right by 9 bits.
+     */
+    private static final int REGION_BLOCK_SHIFT = 9;
+
     /**
      * The plugin instance used for scheduler registration.
      */
@@ -77,6 +84,19 @@ public class FoliaScheduler implements PrismScheduler {
         }
     }
 
+    @Override
+    public Object regionKey(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return Bukkit.getGlobalRegionScheduler();
+        }
+
+        return List.of(
+            location.getWorld().getUID(),
+            location.getBlockX() >> REGION_BLOCK_SHIFT,
+            location.getBlockZ() >> REGION_BLOCK_SHIFT
+        );
+    }
+
     @Override
     public void runForEntity(Entity entity, Runnable task) {
         entity.getScheduler().run(plugin, t -> task.run(), null);
@@ -68,6 +68,15 @@ public class ModificationConfiguration {
     @Comment("List entities that should be excluded from modifications.")
     private List<String> entityBlacklist = new ArrayList<>();
 
+    @Comment(
+        """
+        The most rollbacks/restores/previews that may run at once. Queues only run
+        together when they're in different worlds or their areas don't overlap, so
+        queries without a radius or bounding box still run one at a time. Running
+        queues share the task budget below. Set to 1 to only allow one at a time."""
+    )
+    private int maxConcurrentQueues = 4;
+
     @Comment(
         """
         Hard limit on the number of modifications a single rollback/restore
@@ -79,11 +88,12 @@ public class ModificationConfiguration {
 
     @Comment(
         """
-        Set a maximum number of modifications per task. Splitting up world changes
-        can help avoid overloading individual ticks and causing lag.
-        This can also reduce client lag as fewer changes are sent to clients at once."""
+        Set a maximum number of modifications per task. With a task budget (below) tasks
+        run every tick and stop once the budget is spent, so this is only a safety cap.
+        Without one, this alone limits each task, which helps avoid overloading ticks
+        and reduces client lag as fewer changes are sent to clients at once."""
     )
-    private int maxPerTask = 1000;
+    private int maxPerTask = 10000;
 
     @Comment(
         """
@@ -99,6 +109,14 @@ public class ModificationConfiguration {
     @Comment("Teleport entities out of the way.")
     private boolean moveEntities = true;
 
+    @Comment(
+        """
+        The most preview block changes sent to each player per tick. Previews (and
+        cancelling them) are sent as multi-block updates, so large previews stream in
+        over several ticks instead of flooding the player's connection."""
+    )
+    private int previewBlocksPerTick = 4096;
+
     @Comment(
         """
         Percentage step between progress messages sent to the owner during a
@@ -121,7 +139,25 @@ public class ModificationConfiguration {
     @Comment("Enables clearing item/xp drops from a modification area.")
     private boolean removeDrops = true;
 
-    @Comment("The delay in ticks between modification tasks.")
+    @Comment(
+        """
+        Whether rollbacks and restores are saved to disk as they run so one interrupted
+        by a restart or crash picks up where it stopped on the next start. Resumed jobs
+        run as the console with the default ruleset. Only supported by SQL storage."""
+    )
+    private boolean resumeInterruptedJobs = true;
+
+    @Comment(
+        """
+        The most time, in milliseconds, each modification task may spend changing the world.
+        The budget shrinks as the server's tick time (MSPT) rises, so cheap changes (dirt)
+        go quickly while expensive ones (chests, signs) and busy servers get fewer per task.
+        On Folia the tick time of each region is used. Budgeted tasks run every tick.
+        Set to 0 to only limit by max-per-task, with the task delay below between tasks."""
+    )
+    private long taskBudgetMillis = 10;
+
+    @Comment("The delay in ticks between modification tasks. Only used without a task budget.")
     private long taskDelay = 5;
 
     /**
@@ -153,6 +189,7 @@ public class ModificationConfiguration {
             .drainLava(drainLava)
             .entityBlacklist(entityBlacklist)
             .maxPerTask(maxPerTask)
+            .taskBudgetMillis(taskBudgetMillis)
             .moveEntities(moveEntities)
             .removeBlocks(removeBlocks)
             .removeDrops(removeDrops)
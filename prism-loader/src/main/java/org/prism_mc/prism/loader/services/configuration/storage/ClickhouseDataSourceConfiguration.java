@@ -22,11 +22,70 @@ package org.prism_mc.prism.loader.services.configuration.storage;
 
 import lombok.Getter;
 import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
 
 @ConfigSerializable
 @Getter
 public class ClickhouseDataSourceConfiguration extends SqlDataSourceConfiguration {
 
+    @Comment(
+        """
+        Send activity inserts to ClickHouse's HTTP interface as RowBinary instead of
+        batched JDBC statements. This avoids formatting and parsing every value as text.
+        Larger batches (see batchMax) suit ClickHouse better than many small inserts.
+        Inserts are sent over plain HTTP to the configured host and port, so only enable
+        this when ClickHouse's HTTP interface is reachable without TLS.
+        Ignored when hikari.properties is used."""
+    )
+    private boolean binaryInserts = false;
+
+    @Comment(
+        """
+        Have ClickHouse buffer activity inserts (async_insert) and write them to the
+        table together, instead of creating a new part for every batch. Useful when
+        several servers save small batches often, which otherwise causes heavy merging
+        and "too many parts" errors."""
+    )
+    private boolean asyncInserts = false;
+
+    @Comment(
+        """
+        When using async inserts, wait until ClickHouse has written buffered activities
+        before a batch counts as saved. Disabling this saves faster, but activities
+        still in the server's buffer are lost if ClickHouse stops unexpectedly, and
+        insert errors are not reported."""
+    )
+    private boolean waitForAsyncInserts = true;
+
+    @Comment(
+        """
+        Sort activities by world and region (512x512 blocks) before time, so location
+        inspections and radius lookups read only the regions they cover, even over long
+        time ranges. Lookups that don't filter by location read a little more per month.
+        Changing this rebuilds the activities table on startup, which copies every row
+        and may take a long time. Stop other servers writing to this database first."""
+    )
+    private boolean regionSortingKey = false;
+
+    @Comment(
+        """
+        Keep extra copies of activities sorted by cause player and by action, so lookups
+        filtering by player or action over long time ranges read far less data.
+        Roughly triples the disk used by activities, and purges rebuild the copies.
+        Existing data is copied in the background after enabling."""
+    )
+    private boolean projections = false;
+
+    @Comment(
+        """
+        Enforce scheduled purges (purges.commandSchedules) with a table TTL instead of
+        running them. ClickHouse then removes expired activities while merging data, at
+        no extra cost. Only purges using --nodefaults with a before: age and, optionally,
+        a: actions qualify. Other purges keep running on their schedule. Expired activities
+        may linger until ClickHouse next merges the data holding them."""
+    )
+    private boolean ttlRetention = false;
+
     /**
      * Constructor.
      */
@@ -35,4 +35,14 @@ public class FileDataSourceConfiguration extends DataSourceConfiguration {
         You must use forward-slashes (c:/example) or double backslashes (c:\\temp)."""
     )
     private String path = ".";
+
+    @Comment(
+        """
+        When enabled, every write (recording, purges, rollbacks, airtags) runs on one
+        writer thread with its own connection, and each recording batch is saved in a
+        single transaction. File-based databases allow one writer at a time, so this
+        avoids busy/locked errors and lock waits when several writers run at once.
+        Lookups still read through the regular connections."""
+    )
+    private boolean singleWriter = false;
 }
@@ -46,6 +46,28 @@ public class MysqlDataSourceConfiguration extends SqlDataSourceConfiguration {
     )
     private boolean useStoredProcedures = true;
 
+    @Comment(
+        """
+        The name of an index on the activities table that lookups are forced to use.
+        Useful when the query planner picks a poor plan for your data. Check
+        /pr report slow-queries for plans before setting this. Leave empty to let
+        the database choose."""
+    )
+    private String lookupIndexHint = "";
+
+    @Comment(
+        """
+        Partition the activities table by month. Purges that only limit by age (like
+        purging everything older than 90 days) then drop whole months at once instead of
+        deleting rows in cycles. Enabling this rebuilds the activities table on startup and
+        removes its foreign keys, which partitioned tables can't have. Disabling it again
+        rebuilds the table and restores the original primary key and foreign keys.
+        Partitions are added a few months ahead on each startup. Can't be combined with
+        descriptorSearch.
+        Ignored while rollups are enabled, since purges must update the rollups."""
+    )
+    private boolean partitionActivities = false;
+
     /**
      * Constructor.
      */
@@ -0,0 +1,51 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.loader.services.configuration.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+
+@ConfigSerializable
+@Getter
+public class ReadReplicaConfiguration {
+
+    @Comment(
+        """
+        JDBC urls of read-only replicas of the primary MySQL, MariaDB, or Postgres database,
+        for example jdbc:mysql://replica1:3306/prism?characterEncoding=UTF-8
+        Lookups, inspections, web queries, and the activity fetches of rollbacks and restores
+        are spread across them, while recording and purges stay on the primary. The primary's
+        username, password, and pool settings are used. Leave empty to read from the primary.
+        Lookups on replicas don't use the hourly rollups. Ignored by other storage types."""
+    )
+    private List<String> jdbcUrls = new ArrayList<>();
+
+    @Comment(
+        """
+        After a rollback, restore, purge, or airtag change, lookups read from the primary for
+        this many seconds so they see the change before the replicas catch up.
+        Set to 0 to always read from the replicas."""
+    )
+    private int readYourWritesSeconds = 10;
+}
@@ -0,0 +1,48 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.loader.services.configuration.storage;
+
+import lombok.Getter;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+
+@ConfigSerializable
+@Getter
+public class SlowQueryConfiguration {
+
+    @Comment(
+        """
+        Reads that take longer than this many milliseconds to start returning rows are
+        logged with their SQL, bind values, and the database's query plan. Recent ones
+        are listed by /pr report slow-queries. Set to 0 to disable."""
+    )
+    private int thresholdMs = 0;
+
+    @Comment(
+        """
+        Capture the database's EXPLAIN output for each slow query.
+        This runs one extra (non-executing) query per slow query."""
+    )
+    private boolean explain = true;
+
+    @Comment("The number of recent slow queries kept for /pr report slow-queries.")
+    private int maxEntries = 25;
+}
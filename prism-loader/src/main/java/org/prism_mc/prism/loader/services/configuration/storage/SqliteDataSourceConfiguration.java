@@ -22,6 +22,7 @@ package org.prism_mc.prism.loader.services.configuration.storage;
 
 import lombok.Getter;
 import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
 
 @ConfigSerializable
 @Getter
@@ -32,6 +33,15 @@ public class SqliteDataSourceConfiguration extends FileDataSourceConfiguration {
      */
     private int busyTimeout = 3000;
 
+    @Comment(
+        """
+        The name of an index on the activities table that lookups are forced to use.
+        Useful when the query planner picks a poor plan for your data. Check
+        /pr report slow-queries for plans before setting this. Lookups fail if the
+        index can't serve them. Leave empty to let the database choose."""
+    )
+    private String lookupIndexHint = "";
+
     /**
      * Sqlite has no schema concept.
      *
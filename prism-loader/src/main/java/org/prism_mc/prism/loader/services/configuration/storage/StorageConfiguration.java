@@ -45,6 +45,47 @@ public class StorageConfiguration {
     )
     private boolean spy = false;
 
+    @Comment(
+        """
+        When enabled, the display values of each activity (action, world, blocks,
+        entity types, players, and causes) are copied into a side table as activities
+        are recorded. Lookups read from it instead of joining every lookup table.
+        Uses more disk and adds a little work to each save. Player renames are
+        copied into older activities, so lookups show current names.
+        Existing activities are copied over on startup. Ignored by ClickHouse."""
+    )
+    private boolean lookupProjection = false;
+
+    @Comment(
+        """
+        When enabled, activity counts are kept in hourly rollups as activities are
+        recorded and purged. Grouped lookups (the default lookup view and the web
+        dashboard) read whole hours from the rollups and only scan raw activities
+        for partial hours and the newest records, which is much faster over long
+        time ranges. Lookups filtering by location, descriptor (query), reversed,
+        airtag, or activity ids always scan raw activities. Grouped rows read from
+        the rollups don't show descriptors, metadata, or rolled back status.
+        Only enable this if a single server writes to this database.
+        Existing activities are rolled up on startup. Ignored by ClickHouse."""
+    )
+    private boolean rollups = false;
+
+    @Comment(
+        """
+        When enabled, descriptor searches (the query parameter, which covers item names,
+        sign text, and similar) use a text index instead of scanning every activity in
+        the time range. MySQL and MariaDB use a FULLTEXT index, Postgres a trigram index
+        (requires permission to create the pg_trgm extension), ClickHouse an ngram bloom
+        filter, and H2/SQLite a side table of descriptor words.
+        On MySQL, MariaDB, H2, and SQLite, each word of three or more letters in the search
+        must match the start of a word in the descriptor.
+        The index is built on startup, which may take a while on large databases."""
+    )
+    private boolean descriptorSearch = false;
+
+    @Comment("Settings for logging and reporting slow lookups.")
+    private SlowQueryConfiguration slowQueries = new SlowQueryConfiguration();
+
     @Comment(
         """
         Set which storage system to use.
@@ -54,6 +95,12 @@ public class StorageConfiguration {
     )
     private StorageType primaryStorageType = StorageType.SQLITE;
 
+    @Comment("Settings for reading from replicas of the primary storage.")
+    private ReadReplicaConfiguration readReplicas = new ReadReplicaConfiguration();
+
+    @Comment("Settings for moving older activities from the primary storage to ClickHouse.")
+    private TieredStorageConfiguration tiered = new TieredStorageConfiguration();
+
     @Comment("Settings for ClickHouse")
     private ClickhouseDataSourceConfiguration clickhouse = new ClickhouseDataSourceConfiguration();
 
@@ -80,6 +127,13 @@ public class StorageConfiguration {
     )
     private SqliteDataSourceConfiguration sqlite = new SqliteDataSourceConfiguration();
 
+    /**
+     * Disable descriptor search, when the database couldn't build its index.
+     */
+    public void disallowDescriptorSearch() {
+        this.descriptorSearch = false;
+    }
+
     /**
      * Get the primary data source.
      *
@@ -0,0 +1,49 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.loader.services.configuration.storage;
+
+import lombok.Getter;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+
+@ConfigSerializable
+@Getter
+public class TieredStorageConfiguration {
+
+    @Comment(
+        """
+        Keep recent activities in the primary storage and move older ones to ClickHouse,
+        using the clickhouse settings below. Lookups, rollbacks, restores, and purges read
+        from both, so recent activities stay fast to roll back while years of history
+        remain searchable. Requires a primary storage other than ClickHouse.
+        Only enable this if a single server writes to the primary storage."""
+    )
+    private boolean enabled = false;
+
+    @Comment("Activities older than this many days are moved to ClickHouse.")
+    private int hotDays = 30;
+
+    @Comment("How often, in minutes, older activities are moved to ClickHouse.")
+    private int migrationIntervalMinutes = 60;
+
+    @Comment("The number of activities moved to ClickHouse at a time.")
+    private int migrationBatchSize = 5000;
+}
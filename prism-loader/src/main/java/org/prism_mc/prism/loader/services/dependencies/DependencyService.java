@@ -49,6 +49,7 @@ import org.prism_mc.prism.loader.services.dependencies.relocation.Relocation;
 import org.prism_mc.prism.loader.services.dependencies.relocation.RelocationHandler;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
 import org.prism_mc.prism.loader.services.scheduler.ThreadPoolScheduler;
+import org.prism_mc.prism.loader.storage.StorageType;
 
 public class DependencyService {
 
@@ -184,6 +185,11 @@ public class DependencyService {
         // Add storage dependencies
         all.addAll(this.registry.storageDependencies(configurationService.storageConfig().primaryStorageType()));
 
+        // Tiered storage moves older activities to ClickHouse
+        if (configurationService.storageConfig().tiered().enabled()) {
+            all.addAll(this.registry.storageDependencies(StorageType.CLICKHOUSE));
+        }
+
         // Add platform dependencies
         all.addAll(platformDependencies);
 
@@ -157,6 +157,7 @@ import org.prism_mc.prism.paper.permissions.PrismPermissions;
 import org.prism_mc.prism.paper.providers.InjectorProvider;
 import org.prism_mc.prism.paper.services.limits.LimitService;
 import org.prism_mc.prism.paper.services.messages.MessageService;
+import org.prism_mc.prism.paper.services.modifications.ModificationJobService;
 import org.prism_mc.prism.paper.services.modifications.ModificationType;
 import org.prism_mc.prism.paper.services.modifications.PaperModificationQueueService;
 import org.prism_mc.prism.paper.services.purge.PurgeService;
@@ -238,6 +239,11 @@ public class PrismPaper implements PrismPaperApi {
     @Getter
     private PaperModificationQueueService modificationQueueService;
 
+    /**
+     * The modification job service.
+     */
+    private ModificationJobService modificationJobService;
+
     /**
      * The scheduler — used by the convenience modification methods.
      */
@@ -330,6 +336,10 @@ public class PrismPaper implements PrismPaperApi {
             prismScheduler = injectorProvider.injector().getInstance(PrismScheduler.class);
             injectorProvider.injector().getInstance(SchedulingService.class);
 
+            // Resume any rollbacks/restores interrupted by a restart or crash
+            modificationJobService = injectorProvider.injector().getInstance(ModificationJobService.class);
+            modificationJobService.resumeInterrupted();
+
             // Start the web server if auto-start is enabled
             webService = injectorProvider.injector().getInstance(WebService.class);
             webService.startIfAutoStart();
@@ -735,7 +745,10 @@ public class PrismPaper implements PrismPaperApi {
         CompletableFuture<List<Activity>> future = new CompletableFuture<>();
         prismScheduler.runAsync(() -> {
             try {
-                future.complete(storageAdapter.queryActivities(query));
+                List<Activity> activities = new ArrayList<>();
+                storageAdapter.queryActivities(query, activities::add);
+
+                future.complete(activities);
             } catch (Exception e) {
                 future.completeExceptionally(e);
             }
@@ -893,6 +906,10 @@ public class PrismPaper implements PrismPaperApi {
             purgeService.stop();
         }
 
+        if (modificationJobService != null) {
+            modificationJobService.shutdown();
+        }
+
         if (storageAdapter != null) {
             storageAdapter.close();
         }
@@ -46,11 +46,14 @@ import org.prism_mc.prism.api.services.modifications.ModificationResult;
 import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
 import org.prism_mc.prism.api.services.modifications.ModificationSkipReason;
 import org.prism_mc.prism.api.util.Coordinate;
+import org.prism_mc.prism.paper.PrismPaper;
 import org.prism_mc.prism.paper.api.containers.PaperBlockContainer;
 import org.prism_mc.prism.paper.services.modifications.BlockUndoEntry;
+import org.prism_mc.prism.paper.services.modifications.PreviewBlockChangeService;
+import org.prism_mc.prism.paper.services.modifications.SnapshotPlannable;
 import org.prism_mc.prism.paper.utils.BlockUtils;
 
-public class PaperBlockAction extends PaperAction implements BlockAction {
+public class PaperBlockAction extends PaperAction implements BlockAction, SnapshotPlannable {
 
     @Getter
     private final PaperBlockContainer blockContainer;
@@ -410,6 +413,70 @@ public class PaperBlockAction extends PaperAction implements BlockAction {
         return resultBuilder.undoEntry(undoEntry).build();
     }
 
+    @Override
+    public ModificationResult plan(
+        ModificationRuleset modificationRuleset,
+        Object owner,
+        Activity activityContext,
+        boolean rollback,
+        BlockData currentBlockData
+    ) {
+        var resultBuilder = ModificationResult.builder()
+            .activity(activityContext)
+            .statusFromMode(ModificationQueueMode.PLANNING);
+
+        // Skip if either material is in the blacklist
+        BlockData finalBlockData = blockContainer.blockData();
+        if (modificationRuleset.blockBlacklistContainsAny(blockContainer.blockName())) {
+            finalBlockData = Bukkit.createBlockData(Material.AIR);
+            resultBuilder.partial().target(blockContainer.translationKey());
+        }
+
+        BlockData finalReplacedBlockData = Bukkit.createBlockData(Material.AIR);
+        if (replacedBlockContainer != null) {
+            finalReplacedBlockData = replacedBlockContainer.blockData();
+
+            if (modificationRuleset.blockBlacklistContainsAny(replacedBlockContainer.blockName())) {
+                finalReplacedBlockData = Bukkit.createBlockData(Material.AIR);
+                resultBuilder.partial().target(replacedBlockContainer.translationKey());
+            }
+        }
+
+        ActionResultType resultType = type().resultType();
+        if (!resultType.equals(ActionResultType.CREATES) && !resultType.equals(ActionResultType.REMOVES)) {
+            return resultBuilder.build();
+        }
+
+        // Rolling back a removal or restoring a creation sets the block, otherwise what it replaced
+        boolean setsBlock = rollback == resultType.equals(ActionResultType.REMOVES);
+        BlockData newBlockData = setsBlock ? finalBlockData : finalReplacedBlockData;
+        BlockData oldBlockData = setsBlock ? finalReplacedBlockData : finalBlockData;
+
+        if (!modificationRuleset.overwrite() && currentBlockData.matches(newBlockData)) {
+            return ModificationResult.builder()
+                .activity(activityContext)
+                .skipped()
+                .target(currentBlockData.getMaterial().translationKey())
+                .skipReason(ModificationSkipReason.ALREADY_SET)
+                .build();
+        }
+
+        var location = location(activityContext.worldUuid(), activityContext.coordinate());
+        setBlock(
+            activityContext,
+            location.getWorld().getBlockAt(location),
+            location,
+            newBlockData,
+            oldBlockData,
+            null,
+            owner,
+            ModificationQueueMode.PLANNING,
+            false
+        );
+
+        return resultBuilder.build();
+    }
+
     /**
      * A convenience method for getting a location.
      *
@@ -496,7 +563,11 @@ public class PaperBlockAction extends PaperAction implements BlockAction {
         }
 
         if (mode.equals(ModificationQueueMode.PLANNING) && owner instanceof Player player) {
-            player.sendBlockChange(location, newBlockData);
+            PrismPaper.instance()
+                .injectorProvider()
+                .injector()
+                .getInstance(PreviewBlockChangeService.class)
+                .sendBlockChange(player, location, newBlockData);
             return null;
         } else if (!mode.equals(ModificationQueueMode.COMPLETING)) {
             return null;
@@ -129,7 +129,12 @@ public class PreviewCommand {
             return;
         }
 
-        optionalQueue.get().apply();
+        // Other queues may have started modifying the previewed area since
+        if (!modificationQueueService.applyPreview(player)) {
+            messageService.errorQueueNotFree(player);
+
+            return;
+        }
 
         messageService.previewApplied(player);
     }
@@ -241,7 +246,7 @@ public class PreviewCommand {
         final ModificationRuleset modificationRuleset
     ) {
         // Ensure a queue is free
-        if (!modificationQueueService.queueAvailable()) {
+        if (!modificationQueueService.queueAvailable(player, query)) {
             messageService.errorQueueNotFree(player);
 
             return;
@@ -23,6 +23,8 @@ package org.prism_mc.prism.paper.commands;
 import com.google.inject.Inject;
 import dev.triumphteam.cmd.bukkit.annotation.Permission;
 import dev.triumphteam.cmd.core.annotations.Command;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -34,14 +36,23 @@ import org.prism_mc.prism.api.services.modifications.ModificationResultStatus;
 import org.prism_mc.prism.api.services.pagination.ListPaginationResult;
 import org.prism_mc.prism.api.services.pagination.PaginationHandler;
 import org.prism_mc.prism.api.services.recording.RecordingService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
 import org.prism_mc.prism.paper.permissions.PrismPermissions;
 import org.prism_mc.prism.paper.services.messages.MessageService;
+import org.prism_mc.prism.paper.services.modifications.NamedModificationOwner;
 import org.prism_mc.prism.paper.services.pagination.PaginationService;
 
 @Command(value = "prism", alias = { "pr" })
 public class ReportCommand {
 
+    /**
+     * Slow query time format.
+     */
+    private static final DateTimeFormatter SLOW_QUERY_DATE_FORMATTER = DateTimeFormatter.ofPattern(
+        "yyyy-MM-dd HH:mm:ss"
+    ).withZone(ZoneId.systemDefault());
+
     private final ConfigurationService configurationService;
 
     /**
@@ -64,6 +75,11 @@ public class ReportCommand {
      */
     private final RecordingService recordingService;
 
+    /**
+     * The slow query service.
+     */
+    private final SlowQueryService slowQueryService;
+
     /**
      * Construct the command.
      *
@@ -72,6 +88,7 @@ public class ReportCommand {
      * @param modificationQueueService The modification queue service
      * @param paginationService The pagination service
      * @param recordingService The recording service
+     * @param slowQueryService The slow query service
      */
     @Inject
     public ReportCommand(
@@ -79,13 +96,15 @@ public class ReportCommand {
         MessageService messageService,
         ModificationQueueService modificationQueueService,
         PaginationService paginationService,
-        RecordingService recordingService
+        RecordingService recordingService,
+        SlowQueryService slowQueryService
     ) {
         this.configurationService = configurationService;
         this.messageService = messageService;
         this.modificationQueueService = modificationQueueService;
         this.paginationService = paginationService;
         this.recordingService = recordingService;
+        this.slowQueryService = slowQueryService;
     }
 
     @Command("report")
@@ -99,23 +118,24 @@ public class ReportCommand {
         @Command("modification-queue")
         @Permission(PrismPermissions.PERM_COMMAND_REPORT_QUEUE)
         public void onModificationQueueReport(final CommandSender sender) {
-            if (modificationQueueService.currentQueue() == null) {
+            var queues = modificationQueueService.currentQueues();
+            if (queues.isEmpty()) {
                 messageService.errorQueueReportEmpty(sender);
 
                 return;
             }
 
-            var owner = "console";
-            if (modificationQueueService.currentQueue().owner() instanceof Player player) {
-                owner = player.getName();
-            }
-
             messageService.modificationsReportQueueHeader(sender);
-            messageService.modificationsReportQueueEntry(
-                sender,
-                modificationQueueService.currentQueue().queueSize(),
-                owner
-            );
+            for (var queue : queues) {
+                var owner = "console";
+                if (queue.owner() instanceof Player player) {
+                    owner = player.getName();
+                } else if (queue.owner() instanceof NamedModificationOwner namedOwner) {
+                    owner = namedOwner.name();
+                }
+
+                messageService.modificationsReportQueueEntry(sender, queue.queueSize(), owner);
+            }
         }
 
         /**
@@ -142,6 +162,47 @@ public class ReportCommand {
                 .forEach(entry -> messageService.recordingReportQueueEntry(sender, entry.getKey(), entry.getValue()));
         }
 
+        /**
+         * Run the slow queries report command.
+         *
+         * @param sender The command sender
+         */
+        @Command("slow-queries")
+        @Permission(PrismPermissions.PERM_COMMAND_REPORT_SLOW_QUERIES)
+        public void onSlowQueriesReport(final CommandSender sender) {
+            if (slowQueryService.thresholdMs() <= 0) {
+                messageService.errorSlowQueryReportDisabled(sender);
+
+                return;
+            }
+
+            var slowQueries = slowQueryService.slowQueries();
+            if (slowQueries.isEmpty()) {
+                messageService.errorSlowQueryReportEmpty(sender);
+
+                return;
+            }
+
+            messageService.slowQueryReportHeader(sender, slowQueryService.thresholdMs());
+
+            for (var slowQuery : slowQueries) {
+                messageService.slowQueryReportEntry(
+                    sender,
+                    slowQuery.durationMs(),
+                    SLOW_QUERY_DATE_FORMATTER.format(slowQuery.recorded()),
+                    slowQuery.sql()
+                );
+
+                if (!slowQuery.bindValues().isEmpty()) {
+                    messageService.slowQueryReportBinds(sender, String.join(", ", slowQuery.bindValues()));
+                }
+
+                if (slowQuery.plan() != null) {
+                    messageService.slowQueryReportPlan(sender, slowQuery.plan());
+                }
+            }
+        }
+
         /**
          * Run the modification skips report command.
          *
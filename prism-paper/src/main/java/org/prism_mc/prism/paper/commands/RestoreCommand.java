@@ -143,6 +143,12 @@ public class RestoreCommand {
             messageService.modificationsQuerying(sender);
 
             final ActivityQuery query = queryBuilder.build();
+            if (!modificationQueueService.queueAvailable(sender, query)) {
+                messageService.errorQueueNotFree(sender);
+
+                return;
+            }
+
             prismScheduler.runAsync(() -> {
                 // Ownership transferred to the ModificationQueue, which closes the stream
                 // (or reopens it for preview->apply). Cannot use try-with-resources here.
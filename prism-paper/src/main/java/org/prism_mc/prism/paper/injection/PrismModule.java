@@ -26,6 +26,7 @@ import com.google.inject.Singleton;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.multibindings.MapBinder;
 import com.google.inject.name.Named;
+import com.google.inject.name.Names;
 import io.leangen.geantyref.TypeToken;
 import java.nio.file.Path;
 import javax.annotation.Nullable;
@@ -56,6 +57,7 @@ import org.prism_mc.prism.core.injection.factories.RestoreFactory;
 import org.prism_mc.prism.core.injection.factories.RollbackFactory;
 import org.prism_mc.prism.core.injection.factories.SqlActivityQueryBuilderFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
+import org.prism_mc.prism.core.services.slowqueries.SlowQueryService;
 import org.prism_mc.prism.core.storage.adapters.clickhouse.ClickhouseStorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.h2.H2StorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.mariadb.MariaDbStorageAdapter;
@@ -63,10 +65,12 @@ import org.prism_mc.prism.core.storage.adapters.mysql.MysqlActivityQueryBuilder;
 import org.prism_mc.prism.core.storage.adapters.mysql.MysqlSchemaUpdater;
 import org.prism_mc.prism.core.storage.adapters.mysql.MysqlStorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.postgres.PostgresStorageAdapter;
+import org.prism_mc.prism.core.storage.adapters.sql.AbstractSqlStorageAdapter;
 import org.prism_mc.prism.core.storage.adapters.sql.FileSqlActivityQueryBuilder;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlActivityQueryBuilder;
 import org.prism_mc.prism.core.storage.adapters.sql.SqlSchemaUpdater;
 import org.prism_mc.prism.core.storage.adapters.sqlite.SqliteStorageAdapter;
+import org.prism_mc.prism.core.storage.adapters.tiered.TieredStorageAdapter;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
 import org.prism_mc.prism.loader.services.configuration.storage.StorageConfiguration;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
@@ -269,6 +273,7 @@ public class PrismModule extends AbstractModule {
 
         // Service - Cache
         bind(CacheService.class).in(Singleton.class);
+        bind(SlowQueryService.class).in(Singleton.class);
 
         // Service - Configuration
         bind(ConfigurationService.class).toInstance(prism.loader().configurationService());
@@ -370,16 +375,36 @@ public class PrismModule extends AbstractModule {
         }
 
         // Bind the correct storage adapter
-        switch (storageType) {
-            case CLICKHOUSE -> bind(StorageAdapter.class).to(ClickhouseStorageAdapter.class).in(Singleton.class);
-            case H2 -> bind(StorageAdapter.class).to(H2StorageAdapter.class).in(Singleton.class);
-            case MARIADB -> bind(StorageAdapter.class).to(MariaDbStorageAdapter.class).in(Singleton.class);
-            case MYSQL -> bind(StorageAdapter.class).to(MysqlStorageAdapter.class).in(Singleton.class);
-            case POSTGRES -> bind(StorageAdapter.class).to(PostgresStorageAdapter.class).in(Singleton.class);
-            case SQLITE -> bind(StorageAdapter.class).to(SqliteStorageAdapter.class).in(Singleton.class);
-            default -> {
-                // ignored
+        Class<? extends AbstractSqlStorageAdapter> storageAdapterClass = switch (storageType) {
+            case CLICKHOUSE -> ClickhouseStorageAdapter.class;
+            case H2 -> H2StorageAdapter.class;
+            case MARIADB -> MariaDbStorageAdapter.class;
+            case MYSQL -> MysqlStorageAdapter.class;
+            case POSTGRES -> PostgresStorageAdapter.class;
+            case SQLITE -> SqliteStorageAdapter.class;
+        };
+
+        // With tiered storage, the primary storage records activities and older ones move to ClickHouse
+        if (
+            prism.loader().configurationService().storageConfig().tiered().enabled() &&
+            !storageType.equals(StorageType.CLICKHOUSE)
+        ) {
+            bind(AbstractSqlStorageAdapter.class)
+                .annotatedWith(Names.named("hotStorage"))
+                .to(storageAdapterClass)
+                .in(Singleton.class);
+            bind(StorageAdapter.class).to(TieredStorageAdapter.class).in(Singleton.class);
+
+            // ClickHouse takes the shared query builder factory, which file-based storage doesn't bind
+            if (storageType.equals(StorageType.SQLITE) || storageType.equals(StorageType.H2)) {
+                install(
+                    new FactoryModuleBuilder()
+                        .implement(SqlActivityQueryBuilder.class, SqlActivityQueryBuilder.class)
+                        .build(SqlActivityQueryBuilderFactory.class)
+                );
             }
+        } else {
+            bind(StorageAdapter.class).to(storageAdapterClass).in(Singleton.class);
         }
     }
 }
@@ -82,6 +82,7 @@ public class PrismPermissions {
     public static final String PERM_COMMAND_REPORT_RECORDING_QUEUE = "prism.command.report.recording-queue";
     public static final String PERM_COMMAND_REPORT_PARTIAL = "prism.command.report.partial";
     public static final String PERM_COMMAND_REPORT_SKIPS = "prism.command.report.skips";
+    public static final String PERM_COMMAND_REPORT_SLOW_QUERIES = "prism.command.report.slow-queries";
 
     public static final String PERM_COMMAND_VAULT = "prism." + PATH_VAULT;
 
@@ -223,11 +224,13 @@ public class PrismPermissions {
         register(pluginManager, leaf(PERM_COMMAND_REPORT_RECORDING_QUEUE, PermissionDefault.OP));
         register(pluginManager, leaf(PERM_COMMAND_REPORT_PARTIAL, PermissionDefault.OP));
         register(pluginManager, leaf(PERM_COMMAND_REPORT_SKIPS, PermissionDefault.OP));
+        register(pluginManager, leaf(PERM_COMMAND_REPORT_SLOW_QUERIES, PermissionDefault.OP));
         Map<String, Boolean> reportChildren = new LinkedHashMap<>();
         reportChildren.put(PERM_COMMAND_REPORT_QUEUE, true);
         reportChildren.put(PERM_COMMAND_REPORT_RECORDING_QUEUE, true);
         reportChildren.put(PERM_COMMAND_REPORT_PARTIAL, true);
         reportChildren.put(PERM_COMMAND_REPORT_SKIPS, true);
+        reportChildren.put(PERM_COMMAND_REPORT_SLOW_QUERIES, true);
         register(pluginManager, parent(PERM_COMMAND_REPORT, PermissionDefault.OP, reportChildren));
         modifyCmds.add(PERM_COMMAND_REPORT);
 
@@ -22,6 +22,7 @@ package org.prism_mc.prism.paper.services.lookup;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 import org.bukkit.Bukkit;
@@ -227,7 +228,10 @@ public class LookupService {
     public void lookup(ActivityQuery query, Consumer<List<Activity>> consumer) {
         prismScheduler.runAsync(() -> {
             try {
-                consumer.accept(storageAdapter.queryActivities(query));
+                List<Activity> activities = new ArrayList<>();
+                storageAdapter.queryActivities(query, activities::add);
+
+                consumer.accept(activities);
             } catch (Exception ex) {
                 loggingService.handleException(ex);
             }
@@ -244,7 +248,10 @@ public class LookupService {
     public void lookup(CommandSender sender, ActivityQuery query, Consumer<List<Activity>> consumer) {
         prismScheduler.runAsync(() -> {
             try {
-                consumer.accept(storageAdapter.queryActivities(query));
+                List<Activity> activities = new ArrayList<>();
+                storageAdapter.queryActivities(query, activities::add);
+
+                consumer.accept(activities);
             } catch (Exception ex) {
                 loggingService.handleException(ex);
 
@@ -218,6 +218,12 @@ public interface MessageService {
     @Message("prism.error.reload-locale")
     void errorReloadLocale(CommandSender receiver);
 
+    @Message("prism.error.slow-query-report-disabled")
+    void errorSlowQueryReportDisabled(CommandSender receiver);
+
+    @Message("prism.error.slow-query-report-empty")
+    void errorSlowQueryReportEmpty(CommandSender receiver);
+
     @Message("prism.error.unknown-command")
     void errorUnknownCommand(CommandSender receiver);
 
@@ -353,6 +359,23 @@ public interface MessageService {
     @Message("prism.recording-report-queue-entry")
     void recordingReportQueueEntry(CommandSender receiver, @Placeholder String action, @Placeholder Integer count);
 
+    @Message("prism.slow-query-report-header")
+    void slowQueryReportHeader(CommandSender receiver, @Placeholder Integer threshold);
+
+    @Message("prism.slow-query-report-entry")
+    void slowQueryReportEntry(
+        CommandSender receiver,
+        @Placeholder Long duration,
+        @Placeholder String recorded,
+        @Placeholder String sql
+    );
+
+    @Message("prism.slow-query-report-binds")
+    void slowQueryReportBinds(CommandSender receiver, @Placeholder String binds);
+
+    @Message("prism.slow-query-report-plan")
+    void slowQueryReportPlan(CommandSender receiver, @Placeholder String plan);
+
     @Message("prism.modifications-report-skipped-activity")
     void modificationsReportSkippedActivity(
         CommandSender receiver,
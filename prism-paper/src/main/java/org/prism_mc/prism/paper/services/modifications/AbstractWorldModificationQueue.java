@@ -22,9 +22,14 @@ package org.prism_mc.prism.paper.services.modifications;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -42,24 +47,28 @@ import org.prism_mc.prism.api.services.modifications.ModificationQueueResult;
 import org.prism_mc.prism.api.services.modifications.ModificationResult;
 import org.prism_mc.prism.api.services.modifications.ModificationResultStatus;
 import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
-import org.prism_mc.prism.api.services.modifications.UndoEntry;
 import org.prism_mc.prism.api.storage.StorageAdapter;
 import org.prism_mc.prism.api.util.Coordinate;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
 import org.prism_mc.prism.loader.services.configuration.ModificationConfiguration;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
+import org.prism_mc.prism.paper.PrismPaper;
 import org.prism_mc.prism.paper.services.messages.MessageService;
 import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
-import org.prism_mc.prism.paper.utils.BlockUtils;
 import org.prism_mc.prism.paper.utils.EntityUtils;
 
 public abstract class AbstractWorldModificationQueue implements ModificationQueue {
 
     /**
-     * Multiplier applied to maxPerTask when sizing each streaming refill.
+     * Multiplier applied to maxPerTask when sizing each streaming refill without a task budget.
      */
     private static final int BATCH_FETCH_MULTIPLIER = 5;
 
+    /**
+     * The size of each streaming refill with a task budget, where maxPerTask is only a safety cap.
+     */
+    private static final int BUDGETED_BATCH_FETCH_SIZE = 5000;
+
     /**
      * The logging service.
      */
@@ -90,6 +99,11 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
      */
     protected final ModificationExecutor modificationExecutor;
 
+    /**
+     * The modification job service.
+     */
+    protected final ModificationJobService modificationJobService;
+
     /**
      * The modification ruleset.
      */
@@ -105,6 +119,17 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
      */
     protected final List<Activity> modificationsQueue = Collections.synchronizedList(new ArrayList<>());
 
+    /**
+     * Activities in the current batch that a kept activity at the same block overwrites.
+     * Counted and marked reversed without being applied.
+     */
+    private List<Activity> supersededActivities = List.of();
+
+    /**
+     * The tickets keeping the current batch's chunks loaded, or null between batches.
+     */
+    private volatile ModificationChunkTickets chunkTickets;
+
     /**
      * The onEnd handler.
      */
@@ -156,6 +181,12 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
      */
     protected int countSkipped = 0;
 
+    /**
+     * Count how many were superseded by a kept activity at the same block. Not retained
+     * in {@link #results}, since a farm or redstone rollback can supersede huge numbers.
+     */
+    protected int countSuperseded = 0;
+
     /**
      * Counters accumulated by pre/post-process across region threads. Guarded by
      * {@code this} — pre/post-process may run on different region threads on Folia.
@@ -189,17 +220,19 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
     /**
      * Per-applied-block undo snapshots. Captured live from the world before
      * the queue overwrote each block. Used by {@code /pr undo} to replay
-     * world state without re-querying the activity log.
+     * world state without re-querying the activity log. Packed into a compact
+     * journal since a large apply holds one per block until undo expires.
      */
-    protected final List<UndoEntry> undoEntries = new ArrayList<>();
+    protected final BlockUndoJournal undoEntries = new BlockUndoJournal();
 
     /**
-     * Primary keys of activities applied during the current batch, awaiting a
-     * {@code markReversed} flush. Drained after each batch so the IN list size
-     * stays bounded and we don't hit per-statement limits on rollbacks of
-     * hundreds of thousands of activities.
+     * Activities applied during the current batch, awaiting a
+     * {@code markActivitiesReversed} flush. Drained after each batch so the IN
+     * list size stays bounded and we don't hit per-statement limits on rollbacks
+     * of hundreds of thousands of activities. Storage that writes reversal rows
+     * builds them from these activities instead of reading them again.
      */
-    private final List<Long> pendingReversalKeys = new ArrayList<>();
+    private final List<Activity> pendingReversals = new ArrayList<>();
 
     /**
      * Set once a {@code markReversed} flush has failed and the owner has been
@@ -225,6 +258,33 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
      */
     private boolean preProcessRan = false;
 
+    /**
+     * The on-disk job tracking this apply, or null if it isn't saved.
+     */
+    private ModificationJob job;
+
+    /**
+     * The interrupted job this queue resumes, and the undo entries it had saved.
+     */
+    private ModificationJob resumedJob;
+    private BlockUndoJournal resumedUndoEntries;
+
+    /**
+     * Runs once when the queue is destroyed, whether it finished, failed or was cancelled.
+     */
+    private Runnable onDestroyed;
+
+    /**
+     * How many of the job's keys have been read from the stream. Guarded by {@link #inFlightKeys}.
+     */
+    private int jobFetched = 0;
+
+    /**
+     * Keys read from the stream but not yet processed, saved with each checkpoint so
+     * a resumed job applies them again.
+     */
+    private final Set<Long> inFlightKeys = new LinkedHashSet<>();
+
     /**
      * Whether the operation has been canceled or finalized.
      */
@@ -239,6 +299,7 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
      * @param storageAdapter The storage adapter
      * @param prismScheduler The scheduler
      * @param modificationExecutor The modification executor
+     * @param modificationJobService The modification job service
      * @param modificationRuleset Modification rule set
      * @param owner The owner
      * @param query The query
@@ -252,6 +313,7 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
         StorageAdapter storageAdapter,
         PrismScheduler prismScheduler,
         ModificationExecutor modificationExecutor,
+        ModificationJobService modificationJobService,
         ModificationRuleset modificationRuleset,
         Object owner,
         ActivityQuery query,
@@ -264,6 +326,7 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
         this.storageAdapter = storageAdapter;
         this.prismScheduler = prismScheduler;
         this.modificationExecutor = modificationExecutor;
+        this.modificationJobService = modificationJobService;
         this.modificationRuleset = modificationRuleset;
         this.owner = owner;
         this.query = query;
@@ -315,28 +378,49 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
         }
 
         synchronized (this) {
-            if (modificationRuleset.drainLava()) {
-                countDrainedLava += BlockUtils.removeBlocksByMaterial(
-                    world,
-                    effectiveBox,
-                    List.of(Material.LAVA)
-                ).size();
-            }
-
             if (modificationRuleset.removeDrops()) {
                 countRemovedDrops += EntityUtils.removeDropsInRange(world, effectiveBox);
             }
+        }
+    }
 
-            if (!modificationRuleset.removeBlocks().isEmpty()) {
-                List<Material> materials = modificationRuleset
-                    .removeBlocks()
-                    .stream()
-                    .map(m -> Material.valueOf(m.toUpperCase()))
-                    .toList();
+    /**
+     * Drain lava and remove the configured blocks in the modification area, before
+     * anything is modified. Loaded chunks are scanned once, as snapshots off-thread,
+     * so only the matching blocks are touched on the tick.
+     *
+     * @param world The world
+     * @return A future completing once the blocks are removed
+     */
+    private CompletableFuture<Void> removeBlocksBeforeModifying(World world) {
+        Set<Material> materials = modificationRuleset
+            .removeBlocks()
+            .stream()
+            .map(m -> Material.valueOf(m.toUpperCase()))
+            .collect(Collectors.toCollection(HashSet::new));
+
+        boolean drainLava = modificationRuleset.drainLava();
+        if (drainLava) {
+            materials.add(Material.LAVA);
+        }
 
-                countRemovedBlocks += BlockUtils.removeBlocksByMaterial(world, effectiveBox, materials).size();
+        return SnapshotBlockRemover.removeBlocksByMaterial(
+            prismScheduler,
+            world,
+            modificationBoundingBox(),
+            materials,
+            ModificationTickBudget.nanos(modificationRuleset)
+        ).thenAccept(counts -> {
+            synchronized (this) {
+                counts.forEach((material, count) -> {
+                    if (drainLava && material == Material.LAVA) {
+                        countDrainedLava += count;
+                    } else {
+                        countRemovedBlocks += count;
+                    }
+                });
             }
-        }
+        });
     }
 
     /**
@@ -452,10 +536,59 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
     @Override
     public void apply() {
         resetState(ModificationQueueMode.COMPLETING);
+        startJob();
         announceStart();
         fetchAndRunNextBatch();
     }
 
+    /**
+     * Resume an interrupted job instead of starting a new one when applied.
+     *
+     * @param job The interrupted job
+     * @param savedUndoEntries The undo entries the job had saved
+     * @param onDestroyed Runs once the queue is gone, however it ended, unless the server is stopping
+     */
+    public void resume(ModificationJob job, BlockUndoJournal savedUndoEntries, Runnable onDestroyed) {
+        this.resumedJob = job;
+        this.resumedUndoEntries = savedUndoEntries;
+        this.onDestroyed = onDestroyed;
+    }
+
+    /**
+     * Save this apply to disk so it can resume after a restart.
+     */
+    private void startJob() {
+        if (resumedJob != null) {
+            // Earlier blocks were already changed, so keep their undo entries and don't pre-process again
+            undoEntries.addAll(resumedUndoEntries);
+            preProcessRan = true;
+        }
+
+        job = modificationJobService.start(resumedJob, this, activityStream, undoEntries.drainRecords());
+        resumedJob = null;
+        resumedUndoEntries = null;
+    }
+
+    /**
+     * Save the job's progress after a batch, once its reversal keys have been flushed.
+     *
+     * @param reversalKeys The keys just marked reversed
+     */
+    private void checkpointJob(List<Long> reversalKeys) {
+        if (job == null) {
+            return;
+        }
+
+        ModificationJobCheckpoint checkpoint = modificationJobService.checkpointFor(this);
+        synchronized (inFlightKeys) {
+            checkpoint.setFetched(jobFetched);
+            checkpoint.setInFlightKeys(new ArrayList<>(inFlightKeys));
+        }
+        checkpoint.setReversalKeys(reversalKeys);
+
+        modificationJobService.checkpoint(job, checkpoint, undoEntries.drainRecords());
+    }
+
     /**
      * Reset counters and prepare the result builder for a fresh apply or preview run.
      *
@@ -468,6 +601,7 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
         countPartial = 0;
         countPlanned = 0;
         countSkipped = 0;
+        countSuperseded = 0;
         countDrainedLava = 0;
         countRemovedBlocks = 0;
         countRemovedDrops = 0;
@@ -475,10 +609,15 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
         results.clear();
         undoEntries.clear();
         modificationsQueue.clear();
-        pendingReversalKeys.clear();
+        pendingReversals.clear();
         reversalErrorReported = false;
         preProcessRan = false;
         cancelled = false;
+        job = null;
+        synchronized (inFlightKeys) {
+            jobFetched = 0;
+            inFlightKeys.clear();
+        }
         activityStream.reopen();
         progressTotal = activityStream.total();
         progressLastReportedPercent = 0;
@@ -496,15 +635,21 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
 
     /**
      * Pull the next batch off the activity stream (async, off the region
-     * thread), then resume executor scheduling on the global region. When
-     * the stream is exhausted, finalize the result and fire the end callback.
+     * thread), regroup it by chunk and load those chunks, then resume executor
+     * scheduling on the global region. When the stream is exhausted, finalize
+     * the result and fire the end callback.
      */
     private void fetchAndRunNextBatch() {
         if (cancelled) {
             return;
         }
 
-        int batchSize = Math.max(modificationRuleset.maxPerTask() * BATCH_FETCH_MULTIPLIER, 1);
+        // The previous batch is fully applied at this point
+        releaseChunkTickets();
+
+        int batchSize = modificationRuleset.taskBudgetMillis() > 0
+            ? BUDGETED_BATCH_FETCH_SIZE
+            : Math.max(modificationRuleset.maxPerTask() * BATCH_FETCH_MULTIPLIER, 1);
 
         prismScheduler.runAsync(() -> {
             List<Activity> batch;
@@ -512,42 +657,78 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
                 batch = activityStream.next(batchSize);
             } catch (Exception e) {
                 loggingService.handleException(e);
-                prismScheduler.runGlobal(this::finalizeResult);
+                finishAfterDrain();
                 return;
             }
 
+            if (job != null) {
+                synchronized (inFlightKeys) {
+                    jobFetched += batchSize;
+                    batch.forEach(activity -> inFlightKeys.add((long) activity.primaryKey()));
+                }
+            }
+
             if (cancelled) {
                 return;
             }
 
             if (batch.isEmpty()) {
-                prismScheduler.runGlobal(this::finalizeResult);
+                finishAfterDrain();
                 return;
             }
 
-            prismScheduler.runGlobal(() -> {
+            // Only the activity whose effect survives at each block needs to be applied
+            ModificationCollapser.Collapsed collapsed = ModificationCollapser.collapse(batch, markReversedState());
+            List<Activity> chunkGrouped = ModificationChunkPlanner.groupByChunk(collapsed.kept());
+
+            // Load the batch's chunks before applying it so the tick never waits on a sync load.
+            // A chunk that fails to load is loaded on demand when its changes are applied.
+            ModificationChunkPlanner.preloadChunks(chunkGrouped).whenComplete((chunks, t) -> {
+                if (t != null) {
+                    loggingService.handleThrowable("Failed to preload chunks for a modification batch.", t);
+                }
+
                 if (cancelled) {
                     return;
                 }
-                modificationsQueue.clear();
-                modificationsQueue.addAll(batch);
-                executeCurrentBatch();
+
+                prismScheduler.runGlobal(() -> {
+                    if (cancelled) {
+                        return;
+                    }
+                    modificationsQueue.clear();
+                    modificationsQueue.addAll(chunkGrouped);
+                    supersededActivities = collapsed.superseded();
+
+                    // Preloaded chunks aren't held, so keep them loaded until their changes are applied
+                    chunkTickets = new ModificationChunkTickets(PrismPaper.instance().loaderPlugin(), prismScheduler);
+                    chunkTickets.hold(chunkGrouped);
+
+                    executeCurrentBatch();
+                });
             });
         });
     }
 
     /**
      * Hand the current in-memory batch to the modification executor. When the
-     * executor finishes the batch, kick off another stream fetch — or finalize
-     * if the stream is drained.
+     * executor is ready for more, kick off another stream fetch — or finalize
+     * once the stream and the executor are both drained.
      */
     private void executeCurrentBatch() {
         String batchMsg = "Modification batch beginning application. Batch size: {0}";
         loggingService.debug(batchMsg, modificationsQueue.size());
 
+        // Previews are planned off-thread from chunk snapshots where possible
+        if (mode.equals(ModificationQueueMode.PLANNING)) {
+            planCurrentBatch();
+
+            return;
+        }
+
         Location schedulerLocation = schedulerLocation();
 
-        // Pre-process (drain lava, remove drops/blocks) fires only on the first batch.
+        // Pre-process (drain lava, remove blocks/drops) fires only on the first batch.
         // After that, blocks are already cleared and re-running would either re-clear
         // newly-placed rollback blocks or inflate counts.
         boolean shouldPreProcess =
@@ -572,77 +753,258 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
             ? this::postProcess
             : null;
 
+        World world = shouldPreProcess ? Bukkit.getWorld(query.worldUuid()) : null;
+        if (world == null) {
+            runExecutor(schedulerLocation, preProcessor, postProcessor);
+
+            return;
+        }
+
+        // Blocks are removed ahead of the executor; it only removes drops per region
+        removeBlocksBeforeModifying(world).whenComplete((ignored, t) -> {
+            if (t != null) {
+                loggingService.handleThrowable("Failed to remove blocks before a modification.", t);
+            }
+
+            if (cancelled) {
+                return;
+            }
+
+            prismScheduler.runGlobal(() -> runExecutor(schedulerLocation, preProcessor, postProcessor));
+        });
+    }
+
+    /**
+     * Plan the current preview batch from chunk snapshots, then run whatever couldn't
+     * be planned that way through the executor.
+     */
+    private void planCurrentBatch() {
+        List<Activity> batch = new ArrayList<>(modificationsQueue);
+        List<Activity> superseded = supersededActivities;
+
+        SnapshotModificationPlanner.plan(
+            prismScheduler,
+            batch,
+            modificationRuleset,
+            owner,
+            markReversedState()
+        ).whenComplete((planned, t) -> {
+            if (t != null) {
+                loggingService.handleThrowable("Failed to plan a preview batch off-thread.", t);
+            }
+
+            if (cancelled) {
+                return;
+            }
+
+            // Results are tallied once the executor has finished the previous batch
+            modificationExecutor.drain(() -> {
+                if (cancelled) {
+                    return;
+                }
+
+                onSuperseded(superseded);
+
+                List<Activity> remaining = batch;
+                if (planned != null) {
+                    planned.results().forEach(this::onResult);
+                    remaining = planned.remaining();
+                }
+
+                if (remaining.isEmpty()) {
+                    fetchAndRunNextBatch();
+
+                    return;
+                }
+
+                List<Activity> unplanned = remaining;
+                prismScheduler.runGlobal(() -> {
+                    if (cancelled) {
+                        return;
+                    }
+
+                    modificationsQueue.clear();
+                    modificationsQueue.addAll(unplanned);
+                    supersededActivities = List.of();
+                    runExecutor(schedulerLocation(), null, null);
+                });
+            });
+        });
+    }
+
+    /**
+     * Run the current batch through the modification executor.
+     *
+     * @param schedulerLocation The scheduler location
+     * @param preProcessor The pre-processor, or null
+     * @param postProcessor The post-processor, or null
+     */
+    private void runExecutor(
+        Location schedulerLocation,
+        BiConsumer<World, BoundingBox> preProcessor,
+        BiConsumer<World, BoundingBox> postProcessor
+    ) {
+        List<Activity> superseded = supersededActivities;
+        supersededActivities = List.of();
+        ModificationChunkTickets tickets = chunkTickets;
+
         modificationExecutor.execute(
             modificationsQueue,
             mode,
             modificationRuleset,
             schedulerLocation,
-            this::applyModification,
-            result -> {
-                trackBoundingBox(result);
-                countProcessed++;
-
-                if (result.status().equals(ModificationResultStatus.PLANNED)) {
-                    countPlanned++;
-                    // Don't pin the result — keep just the lightweight undo
-                    // snapshot, which cancelPreview replays to revert client
-                    // packets without holding Activity refs.
-                    if (result.undoEntry() != null) {
-                        undoEntries.add(result.undoEntry());
+            activity -> {
+                try {
+                    return applyModification(activity);
+                } finally {
+                    if (tickets != null) {
+                        tickets.applied(activity);
                     }
-                } else if (result.status().equals(ModificationResultStatus.APPLIED)) {
-                    countApplied++;
-                    // Same shape as PLANNED: snapshot is all the queue and
-                    // any future /pr undo need; the Activity ref would just
-                    // pin memory per block.
-                    if (result.undoEntry() != null) {
-                        undoEntries.add(result.undoEntry());
-                    }
-                    if (mode.equals(ModificationQueueMode.COMPLETING)) {
-                        pendingReversalKeys.add((long) result.activity().primaryKey());
-                    }
-                } else if (result.status().equals(ModificationResultStatus.PARTIAL)) {
-                    countPartial++;
-                    results.add(result);
-                } else {
-                    countSkipped++;
-                    results.add(result);
                 }
-
-                maybeReportProgress();
             },
+            this::onResult,
             preProcessor,
             postProcessor,
             () -> {
-                flushPendingReversalKeys();
+                // Tallied alongside the executor's results so the counts are only touched by one thread at a time
+                onSuperseded(superseded);
+                checkpointJob(flushPendingReversalKeys());
                 fetchAndRunNextBatch();
             }
         );
     }
 
     /**
-     * Snapshot and clear the keys accumulated during the just-completed batch,
+     * Tally a processed result.
+     *
+     * @param result The modification result
+     */
+    private void onResult(ModificationResult result) {
+        trackBoundingBox(result);
+        countProcessed++;
+
+        if (job != null) {
+            synchronized (inFlightKeys) {
+                inFlightKeys.remove((long) result.activity().primaryKey());
+            }
+        }
+
+        if (result.status().equals(ModificationResultStatus.PLANNED)) {
+            countPlanned++;
+            // Don't pin the result — keep just the lightweight undo
+            // snapshot, which cancelPreview replays to revert client
+            // packets without holding Activity refs.
+            if (result.undoEntry() != null) {
+                undoEntries.add(result.undoEntry());
+            }
+        } else if (result.status().equals(ModificationResultStatus.APPLIED)) {
+            countApplied++;
+            // Same shape as PLANNED: snapshot is all the queue and
+            // any future /pr undo need; the Activity ref would just
+            // pin memory per block.
+            if (result.undoEntry() != null) {
+                undoEntries.add(result.undoEntry());
+            }
+            if (mode.equals(ModificationQueueMode.COMPLETING)) {
+                pendingReversals.add(result.activity());
+            }
+        } else if (result.status().equals(ModificationResultStatus.PARTIAL)) {
+            countPartial++;
+            results.add(result);
+        } else {
+            countSkipped++;
+            results.add(result);
+        }
+
+        maybeReportProgress();
+    }
+
+    /**
+     * Tally activities dropped because a kept activity overwrites them, and mark them
+     * reversed along with the applied ones. Only counted, never kept as results.
+     *
+     * @param superseded The superseded activities
+     */
+    private void onSuperseded(List<Activity> superseded) {
+        if (superseded.isEmpty()) {
+            return;
+        }
+
+        countProcessed += superseded.size();
+        countSuperseded += superseded.size();
+
+        if (job != null) {
+            synchronized (inFlightKeys) {
+                for (Activity activity : superseded) {
+                    inFlightKeys.remove((long) activity.primaryKey());
+                }
+            }
+        }
+
+        if (mode.equals(ModificationQueueMode.COMPLETING)) {
+            pendingReversals.addAll(superseded);
+        }
+
+        maybeReportProgress();
+    }
+
+    /**
+     * Once the executor has finished everything handed to it, flush the last
+     * reversal keys and finalize the result on the global region.
+     */
+    private void finishAfterDrain() {
+        modificationExecutor.drain(() ->
+            prismScheduler.runGlobal(() -> {
+                releaseChunkTickets();
+                flushPendingReversalKeys();
+                finalizeResult();
+                discardJob();
+            })
+        );
+    }
+
+    /**
+     * Snapshot and clear the activities accumulated during the just-completed batch,
      * then mark them reversed off the region thread. Done per-batch so the IN
      * list never grows large enough to exceed driver/statement limits during
      * rollbacks of very large queries.
+     *
+     * @return The keys being marked
      */
-    private void flushPendingReversalKeys() {
-        if (pendingReversalKeys.isEmpty()) {
-            return;
+    private List<Long> flushPendingReversalKeys() {
+        if (pendingReversals.isEmpty()) {
+            return List.of();
         }
 
-        List<Long> snapshot = new ArrayList<>(pendingReversalKeys);
-        pendingReversalKeys.clear();
+        List<Activity> snapshot = new ArrayList<>(pendingReversals);
+        pendingReversals.clear();
         boolean reversed = markReversedState();
 
         prismScheduler.runAsync(() -> {
             try {
-                storageAdapter.markReversed(snapshot, reversed);
+                storageAdapter.markActivitiesReversed(snapshot, reversed);
             } catch (Exception e) {
                 loggingService.handleException(e);
                 notifyReversalFailureOnce();
             }
         });
+
+        List<Long> keys = new ArrayList<>(snapshot.size());
+        for (Activity activity : snapshot) {
+            keys.add((long) activity.primaryKey());
+        }
+
+        return keys;
+    }
+
+    /**
+     * Delete the job's files once it no longer needs to resume.
+     */
+    private void discardJob() {
+        if (job != null) {
+            modificationJobService.discard(job);
+            job = null;
+        }
     }
 
     /**
@@ -682,6 +1044,7 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
             .partial(countPartial)
             .planned(countPlanned)
             .skipped(countSkipped)
+            .superseded(countSuperseded)
             .drainedLava(countDrainedLava)
             .removedBlocks(countRemovedBlocks)
             .removedDrops(countRemovedDrops)
@@ -730,15 +1093,44 @@ public abstract class AbstractWorldModificationQueue implements ModificationQueu
         return null;
     }
 
+    /**
+     * Release the chunks held for the current batch, if any.
+     */
+    private void releaseChunkTickets() {
+        ModificationChunkTickets tickets = chunkTickets;
+        chunkTickets = null;
+
+        if (tickets != null) {
+            tickets.releaseAll();
+        }
+    }
+
     @Override
     public void destroy() {
         cancelled = true;
         modificationExecutor.cancel();
+
+        // Tickets are dropped with the plugin on shutdown
+        if (!Bukkit.isStopping()) {
+            releaseChunkTickets();
+        }
+
+        // A queue destroyed by a shutdown resumes on the next start
+        if (!Bukkit.isStopping()) {
+            discardJob();
+        }
+
         try {
             activityStream.close();
         } catch (Exception e) {
             loggingService.handleException(e);
         }
+
+        Runnable destroyed = onDestroyed;
+        onDestroyed = null;
+        if (destroyed != null && !Bukkit.isStopping()) {
+            destroyed.run();
+        }
     }
 
     /**
@@ -22,7 +22,6 @@ package org.prism_mc.prism.paper.services.modifications;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import org.bukkit.Bukkit;
 import org.prism_mc.prism.api.activities.ActivityQuery;
 import org.prism_mc.prism.api.services.modifications.ActivityStream;
 import org.prism_mc.prism.api.storage.StorageAdapter;
@@ -100,12 +99,6 @@ public class AutoRollbackService {
             return;
         }
 
-        if (!modificationQueueService.queueAvailable()) {
-            loggingService.warn("Auto-rollback: queue is busy, skipping rollback for banned player {0}.", playerName);
-
-            return;
-        }
-
         int maxPerOperation = configurationService.prismConfig().modifications().maxPerOperation();
 
         var queryBuilder = PaperActivityQuery.builder().causePlayerName(playerName).after(afterTimestamp).rollback();
@@ -115,6 +108,13 @@ public class AutoRollbackService {
         }
 
         final ActivityQuery query = queryBuilder.build();
+        final var owner = new NamedModificationOwner("Auto-rollback of " + playerName);
+
+        if (!modificationQueueService.queueAvailable(owner, query)) {
+            loggingService.warn("Auto-rollback: queue is busy, skipping rollback for banned player {0}.", playerName);
+
+            return;
+        }
 
         loggingService.info("Auto-rollback: querying activities for banned player {0}...", playerName);
 
@@ -138,7 +138,7 @@ public class AutoRollbackService {
                     return;
                 }
 
-                if (!modificationQueueService.queueAvailable()) {
+                if (!modificationQueueService.queueAvailable(owner, query)) {
                     activityStream.close();
                     loggingService.warn(
                         "Auto-rollback: queue became busy, skipping rollback for player {0}.",
@@ -157,10 +157,23 @@ public class AutoRollbackService {
                 var modificationRuleset = configurationService.prismConfig().modifications().toRulesetBuilder().build();
 
                 try {
-                    modificationQueueService
-                        .newRollbackQueue(modificationRuleset, Bukkit.getConsoleSender(), query, activityStream)
-                        .apply();
+                    var queue = modificationQueueService.newRollbackQueue(
+                        modificationRuleset,
+                        owner,
+                        query,
+                        activityStream
+                    );
+
+                    modificationQueueService.onCompletion(owner, result ->
+                        loggingService.info(
+                            "Auto-rollback: rolled back {0} activities for banned player {1}.",
+                            result.applied(),
+                            playerName
+                        )
+                    );
+                    queue.apply();
                 } catch (Exception e) {
+                    modificationQueueService.removeCompletionCallback(owner);
                     activityStream.close();
                     loggingService.handleException(e);
                 }
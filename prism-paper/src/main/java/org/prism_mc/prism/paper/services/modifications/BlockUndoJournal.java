@@ -0,0 +1,610 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import de.tr7zw.nbtapi.NBT;
+import de.tr7zw.nbtapi.iface.ReadWriteNBT;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+import org.prism_mc.prism.api.services.modifications.UndoEntry;
+import org.prism_mc.prism.api.util.Coordinate;
+
+/**
+ * A compact journal of {@link BlockUndoEntry} snapshots.
+ *
+ * <p>Entries are packed into primitive arrays: the activity key, the block position
+ * packed into a long, and indexes into palettes of worlds and block states. Large
+ * applies repeat the same few block states, so each entry costs a few dozen bytes
+ * instead of holding its own location, block data and NBT objects. Tile entity NBT
+ * is deflated into a side buffer and only inflated again on replay.</p>
+ *
+ * <p>Reads materialize a {@link BlockUndoEntry}, so the journal can be used anywhere
+ * a list of undo entries is expected. Not thread-safe; entries are added from the
+ * queue's result callback.</p>
+ *
+ * <p>New entries can be drained as an append-only record stream, so modification
+ * jobs can keep a copy on disk without rewriting the whole journal each time.</p>
+ */
+public class BlockUndoJournal extends AbstractList<UndoEntry> {
+
+    /**
+     * The initial capacity of the entry arrays.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Bits for each horizontal coordinate in a packed position (+/- 33 million).
+     */
+    private static final int HORIZONTAL_BITS = 26;
+
+    /**
+     * Bits for the vertical coordinate in a packed position (+/- 2048).
+     */
+    private static final int VERTICAL_BITS = 12;
+
+    /**
+     * Bits for each chunk coordinate in a chunk key.
+     */
+    private static final int CHUNK_BITS = 22;
+
+    /**
+     * Record type for a world palette entry.
+     */
+    private static final byte RECORD_WORLD = 0;
+
+    /**
+     * Record type for a block state palette entry.
+     */
+    private static final byte RECORD_STATE = 1;
+
+    /**
+     * Record type for an undo entry.
+     */
+    private static final byte RECORD_ENTRY = 2;
+
+    /**
+     * The activity primary keys.
+     */
+    private long[] activityPks = new long[INITIAL_CAPACITY];
+
+    /**
+     * The packed block positions.
+     */
+    private long[] positions = new long[INITIAL_CAPACITY];
+
+    /**
+     * The world palette index of each entry.
+     */
+    private short[] worlds = new short[INITIAL_CAPACITY];
+
+    /**
+     * The state palette index of the block data before the modification.
+     */
+    private int[] oldStates = new int[INITIAL_CAPACITY];
+
+    /**
+     * The state palette index of the block data the modification wrote.
+     */
+    private int[] newStates = new int[INITIAL_CAPACITY];
+
+    /**
+     * The number of entries.
+     */
+    private int size = 0;
+
+    /**
+     * The worlds, by palette index.
+     */
+    private final List<UUID> worldPalette = new ArrayList<>();
+
+    /**
+     * The world palette indexes, by world.
+     */
+    private final Map<UUID, Short> worldIndexes = new HashMap<>();
+
+    /**
+     * The block states, by palette index.
+     */
+    private final List<BlockData> statePalette = new ArrayList<>();
+
+    /**
+     * The state palette indexes, by block state.
+     */
+    private final Map<BlockData, Integer> stateIndexes = new HashMap<>();
+
+    /**
+     * The entries with tile entity NBT, in ascending order.
+     */
+    private int[] nbtEntries = new int[0];
+
+    /**
+     * The offset of each entry's deflated NBT in the side buffer, parallel to {@link #nbtEntries}.
+     */
+    private int[] nbtOffsets = new int[0];
+
+    /**
+     * The number of entries with tile entity NBT.
+     */
+    private int nbtCount = 0;
+
+    /**
+     * Deflated tile entity NBT, stored as SNBT.
+     */
+    private byte[] nbtBuffer = new byte[0];
+
+    /**
+     * The number of bytes used in the NBT side buffer.
+     */
+    private int nbtLength = 0;
+
+    /**
+     * The number of entries already drained as records.
+     */
+    private int persistedSize = 0;
+
+    /**
+     * The number of worlds already drained as records.
+     */
+    private int persistedWorlds = 0;
+
+    /**
+     * The number of block states already drained as records.
+     */
+    private int persistedStates = 0;
+
+    /**
+     * Copy undo entries into a new journal.
+     *
+     * @param entries The entries
+     * @return The journal
+     */
+    public static BlockUndoJournal copyOf(List<? extends UndoEntry> entries) {
+        BlockUndoJournal journal = new BlockUndoJournal();
+        for (UndoEntry entry : entries) {
+            journal.add(entry);
+        }
+
+        return journal;
+    }
+
+    @Override
+    public boolean add(UndoEntry entry) {
+        if (!(entry instanceof BlockUndoEntry block)) {
+            throw new IllegalArgumentException("Only block undo entries can be journaled.");
+        }
+
+        ensureCapacity();
+        activityPks[size] = block.activityPk();
+        positions[size] = packPosition(
+            block.coordinate().intX(),
+            block.coordinate().intY(),
+            block.coordinate().intZ()
+        );
+        worlds[size] = worldIndex(block.worldUuid());
+        oldStates[size] = stateIndex(block.oldBlockData());
+        newStates[size] = stateIndex(block.newBlockData());
+
+        if (block.oldTileNbt() != null) {
+            appendNbt(size, block.oldTileNbt());
+        }
+
+        size++;
+        modCount++;
+
+        return true;
+    }
+
+    @Override
+    public BlockUndoEntry get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        long position = positions[index];
+
+        return new BlockUndoEntry(
+            activityPks[index],
+            worldPalette.get(worlds[index]),
+            new Coordinate(unpackX(position), unpackY(position), unpackZ(position)),
+            statePalette.get(oldStates[index]),
+            statePalette.get(newStates[index]),
+            readNbt(index)
+        );
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        activityPks = new long[INITIAL_CAPACITY];
+        positions = new long[INITIAL_CAPACITY];
+        worlds = new short[INITIAL_CAPACITY];
+        oldStates = new int[INITIAL_CAPACITY];
+        newStates = new int[INITIAL_CAPACITY];
+        size = 0;
+        worldPalette.clear();
+        worldIndexes.clear();
+        statePalette.clear();
+        stateIndexes.clear();
+        nbtEntries = new int[0];
+        nbtOffsets = new int[0];
+        nbtCount = 0;
+        nbtBuffer = new byte[0];
+        nbtLength = 0;
+        persistedSize = 0;
+        persistedWorlds = 0;
+        persistedStates = 0;
+        modCount++;
+    }
+
+    /**
+     * Serialize everything added since the last drain as records, to append to a file.
+     *
+     * @return The records
+     */
+    public byte[] drainRecords() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (int i = persistedWorlds; i < worldPalette.size(); i++) {
+                out.writeByte(RECORD_WORLD);
+                out.writeLong(worldPalette.get(i).getMostSignificantBits());
+                out.writeLong(worldPalette.get(i).getLeastSignificantBits());
+            }
+
+            for (int i = persistedStates; i < statePalette.size(); i++) {
+                out.writeByte(RECORD_STATE);
+                out.writeUTF(statePalette.get(i).getAsString());
+            }
+
+            for (int i = persistedSize; i < size; i++) {
+                out.writeByte(RECORD_ENTRY);
+                out.writeLong(activityPks[i]);
+                out.writeLong(positions[i]);
+                out.writeShort(worlds[i]);
+                out.writeInt(oldStates[i]);
+                out.writeInt(newStates[i]);
+
+                int slot = Arrays.binarySearch(nbtEntries, 0, nbtCount, i);
+                if (slot < 0) {
+                    out.writeInt(-1);
+                } else {
+                    int offset = nbtOffsets[slot];
+                    int recordLength = 8 + readInt(offset + 4);
+                    out.writeInt(recordLength);
+                    out.write(nbtBuffer, offset, recordLength);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        persistedWorlds = worldPalette.size();
+        persistedStates = statePalette.size();
+        persistedSize = size;
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Append entries from records written by {@link #drainRecords()}. Stops quietly at a
+     * truncated record, which is what a crash mid-write leaves behind. Loaded entries
+     * count as drained.
+     *
+     * @param in The record stream
+     * @throws IOException If the stream can't be read
+     */
+    public void readRecords(DataInputStream in) throws IOException {
+        // Records index the writer's palettes, which may differ from this journal's
+        List<Short> worldRemap = new ArrayList<>();
+        List<Integer> stateRemap = new ArrayList<>();
+
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == RECORD_WORLD) {
+                    worldRemap.add(worldIndex(new UUID(in.readLong(), in.readLong())));
+                } else if (type == RECORD_STATE) {
+                    stateRemap.add(stateIndex(Bukkit.createBlockData(in.readUTF())));
+                } else if (type == RECORD_ENTRY) {
+                    long activityPk = in.readLong();
+                    long position = in.readLong();
+                    short world = worldRemap.get(in.readShort());
+                    int oldState = stateRemap.get(in.readInt());
+                    int newState = stateRemap.get(in.readInt());
+
+                    byte[] nbtRecord = null;
+                    int recordLength = in.readInt();
+                    if (recordLength >= 0) {
+                        nbtRecord = in.readNBytes(recordLength);
+                        if (nbtRecord.length < recordLength) {
+                            break;
+                        }
+                    }
+
+                    ensureCapacity();
+                    activityPks[size] = activityPk;
+                    positions[size] = position;
+                    worlds[size] = world;
+                    oldStates[size] = oldState;
+                    newStates[size] = newState;
+
+                    if (nbtRecord != null) {
+                        appendNbtRecord(size, nbtRecord);
+                    }
+
+                    size++;
+                    modCount++;
+                } else {
+                    throw new IOException("Unknown undo journal record type " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the records, or a record cut short by a crash
+        }
+
+        persistedWorlds = worldPalette.size();
+        persistedStates = statePalette.size();
+        persistedSize = size;
+    }
+
+    /**
+     * Get the entry indexes grouped by chunk, so a replay touches one chunk at a time.
+     * Chunks are ordered by their first entry and entries keep their journal order
+     * within a chunk.
+     *
+     * @return The entry indexes in replay order
+     */
+    public int[] chunkOrder() {
+        Map<Long, Integer> chunkGroups = new HashMap<>();
+        long[] keys = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            long position = positions[i];
+            long chunkKey =
+                ((long) worlds[i] << (CHUNK_BITS * 2)) |
+                (((long) (unpackX(position) >> 4) & ((1L << CHUNK_BITS) - 1)) << CHUNK_BITS) |
+                ((long) (unpackZ(position) >> 4) & ((1L << CHUNK_BITS) - 1));
+
+            long group = chunkGroups.computeIfAbsent(chunkKey, key -> chunkGroups.size());
+            keys[i] = (group << 32) | i;
+        }
+
+        Arrays.sort(keys);
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) keys[i];
+        }
+
+        return order;
+    }
+
+    /**
+     * Grow the entry arrays if they're full.
+     */
+    private void ensureCapacity() {
+        if (size == activityPks.length) {
+            int capacity = size * 2;
+            activityPks = Arrays.copyOf(activityPks, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            worlds = Arrays.copyOf(worlds, capacity);
+            oldStates = Arrays.copyOf(oldStates, capacity);
+            newStates = Arrays.copyOf(newStates, capacity);
+        }
+    }
+
+    /**
+     * Get the palette index for a world, adding it if new.
+     *
+     * @param worldUuid The world uuid
+     * @return The palette index
+     */
+    private short worldIndex(UUID worldUuid) {
+        return worldIndexes.computeIfAbsent(worldUuid, uuid -> {
+            worldPalette.add(uuid);
+            return (short) (worldPalette.size() - 1);
+        });
+    }
+
+    /**
+     * Get the palette index for a block state, adding it if new.
+     *
+     * @param blockData The block data
+     * @return The palette index
+     */
+    private int stateIndex(BlockData blockData) {
+        return stateIndexes.computeIfAbsent(blockData, data -> {
+            statePalette.add(data);
+            return statePalette.size() - 1;
+        });
+    }
+
+    /**
+     * Deflate an entry's tile entity NBT into the side buffer.
+     *
+     * @param index The entry index
+     * @param nbt The NBT
+     */
+    private void appendNbt(int index, ReadWriteNBT nbt) {
+        byte[] raw = nbt.toString().getBytes(StandardCharsets.UTF_8);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+
+        byte[] chunk = new byte[1024];
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        while (!deflater.finished()) {
+            deflated.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+
+        // Each record is its raw length, deflated length, and the deflated bytes
+        byte[] record = ByteBuffer.allocate(8 + deflated.size())
+            .putInt(raw.length)
+            .putInt(deflated.size())
+            .put(deflated.toByteArray())
+            .array();
+
+        appendNbtRecord(index, record);
+    }
+
+    /**
+     * Append an entry's deflated NBT record to the side buffer.
+     *
+     * @param index The entry index
+     * @param record The record
+     */
+    private void appendNbtRecord(int index, byte[] record) {
+        if (nbtCount == nbtEntries.length) {
+            int capacity = Math.max(16, nbtCount * 2);
+            nbtEntries = Arrays.copyOf(nbtEntries, capacity);
+            nbtOffsets = Arrays.copyOf(nbtOffsets, capacity);
+        }
+
+        nbtEntries[nbtCount] = index;
+        nbtOffsets[nbtCount] = nbtLength;
+        nbtCount++;
+
+        if (nbtLength + record.length > nbtBuffer.length) {
+            nbtBuffer = Arrays.copyOf(nbtBuffer, Math.max(nbtBuffer.length * 2, nbtLength + record.length));
+        }
+
+        System.arraycopy(record, 0, nbtBuffer, nbtLength, record.length);
+        nbtLength += record.length;
+    }
+
+    /**
+     * Inflate an entry's tile entity NBT from the side buffer.
+     *
+     * @param index The entry index
+     * @return The NBT, or null if the entry has none
+     */
+    private ReadWriteNBT readNbt(int index) {
+        int slot = Arrays.binarySearch(nbtEntries, 0, nbtCount, index);
+        if (slot < 0) {
+            return null;
+        }
+
+        int offset = nbtOffsets[slot];
+        int rawLength = readInt(offset);
+        int deflatedLength = readInt(offset + 4);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(nbtBuffer, offset + 8, deflatedLength);
+
+        byte[] raw = new byte[rawLength];
+        try {
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt undo journal NBT.", e);
+        } finally {
+            inflater.end();
+        }
+
+        return NBT.parseNBT(new String(raw, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read a big-endian int from the NBT side buffer.
+     *
+     * @param offset The offset
+     * @return The value
+     */
+    private int readInt(int offset) {
+        return (
+            ((nbtBuffer[offset] & 0xFF) << 24) |
+            ((nbtBuffer[offset + 1] & 0xFF) << 16) |
+            ((nbtBuffer[offset + 2] & 0xFF) << 8) |
+            (nbtBuffer[offset + 3] & 0xFF)
+        );
+    }
+
+    /**
+     * Pack a block position into a long.
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The packed position
+     */
+    private static long packPosition(int x, int y, int z) {
+        long horizontalMask = (1L << HORIZONTAL_BITS) - 1;
+
+        return (
+            ((x & horizontalMask) << (HORIZONTAL_BITS + VERTICAL_BITS)) |
+            ((z & horizontalMask) << VERTICAL_BITS) |
+            (y & ((1L << VERTICAL_BITS) - 1))
+        );
+    }
+
+    /**
+     * Unpack the x coordinate of a packed position.
+     *
+     * @param position The packed position
+     * @return The x coordinate
+     */
+    private static int unpackX(long position) {
+        return (int) (position >> (HORIZONTAL_BITS + VERTICAL_BITS));
+    }
+
+    /**
+     * Unpack the y coordinate of a packed position.
+     *
+     * @param position The packed position
+     * @return The y coordinate
+     */
+    private static int unpackY(long position) {
+        return (int) (position << (Long.SIZE - VERTICAL_BITS) >> (Long.SIZE - VERTICAL_BITS));
+    }
+
+    /**
+     * Unpack the z coordinate of a packed position.
+     *
+     * @param position The packed position
+     * @return The z coordinate
+     */
+    private static int unpackZ(long position) {
+        return (int) (position << HORIZONTAL_BITS >> (HORIZONTAL_BITS + VERTICAL_BITS));
+    }
+}
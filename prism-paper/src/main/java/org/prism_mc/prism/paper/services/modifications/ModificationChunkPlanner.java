@@ -0,0 +1,176 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.prism_mc.prism.api.actions.BlockAction;
+import org.prism_mc.prism.api.activities.Activity;
+
+/**
+ * Regroups a fetched modification batch by chunk and loads those chunks ahead of time.
+ *
+ * <p>The database returns activities ordered by x, then z, then y, which sweeps columns across
+ * chunk boundaries. Regrouping lets the executor finish one chunk before moving to the next,
+ * and loading the chunks asynchronously first keeps the tick from stalling on sync loads.</p>
+ */
+public final class ModificationChunkPlanner {
+
+    /**
+     * Constructor.
+     */
+    private ModificationChunkPlanner() {}
+
+    /**
+     * Sort a batch by chunk while keeping the hanging block phases of the database ordering.
+     *
+     * <p>Hanging blocks (vines, dripstone) are sorted after everything else so what they hang
+     * from is rebuilt first, so each phase stays in order and is grouped by chunk on its own.
+     * The sort is stable, so the x/z/y order within a chunk (including building vines down)
+     * is untouched.</p>
+     *
+     * @param batch The batch in database order
+     * @return The batch grouped by chunk
+     */
+    public static List<Activity> groupByChunk(List<Activity> batch) {
+        List<Activity> ordered = new ArrayList<>(batch);
+        ordered.sort(
+            Comparator.comparingInt(ModificationChunkPlanner::phase)
+                .thenComparing(ModificationChunkPlanner::worldKey)
+                .thenComparingInt(ModificationChunkPlanner::chunkX)
+                .thenComparingInt(ModificationChunkPlanner::chunkZ)
+        );
+
+        return ordered;
+    }
+
+    /**
+     * Load every chunk a batch touches, asynchronously.
+     *
+     * @param batch The batch
+     * @return A future completing with the loaded chunks once all have loaded
+     */
+    public static CompletableFuture<List<Chunk>> preloadChunks(List<Activity> batch) {
+        Set<ChunkKey> keys = new LinkedHashSet<>();
+        for (Activity activity : batch) {
+            ChunkKey key = ChunkKey.of(activity);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+
+        List<CompletableFuture<Chunk>> futures = new ArrayList<>(keys.size());
+        for (ChunkKey key : keys) {
+            World world = Bukkit.getWorld(key.worldUuid());
+            if (world != null) {
+                futures.add(world.getChunkAtAsync(key.chunkX(), key.chunkZ()));
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored ->
+            futures.stream().map(CompletableFuture::join).toList()
+        );
+    }
+
+    /**
+     * Get the hanging block phase of an activity, matching the database's modification ordering.
+     *
+     * @param activity The activity
+     * @return The phase, lowest first
+     */
+    private static int phase(Activity activity) {
+        if (
+            !(activity.action() instanceof BlockAction blockAction) ||
+            blockAction.blockContainer() == null ||
+            blockAction.blockContainer().blockName() == null
+        ) {
+            return 0;
+        }
+
+        return switch (blockAction.blockContainer().blockName()) {
+            case "vine", "pointed_dripstone" -> 1;
+            case "cave_vines_plant", "weeping_vines_plant" -> 2;
+            case "cave_vines", "weeping_vines" -> 3;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Get a sortable world key.
+     *
+     * @param activity The activity
+     * @return The world key
+     */
+    private static String worldKey(Activity activity) {
+        return activity.worldUuid() == null ? "" : activity.worldUuid().toString();
+    }
+
+    /**
+     * Get the chunk x of an activity.
+     *
+     * @param activity The activity
+     * @return The chunk x
+     */
+    private static int chunkX(Activity activity) {
+        return activity.coordinate() == null ? 0 : (int) Math.floor(activity.coordinate().x()) >> 4;
+    }
+
+    /**
+     * Get the chunk z of an activity.
+     *
+     * @param activity The activity
+     * @return The chunk z
+     */
+    private static int chunkZ(Activity activity) {
+        return activity.coordinate() == null ? 0 : (int) Math.floor(activity.coordinate().z()) >> 4;
+    }
+
+    /**
+     * A chunk in a world.
+     *
+     * @param worldUuid The world uuid
+     * @param chunkX The chunk x
+     * @param chunkZ The chunk z
+     */
+    record ChunkKey(UUID worldUuid, int chunkX, int chunkZ) {
+        /**
+         * Get the chunk an activity happened in.
+         *
+         * @param activity The activity
+         * @return The chunk, or null if the activity has no world or coordinate
+         */
+        static ChunkKey of(Activity activity) {
+            if (activity.worldUuid() == null || activity.coordinate() == null) {
+                return null;
+            }
+
+            return new ChunkKey(activity.worldUuid(), chunkX(activity), chunkZ(activity));
+        }
+    }
+}
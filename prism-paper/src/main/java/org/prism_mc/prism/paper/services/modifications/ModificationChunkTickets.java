@@ -0,0 +1,157 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.prism_mc.prism.paper.services.modifications;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.paper.services.modifications.ModificationChunkPlanner.ChunkKey;
+import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
+
+/**
+ * Keeps the chunks of a modification batch loaded until their changes are applied.
+ *
+ * <p>Preloading alone doesn't hold a chunk, so the server may unload it again before the
+ * executor reaches it and the tick is back to waiting on a sync load. Each chunk gets a plugin
+ * ticket, added and removed on the thread that owns it, which is dropped once the last of the
+ * chunk's changes is applied. Anything still held when the batch ends is released then.</p>
+ */
+public final class ModificationChunkTickets {
+
+    /**
+     * The plugin owning the tickets.
+     */
+    private final Plugin plugin;
+
+    /**
+     * The scheduler.
+     */
+    private final PrismScheduler prismScheduler;
+
+    /**
+     * The number of changes still to apply in each held chunk.
+     */
+    private final Map<ChunkKey, Integer> pending = new ConcurrentHashMap<>();
+
+    /**
+     * The chunks currently held.
+     */
+    private final Set<ChunkKey> held = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor.
+     *
+     * @param plugin The plugin owning the tickets
+     * @param prismScheduler The scheduler
+     */
+    public ModificationChunkTickets(Plugin plugin, PrismScheduler prismScheduler) {
+        this.plugin = plugin;
+        this.prismScheduler = prismScheduler;
+    }
+
+    /**
+     * Hold every chunk a batch will change.
+     *
+     * <p>Only reversible activities are applied by the executor, so only they're counted.</p>
+     *
+     * @param batch The batch
+     */
+    public void hold(List<Activity> batch) {
+        for (Activity activity : batch) {
+            ChunkKey key = ChunkKey.of(activity);
+            if (key != null && activity.action().type().reversible()) {
+                pending.merge(key, 1, Integer::sum);
+            }
+        }
+
+        for (ChunkKey key : pending.keySet()) {
+            held.add(key);
+
+            runAtChunk(key, world -> {
+                // The batch may have ended before this ran
+                if (held.contains(key)) {
+                    world.addPluginChunkTicket(key.chunkX(), key.chunkZ(), plugin);
+                }
+            });
+        }
+    }
+
+    /**
+     * Record that an activity was applied, releasing its chunk once nothing is left to apply there.
+     *
+     * @param activity The activity
+     */
+    public void applied(Activity activity) {
+        ChunkKey key = ChunkKey.of(activity);
+        if (key == null) {
+            return;
+        }
+
+        if (pending.computeIfPresent(key, (ignored, count) -> count > 1 ? count - 1 : null) == null) {
+            release(key);
+        }
+    }
+
+    /**
+     * Release every chunk still held.
+     */
+    public void releaseAll() {
+        pending.clear();
+
+        for (ChunkKey key : held) {
+            release(key);
+        }
+    }
+
+    /**
+     * Release a chunk, if it's still held.
+     *
+     * @param key The chunk
+     */
+    private void release(ChunkKey key) {
+        if (held.remove(key)) {
+            runAtChunk(key, world -> world.removePluginChunkTicket(key.chunkX(), key.chunkZ(), plugin));
+        }
+    }
+
+    /**
+     * Run a task on the thread that owns a chunk.
+     *
+     * @param key The chunk
+     * @param task The task, receiving the chunk's world
+     */
+    private void runAtChunk(ChunkKey key, Consumer<World> task) {
+        World world = Bukkit.getWorld(key.worldUuid());
+        if (world == null) {
+            return;
+        }
+
+        prismScheduler.runAtLocation(new Location(world, key.chunkX() << 4, 0, key.chunkZ() << 4), () ->
+            task.accept(world)
+        );
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.prism_mc.prism.api.actions.BlockAction;
+import org.prism_mc.prism.api.actions.types.ActionResultType;
+import org.prism_mc.prism.api.actions.types.ActionType;
+import org.prism_mc.prism.api.activities.Activity;
+
+/**
+ * Drops block activities whose effect would be overwritten within the same batch.
+ *
+ * <p>When a block was placed and broken many times, a rollback only needs to undo the earliest
+ * change at that position, and a restore only needs to redo the latest. The rest would be applied
+ * and then overwritten, or skipped as already set. Superseded activities are returned separately
+ * so the queue can still count them and mark them reversed.</p>
+ */
+public final class ModificationCollapser {
+
+    /**
+     * Orders activities by time, breaking ties by primary key.
+     */
+    private static final Comparator<Activity> CHRONOLOGICAL = Comparator.comparingLong(Activity::timestamp)
+        .thenComparingLong(ModificationCollapser::primaryKey);
+
+    /**
+     * Constructor.
+     */
+    private ModificationCollapser() {}
+
+    /**
+     * Collapse a batch to the activities whose effect survives at each block.
+     *
+     * @param batch The batch
+     * @param rollback True to keep the earliest activity per block, false to keep the latest
+     * @return The kept activities, in batch order, and the superseded ones
+     */
+    public static Collapsed collapse(List<Activity> batch, boolean rollback) {
+        Map<BlockKey, Activity> survivors = new HashMap<>();
+        int collapsible = 0;
+
+        for (Activity activity : batch) {
+            if (!collapsible(activity)) {
+                continue;
+            }
+
+            collapsible++;
+            survivors.merge(blockKey(activity), activity, (current, candidate) -> {
+                int comparison = CHRONOLOGICAL.compare(candidate, current);
+
+                return (rollback ? comparison < 0 : comparison > 0) ? candidate : current;
+            });
+        }
+
+        // Nothing shares a block
+        if (survivors.size() == collapsible) {
+            return new Collapsed(batch, List.of());
+        }
+
+        List<Activity> kept = new ArrayList<>(batch.size());
+        List<Activity> superseded = new ArrayList<>(collapsible - survivors.size());
+        for (Activity activity : batch) {
+            if (!collapsible(activity) || survivors.get(blockKey(activity)) == activity) {
+                kept.add(activity);
+            } else {
+                superseded.add(activity);
+            }
+        }
+
+        return new Collapsed(kept, superseded);
+    }
+
+    /**
+     * Check if an activity only sets the block at its own position, so a later change there replaces it.
+     * Activities with custom modification handlers are left alone since their effect isn't known.
+     *
+     * @param activity The activity
+     * @return True if the activity can be collapsed
+     */
+    private static boolean collapsible(Activity activity) {
+        if (activity.worldUuid() == null || activity.coordinate() == null) {
+            return false;
+        }
+
+        if (!(activity.action() instanceof BlockAction)) {
+            return false;
+        }
+
+        ActionType type = activity.action().type();
+
+        return (
+            type.reversible() &&
+            type.modificationHandler() == null &&
+            (type.resultType().equals(ActionResultType.CREATES) || type.resultType().equals(ActionResultType.REMOVES))
+        );
+    }
+
+    /**
+     * Get the block an activity changes.
+     *
+     * @param activity The activity
+     * @return The block key
+     */
+    private static BlockKey blockKey(Activity activity) {
+        return new BlockKey(
+            activity.worldUuid(),
+            (int) Math.floor(activity.coordinate().x()),
+            (int) Math.floor(activity.coordinate().y()),
+            (int) Math.floor(activity.coordinate().z())
+        );
+    }
+
+    /**
+     * Get an activity's primary key for ordering.
+     *
+     * @param activity The activity
+     * @return The primary key, or 0 if it has none
+     */
+    private static long primaryKey(Activity activity) {
+        return activity.primaryKey() instanceof Number number ? number.longValue() : 0;
+    }
+
+    /**
+     * The outcome of collapsing a batch.
+     *
+     * @param kept The activities to apply, in batch order
+     * @param superseded The activities overwritten by a kept one
+     */
+    public record Collapsed(List<Activity> kept, List<Activity> superseded) {}
+
+    /**
+     * A block in a world.
+     */
+    private record BlockKey(UUID worldUuid, int x, int y, int z) {}
+}
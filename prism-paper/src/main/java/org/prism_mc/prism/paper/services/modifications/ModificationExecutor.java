@@ -54,7 +54,9 @@ public interface ModificationExecutor {
      * @param onResult Callback for each processed result
      * @param preProcessor Pre-processing callback (world, boundingBox) for region-safe operations
      * @param postProcessor Post-processing callback (world, boundingBox) for region-safe operations
-     * @param onComplete Callback when all modifications are processed (after post-processing)
+     * @param onComplete Callback when the executor is ready for the next batch. On Paper this is
+     *     after the batch and its post-processing finish. On Folia it fires as soon as a region runs
+     *     out of work, so the next batch streams in while other regions are still busy.
      */
     void execute(
         List<Activity> queue,
@@ -68,6 +70,16 @@ public interface ModificationExecutor {
         Runnable onComplete
     );
 
+    /**
+     * Wait for every modification handed to {@link #execute} to finish, including
+     * post-processing and result delivery.
+     *
+     * @param onDrained Callback once nothing is left to process
+     */
+    default void drain(Runnable onDrained) {
+        onDrained.run();
+    }
+
     /**
      * Cancel any in-progress execution.
      */
@@ -0,0 +1,227 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * The files of a single modification job, so it can be resumed after a restart.
+ *
+ * <ul>
+ *   <li>{@code <id>.keys} — every primary key the job applies, in order. Replaced atomically.</li>
+ *   <li>{@code <id>.json} — the latest {@link ModificationJobCheckpoint}, replaced atomically.</li>
+ *   <li>{@code <id>.undo} — the undo journal, appended to at each checkpoint.</li>
+ * </ul>
+ *
+ * <p>All methods do blocking file IO and are called from the job service's IO thread.</p>
+ */
+public class ModificationJob {
+
+    /**
+     * The checkpoint file extension.
+     */
+    static final String CHECKPOINT_EXTENSION = ".json";
+
+    /**
+     * The directory holding job files.
+     */
+    private final Path directory;
+
+    /**
+     * The job id.
+     */
+    @Getter
+    private final String id;
+
+    /**
+     * The object mapper.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Construct a modification job.
+     *
+     * @param directory The directory holding job files
+     * @param id The job id
+     * @param objectMapper The object mapper
+     */
+    public ModificationJob(Path directory, String id, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.id = id;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write the job's primary keys, replacing any previous keys and undo records.
+     *
+     * @param keys The primary keys
+     * @param checkpoint The initial checkpoint
+     * @param undoRecords The initial undo journal records
+     * @throws IOException If the files can't be written
+     */
+    public void start(List<Long> keys, ModificationJobCheckpoint checkpoint, byte[] undoRecords) throws IOException {
+        Files.createDirectories(directory);
+
+        Path keysTemp = file(".keys.tmp");
+        OutputStream keysOut = new BufferedOutputStream(Files.newOutputStream(keysTemp));
+        try (DataOutputStream out = new DataOutputStream(keysOut)) {
+            out.writeInt(keys.size());
+            for (long key : keys) {
+                out.writeLong(key);
+            }
+        }
+
+        Path undoTemp = file(".undo.tmp");
+        Files.write(undoTemp, undoRecords);
+
+        // The new checkpoint starts from the first key, so it goes in before the keys. A crash in
+        // between then replays the old keys from the start instead of skipping any of the new ones.
+        writeCheckpoint(checkpoint, new byte[0]);
+        moveIntoPlace(keysTemp, ".keys");
+        moveIntoPlace(undoTemp, ".undo");
+    }
+
+    /**
+     * Append new undo records and replace the checkpoint.
+     *
+     * @param checkpoint The checkpoint
+     * @param undoRecords The undo journal records added since the last checkpoint
+     * @throws IOException If the files can't be written
+     */
+    public void writeCheckpoint(ModificationJobCheckpoint checkpoint, byte[] undoRecords) throws IOException {
+        if (undoRecords.length > 0) {
+            try (
+                OutputStream out = Files.newOutputStream(
+                    file(".undo"),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND,
+                    StandardOpenOption.SYNC
+                )
+            ) {
+                out.write(undoRecords);
+            }
+        }
+
+        // Write then move so a crash never leaves a half-written checkpoint
+        Path temp = file(CHECKPOINT_EXTENSION + ".tmp");
+        objectMapper.writeValue(temp.toFile(), checkpoint);
+        moveIntoPlace(temp, CHECKPOINT_EXTENSION);
+    }
+
+    /**
+     * Atomically replace one of the job's files with a fully written temp file.
+     *
+     * @param temp The temp file
+     * @param extension The extension of the file to replace
+     * @throws IOException If the file can't be moved
+     */
+    private void moveIntoPlace(Path temp, String extension) throws IOException {
+        Files.move(temp, file(extension), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the latest checkpoint.
+     *
+     * @return The checkpoint
+     * @throws IOException If the checkpoint can't be read
+     */
+    public ModificationJobCheckpoint readCheckpoint() throws IOException {
+        return objectMapper.readValue(file(CHECKPOINT_EXTENSION).toFile(), ModificationJobCheckpoint.class);
+    }
+
+    /**
+     * Read the job's primary keys.
+     *
+     * @return The primary keys
+     * @throws IOException If the keys can't be read
+     */
+    public List<Long> readKeys() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(".keys"))))) {
+            int count = in.readInt();
+
+            List<Long> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(in.readLong());
+            }
+
+            return keys;
+        }
+    }
+
+    /**
+     * Read the job's undo records into a journal.
+     *
+     * @param journal The journal
+     * @throws IOException If the records can't be read
+     */
+    public void readUndo(BlockUndoJournal journal) throws IOException {
+        Path undoFile = file(".undo");
+        if (!Files.exists(undoFile)) {
+            return;
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(undoFile))) {
+            journal.readRecords(new DataInputStream(in));
+        }
+    }
+
+    /**
+     * Delete the job's files.
+     *
+     * @throws IOException If the files can't be deleted
+     */
+    public void delete() throws IOException {
+        for (String extension : List.of(
+            CHECKPOINT_EXTENSION,
+            CHECKPOINT_EXTENSION + ".tmp",
+            ".keys",
+            ".keys.tmp",
+            ".undo",
+            ".undo.tmp"
+        )) {
+            Files.deleteIfExists(file(extension));
+        }
+    }
+
+    /**
+     * Resolve one of the job's files.
+     *
+     * @param extension The file extension
+     * @return The path
+     */
+    private Path file(String extension) {
+        return directory.resolve(id + extension);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
+
+/**
+ * The progress of a modification job, written to disk after each batch.
+ *
+ * <p>Holds just enough of the original query to rebuild its ordering and bounding
+ * box. The activities themselves are resumed by primary key.</p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(fluent = false)
+public class ModificationJobCheckpoint {
+
+    /**
+     * The queue type, either "rollback" or "restore".
+     */
+    private String type;
+
+    /**
+     * The name of the original owner, for logging.
+     */
+    private String ownerName;
+
+    /**
+     * The world the query was bound to, if any.
+     */
+    private String worldUuid;
+
+    /**
+     * The query's min coordinate (x, y, z), if any.
+     */
+    private double[] minCoordinate;
+
+    /**
+     * The query's max coordinate (x, y, z), if any.
+     */
+    private double[] maxCoordinate;
+
+    /**
+     * The ruleset the queue was started with, or null to use the default ruleset.
+     */
+    private Ruleset ruleset;
+
+    /**
+     * The number of primary keys already read from the job's key list.
+     */
+    private int fetched;
+
+    /**
+     * Primary keys that were read but not yet applied.
+     */
+    @Builder.Default
+    private List<Long> inFlightKeys = new ArrayList<>();
+
+    /**
+     * Primary keys applied in the latest batch, which may not be marked reversed yet.
+     */
+    @Builder.Default
+    private List<Long> reversalKeys = new ArrayList<>();
+
+    /**
+     * A modification ruleset, in a form that can be written to disk.
+     */
+    @Data
+    @NoArgsConstructor
+    @Accessors(fluent = false)
+    public static class Ruleset {
+
+        /**
+         * Whether to apply physics.
+         */
+        private boolean applyPhysics;
+
+        /**
+         * The block blacklist.
+         */
+        private List<String> blockBlacklist = new ArrayList<>();
+
+        /**
+         * Whether to drain lava.
+         */
+        private boolean drainLava;
+
+        /**
+         * The entity blacklist.
+         */
+        private List<String> entityBlacklist = new ArrayList<>();
+
+        /**
+         * Max modifications per task.
+         */
+        private int maxPerTask;
+
+        /**
+         * The time budget per task, in milliseconds.
+         */
+        private long taskBudgetMillis;
+
+        /**
+         * Whether to move entities.
+         */
+        private boolean moveEntities;
+
+        /**
+         * The blocks to remove.
+         */
+        private List<String> removeBlocks = new ArrayList<>();
+
+        /**
+         * Whether to remove drops.
+         */
+        private boolean removeDrops;
+
+        /**
+         * Whether to overwrite blocks that seem to be already set.
+         */
+        private boolean overwrite;
+
+        /**
+         * The delay between tasks.
+         */
+        private long taskDelay;
+
+        /**
+         * Copy a ruleset.
+         *
+         * @param ruleset The ruleset
+         * @return The copy
+         */
+        public static Ruleset of(ModificationRuleset ruleset) {
+            Ruleset copy = new Ruleset();
+            copy.applyPhysics = ruleset.applyPhysics();
+            copy.blockBlacklist = copyOf(ruleset.blockBlacklist());
+            copy.drainLava = ruleset.drainLava();
+            copy.entityBlacklist = copyOf(ruleset.entityBlacklist());
+            copy.maxPerTask = ruleset.maxPerTask();
+            copy.taskBudgetMillis = ruleset.taskBudgetMillis();
+            copy.moveEntities = ruleset.moveEntities();
+            copy.removeBlocks = copyOf(ruleset.removeBlocks());
+            copy.removeDrops = ruleset.removeDrops();
+            copy.overwrite = ruleset.overwrite();
+            copy.taskDelay = ruleset.taskDelay();
+
+            return copy;
+        }
+
+        /**
+         * Copy a list that may be null.
+         *
+         * @param values The values, or null
+         * @return The copy
+         */
+        private static List<String> copyOf(List<String> values) {
+            return values != null ? new ArrayList<>(values) : new ArrayList<>();
+        }
+
+        /**
+         * Build the ruleset this was copied from.
+         *
+         * @return The ruleset
+         */
+        public ModificationRuleset toRuleset() {
+            return ModificationRuleset.builder()
+                .applyPhysics(applyPhysics)
+                .blockBlacklist(blockBlacklist)
+                .drainLava(drainLava)
+                .entityBlacklist(entityBlacklist)
+                .maxPerTask(maxPerTask)
+                .taskBudgetMillis(taskBudgetMillis)
+                .moveEntities(moveEntities)
+                .removeBlocks(removeBlocks)
+                .removeDrops(removeDrops)
+                .overwrite(overwrite)
+                .taskDelay(taskDelay)
+                .build();
+        }
+    }
+}
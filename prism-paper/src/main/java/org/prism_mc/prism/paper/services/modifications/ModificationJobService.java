@@ -0,0 +1,476 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.bukkit.command.CommandSender;
+import org.prism_mc.prism.api.activities.ActivityQuery;
+import org.prism_mc.prism.api.services.modifications.ActivityStream;
+import org.prism_mc.prism.api.services.modifications.ModificationQueue;
+import org.prism_mc.prism.api.services.modifications.Rollback;
+import org.prism_mc.prism.api.storage.StorageAdapter;
+import org.prism_mc.prism.api.util.Coordinate;
+import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
+import org.prism_mc.prism.loader.services.logging.LoggingService;
+import org.prism_mc.prism.paper.api.activities.PaperActivityQuery;
+import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
+
+/**
+ * Keeps running rollbacks and restores on disk so they can resume after a restart.
+ *
+ * <p>When a queue starts applying, the primary keys it will apply are written to a job
+ * file. After each batch the queue checkpoints how far it has read, which keys are still
+ * in flight, the keys it just marked reversed, and the new undo journal entries. On the
+ * next start any job left behind is resumed from its checkpoint with its original ruleset,
+ * one at a time. Activities already marked reversed are re-marked, and nothing that
+ * finished before the checkpoint is applied again.</p>
+ *
+ * <p>Resumed jobs are owned by a {@link NamedModificationOwner} named after the original
+ * owner, so they never collide with queues that owner starts in the meantime. A job that
+ * isn't admitted because another queue is in the way waits and tries again.</p>
+ *
+ * <p>All file IO runs in order on a single background thread.</p>
+ */
+@Singleton
+public class ModificationJobService {
+
+    /**
+     * How long to wait before retrying a job that wasn't admitted.
+     */
+    private static final long RESUME_RETRY_SECONDS = 30;
+
+    /**
+     * The directory holding job files.
+     */
+    private final Path jobsDir;
+
+    /**
+     * The logging service.
+     */
+    private final LoggingService loggingService;
+
+    /**
+     * The configuration service.
+     */
+    private final ConfigurationService configurationService;
+
+    /**
+     * The storage adapter.
+     */
+    private final StorageAdapter storageAdapter;
+
+    /**
+     * The scheduler.
+     */
+    private final PrismScheduler prismScheduler;
+
+    /**
+     * The modification queue service. A provider since queues depend on this service.
+     */
+    private final Provider<PaperModificationQueueService> modificationQueueService;
+
+    /**
+     * The object mapper.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Runs job file IO in submission order.
+     */
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "prism-modification-jobs");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Interrupted jobs waiting to be resumed.
+     */
+    private final Deque<ModificationJob> pendingResumes = new ArrayDeque<>();
+
+    /**
+     * Construct the modification job service.
+     *
+     * @param dataPath The plugin data directory
+     * @param loggingService The logging service
+     * @param configurationService The configuration service
+     * @param storageAdapter The storage adapter
+     * @param prismScheduler The scheduler
+     * @param modificationQueueService The modification queue service
+     */
+    @Inject
+    public ModificationJobService(
+        Path dataPath,
+        LoggingService loggingService,
+        ConfigurationService configurationService,
+        StorageAdapter storageAdapter,
+        PrismScheduler prismScheduler,
+        Provider<PaperModificationQueueService> modificationQueueService
+    ) {
+        this.jobsDir = dataPath.resolve("jobs");
+        this.loggingService = loggingService;
+        this.configurationService = configurationService;
+        this.storageAdapter = storageAdapter;
+        this.prismScheduler = prismScheduler;
+        this.modificationQueueService = modificationQueueService;
+    }
+
+    /**
+     * Check if modification jobs are saved to disk.
+     *
+     * @return True if enabled
+     */
+    public boolean enabled() {
+        return configurationService.prismConfig().modifications().resumeInterruptedJobs();
+    }
+
+    /**
+     * Start saving a queue that's about to apply. Returns null if jobs are disabled
+     * or the queue's activities can't be resumed by primary key.
+     *
+     * @param queue The queue
+     * @param activityStream The queue's activity stream
+     * @param undoRecords Undo journal records the queue already holds
+     * @return The job, or null
+     */
+    public ModificationJob start(ModificationQueue queue, ActivityStream activityStream, byte[] undoRecords) {
+        return start(null, queue, activityStream, undoRecords);
+    }
+
+    /**
+     * Start saving a queue that's about to apply, reusing an interrupted job's files.
+     *
+     * @param job The interrupted job, or null for a new job
+     * @param queue The queue
+     * @param activityStream The queue's activity stream
+     * @param undoRecords Undo journal records the queue already holds
+     * @return The job, or null
+     */
+    public ModificationJob start(
+        ModificationJob job,
+        ModificationQueue queue,
+        ActivityStream activityStream,
+        byte[] undoRecords
+    ) {
+        if (!enabled()) {
+            return null;
+        }
+
+        List<Long> keys = activityStream.primaryKeys();
+        if (keys.isEmpty()) {
+            return null;
+        }
+
+        ModificationJob startedJob = job != null
+            ? job
+            : new ModificationJob(jobsDir, UUID.randomUUID().toString(), objectMapper);
+        ModificationJobCheckpoint checkpoint = checkpointFor(queue);
+
+        io.execute(() -> {
+            try {
+                startedJob.start(keys, checkpoint, undoRecords);
+            } catch (IOException e) {
+                loggingService.handleException(e);
+            }
+        });
+
+        return startedJob;
+    }
+
+    /**
+     * Build the first checkpoint for a queue.
+     *
+     * @param queue The queue
+     * @return The checkpoint
+     */
+    public ModificationJobCheckpoint checkpointFor(ModificationQueue queue) {
+        ActivityQuery query = queue.query();
+        String ownerName = queue.owner() instanceof CommandSender sender
+            ? sender.getName()
+            : String.valueOf(queue.owner());
+
+        ModificationJobCheckpoint.Ruleset ruleset = null;
+        if (queue instanceof AbstractWorldModificationQueue worldQueue && worldQueue.modificationRuleset != null) {
+            ruleset = ModificationJobCheckpoint.Ruleset.of(worldQueue.modificationRuleset);
+        }
+
+        return ModificationJobCheckpoint.builder()
+            .type(queue instanceof Rollback ? "rollback" : "restore")
+            .ownerName(ownerName)
+            .ruleset(ruleset)
+            .worldUuid(query.worldUuid() != null ? query.worldUuid().toString() : null)
+            .minCoordinate(toArray(query.minCoordinate()))
+            .maxCoordinate(toArray(query.maxCoordinate()))
+            .build();
+    }
+
+    /**
+     * Save a job's progress.
+     *
+     * @param job The job
+     * @param checkpoint The checkpoint
+     * @param undoRecords Undo journal records added since the last checkpoint
+     */
+    public void checkpoint(ModificationJob job, ModificationJobCheckpoint checkpoint, byte[] undoRecords) {
+        io.execute(() -> {
+            try {
+                job.writeCheckpoint(checkpoint, undoRecords);
+            } catch (IOException e) {
+                loggingService.handleException(e);
+            }
+        });
+    }
+
+    /**
+     * Delete a finished or cancelled job.
+     *
+     * @param job The job
+     */
+    public void discard(ModificationJob job) {
+        io.execute(() -> {
+            try {
+                job.delete();
+            } catch (IOException e) {
+                loggingService.handleException(e);
+            }
+        });
+    }
+
+    /**
+     * Resume any jobs left behind by a restart or crash, one at a time.
+     */
+    public void resumeInterrupted() {
+        if (!enabled() || !Files.isDirectory(jobsDir)) {
+            return;
+        }
+
+        io.execute(() -> {
+            try (Stream<Path> files = Files.list(jobsDir)) {
+                files
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(ModificationJob.CHECKPOINT_EXTENSION))
+                    .map(name -> name.substring(0, name.length() - ModificationJob.CHECKPOINT_EXTENSION.length()))
+                    .forEach(id -> {
+                        synchronized (pendingResumes) {
+                            pendingResumes.add(new ModificationJob(jobsDir, id, objectMapper));
+                        }
+                    });
+            } catch (IOException e) {
+                loggingService.handleException(e);
+            }
+
+            resumeNext();
+        });
+    }
+
+    /**
+     * Resume the next interrupted job, if any. Runs on the IO thread.
+     */
+    private void resumeNext() {
+        ModificationJob job;
+        synchronized (pendingResumes) {
+            job = pendingResumes.poll();
+        }
+
+        if (job == null) {
+            return;
+        }
+
+        ModificationJobCheckpoint checkpoint;
+        List<Long> remainingKeys;
+        BlockUndoJournal undoJournal = new BlockUndoJournal();
+        try {
+            checkpoint = job.readCheckpoint();
+
+            // Keys read but not applied come first, then everything not yet read
+            List<Long> keys = job.readKeys();
+            remainingKeys = new ArrayList<>(checkpoint.getInFlightKeys());
+            remainingKeys.addAll(keys.subList(Math.min(checkpoint.getFetched(), keys.size()), keys.size()));
+
+            job.readUndo(undoJournal);
+        } catch (Exception e) {
+            loggingService.handleThrowable(String.format("Failed to read modification job %s.", job.id()), e);
+            discard(job);
+            io.execute(this::resumeNext);
+
+            return;
+        }
+
+        boolean rollback = checkpoint.getType().equals("rollback");
+
+        // The last batch's keys may not have been marked before the restart
+        if (!checkpoint.getReversalKeys().isEmpty()) {
+            try {
+                storageAdapter.markReversed(checkpoint.getReversalKeys(), rollback);
+            } catch (Exception e) {
+                loggingService.handleException(e);
+            }
+        }
+
+        if (remainingKeys.isEmpty()) {
+            discard(job);
+            io.execute(this::resumeNext);
+
+            return;
+        }
+
+        var queryBuilder = PaperActivityQuery.builder();
+        if (checkpoint.getWorldUuid() != null) {
+            queryBuilder.worldUuid(UUID.fromString(checkpoint.getWorldUuid()));
+        }
+
+        if (checkpoint.getMinCoordinate() != null && checkpoint.getMaxCoordinate() != null) {
+            queryBuilder.minCoordinate(toCoordinate(checkpoint.getMinCoordinate()));
+            queryBuilder.maxCoordinate(toCoordinate(checkpoint.getMaxCoordinate()));
+        }
+
+        ActivityQuery query = rollback ? queryBuilder.rollback().build() : queryBuilder.restore().build();
+
+        ActivityStream activityStream;
+        try {
+            activityStream = storageAdapter.streamActivities(query, remainingKeys);
+        } catch (Exception e) {
+            loggingService.handleException(e);
+            io.execute(this::resumeNext);
+
+            return;
+        }
+
+        loggingService.info(
+            "Resuming an interrupted {0} started by {1}: {2} activities left.",
+            checkpoint.getType(),
+            checkpoint.getOwnerName(),
+            remainingKeys.size()
+        );
+
+        prismScheduler.runGlobal(() -> {
+            var queueService = modificationQueueService.get();
+            var owner = new NamedModificationOwner(checkpoint.getOwnerName());
+            var ruleset = checkpoint.getRuleset() != null
+                ? checkpoint.getRuleset().toRuleset()
+                : queueService.defaultModificationRuleset();
+
+            ModificationQueue queue;
+            try {
+                queue = rollback
+                    ? queueService.newRollbackQueue(ruleset, owner, query, activityStream)
+                    : queueService.newRestoreQueue(ruleset, owner, query, activityStream);
+            } catch (IllegalStateException e) {
+                // Another queue is in the way, so put the job back and try again later
+                activityStream.close();
+                loggingService.info(
+                    "Waiting to resume the interrupted {0} started by {1}: {2}",
+                    checkpoint.getType(),
+                    checkpoint.getOwnerName(),
+                    e.getMessage()
+                );
+
+                synchronized (pendingResumes) {
+                    pendingResumes.addFirst(job);
+                }
+
+                prismScheduler.runAsyncDelayed(
+                    () -> io.execute(this::resumeNext),
+                    RESUME_RETRY_SECONDS,
+                    TimeUnit.SECONDS
+                );
+
+                return;
+            } catch (Exception e) {
+                activityStream.close();
+                loggingService.handleException(e);
+                io.execute(this::resumeNext);
+
+                return;
+            }
+
+            if (queue instanceof AbstractWorldModificationQueue worldQueue) {
+                // Move on to the next job once this one is gone, whether it finished, failed or was cancelled
+                worldQueue.resume(job, undoJournal, () -> io.execute(this::resumeNext));
+            } else {
+                queueService.onCompletion(owner, result -> io.execute(this::resumeNext));
+            }
+
+            try {
+                queue.apply();
+            } catch (Exception e) {
+                loggingService.handleException(e);
+                queueService.removeCompletionCallback(owner);
+                queueService.cancelQueueForOwner(owner);
+
+                if (!(queue instanceof AbstractWorldModificationQueue)) {
+                    activityStream.close();
+                    io.execute(this::resumeNext);
+                }
+            }
+        });
+    }
+
+    /**
+     * Finish pending file writes.
+     */
+    public void shutdown() {
+        io.shutdown();
+
+        try {
+            if (!io.awaitTermination(5, TimeUnit.SECONDS)) {
+                loggingService.warn("Timed out saving modification jobs.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Convert a coordinate to an array for the checkpoint.
+     *
+     * @param coordinate The coordinate
+     * @return The array, or null
+     */
+    private static double[] toArray(Coordinate coordinate) {
+        return coordinate != null ? new double[] { coordinate.x(), coordinate.y(), coordinate.z() } : null;
+    }
+
+    /**
+     * Convert a checkpoint array to a coordinate.
+     *
+     * @param values The array
+     * @return The coordinate
+     */
+    private static Coordinate toCoordinate(double[] values) {
+        return new Coordinate(values[0], values[1], values[2]);
+    }
+}
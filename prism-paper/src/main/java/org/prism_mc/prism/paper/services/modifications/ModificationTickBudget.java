@@ -0,0 +1,117 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bukkit.Bukkit;
+import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
+
+/**
+ * Works out how long and how often a modification task may run, based on how busy the server is.
+ *
+ * <p>The budget is half of whatever time is left in a 50ms tick after the server's own average
+ * tick time (MSPT), capped by the ruleset's task budget. An idle server gets the full budget and
+ * one that is already behind only gets a sliver, so large rollbacks go as fast as the server can
+ * afford without spiking it. On Folia the tick time is that of the region the task runs on.</p>
+ *
+ * <p>Budgeted tasks run every tick and stop once their budget is spent, so the budget rather
+ * than the ruleset's max per task decides how much changes per tick. Max per task is only a
+ * safety cap.</p>
+ *
+ * <p>When several queues run at once the ruleset's task budget and the minimum budget are
+ * shared between them, so concurrent rollbacks together never take more of a tick than a
+ * single one would.</p>
+ */
+public final class ModificationTickBudget {
+
+    /**
+     * The length of a tick at 20 TPS, in milliseconds.
+     */
+    private static final double TICK_MILLIS = 50;
+
+    /**
+     * The smallest budget, shared by all running queues, so a lagging server still makes progress.
+     */
+    private static final long MIN_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The number of modification queues currently running.
+     */
+    private static final AtomicInteger activeQueues = new AtomicInteger(1);
+
+    /**
+     * Constructor.
+     */
+    private ModificationTickBudget() {}
+
+    /**
+     * Set the number of modification queues sharing the budget.
+     *
+     * @param count The active queue count
+     */
+    public static void activeQueues(int count) {
+        activeQueues.set(Math.max(1, count));
+    }
+
+    /**
+     * Get the number of ticks between modification tasks.
+     *
+     * <p>Budgeted tasks run every tick because the budget already keeps each one short.</p>
+     *
+     * @param ruleset The modification ruleset
+     * @return The task period in ticks
+     */
+    public static long period(ModificationRuleset ruleset) {
+        return ruleset.taskBudgetMillis() > 0 ? 1 : ruleset.taskDelay();
+    }
+
+    /**
+     * Get the time the current modification task may run for. Call this from the thread the
+     * task runs on.
+     *
+     * @param ruleset The modification ruleset
+     * @return The budget in nanoseconds, or 0 when modifications are only limited by count
+     */
+    public static long nanos(ModificationRuleset ruleset) {
+        if (ruleset.taskBudgetMillis() <= 0) {
+            return 0;
+        }
+
+        int queues = activeQueues.get();
+        long minBudgetNanos = MIN_BUDGET_NANOS / queues;
+        long maxBudgetNanos = Math.max(
+            minBudgetNanos,
+            TimeUnit.MILLISECONDS.toNanos(ruleset.taskBudgetMillis()) / queues
+        );
+
+        double averageTickMillis;
+        try {
+            averageTickMillis = Bukkit.getAverageTickTime();
+        } catch (UnsupportedOperationException e) {
+            return maxBudgetNanos;
+        }
+
+        long headroomNanos = (long) (Math.max(0, TICK_MILLIS - averageTickMillis) / 2 * 1_000_000);
+
+        return Math.max(minBudgetNanos, Math.min(maxBudgetNanos, headroomNanos));
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+/**
+ * Owns a rollback or restore that Prism starts on its own, rather than one started by a
+ * player or the console. Each gets its own queue slot, so it can't cancel, or be cancelled
+ * by, a queue someone else started.
+ *
+ * @param name The name shown in reports and logs
+ */
+public record NamedModificationOwner(String name) {
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -126,20 +126,19 @@ public class PaperModificationExecutor implements ModificationExecutor {
 
                 int iterationCount = 0;
                 int index = countModificationsRead;
+                long budgetNanos = ModificationTickBudget.nanos(ruleset);
+                long startNanos = System.nanoTime();
 
-                while (index < queue.size()) {
+                // The budget decides how much runs per tick, max per task is only a safety cap
+                while (index < queue.size() && iterationCount < ruleset.maxPerTask()) {
                     final Activity activity = queue.get(index);
+                    iterationCount++;
 
                     // Simulate queue pointer advancement for previews
                     if (mode.equals(ModificationQueueMode.PLANNING)) {
                         countModificationsRead++;
                     }
 
-                    // Limit the absolute max number of steps per execution of this task
-                    if (++iterationCount >= ruleset.maxPerTask()) {
-                        break;
-                    }
-
                     ModificationResult result = ModificationResult.builder().activity(activity).build();
 
                     // Delegate reversible modifications to the actions
@@ -164,6 +163,11 @@ public class PaperModificationExecutor implements ModificationExecutor {
                     } else {
                         index++;
                     }
+
+                    // Leave the rest of the tick to the server once this run's time is spent
+                    if (budgetNanos > 0 && System.nanoTime() - startNanos >= budgetNanos) {
+                        break;
+                    }
                 }
 
                 // The task for this action is done being used
@@ -182,7 +186,7 @@ public class PaperModificationExecutor implements ModificationExecutor {
                 }
             },
             1,
-            ruleset.taskDelay()
+            ModificationTickBudget.period(ruleset)
         );
     }
 
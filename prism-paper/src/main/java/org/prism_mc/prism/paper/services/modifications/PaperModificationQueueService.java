@@ -27,9 +27,13 @@ import com.google.inject.Singleton;
 import de.tr7zw.nbtapi.NBT;
 import dev.triumphteam.cmd.core.argument.keyed.Arguments;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -43,6 +47,8 @@ import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.type.Chest;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.Vector;
 import org.prism_mc.prism.api.activities.Activity;
 import org.prism_mc.prism.api.activities.ActivityQuery;
 import org.prism_mc.prism.api.services.modifications.ActivityStream;
@@ -52,8 +58,8 @@ import org.prism_mc.prism.api.services.modifications.ModificationQueueResult;
 import org.prism_mc.prism.api.services.modifications.ModificationQueueService;
 import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
 import org.prism_mc.prism.api.services.modifications.Previewable;
-import org.prism_mc.prism.api.services.modifications.UndoEntry;
 import org.prism_mc.prism.api.storage.StorageAdapter;
+import org.prism_mc.prism.api.util.Coordinate;
 import org.prism_mc.prism.core.injection.factories.RestoreFactory;
 import org.prism_mc.prism.core.injection.factories.RollbackFactory;
 import org.prism_mc.prism.core.services.cache.CacheService;
@@ -89,11 +95,18 @@ public class PaperModificationQueueService implements ModificationQueueService {
     private final MessageService messageService;
 
     /**
-     * Cache the current queue, if any. Volatile because it is read from caller threads
+     * The active queues, by owner, in the order they started. Read from caller threads
      * (via {@link #queueAvailable()}, {@link #currentQueue()}, {@link #currentQueueForOwner(Object)})
-     * and written from the global region thread when queues are created/cleared.
+     * and written when queues are created/cleared, so changes are guarded by the map itself.
      */
-    private volatile ModificationQueue currentQueue = null;
+    private final Map<Object, ModificationQueue> activeQueues = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Previews that finished planning and are waiting to be applied or cancelled. They stay
+     * in {@link #activeQueues} for their owner but don't take up a running slot or share the
+     * tick budget. Guarded by {@link #activeQueues}.
+     */
+    private final Set<ModificationQueue> finishedPreviews = Collections.newSetFromMap(new IdentityHashMap<>());
 
     /**
      * Set while an undo replay is in flight. Undo bypasses the normal queue
@@ -122,6 +135,11 @@ public class PaperModificationQueueService implements ModificationQueueService {
      */
     private final StorageAdapter storageAdapter;
 
+    /**
+     * The preview block change service — used to reveal live blocks after a preview.
+     */
+    private final PreviewBlockChangeService previewBlockChangeService;
+
     /**
      * A cache of recently used queues.
      */
@@ -143,6 +161,7 @@ public class PaperModificationQueueService implements ModificationQueueService {
      * @param rollbackFactory The rollback factory
      * @param prismScheduler The scheduler
      * @param storageAdapter The storage adapter
+     * @param previewBlockChangeService The preview block change service
      */
     @Inject
     public PaperModificationQueueService(
@@ -153,7 +172,8 @@ public class PaperModificationQueueService implements ModificationQueueService {
         RestoreFactory restoreFactory,
         RollbackFactory rollbackFactory,
         PrismScheduler prismScheduler,
-        StorageAdapter storageAdapter
+        StorageAdapter storageAdapter,
+        PreviewBlockChangeService previewBlockChangeService
     ) {
         this.configurationService = configurationService;
         this.loggingService = loggingService;
@@ -162,6 +182,7 @@ public class PaperModificationQueueService implements ModificationQueueService {
         this.rollbackFactory = rollbackFactory;
         this.prismScheduler = prismScheduler;
         this.storageAdapter = storageAdapter;
+        this.previewBlockChangeService = previewBlockChangeService;
 
         var cacheBuilder = Caffeine.newBuilder()
             .expireAfterAccess(10, TimeUnit.MINUTES)
@@ -236,14 +257,192 @@ public class PaperModificationQueueService implements ModificationQueueService {
 
     @Override
     public boolean queueAvailable() {
-        return currentQueue == null && !undoInProgress.get();
+        return !undoInProgress.get() && runningQueues() < maxConcurrentQueues();
+    }
+
+    /**
+     * Check if a queue for a query can start alongside the active queues.
+     *
+     * <p>Queues run at the same time as long as the concurrency cap allows and their
+     * areas don't overlap.</p>
+     *
+     * @param query The query
+     * @return True if a new queue can be made for the query
+     */
+    @Override
+    public boolean queueAvailable(ActivityQuery query) {
+        synchronized (activeQueues) {
+            return queueAvailable() && !overlapsActiveQueue(query, null);
+        }
+    }
+
+    @Override
+    public boolean queueAvailable(Object owner, ActivityQuery query) {
+        synchronized (activeQueues) {
+            return !ownerBusy(owner) && queueAvailable(query);
+        }
+    }
+
+    /**
+     * Check if an owner already has a rollback or restore running. Starting another
+     * would cancel it part way through.
+     *
+     * @param owner The owner
+     * @return True if the owner's queue is modifying the world
+     */
+    private boolean ownerBusy(Object owner) {
+        ModificationQueue active = activeQueues.get(owner);
+
+        return active != null && !active.mode().equals(ModificationQueueMode.PLANNING);
+    }
+
+    /**
+     * Count the queues that are running, leaving out finished previews.
+     *
+     * @return The number of running queues
+     */
+    private int runningQueues() {
+        synchronized (activeQueues) {
+            return activeQueues.size() - finishedPreviews.size();
+        }
+    }
+
+    /**
+     * Apply an owner's preview, unless another queue is already modifying its area or
+     * no running slot is free.
+     *
+     * @param owner The owner
+     * @return True if the owner's preview was applied
+     */
+    public boolean applyPreview(Object owner) {
+        ModificationQueue preview;
+        synchronized (activeQueues) {
+            preview = activeQueues.get(owner);
+            if (preview == null || overlapsActiveQueue(preview.query(), owner)) {
+                return false;
+            }
+
+            // A finished preview doesn't hold a slot, so it needs a free one to run again
+            if (finishedPreviews.contains(preview)) {
+                if (!queueAvailable()) {
+                    return false;
+                }
+
+                finishedPreviews.remove(preview);
+                updateTickBudget();
+            }
+        }
+
+        preview.apply();
+
+        return true;
+    }
+
+    /**
+     * Check if a query's area overlaps the area of any active, modifying queue.
+     *
+     * <p>Previews only send block changes to their owner, so they never block another
+     * queue's area. A query without a world and bounding box could touch anything, so
+     * it overlaps every other modifying queue.</p>
+     *
+     * @param query The query
+     * @param ignoredOwner An owner whose queue to ignore, if any
+     * @return True if the query overlaps an active queue
+     */
+    private boolean overlapsActiveQueue(ActivityQuery query, @Nullable Object ignoredOwner) {
+        BoundingBox area = queueArea(query);
+        for (ModificationQueue active : activeQueues.values()) {
+            if (active.owner().equals(ignoredOwner) || active.mode().equals(ModificationQueueMode.PLANNING)) {
+                continue;
+            }
+
+            BoundingBox activeArea = queueArea(active.query());
+            if (
+                area == null ||
+                activeArea == null ||
+                (query.worldUuid().equals(active.query().worldUuid()) && area.overlaps(activeArea))
+            ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the most queues that may run at once.
+     *
+     * @return The max concurrent queues
+     */
+    private int maxConcurrentQueues() {
+        return Math.max(1, configurationService.prismConfig().modifications().maxConcurrentQueues());
+    }
+
+    /**
+     * Get the area a query's queue may modify, padded by a block for physics and entity moves.
+     *
+     * @param query The query
+     * @return The area, or null if the query isn't bound to a world and bounding box
+     */
+    private BoundingBox queueArea(ActivityQuery query) {
+        if (query == null || query.worldUuid() == null) {
+            return null;
+        }
+
+        if (query.coordinate() != null) {
+            Coordinate coordinate = query.coordinate();
+            return BoundingBox.of(
+                new Vector(coordinate.x(), coordinate.y(), coordinate.z()),
+                new Vector(coordinate.x(), coordinate.y(), coordinate.z())
+            ).expand(1);
+        }
+
+        if (query.minCoordinate() == null || query.maxCoordinate() == null) {
+            return null;
+        }
+
+        return BoundingBox.of(
+            new Vector(query.minCoordinate().x(), query.minCoordinate().y(), query.minCoordinate().z()),
+            new Vector(query.maxCoordinate().x(), query.maxCoordinate().y(), query.maxCoordinate().z())
+        ).expand(1);
+    }
+
+    /**
+     * Track a new queue and share the tick budget between the active queues.
+     *
+     * @param queue The queue
+     * @return The queue
+     */
+    private ModificationQueue admit(ModificationQueue queue) {
+        synchronized (activeQueues) {
+            activeQueues.put(queue.owner(), queue);
+            updateTickBudget();
+        }
+
+        return queue;
+    }
+
+    /**
+     * Share the tick budget between the running queues.
+     */
+    private void updateTickBudget() {
+        ModificationTickBudget.activeQueues(runningQueues());
     }
 
     @Override
     public boolean cancelQueueForOwner(Object owner) {
-        if (currentQueue != null && currentQueue.owner().equals(owner)) {
-            this.currentQueue.destroy();
-            this.currentQueue = null;
+        ModificationQueue queue;
+        synchronized (activeQueues) {
+            queue = activeQueues.remove(owner);
+            if (queue != null) {
+                finishedPreviews.remove(queue);
+            }
+
+            updateTickBudget();
+        }
+
+        if (queue != null) {
+            queue.destroy();
 
             return true;
         }
@@ -263,12 +462,12 @@ public class PaperModificationQueueService implements ModificationQueueService {
      * @param onComplete Optional callback fired once cleanup (including any reveal) finishes
      */
     public void clearEverythingForOwner(Object owner, Runnable onComplete) {
-        // Capture the in-flight preview's query before destroy() nulls currentQueue.
+        // Capture the in-flight preview's query before destroy() drops the active queue.
         // Without this, cancelling a preview before it finishes leaves phantom block
         // changes on the player's client — finalizeResult never runs, so queueResults
         // has no entry to drive the reveal below.
         ActivityQuery previewQuery = null;
-        ModificationQueue active = currentQueue;
+        ModificationQueue active = activeQueues.get(owner);
         if (
             active != null &&
             active.owner().equals(owner) &&
@@ -308,6 +507,10 @@ public class PaperModificationQueueService implements ModificationQueueService {
     public void disconnectedOwner(Object owner) {
         cancelQueueForOwner(owner);
         queueResults.invalidate(owner);
+
+        if (owner instanceof Player player) {
+            previewBlockChangeService.discard(player);
+        }
     }
 
     /**
@@ -341,8 +544,8 @@ public class PaperModificationQueueService implements ModificationQueueService {
      * Pull the next batch of previewed activities and reveal their live block
      * state to the player. Recurses until the stream is drained, then closes
      * it and fires {@code onComplete}. Each batch hops to the player's region
-     * thread because {@code block.getBlockData()} and {@code sendBlockChange}
-     * must run there on Folia.
+     * thread, where the live blocks are queued and later sent as multi-block
+     * changes by the {@link PreviewBlockChangeService}.
      *
      * @param player The previewing player
      * @param stream The stream opened from the result's query
@@ -403,7 +606,8 @@ public class PaperModificationQueueService implements ModificationQueueService {
                         activity.coordinate().intZ()
                     );
 
-                    player.sendBlockChange(block.getLocation(), block.getBlockData());
+                    // Read when sent, so a later change to the block isn't overwritten by a stale one
+                    previewBlockChangeService.sendLiveBlock(player, block.getLocation());
                 }
 
                 processed[0] += batch.size();
@@ -441,16 +645,26 @@ public class PaperModificationQueueService implements ModificationQueueService {
     @Nullable
     @Override
     public ModificationQueue currentQueue() {
-        return currentQueue;
+        synchronized (activeQueues) {
+            ModificationQueue latest = null;
+            for (ModificationQueue queue : activeQueues.values()) {
+                latest = queue;
+            }
+
+            return latest;
+        }
     }
 
     @Override
-    public Optional<ModificationQueue> currentQueueForOwner(Object owner) {
-        if (currentQueue != null && currentQueue.owner().equals(owner)) {
-            return Optional.of(currentQueue);
+    public List<ModificationQueue> currentQueues() {
+        synchronized (activeQueues) {
+            return List.copyOf(activeQueues.values());
         }
+    }
 
-        return Optional.empty();
+    @Override
+    public Optional<ModificationQueue> currentQueueForOwner(Object owner) {
+        return Optional.ofNullable(activeQueues.get(owner));
     }
 
     @Override
@@ -477,16 +691,21 @@ public class PaperModificationQueueService implements ModificationQueueService {
         ActivityQuery query,
         ActivityStream activityStream
     ) {
-        if (!queueAvailable()) {
-            throw new IllegalStateException("No queue available until current queue finished.");
-        }
+        synchronized (activeQueues) {
+            // Never cancel a running rollback/restore by starting another for the same owner
+            if (ownerBusy(owner)) {
+                throw new IllegalStateException("The owner already has a modification queue running.");
+            }
 
-        // Cancel any existing queues/results
-        clearEverythingForOwner(owner);
+            // Cancel any existing preview/results
+            clearEverythingForOwner(owner);
 
-        this.currentQueue = rollbackFactory.create(modificationRuleset, owner, query, activityStream, this::onEnd);
+            if (!queueAvailable(query)) {
+                throw new IllegalStateException("No queue available until an overlapping queue finishes.");
+            }
 
-        return this.currentQueue;
+            return admit(rollbackFactory.create(modificationRuleset, owner, query, activityStream, this::onEnd));
+        }
     }
 
     @Override
@@ -496,16 +715,21 @@ public class PaperModificationQueueService implements ModificationQueueService {
         ActivityQuery query,
         ActivityStream activityStream
     ) {
-        if (!queueAvailable()) {
-            throw new IllegalStateException("No queue available until current queue finished.");
-        }
+        synchronized (activeQueues) {
+            // Never cancel a running rollback/restore by starting another for the same owner
+            if (ownerBusy(owner)) {
+                throw new IllegalStateException("The owner already has a modification queue running.");
+            }
 
-        // Cancel any existing queues/results
-        clearEverythingForOwner(owner);
+            // Cancel any existing preview/results
+            clearEverythingForOwner(owner);
 
-        this.currentQueue = restoreFactory.create(modificationRuleset, owner, query, activityStream, this::onEnd);
+            if (!queueAvailable(query)) {
+                throw new IllegalStateException("No queue available until an overlapping queue finishes.");
+            }
 
-        return this.currentQueue;
+            return admit(restoreFactory.create(modificationRuleset, owner, query, activityStream, this::onEnd));
+        }
     }
 
     /**
@@ -530,7 +754,7 @@ public class PaperModificationQueueService implements ModificationQueueService {
         ActivityQuery query,
         ModificationRuleset ruleset
     ) {
-        if (!queueAvailable()) {
+        if (!queueAvailable(owner, query)) {
             return CompletableFuture.failedFuture(new IllegalStateException("A modification queue is already running"));
         }
 
@@ -642,8 +866,8 @@ public class PaperModificationQueueService implements ModificationQueueService {
      */
     protected void onEnd(ModificationQueueResult result) {
         // Prefer the queue carried on the result — it's the queue that just ended,
-        // even if currentQueue has since been cleared by a concurrent cancel.
-        ModificationQueue endedQueue = result.queue() != null ? result.queue() : currentQueue;
+        // even if it has since been cleared by a concurrent cancel.
+        ModificationQueue endedQueue = result.queue() != null ? result.queue() : currentQueue();
         Object owner = endedQueue.owner();
         queueResults.put(owner, result);
 
@@ -675,6 +899,14 @@ public class PaperModificationQueueService implements ModificationQueueService {
             // Clear and destroy the queue if completing
             cancelQueueForOwner(owner);
         } else if (result.mode().equals(ModificationQueueMode.PLANNING)) {
+            // The preview waits for its owner to apply or cancel it without holding a running slot
+            synchronized (activeQueues) {
+                if (activeQueues.get(owner) == endedQueue) {
+                    finishedPreviews.add(endedQueue);
+                    updateTickBudget();
+                }
+            }
+
             // Message the user with results
             if (owner instanceof CommandSender sender) {
                 messageService.modificationsAppliedSuccess(sender, result.planned());
@@ -707,9 +939,11 @@ public class PaperModificationQueueService implements ModificationQueueService {
             return;
         }
 
-        // Snapshot the entries — the cached result list could be mutated by
-        // cancelPreview or eviction while we iterate async.
-        List<UndoEntry> entries = List.copyOf(queueResult.undoEntries());
+        // Copy the entries unless they're already journaled — the cached result
+        // could otherwise be mutated by cancelPreview or eviction while we iterate async.
+        BlockUndoJournal entries = queueResult.undoEntries() instanceof BlockUndoJournal journal
+            ? journal
+            : BlockUndoJournal.copyOf(queueResult.undoEntries());
         if (entries.isEmpty()) {
             undoInProgress.set(false);
             messageService.modificationsUndoNoResult(sender);
@@ -721,7 +955,10 @@ public class PaperModificationQueueService implements ModificationQueueService {
         int[] lastReportedPercent = { 0 };
         List<Long> appliedKeys = new ArrayList<>();
 
-        replayUndoBatch(sender, entries, 0, applied, skipped, appliedKeys, lastReportedPercent, undoOfRollback);
+        // Replay a chunk at a time so each batch touches as few chunks as possible
+        int[] order = entries.chunkOrder();
+
+        replayUndoBatch(sender, entries, order, 0, applied, skipped, appliedKeys, lastReportedPercent, undoOfRollback);
     }
 
     /**
@@ -730,7 +967,8 @@ public class PaperModificationQueueService implements ModificationQueueService {
      */
     private void replayUndoBatch(
         CommandSender sender,
-        List<UndoEntry> entries,
+        BlockUndoJournal entries,
+        int[] order,
         int cursor,
         int[] applied,
         int[] skipped,
@@ -744,13 +982,10 @@ public class PaperModificationQueueService implements ModificationQueueService {
         }
 
         int end = Math.min(cursor + UNDO_REPLAY_BATCH_SIZE, entries.size());
-        List<UndoEntry> batch = entries.subList(cursor, end);
 
         Runnable applyBatch = () -> {
-            for (UndoEntry entry : batch) {
-                if (!(entry instanceof BlockUndoEntry block)) {
-                    continue;
-                }
+            for (int i = cursor; i < end; i++) {
+                BlockUndoEntry block = entries.get(order[i]);
 
                 try {
                     World world = Bukkit.getWorld(block.worldUuid());
@@ -815,6 +1050,7 @@ public class PaperModificationQueueService implements ModificationQueueService {
                     replayUndoBatch(
                         sender,
                         entries,
+                        order,
                         end,
                         applied,
                         skipped,
@@ -47,6 +47,7 @@ public class PaperRestore extends AbstractWorldModificationQueue implements Rest
      * @param storageAdapter The storage adapter
      * @param prismScheduler The scheduler
      * @param modificationExecutor The modification executor
+     * @param modificationJobService The modification job service
      * @param modificationRuleset The ruleset
      * @param owner The owner
      * @param query The query used
@@ -61,6 +62,7 @@ public class PaperRestore extends AbstractWorldModificationQueue implements Rest
         StorageAdapter storageAdapter,
         PrismScheduler prismScheduler,
         ModificationExecutor modificationExecutor,
+        ModificationJobService modificationJobService,
         @Assisted ModificationRuleset modificationRuleset,
         @Assisted Object owner,
         @Assisted ActivityQuery query,
@@ -74,6 +76,7 @@ public class PaperRestore extends AbstractWorldModificationQueue implements Rest
             storageAdapter,
             prismScheduler,
             modificationExecutor,
+            modificationJobService,
             modificationRuleset,
             owner,
             query,
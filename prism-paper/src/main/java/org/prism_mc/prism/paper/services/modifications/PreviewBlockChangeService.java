@@ -0,0 +1,201 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.papermc.paper.math.Position;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.bukkit.Location;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
+import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
+
+/**
+ * Sends preview block changes to players as multi-block-change packets, a few thousand per tick.
+ *
+ * <p>Sending a packet per block disconnects players viewing very large previews. Changes are
+ * queued per viewer instead and a task on the viewer's thread sends them each tick, which the
+ * server splits into one packet per chunk section.</p>
+ *
+ * <p>A change queued for a location that is still waiting replaces the waiting one, so the
+ * viewer always ends up with the latest state.</p>
+ */
+@Singleton
+public class PreviewBlockChangeService {
+
+    /**
+     * The configuration service.
+     */
+    private final ConfigurationService configurationService;
+
+    /**
+     * The scheduler.
+     */
+    private final PrismScheduler prismScheduler;
+
+    /**
+     * Changes waiting to be sent, by viewer.
+     */
+    private final Map<UUID, PendingChanges> pendingChanges = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param configurationService The configuration service
+     * @param prismScheduler The scheduler
+     */
+    @Inject
+    public PreviewBlockChangeService(ConfigurationService configurationService, PrismScheduler prismScheduler) {
+        this.configurationService = configurationService;
+        this.prismScheduler = prismScheduler;
+    }
+
+    /**
+     * Show a block as the given block data to a player.
+     *
+     * @param player The player
+     * @param location The block location
+     * @param blockData The block data
+     */
+    public void sendBlockChange(Player player, Location location, BlockData blockData) {
+        queue(player, location, blockData);
+    }
+
+    /**
+     * Show a block as it really is to a player, reading it when the change is sent.
+     *
+     * @param player The player
+     * @param location The block location
+     */
+    public void sendLiveBlock(Player player, Location location) {
+        queue(player, location, null);
+    }
+
+    /**
+     * Drop a player's waiting changes, once they've disconnected.
+     *
+     * @param player The player
+     */
+    public void discard(Player player) {
+        PendingChanges changes = pendingChanges.remove(player.getUniqueId());
+        if (changes != null) {
+            synchronized (changes) {
+                changes.changes.clear();
+            }
+        }
+    }
+
+    /**
+     * Queue a change and start sending if nothing is being sent yet.
+     *
+     * @param player The player
+     * @param location The block location
+     * @param blockData The block data, or null to read the live block
+     */
+    private void queue(Player player, Location location, @Nullable BlockData blockData) {
+        PendingChanges changes = pendingChanges.computeIfAbsent(player.getUniqueId(), uuid -> new PendingChanges());
+
+        boolean startSending;
+        synchronized (changes) {
+            changes.changes.put(location.toBlockLocation(), blockData);
+            startSending = !changes.sending;
+            changes.sending = true;
+        }
+
+        if (startSending) {
+            prismScheduler.runForEntityFixedRate(player, task -> send(player, changes, task::cancel), 1, 1);
+        }
+    }
+
+    /**
+     * Send the next slice of a player's waiting changes. Runs on the player's thread.
+     *
+     * @param player The player
+     * @param changes The player's waiting changes
+     * @param stop Stops the sending task
+     */
+    private void send(Player player, PendingChanges changes, Runnable stop) {
+        int limit = Math.max(1, configurationService.prismConfig().modifications().previewBlocksPerTick());
+
+        List<Map.Entry<Location, BlockData>> slice = new ArrayList<>();
+        synchronized (changes) {
+            Iterator<Map.Entry<Location, BlockData>> iterator = changes.changes.entrySet().iterator();
+            while (iterator.hasNext() && slice.size() < limit) {
+                var entry = iterator.next();
+                slice.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue()));
+                iterator.remove();
+            }
+
+            if (changes.changes.isEmpty()) {
+                changes.sending = false;
+                stop.run();
+            }
+        }
+
+        if (!player.isOnline()) {
+            return;
+        }
+
+        Map<Position, BlockData> blockChanges = new HashMap<>(slice.size());
+        for (var entry : slice) {
+            Location location = entry.getKey();
+
+            // The client applies changes to the world it's in, so skip changes in other worlds
+            if (!player.getWorld().equals(location.getWorld())) {
+                continue;
+            }
+
+            BlockData blockData = entry.getValue() != null ? entry.getValue() : location.getBlock().getBlockData();
+            blockChanges.put(Position.block(location), blockData);
+        }
+
+        if (!blockChanges.isEmpty()) {
+            player.sendMultiBlockChange(blockChanges);
+        }
+    }
+
+    /**
+     * A viewer's waiting changes. Guarded by its own monitor.
+     */
+    private static class PendingChanges {
+
+        /**
+         * The changes in the order they were queued. A null block data means the live block.
+         */
+        private final LinkedHashMap<Location, BlockData> changes = new LinkedHashMap<>();
+
+        /**
+         * Whether a task is sending these changes.
+         */
+        private boolean sending;
+    }
+}
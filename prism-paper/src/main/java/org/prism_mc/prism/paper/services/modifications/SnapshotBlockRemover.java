@@ -0,0 +1,479 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.util.BoundingBox;
+import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
+
+/**
+ * Removes blocks of given materials from an area without walking the area on the tick.
+ *
+ * <p>Loaded chunks in the area are captured as {@link ChunkSnapshot}s on their owning thread a few
+ * at a time, and scanned off-thread, skipping sections that only hold air. Unloaded chunks are
+ * skipped rather than loaded. Only the matching coordinates are sent back, to a single drain per
+ * region thread that removes them in slices that fit the tick budget.</p>
+ *
+ * <p>If scanning or a drain fails, the other drains stop and nothing more is scanned.</p>
+ */
+public final class SnapshotBlockRemover {
+
+    /**
+     * How many chunks may be loaded, captured or scanned at once.
+     */
+    private static final int MAX_CHUNKS_IN_FLIGHT = 4;
+
+    /**
+     * Constructor.
+     */
+    private SnapshotBlockRemover() {}
+
+    /**
+     * Remove blocks of the given materials within a bounding box, in one pass over the area.
+     *
+     * @param prismScheduler The scheduler
+     * @param world The world
+     * @param boundingBox The bounding box
+     * @param materials The materials to remove
+     * @param budgetNanos The time each region thread may spend removing per tick, or 0 for no limit
+     * @return A future completing with the number of removed blocks per material
+     */
+    public static CompletableFuture<Map<Material, Integer>> removeBlocksByMaterial(
+        PrismScheduler prismScheduler,
+        World world,
+        BoundingBox boundingBox,
+        Set<Material> materials,
+        long budgetNanos
+    ) {
+        int minX = (int) boundingBox.getMinX();
+        int minY = Math.max((int) boundingBox.getMinY(), world.getMinHeight());
+        int minZ = (int) boundingBox.getMinZ();
+        int maxX = (int) boundingBox.getMaxX();
+        int maxY = Math.min((int) boundingBox.getMaxY(), world.getMaxHeight());
+        int maxZ = (int) boundingBox.getMaxZ();
+
+        if (materials.isEmpty() || minX >= maxX || minY >= maxY || minZ >= maxZ) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        List<ChunkArea> chunks = new ArrayList<>();
+        for (int chunkX = minX >> 4; chunkX <= (maxX - 1) >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= (maxZ - 1) >> 4; chunkZ++) {
+                BoundingBox chunkBox = new BoundingBox(
+                    Math.max(minX, chunkX << 4),
+                    minY,
+                    Math.max(minZ, chunkZ << 4),
+                    Math.min(maxX, (chunkX + 1) << 4),
+                    maxY,
+                    Math.min(maxZ, (chunkZ + 1) << 4)
+                );
+
+                Location chunkLocation = new Location(world, chunkX << 4, minY, chunkZ << 4);
+                chunks.add(new ChunkArea(chunkLocation, chunkBox));
+            }
+        }
+
+        return new Removal(prismScheduler, world, materials, budgetNanos, chunks).start();
+    }
+
+    /**
+     * Capture a chunk snapshot on the chunk's owning thread. Unloaded chunks are skipped.
+     *
+     * @param prismScheduler The scheduler
+     * @param world The world
+     * @param chunkLocation A location in the chunk
+     * @return A future completing with the snapshot, or null if the chunk isn't loaded
+     */
+    static CompletableFuture<ChunkSnapshot> snapshot(
+        PrismScheduler prismScheduler,
+        World world,
+        Location chunkLocation
+    ) {
+        CompletableFuture<ChunkSnapshot> future = new CompletableFuture<>();
+
+        prismScheduler.runAtLocation(chunkLocation, () -> {
+            try {
+                int chunkX = chunkLocation.getBlockX() >> 4;
+                int chunkZ = chunkLocation.getBlockZ() >> 4;
+
+                future.complete(
+                    world.isChunkLoaded(chunkX, chunkZ)
+                        ? world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false)
+                        : null
+                );
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Find the blocks of the given materials in a chunk snapshot. Runs off-thread.
+     *
+     * @param snapshot The chunk snapshot, or null
+     * @param chunkBox The part of the bounding box within the chunk
+     * @param materials The materials to find
+     * @param worldMinHeight The world's min height
+     * @return The matching block coordinates, packed as x, y, z triples
+     */
+    private static int[] scan(
+        ChunkSnapshot snapshot,
+        BoundingBox chunkBox,
+        Set<Material> materials,
+        int worldMinHeight
+    ) {
+        if (snapshot == null) {
+            return new int[0];
+        }
+
+        int minX = (int) chunkBox.getMinX();
+        int minY = (int) chunkBox.getMinY();
+        int minZ = (int) chunkBox.getMinZ();
+        int maxX = (int) chunkBox.getMaxX();
+        int maxY = (int) chunkBox.getMaxY();
+        int maxZ = (int) chunkBox.getMaxZ();
+
+        int[] coordinates = new int[48];
+        int size = 0;
+
+        for (int sectionY = minY >> 4; sectionY <= (maxY - 1) >> 4; sectionY++) {
+            // Sections holding only air can't contain anything to remove
+            if (snapshot.isSectionEmpty(sectionY - (worldMinHeight >> 4))) {
+                continue;
+            }
+
+            int sectionMinY = Math.max(minY, sectionY << 4);
+            int sectionMaxY = Math.min(maxY, (sectionY + 1) << 4);
+
+            for (int y = sectionMinY; y < sectionMaxY; y++) {
+                for (int x = minX; x < maxX; x++) {
+                    for (int z = minZ; z < maxZ; z++) {
+                        if (!materials.contains(snapshot.getBlockType(x & 15, y, z & 15))) {
+                            continue;
+                        }
+
+                        if (size + 3 > coordinates.length) {
+                            coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+                        }
+
+                        coordinates[size++] = x;
+                        coordinates[size++] = y;
+                        coordinates[size++] = z;
+                    }
+                }
+            }
+        }
+
+        return Arrays.copyOf(coordinates, size);
+    }
+
+    /**
+     * A chunk within the area.
+     *
+     * @param location A location in the chunk
+     * @param box The part of the bounding box within the chunk
+     */
+    private record ChunkArea(Location location, BoundingBox box) {}
+
+    /**
+     * One removal run. Scans chunks through a fixed number of lanes and feeds the results
+     * to one drain per region thread.
+     */
+    private static final class Removal {
+
+        /**
+         * The scheduler.
+         */
+        private final PrismScheduler prismScheduler;
+
+        /**
+         * The world.
+         */
+        private final World world;
+
+        /**
+         * The materials to remove.
+         */
+        private final Set<Material> materials;
+
+        /**
+         * The time each drain may spend per tick, or 0 for no limit.
+         */
+        private final long budgetNanos;
+
+        /**
+         * The chunks to scan.
+         */
+        private final List<ChunkArea> chunks;
+
+        /**
+         * The index of the next chunk to scan.
+         */
+        private final AtomicInteger nextChunk = new AtomicInteger();
+
+        /**
+         * The drains, keyed by region thread.
+         */
+        private final Map<Object, RemovalDrain> drains = new ConcurrentHashMap<>();
+
+        /**
+         * The number of removed blocks per material.
+         */
+        private final Map<Material, AtomicInteger> removed = new ConcurrentHashMap<>();
+
+        /**
+         * Set once scanning or a drain fails, to stop everything else.
+         */
+        private volatile boolean failed = false;
+
+        /**
+         * Constructor.
+         *
+         * @param prismScheduler The scheduler
+         * @param world The world
+         * @param materials The materials to remove
+         * @param budgetNanos The time each drain may spend per tick, or 0 for no limit
+         * @param chunks The chunks to scan
+         */
+        Removal(
+            PrismScheduler prismScheduler,
+            World world,
+            Set<Material> materials,
+            long budgetNanos,
+            List<ChunkArea> chunks
+        ) {
+            this.prismScheduler = prismScheduler;
+            this.world = world;
+            this.materials = materials;
+            this.budgetNanos = budgetNanos;
+            this.chunks = chunks;
+        }
+
+        /**
+         * Start scanning, and wait for the drains to empty once every chunk is scanned.
+         *
+         * @return A future completing with the number of removed blocks per material
+         */
+        CompletableFuture<Map<Material, Integer>> start() {
+            List<CompletableFuture<Void>> lanes = new ArrayList<>();
+            for (int i = 0; i < Math.min(MAX_CHUNKS_IN_FLIGHT, chunks.size()); i++) {
+                lanes.add(scanNext().whenComplete((ignored, throwable) -> failIf(throwable)));
+            }
+
+            return CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, throwable) -> drains.values().forEach(RemovalDrain::finishScanning))
+                .thenCompose(ignored ->
+                    CompletableFuture.allOf(
+                        drains.values().stream().map(RemovalDrain::completion).toArray(CompletableFuture[]::new)
+                    )
+                )
+                .thenApply(ignored -> {
+                    Map<Material, Integer> counts = new EnumMap<>(Material.class);
+                    removed.forEach((material, count) -> counts.put(material, count.get()));
+
+                    return counts;
+                });
+        }
+
+        /**
+         * Stop the drains and any further scanning after a failure.
+         *
+         * @param throwable The failure, or null if there wasn't one
+         */
+        private void failIf(Throwable throwable) {
+            if (throwable != null) {
+                failed = true;
+            }
+        }
+
+        /**
+         * Load, capture and scan the next chunk, then move on to the one after it.
+         *
+         * @return A future completing when no chunks are left
+         */
+        private CompletableFuture<Void> scanNext() {
+            int index = nextChunk.getAndIncrement();
+            if (failed || index >= chunks.size()) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            ChunkArea chunk = chunks.get(index);
+
+            return snapshot(prismScheduler, world, chunk.location())
+                .thenApplyAsync(
+                    snapshot -> scan(snapshot, chunk.box(), materials, world.getMinHeight()),
+                    prismScheduler::runAsync
+                )
+                .thenAccept(coordinates -> {
+                    if (!failed && coordinates.length > 0) {
+                        drains
+                            .computeIfAbsent(prismScheduler.regionKey(chunk.location()), key ->
+                                new RemovalDrain(chunk.location())
+                            )
+                            .add(coordinates);
+                    }
+                })
+                .thenCompose(ignored -> scanNext());
+        }
+
+        /**
+         * Removes queued blocks on one region thread, a budgeted slice per tick.
+         *
+         * <p>Each block is checked again before removal, since the world may have changed since
+         * the snapshot was taken.</p>
+         */
+        private final class RemovalDrain {
+
+            /**
+             * Block coordinates waiting for removal, packed as x, y, z triples.
+             */
+            private final Queue<int[]> pending = new ConcurrentLinkedQueue<>();
+
+            /**
+             * Completes once scanning is done and the queue is empty.
+             */
+            private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+            /**
+             * Whether every chunk has been scanned.
+             */
+            private volatile boolean scanned = false;
+
+            /**
+             * The coordinates being removed. Only touched by the drain's thread.
+             */
+            private int[] current;
+
+            /**
+             * The position within the current coordinates.
+             */
+            private int cursor;
+
+            /**
+             * Constructor. Starts the drain's repeating task.
+             *
+             * @param location A location owned by the drain's thread
+             */
+            RemovalDrain(Location location) {
+                completion.whenComplete((ignored, throwable) -> failIf(throwable));
+                prismScheduler.runAtLocationFixedRate(location, this::tick, 1, 1);
+            }
+
+            /**
+             * Queue coordinates for removal.
+             *
+             * @param coordinates The block coordinates, packed as x, y, z triples
+             */
+            void add(int[] coordinates) {
+                pending.add(coordinates);
+            }
+
+            /**
+             * Signal that no more coordinates will be queued.
+             */
+            void finishScanning() {
+                scanned = true;
+            }
+
+            /**
+             * Get the completion future.
+             *
+             * @return The completion future
+             */
+            CompletableFuture<Void> completion() {
+                return completion;
+            }
+
+            /**
+             * Remove queued blocks until the budget runs out.
+             *
+             * @param task The repeating task
+             */
+            private void tick(ScheduledTask task) {
+                try {
+                    if (failed) {
+                        task.cancel();
+                        completion.completeExceptionally(
+                            new CancellationException("Stopped after another part of the removal failed")
+                        );
+
+                        return;
+                    }
+
+                    // Read before polling, so anything queued ahead of the flag is drained first
+                    boolean done = scanned;
+                    long startNanos = System.nanoTime();
+
+                    while (true) {
+                        if (current == null || cursor >= current.length) {
+                            current = pending.poll();
+                            cursor = 0;
+
+                            if (current == null) {
+                                break;
+                            }
+                        }
+
+                        Block block = world.getBlockAt(current[cursor], current[cursor + 1], current[cursor + 2]);
+                        cursor += 3;
+
+                        Material type = block.getType();
+                        if (materials.contains(type)) {
+                            block.setType(Material.AIR);
+                            removed.computeIfAbsent(type, key -> new AtomicInteger()).incrementAndGet();
+                        }
+
+                        if (budgetNanos > 0 && System.nanoTime() - startNanos >= budgetNanos) {
+                            break;
+                        }
+                    }
+
+                    if (done && current == null) {
+                        task.cancel();
+                        completion.complete(null);
+                    }
+                } catch (Throwable t) {
+                    task.cancel();
+                    completion.completeExceptionally(t);
+                }
+            }
+        }
+    }
+}
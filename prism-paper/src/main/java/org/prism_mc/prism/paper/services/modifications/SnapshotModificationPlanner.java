@@ -0,0 +1,199 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.services.modifications.ModificationHandler;
+import org.prism_mc.prism.api.services.modifications.ModificationResult;
+import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
+import org.prism_mc.prism.paper.services.scheduling.PrismScheduler;
+
+/**
+ * Plans previews off-thread from chunk snapshots.
+ *
+ * <p>Each chunk a batch touches is captured as a {@link ChunkSnapshot} on its owning thread,
+ * then every chunk's activities are planned in parallel against the snapshot. Only taking the
+ * snapshots touches the tick; preview block changes are queued for the players' own rate-limited
+ * sends. Activities that can't be planned from a snapshot (entities, items, custom handlers,
+ * unloaded chunks) are handed back to run through the executor as before.</p>
+ */
+public final class SnapshotModificationPlanner {
+
+    /**
+     * Constructor.
+     */
+    private SnapshotModificationPlanner() {}
+
+    /**
+     * Plan a preview batch.
+     *
+     * @param prismScheduler The scheduler
+     * @param batch The batch
+     * @param modificationRuleset The modification ruleset
+     * @param owner The owner
+     * @param rollback True to plan a rollback, false to plan a restore
+     * @return A future completing with the planned results and the activities left to the executor
+     */
+    public static CompletableFuture<PlannedBatch> plan(
+        PrismScheduler prismScheduler,
+        List<Activity> batch,
+        ModificationRuleset modificationRuleset,
+        Object owner,
+        boolean rollback
+    ) {
+        List<Activity> remaining = new ArrayList<>();
+        Map<ChunkKey, List<Activity>> chunks = new LinkedHashMap<>();
+
+        for (Activity activity : batch) {
+            if (
+                activity.worldUuid() == null ||
+                activity.coordinate() == null ||
+                !activity.action().type().reversible() ||
+                !(handler(activity) instanceof SnapshotPlannable)
+            ) {
+                remaining.add(activity);
+                continue;
+            }
+
+            ChunkKey key = new ChunkKey(
+                activity.worldUuid(),
+                (int) Math.floor(activity.coordinate().x()) >> 4,
+                (int) Math.floor(activity.coordinate().z()) >> 4
+            );
+            chunks.computeIfAbsent(key, k -> new ArrayList<>()).add(activity);
+        }
+
+        List<CompletableFuture<PlannedBatch>> chunkFutures = new ArrayList<>(chunks.size());
+        for (Map.Entry<ChunkKey, List<Activity>> entry : chunks.entrySet()) {
+            ChunkKey key = entry.getKey();
+            List<Activity> activities = entry.getValue();
+
+            World world = Bukkit.getWorld(key.worldUuid());
+            if (world == null) {
+                remaining.addAll(activities);
+                continue;
+            }
+
+            Location chunkLocation = new Location(world, key.chunkX() << 4, 0, key.chunkZ() << 4);
+            chunkFutures.add(
+                SnapshotBlockRemover.snapshot(prismScheduler, world, chunkLocation).thenApplyAsync(
+                    snapshot -> planChunk(snapshot, activities, modificationRuleset, owner, rollback),
+                    prismScheduler::runAsync
+                )
+            );
+        }
+
+        return CompletableFuture.allOf(chunkFutures.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            List<ModificationResult> results = new ArrayList<>();
+            for (CompletableFuture<PlannedBatch> chunkFuture : chunkFutures) {
+                PlannedBatch planned = chunkFuture.join();
+                results.addAll(planned.results());
+                remaining.addAll(planned.remaining());
+            }
+
+            return new PlannedBatch(results, remaining);
+        });
+    }
+
+    /**
+     * Plan one chunk's activities against its snapshot. Runs off-thread.
+     *
+     * @param snapshot The chunk snapshot, or null if the chunk isn't loaded
+     * @param activities The chunk's activities
+     * @param modificationRuleset The modification ruleset
+     * @param owner The owner
+     * @param rollback True to plan a rollback, false to plan a restore
+     * @return The planned results and the activities that couldn't be planned
+     */
+    private static PlannedBatch planChunk(
+        ChunkSnapshot snapshot,
+        List<Activity> activities,
+        ModificationRuleset modificationRuleset,
+        Object owner,
+        boolean rollback
+    ) {
+        // Unloaded chunks are loaded by the executor when it reaches them
+        if (snapshot == null) {
+            return new PlannedBatch(List.of(), activities);
+        }
+
+        List<ModificationResult> results = new ArrayList<>(activities.size());
+        List<Activity> remaining = new ArrayList<>();
+
+        for (Activity activity : activities) {
+            int x = (int) Math.floor(activity.coordinate().x());
+            int y = (int) Math.floor(activity.coordinate().y());
+            int z = (int) Math.floor(activity.coordinate().z());
+
+            try {
+                results.add(
+                    ((SnapshotPlannable) handler(activity)).plan(
+                        modificationRuleset,
+                        owner,
+                        activity,
+                        rollback,
+                        snapshot.getBlockData(x & 15, y, z & 15)
+                    )
+                );
+            } catch (Throwable t) {
+                // Leave it to the executor, which reports errors as usual
+                remaining.add(activity);
+            }
+        }
+
+        return new PlannedBatch(results, remaining);
+    }
+
+    /**
+     * Get the handler that applies an activity's modifications.
+     *
+     * @param activity The activity
+     * @return The handler
+     */
+    private static ModificationHandler handler(Activity activity) {
+        ModificationHandler handler = activity.action().type().modificationHandler();
+
+        return handler != null ? handler : activity.action();
+    }
+
+    /**
+     * The outcome of planning a batch.
+     *
+     * @param results The planned results
+     * @param remaining The activities left for the executor
+     */
+    public record PlannedBatch(List<ModificationResult> results, List<Activity> remaining) {}
+
+    /**
+     * A chunk in a world.
+     */
+    private record ChunkKey(UUID worldUuid, int chunkX, int chunkZ) {}
+}
@@ -0,0 +1,51 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import org.bukkit.block.data.BlockData;
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.services.modifications.ModificationResult;
+import org.prism_mc.prism.api.services.modifications.ModificationRuleset;
+
+/**
+ * A modification handler whose preview outcome only depends on the block at the
+ * activity's location, so it can be planned off-thread from a chunk snapshot.
+ */
+public interface SnapshotPlannable {
+    /**
+     * Plan a rollback or restore against the block currently at the activity's location.
+     * Called off the main thread, so implementations must not read or change the world.
+     *
+     * @param modificationRuleset The modification ruleset
+     * @param owner The owner of this modification
+     * @param activityContext The activity
+     * @param rollback True to plan a rollback, false to plan a restore
+     * @param currentBlockData The block data currently at the activity's location
+     * @return The planned result
+     */
+    ModificationResult plan(
+        ModificationRuleset modificationRuleset,
+        Object owner,
+        Activity activityContext,
+        boolean rollback,
+        BlockData currentBlockData
+    );
+}
@@ -122,6 +122,18 @@ public class PaperPurgeQueue implements PurgeQueue {
         running = true;
 
         prismScheduler.runAsync(() -> {
+            // Drop whole time partitions first so the cycles only walk what's left
+            synchronized (purgeQueue) {
+                for (ActivityQuery query : purgeQueue) {
+                    if (query.ageOnly()) {
+                        int count = storageAdapter.dropActivityPartitions(query);
+                        deleted += count;
+
+                        loggingService.debug("Dropped partitions holding {0} activity records", count);
+                    }
+                }
+            }
+
             Pair<Integer, Integer> keys = storageAdapter.getActivitiesPkBounds(purgeQueue.getFirst());
 
             loggingService.debug("Absolute purge lower/bound primary keys: {0}, {1}", keys.key(), keys.value());
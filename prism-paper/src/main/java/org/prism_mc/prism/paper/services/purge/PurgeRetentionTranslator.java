@@ -0,0 +1,127 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.purge;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import org.prism_mc.prism.api.actions.types.ActionType;
+import org.prism_mc.prism.api.actions.types.ActionTypeRegistry;
+import org.prism_mc.prism.core.storage.adapters.clickhouse.ClickhouseRetentionRule;
+import org.prism_mc.prism.paper.utils.DateUtils;
+
+/**
+ * Translates scheduled purge commands into ClickHouse retention rules.
+ *
+ * <p>Only commands a TTL can express exactly qualify: {@code prism purge start} with
+ * {@code --nodefaults}, a {@code before:} age, and optionally {@code a:} actions.
+ * Anything else is left to run as a regular purge.</p>
+ */
+@Singleton
+public class PurgeRetentionTranslator {
+
+    /**
+     * The action type registry.
+     */
+    private final ActionTypeRegistry actionTypeRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param actionTypeRegistry The action type registry
+     */
+    @Inject
+    public PurgeRetentionTranslator(ActionTypeRegistry actionTypeRegistry) {
+        this.actionTypeRegistry = actionTypeRegistry;
+    }
+
+    /**
+     * Translate a purge command into a retention rule.
+     *
+     * @param command The scheduled command
+     * @return The retention rule, or empty if the command can't be expressed as one
+     */
+    public Optional<ClickhouseRetentionRule> translate(String command) {
+        String[] tokens = command.trim().replaceFirst("^/", "").split("\\s+");
+
+        if (
+            tokens.length < 3 ||
+            !(tokens[0].equalsIgnoreCase("prism") || tokens[0].equalsIgnoreCase("pr")) ||
+            !tokens[1].equalsIgnoreCase("purge") ||
+            !tokens[2].equalsIgnoreCase("start")
+        ) {
+            return Optional.empty();
+        }
+
+        Long ageSeconds = null;
+        Set<String> actionKeys = new HashSet<>();
+        boolean noDefaults = false;
+
+        for (int i = 3; i < tokens.length; i++) {
+            String token = tokens[i];
+
+            if (token.equals("--nodefaults") || token.equals("-nd")) {
+                noDefaults = true;
+            } else if (token.equals("--verbose") || token.equals("-v")) {
+                continue;
+            } else if (token.startsWith("before:")) {
+                ageSeconds = DateUtils.parseDurationSeconds(token.substring("before:".length()));
+
+                if (ageSeconds == null) {
+                    return Optional.empty();
+                }
+            } else if (token.startsWith("a:")) {
+                for (String action : token.substring("a:".length()).split(",")) {
+                    String actionKey = action.toLowerCase(Locale.ENGLISH);
+
+                    if (actionKey.contains("-")) {
+                        if (actionTypeRegistry.actionType(actionKey).isEmpty()) {
+                            return Optional.empty();
+                        }
+
+                        actionKeys.add(actionKey);
+                    } else {
+                        var familyTypes = actionTypeRegistry.actionTypesInFamily(actionKey);
+                        if (familyTypes.isEmpty()) {
+                            return Optional.empty();
+                        }
+
+                        for (ActionType actionType : familyTypes) {
+                            actionKeys.add(actionType.key());
+                        }
+                    }
+                }
+            } else {
+                return Optional.empty();
+            }
+        }
+
+        // Without --nodefaults, the purge would also apply the configured default parameters
+        if (!noDefaults || ageSeconds == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new ClickhouseRetentionRule(ageSeconds, actionKeys));
+    }
+}
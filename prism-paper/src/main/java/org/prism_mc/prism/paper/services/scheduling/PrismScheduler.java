@@ -55,6 +55,18 @@ public interface PrismScheduler {
         long periodTicks
     );
 
+    /**
+     * Get a key identifying the thread that runs location-bound tasks for the given location.
+     * Locations with equal keys are ticked by the same thread, so work spread over them
+     * can share a single per-tick budget. On Paper every location runs on the global thread.
+     *
+     * @param location The location
+     * @return The thread key
+     */
+    default Object regionKey(Location location) {
+        return PrismScheduler.class;
+    }
+
     /**
      * Run a task on the thread appropriate for the given entity.
      *
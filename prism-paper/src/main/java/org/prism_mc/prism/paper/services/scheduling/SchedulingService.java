@@ -31,12 +31,18 @@ import com.cronutils.parser.CronParser;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.UUID;
+import org.prism_mc.prism.api.storage.StorageAdapter;
+import org.prism_mc.prism.core.storage.adapters.clickhouse.ClickhouseRetentionRule;
+import org.prism_mc.prism.core.storage.adapters.clickhouse.ClickhouseStorageAdapter;
 import org.prism_mc.prism.loader.services.configuration.ConfigurationService;
 import org.prism_mc.prism.loader.services.configuration.purge.CommandScheduleConfiguration;
 import org.prism_mc.prism.loader.services.logging.LoggingService;
+import org.prism_mc.prism.paper.services.purge.PurgeRetentionTranslator;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
 import org.quartz.JobDetail;
@@ -76,7 +82,9 @@ public class SchedulingService {
     public SchedulingService(
         ConfigurationService configurationService,
         LoggingService loggingService,
-        PrismScheduler prismScheduler
+        PrismScheduler prismScheduler,
+        StorageAdapter storageAdapter,
+        PurgeRetentionTranslator purgeRetentionTranslator
     ) {
         this.loggingService = loggingService;
         this.prismScheduler = prismScheduler;
@@ -92,10 +100,35 @@ public class SchedulingService {
             SchedulerFactory schedulerFactory = new StdSchedulerFactory(quartzProperties);
             scheduler = schedulerFactory.getScheduler();
 
+            boolean ttlRetention =
+                storageAdapter instanceof ClickhouseStorageAdapter &&
+                configurationService.storageConfig().clickhouse().ttlRetention();
+            List<ClickhouseRetentionRule> retentionRules = new ArrayList<>();
+
             for (var commandScheduleConfig : configurationService.prismConfig().purges().commandSchedules()) {
-                if (commandScheduleConfig.enabled()) {
-                    scheduleJob(commandScheduleConfig);
+                if (!commandScheduleConfig.enabled()) {
+                    continue;
+                }
+
+                if (ttlRetention) {
+                    var retentionRule = purgeRetentionTranslator.translate(commandScheduleConfig.command());
+                    if (retentionRule.isPresent()) {
+                        loggingService.info(
+                            "Enforcing scheduled purge with a ClickHouse TTL: {0}",
+                            commandScheduleConfig.command()
+                        );
+                        retentionRules.add(retentionRule.get());
+
+                        continue;
+                    }
                 }
+
+                scheduleJob(commandScheduleConfig);
+            }
+
+            // Always reconcile, so disabling TTL retention removes a previously applied TTL
+            if (storageAdapter instanceof ClickhouseStorageAdapter clickhouseStorageAdapter) {
+                prismScheduler.runAsync(() -> clickhouseStorageAdapter.applyRetentionRules(retentionRules));
             }
 
             scheduler.start();
@@ -136,7 +136,7 @@ public abstract class AbstractModificationWand {
      */
     protected void use(ActivityQuery query, Class<? extends ModificationQueue> clazz) {
         // Ensure a queue is free
-        if (!modificationQueueService.queueAvailable()) {
+        if (!modificationQueueService.queueAvailable(owner, query)) {
             messageService.errorQueueNotFree((CommandSender) owner);
 
             return;
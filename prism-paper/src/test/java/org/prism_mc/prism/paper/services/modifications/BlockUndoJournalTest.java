@@ -0,0 +1,200 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.prism_mc.prism.api.util.Coordinate;
+
+class BlockUndoJournalTest {
+
+    private static final UUID OVERWORLD = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private static final UUID NETHER = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    /**
+     * Block data by state string, so parsing a state twice yields the same instance.
+     */
+    private static final Map<String, BlockData> BLOCK_DATA = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    static void installServer() throws ReflectiveOperationException {
+        Server server = mock(Server.class);
+        when(server.createBlockData(anyString())).thenAnswer(invocation -> blockData(invocation.getArgument(0)));
+
+        // Bukkit.setServer also logs build details a mocked server can't provide
+        Field field = Bukkit.class.getDeclaredField("server");
+        field.setAccessible(true);
+        field.set(null, server);
+    }
+
+    @Test
+    void entriesKeepTheirValues() {
+        BlockUndoJournal journal = new BlockUndoJournal();
+        BlockUndoEntry[] entries = {
+            entry(1, OVERWORLD, 0, 0, 0, "minecraft:stone", "minecraft:air"),
+            entry(2, NETHER, -1, -64, -1, "minecraft:netherrack", "minecraft:fire"),
+            entry(Long.MAX_VALUE, OVERWORLD, 30_000_000, 319, -30_000_000, "minecraft:stone", "minecraft:air"),
+            entry(4, OVERWORLD, -33_554_432, -2048, 33_554_431, "minecraft:dirt", "minecraft:stone"),
+        };
+
+        for (BlockUndoEntry entry : entries) {
+            journal.add(entry);
+        }
+
+        assertEquals(Arrays.asList(entries), journal);
+    }
+
+    @Test
+    void drainedRecordsReadBackIntoAnotherJournal() throws IOException {
+        BlockUndoJournal journal = new BlockUndoJournal();
+        for (int i = 0; i < 100; i++) {
+            UUID world = i % 3 == 0 ? NETHER : OVERWORLD;
+            journal.add(entry(i, world, i * 7, i - 50, -i, "minecraft:state_" + (i % 5), "minecraft:air"));
+        }
+
+        BlockUndoJournal copy = read(journal.drainRecords());
+
+        assertEquals(journal, copy);
+    }
+
+    @Test
+    void drainsOnlyWhatWasAddedSinceTheLastDrain() throws IOException {
+        BlockUndoJournal journal = new BlockUndoJournal();
+        journal.add(entry(1, OVERWORLD, 1, 2, 3, "minecraft:stone", "minecraft:air"));
+        journal.add(entry(2, OVERWORLD, 4, 5, 6, "minecraft:stone", "minecraft:air"));
+        byte[] first = journal.drainRecords();
+
+        journal.add(entry(3, NETHER, 7, 8, 9, "minecraft:netherrack", "minecraft:stone"));
+        byte[] second = journal.drainRecords();
+
+        assertEquals(0, journal.drainRecords().length);
+        assertEquals(journal, read(first, second));
+    }
+
+    @Test
+    void stopsAtATruncatedRecord() throws IOException {
+        BlockUndoJournal journal = new BlockUndoJournal();
+        journal.add(entry(1, OVERWORLD, 1, 2, 3, "minecraft:stone", "minecraft:air"));
+        journal.add(entry(2, OVERWORLD, 4, 5, 6, "minecraft:stone", "minecraft:air"));
+
+        byte[] records = journal.drainRecords();
+        BlockUndoJournal copy = read(Arrays.copyOf(records, records.length - 3));
+
+        assertEquals(journal.subList(0, 1), copy);
+    }
+
+    @Test
+    void chunkOrderGroupsEntriesByChunkInFirstSeenOrder() {
+        BlockUndoJournal journal = new BlockUndoJournal();
+        journal.add(entry(1, OVERWORLD, 0, 64, 0, "minecraft:stone", "minecraft:air"));
+        journal.add(entry(2, OVERWORLD, 16, 64, 0, "minecraft:stone", "minecraft:air"));
+        journal.add(entry(3, OVERWORLD, 5, 70, 5, "minecraft:stone", "minecraft:air"));
+        journal.add(entry(4, OVERWORLD, -1, 64, 0, "minecraft:stone", "minecraft:air"));
+        journal.add(entry(5, OVERWORLD, 17, 64, 3, "minecraft:stone", "minecraft:air"));
+        journal.add(entry(6, NETHER, 0, 64, 0, "minecraft:stone", "minecraft:air"));
+
+        assertArrayEquals(new int[] { 0, 2, 1, 4, 3, 5 }, journal.chunkOrder());
+    }
+
+    /**
+     * Read records into a new journal.
+     *
+     * @param records The record chunks, in the order they were drained
+     * @return The journal
+     * @throws IOException If the records can't be read
+     */
+    private static BlockUndoJournal read(byte[]... records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] chunk : records) {
+            bytes.write(chunk);
+        }
+
+        BlockUndoJournal journal = new BlockUndoJournal();
+        journal.readRecords(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        return journal;
+    }
+
+    /**
+     * Create an undo entry without tile entity NBT.
+     *
+     * @param activityPk The activity primary key
+     * @param worldUuid The world uuid
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param oldState The block state before the modification
+     * @param newState The block state the modification wrote
+     * @return The entry
+     */
+    private static BlockUndoEntry entry(
+        long activityPk,
+        UUID worldUuid,
+        int x,
+        int y,
+        int z,
+        String oldState,
+        String newState
+    ) {
+        return new BlockUndoEntry(
+            activityPk,
+            worldUuid,
+            new Coordinate(x, y, z),
+            blockData(oldState),
+            blockData(newState),
+            null
+        );
+    }
+
+    /**
+     * Get the block data for a state string.
+     *
+     * @param state The state string
+     * @return The block data
+     */
+    private static BlockData blockData(String state) {
+        return BLOCK_DATA.computeIfAbsent(state, key -> {
+            BlockData blockData = mock(BlockData.class);
+            when(blockData.getAsString()).thenReturn(key);
+
+            return blockData;
+        });
+    }
+}
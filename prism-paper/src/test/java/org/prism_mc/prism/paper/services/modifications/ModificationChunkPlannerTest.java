@@ -0,0 +1,147 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.prism_mc.prism.api.actions.BlockAction;
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.containers.BlockContainer;
+import org.prism_mc.prism.api.util.Coordinate;
+import org.prism_mc.prism.api.util.Pair;
+
+class ModificationChunkPlannerTest {
+
+    private static final UUID OVERWORLD = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private static final UUID NETHER = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    void groupsByChunkKeepingTheDatabaseOrderWithinEachChunk() {
+        Activity first = activity(OVERWORLD, 0, 64, 0, "stone");
+        Activity second = activity(OVERWORLD, 0, 65, 0, "stone");
+        Activity otherChunk = activity(OVERWORLD, 20, 64, 0, "stone");
+        Activity third = activity(OVERWORLD, 5, 64, 5, "stone");
+        Activity negativeChunk = activity(OVERWORLD, -3, 64, 0, "stone");
+
+        List<Activity> batch = List.of(first, second, otherChunk, third, negativeChunk);
+
+        assertEquals(
+            List.of(negativeChunk, first, second, third, otherChunk),
+            ModificationChunkPlanner.groupByChunk(batch)
+        );
+    }
+
+    @Test
+    void hangingBlocksComeAfterWhatTheyHangFrom() {
+        Activity caveVines = activity(OVERWORLD, 0, 60, 0, "cave_vines");
+        Activity caveVinesPlant = activity(OVERWORLD, 0, 61, 0, "cave_vines_plant");
+        Activity vine = activity(OVERWORLD, 0, 62, 0, "vine");
+        Activity stone = activity(OVERWORLD, 20, 63, 0, "stone");
+
+        List<Activity> batch = List.of(caveVines, caveVinesPlant, vine, stone);
+
+        assertEquals(List.of(stone, vine, caveVinesPlant, caveVines), ModificationChunkPlanner.groupByChunk(batch));
+    }
+
+    @Test
+    void chunksAreGroupedPerWorld() {
+        Activity nether = activity(NETHER, 0, 64, 0, "netherrack");
+        Activity overworld = activity(OVERWORLD, 0, 64, 0, "stone");
+        Activity netherAgain = activity(NETHER, 1, 64, 0, "netherrack");
+
+        List<Activity> batch = List.of(nether, overworld, netherAgain);
+
+        assertEquals(List.of(overworld, nether, netherAgain), ModificationChunkPlanner.groupByChunk(batch));
+    }
+
+    @Test
+    void groupingLeavesTheBatchUntouched() {
+        List<Activity> batch = new ArrayList<>(
+            List.of(activity(OVERWORLD, 20, 64, 0, "stone"), activity(OVERWORLD, 0, 64, 0, "stone"))
+        );
+        List<Activity> original = List.copyOf(batch);
+
+        ModificationChunkPlanner.groupByChunk(batch);
+
+        assertEquals(original, batch);
+    }
+
+    @Test
+    void chunkKeysFloorNegativeCoordinates() {
+        var key = ModificationChunkPlanner.ChunkKey.of(activity(OVERWORLD, -0.5, 64, -16, "stone"));
+
+        assertEquals(new ModificationChunkPlanner.ChunkKey(OVERWORLD, -1, -1), key);
+    }
+
+    @Test
+    void activitiesWithoutCoordinatesHaveNoChunk() {
+        var world = new Pair<>(OVERWORLD, "world");
+        Activity activity = new Activity(1L, blockAction("stone"), world, null, null, 0, false);
+
+        assertNull(ModificationChunkPlanner.ChunkKey.of(activity));
+    }
+
+    /**
+     * Create a block activity.
+     *
+     * @param worldUuid The world uuid
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param blockName The block name
+     * @return The activity
+     */
+    private static Activity activity(UUID worldUuid, double x, double y, double z, String blockName) {
+        return new Activity(
+            1L,
+            blockAction(blockName),
+            new Pair<>(worldUuid, "world"),
+            new Coordinate(x, y, z),
+            null,
+            0,
+            false
+        );
+    }
+
+    /**
+     * Create a block action for a block.
+     *
+     * @param blockName The block name
+     * @return The block action
+     */
+    private static BlockAction blockAction(String blockName) {
+        BlockContainer blockContainer = mock(BlockContainer.class);
+        when(blockContainer.blockName()).thenReturn(blockName);
+
+        BlockAction action = mock(BlockAction.class);
+        when(action.blockContainer()).thenReturn(blockContainer);
+
+        return action;
+    }
+}
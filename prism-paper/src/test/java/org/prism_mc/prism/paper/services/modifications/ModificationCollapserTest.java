@@ -0,0 +1,168 @@
+/*
+ * prism
+ *
+ * Copyright (c) 2022 M Botsko (viveleroi)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.prism_mc.prism.paper.services.modifications;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.prism_mc.prism.api.actions.Action;
+import org.prism_mc.prism.api.actions.BlockAction;
+import org.prism_mc.prism.api.actions.types.ActionResultType;
+import org.prism_mc.prism.api.actions.types.ActionType;
+import org.prism_mc.prism.api.activities.Activity;
+import org.prism_mc.prism.api.services.modifications.ModificationHandler;
+import org.prism_mc.prism.api.util.Coordinate;
+import org.prism_mc.prism.api.util.Pair;
+import org.prism_mc.prism.paper.actions.types.BlockActionType;
+
+class ModificationCollapserTest {
+
+    private static final UUID WORLD = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private static final ActionType BLOCK_BREAK = new BlockActionType("block-break", ActionResultType.REMOVES, true);
+
+    private static final ActionType BLOCK_PLACE = new BlockActionType("block-place", ActionResultType.CREATES, true);
+
+    @Test
+    void rollbackKeepsTheEarliestChangePerBlock() {
+        Activity latest = blockActivity(1, BLOCK_BREAK, 300, 1, 64, 1);
+        Activity earliest = blockActivity(2, BLOCK_PLACE, 100, 1, 64, 1);
+        Activity middle = blockActivity(3, BLOCK_BREAK, 200, 1, 64, 1);
+
+        var collapsed = ModificationCollapser.collapse(List.of(latest, earliest, middle), true);
+
+        assertEquals(List.of(earliest), collapsed.kept());
+        assertEquals(List.of(latest, middle), collapsed.superseded());
+    }
+
+    @Test
+    void restoreKeepsTheLatestChangePerBlock() {
+        Activity latest = blockActivity(1, BLOCK_BREAK, 300, 1, 64, 1);
+        Activity earliest = blockActivity(2, BLOCK_PLACE, 100, 1, 64, 1);
+        Activity middle = blockActivity(3, BLOCK_BREAK, 200, 1, 64, 1);
+
+        var collapsed = ModificationCollapser.collapse(List.of(latest, earliest, middle), false);
+
+        assertEquals(List.of(latest), collapsed.kept());
+        assertEquals(List.of(earliest, middle), collapsed.superseded());
+    }
+
+    @Test
+    void timestampTiesAreBrokenByPrimaryKey() {
+        Activity higher = blockActivity(5, BLOCK_BREAK, 100, 1, 64, 1);
+        Activity lower = blockActivity(4, BLOCK_PLACE, 100, 1, 64, 1);
+        List<Activity> batch = List.of(higher, lower);
+
+        assertEquals(List.of(lower), ModificationCollapser.collapse(batch, true).kept());
+        assertEquals(List.of(higher), ModificationCollapser.collapse(batch, false).kept());
+    }
+
+    @Test
+    void positionsWithinOneBlockShareIt() {
+        Activity first = blockActivity(1, BLOCK_BREAK, 100, 1.5, 64.2, -0.5);
+        Activity second = blockActivity(2, BLOCK_PLACE, 200, 1.0, 64.0, -0.9);
+
+        var collapsed = ModificationCollapser.collapse(List.of(first, second), true);
+
+        assertEquals(List.of(first), collapsed.kept());
+        assertEquals(List.of(second), collapsed.superseded());
+    }
+
+    @Test
+    void batchWithoutSharedBlocksIsReturnedAsIs() {
+        List<Activity> batch = List.of(
+            blockActivity(1, BLOCK_BREAK, 100, 1, 64, 1),
+            blockActivity(2, BLOCK_BREAK, 100, 2, 64, 1),
+            blockActivity(3, BLOCK_BREAK, 100, 1, 65, 1)
+        );
+
+        var collapsed = ModificationCollapser.collapse(batch, true);
+
+        assertSame(batch, collapsed.kept());
+        assertTrue(collapsed.superseded().isEmpty());
+    }
+
+    @Test
+    void activitiesWithUnknownEffectsAreNeverDropped() {
+        ActionType handled = new BlockActionType("block-custom", ActionResultType.REMOVES, true);
+        handled.modificationHandler(mock(ModificationHandler.class));
+        ActionType irreversible = new BlockActionType("block-burn", ActionResultType.REMOVES, false);
+        ActionType informational = new BlockActionType("block-use", ActionResultType.NONE, true);
+
+        Action notBlock = mock(Action.class);
+        when(notBlock.type()).thenReturn(BLOCK_BREAK);
+
+        Activity kept = blockActivity(1, BLOCK_BREAK, 100, 1, 64, 1);
+        Activity superseded = blockActivity(2, BLOCK_BREAK, 200, 1, 64, 1);
+        List<Activity> batch = List.of(
+            kept,
+            blockActivity(3, handled, 300, 1, 64, 1),
+            blockActivity(4, irreversible, 300, 1, 64, 1),
+            blockActivity(5, informational, 300, 1, 64, 1),
+            new Activity(6L, notBlock, new Pair<>(WORLD, "world"), new Coordinate(1, 64, 1), null, 300, false),
+            superseded
+        );
+
+        var collapsed = ModificationCollapser.collapse(batch, true);
+
+        assertEquals(batch.subList(0, 5), collapsed.kept());
+        assertEquals(List.of(superseded), collapsed.superseded());
+    }
+
+    /**
+     * Create a block activity.
+     *
+     * @param primaryKey The primary key
+     * @param type The action type
+     * @param timestamp The timestamp
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The activity
+     */
+    private static Activity blockActivity(
+        long primaryKey,
+        ActionType type,
+        long timestamp,
+        double x,
+        double y,
+        double z
+    ) {
+        BlockAction action = mock(BlockAction.class);
+        when(action.type()).thenReturn(type);
+
+        return new Activity(
+            primaryKey,
+            action,
+            new Pair<>(WORLD, "world"),
+            new Coordinate(x, y, z),
+            null,
+            timestamp,
+            false
+        );
+    }
+}